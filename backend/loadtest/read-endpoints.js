@@ -0,0 +1,53 @@
+// Read-endpoint load test: run once against the servlet port and once
+// against the "reactive" profile port, with the same database latency.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 backend/loadtest/read-endpoints.js
+//   k6 run -e BASE_URL=http://localhost:8081 backend/loadtest/read-endpoints.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const RATE = Number(__ENV.RATE || 200);
+
+export const options = {
+  scenarios: {
+    reads: {
+      // Fixed arrival rate, so a slower server shows up as latency and
+      // dropped iterations instead of as fewer requests
+      executor: 'constant-arrival-rate',
+      rate: RATE,
+      timeUnit: '1s',
+      duration: __ENV.DURATION || '2m',
+      preAllocatedVUs: Number(__ENV.VUS || 200),
+      maxVUs: Number(__ENV.MAX_VUS || 2000),
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+  const page = http.get(`${BASE_URL}/api/ads/search?status=ACTIVE&size=100`).json();
+  const ids = page.content.map((ad) => ad.id);
+  if (ids.length === 0) {
+    throw new Error('No ACTIVE ads to read');
+  }
+  return { ids };
+}
+
+export default function (data) {
+  const roll = Math.random();
+  let res;
+  if (roll < 0.5) {
+    const id = data.ids[Math.floor(Math.random() * data.ids.length)];
+    res = http.get(`${BASE_URL}/api/ads/${id}`, { tags: { name: 'ad' } });
+  } else if (roll < 0.9) {
+    const page = Math.floor(Math.random() * 5);
+    res = http.get(`${BASE_URL}/api/ads/search?status=ACTIVE&page=${page}&size=20`, { tags: { name: 'search' } });
+  } else {
+    res = http.get(`${BASE_URL}/api/categories`, { tags: { name: 'categories' } });
+  }
+  check(res, { 'status is 200': (r) => r.status === 200 });
+}
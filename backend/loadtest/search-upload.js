@@ -0,0 +1,67 @@
+// Search and image-upload load test for comparing platform and virtual
+// threads: run it once against the default build and once against
+// -Pjava21 with the "virtual-threads" profile, same database latency.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 \
+//          -e AD_ID=42 -e EDIT_TOKEN=... -e IMAGE=./photo.jpg \
+//          backend/loadtest/search-upload.js
+//
+// Without AD_ID/EDIT_TOKEN/IMAGE only the search scenario runs. Uploaded
+// images accumulate on the ad; use a throwaway ad.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const DURATION = __ENV.DURATION || '2m';
+const UPLOAD = Boolean(__ENV.AD_ID && __ENV.EDIT_TOKEN && __ENV.IMAGE);
+const image = UPLOAD ? open(__ENV.IMAGE, 'b') : null;
+
+const scenarios = {
+  search: {
+    // Fixed arrival rate, so a slower server shows up as latency and
+    // dropped iterations instead of as fewer requests
+    executor: 'constant-arrival-rate',
+    exec: 'search',
+    rate: Number(__ENV.SEARCH_RATE || 400),
+    timeUnit: '1s',
+    duration: DURATION,
+    preAllocatedVUs: 200,
+    maxVUs: Number(__ENV.MAX_VUS || 4000),
+  },
+};
+if (UPLOAD) {
+  scenarios.upload = {
+    executor: 'constant-arrival-rate',
+    exec: 'upload',
+    rate: Number(__ENV.UPLOAD_RATE || 10),
+    timeUnit: '1s',
+    duration: DURATION,
+    preAllocatedVUs: 20,
+    maxVUs: 400,
+  };
+}
+
+export const options = {
+  scenarios,
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+  },
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const WORDS = ['villa', 'bike', 'room', 'beach', 'scooter', 'house', ''];
+
+export function search() {
+  const q = WORDS[Math.floor(Math.random() * WORDS.length)];
+  const page = Math.floor(Math.random() * 5);
+  const res = http.get(`${BASE_URL}/api/ads/search?status=ACTIVE&q=${q}&page=${page}&size=20`,
+    { tags: { name: 'search' } });
+  check(res, { 'search 200': (r) => r.status === 200 });
+}
+
+export function upload() {
+  const res = http.post(`${BASE_URL}/api/ads/${__ENV.AD_ID}/images`,
+    { files: http.file(image, 'photo.jpg', 'image/jpeg') },
+    { headers: { 'X-Edit-Token': __ENV.EDIT_TOKEN }, tags: { name: 'upload' } });
+  check(res, { 'upload 2xx': (r) => r.status >= 200 && r.status < 300 });
+}
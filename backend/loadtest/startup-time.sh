@@ -0,0 +1,27 @@
+#!/bin/sh
+# Starts the application with the given command and prints the milliseconds
+# until GET /api/ads/search first answers 200, then stops it.
+#
+#   loadtest/startup-time.sh java -jar target/bulletin-board-backend-0.0.1-SNAPSHOT.jar
+set -eu
+
+url=${SEARCH_URL:-http://localhost:8080/api/ads/search?size=1}
+timeout_s=${TIMEOUT_S:-180}
+
+start=$(date +%s%N)
+"$@" > "${LOG_FILE:-/dev/null}" 2>&1 &
+pid=$!
+trap 'kill $pid 2>/dev/null || true; wait $pid 2>/dev/null || true' EXIT
+
+until curl -fs -o /dev/null "$url"; do
+    if ! kill -0 $pid 2>/dev/null; then
+        echo "Application exited before answering" >&2
+        exit 1
+    fi
+    if [ $(( ($(date +%s%N) - start) / 1000000000 )) -ge "$timeout_s" ]; then
+        echo "No successful search within ${timeout_s}s" >&2
+        exit 1
+    fi
+    sleep 0.05
+done
+echo $(( ($(date +%s%N) - start) / 1000000 ))
@@ -0,0 +1,26 @@
+#!/bin/sh
+# Unpacks a Spring Boot jar into a layout class data sharing can archive:
+# <dir>/application.jar, <dir>/lib/*.jar and two argument files for
+# "java @jvm.args @classpath.args": a fixed class path, and
+# spring.aot.enabled set to whether the jar was built with Spring AOT.
+#
+#   scripts/cds-layout.sh target/bulletin-board-backend-0.0.1-SNAPSHOT.jar build/cds
+set -eu
+
+jar_file=$(cd "$(dirname "$1")" && pwd)/$(basename "$1")
+dir=$2
+
+rm -rf "$dir"
+mkdir -p "$dir/lib" "$dir/unpacked"
+(cd "$dir/unpacked" && jar -xf "$jar_file")
+cp "$dir"/unpacked/BOOT-INF/lib/*.jar "$dir/lib/"
+if [ -f "$dir/unpacked/BOOT-INF/classes/com/bulletinboard/BulletinBoardApplication__ApplicationContextInitializer.class" ]; then
+    echo "-Dspring.aot.enabled=true" > "$dir/jvm.args"
+else
+    echo "-Dspring.aot.enabled=false" > "$dir/jvm.args"
+fi
+# CDS cannot archive classes from directories, so the classes go back into a jar
+jar --create --file "$dir/application.jar" -C "$dir/unpacked/BOOT-INF/classes" .
+rm -rf "$dir/unpacked"
+
+(cd "$dir" && printf -- '-cp application.jar%s\n' "$(ls lib/*.jar | sed 's/^/:/' | tr -d '\n')") > "$dir/classpath.args"
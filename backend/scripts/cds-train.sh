@@ -0,0 +1,20 @@
+#!/bin/sh
+# Records <dir>/app.jsa from a run that starts the application context and
+# exits before serving anything (Spring's spring.context.exit=onRefresh).
+# It needs no database: the pool connects lazily and the fast-start
+# migration strategy skips Flyway during the training run.
+#
+#   scripts/cds-train.sh build/cds
+set -eu
+
+cd "$1"
+rm -f app.jsa
+# Exits through Runtime.halt, which still writes the archive
+java -XX:ArchiveClassesAtExit=app.jsa -Dspring.context.exit=onRefresh \
+    @jvm.args @classpath.args com.bulletinboard.BulletinBoardApplication \
+    --spring.profiles.active=fast-start \
+    --spring.main.lazy-initialization=false \
+    --spring.flyway.enabled=false \
+    --spring.jooq.sql-dialect=postgres \
+    --app.upload-dir="${TMPDIR:-/tmp}/cds-training" || true
+test -s app.jsa
@@ -0,0 +1,58 @@
+#!/bin/sh
+# Starts the native binary against a running database and checks that the
+# paths native images tend to break on answer as on the JVM: Flyway
+# migrations, jOOQ reads, JSON bodies, error responses and Spring Security.
+# Prints the start-up time and resident memory of the process, then stops it.
+#
+#   scripts/native-smoke.sh target/bulletin-board-backend
+set -eu
+
+base=${BASE_URL:-http://localhost:8080}
+admin=${ADMIN_USERNAME:-admin}:${ADMIN_PASSWORD:-admin123}
+timeout_s=${TIMEOUT_S:-60}
+
+start=$(date +%s%N)
+"$@" > "${LOG_FILE:-/dev/null}" 2>&1 &
+pid=$!
+trap 'kill $pid 2>/dev/null || true; wait $pid 2>/dev/null || true' EXIT
+
+until curl -fs -o /dev/null "$base/api/ping"; do
+    if ! kill -0 $pid 2>/dev/null; then
+        echo "Application exited before answering" >&2
+        exit 1
+    fi
+    if [ $(( ($(date +%s%N) - start) / 1000000000 )) -ge "$timeout_s" ]; then
+        echo "No answer within ${timeout_s}s" >&2
+        exit 1
+    fi
+    sleep 0.05
+done
+echo "started in $(( ($(date +%s%N) - start) / 1000000 )) ms"
+
+failed=0
+
+# check <expected status> <expected body fragment> <curl arguments...>
+check() {
+    expected=$1
+    fragment=$2
+    shift 2
+    body=$(curl -s -w '\n%{http_code}' "$@")
+    status=$(printf '%s' "$body" | tail -n 1)
+    if [ "$status" != "$expected" ] || ! printf '%s' "$body" | grep -q -- "$fragment"; then
+        echo "FAIL $* -> $status" >&2
+        printf '%s\n' "$body" | head -c 500 >&2
+        failed=1
+    else
+        echo "ok   $*"
+    fi
+}
+
+check 200 '"status"' "$base/actuator/health"
+check 200 '\[' "$base/api/categories"
+check 200 '"content"' "$base/api/ads/search?size=5&sortBy=price&sortDirection=asc"
+check 404 '"status":404' "$base/api/ads/999999999"
+check 401 '' "$base/api/admin/ads"
+check 200 '\[' -u "$admin" "$base/api/admin/ads?status=ACTIVE"
+
+echo "resident memory $(awk '/VmRSS/ { print $2, $3 }' /proc/$pid/status)"
+exit $failed
@@ -0,0 +1,35 @@
+package com.bulletinboard.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AdEventConfig {
+
+    @Value("${app.events.sse.threads:4}")
+    private int threads;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Pool that writes relayed batches to the server-sent event streams, so
+     * a slow client never holds up the relay. Each stream has at most one
+     * delivery task queued or running, so the queue is bounded by the number
+     * of open streams.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor adEventStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("ad-event-sse-");
+        if (virtualThreads) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("ad-event-sse-").getVirtualThreadFactory());
+        }
+        return executor;
+    }
+}
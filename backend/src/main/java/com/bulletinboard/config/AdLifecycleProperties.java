@@ -0,0 +1,36 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.domain.PricePeriod;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * How long ads stay ACTIVE and when finished ads leave the hot table.
+ * A category TTL wins over a price period TTL, which wins over the default.
+ *
+ * @param defaultTtl       age after which an ACTIVE ad expires
+ * @param pricePeriodTtl   TTL per price period, e.g. short for daily rentals
+ * @param categoryTtl      TTL per category id
+ * @param archiveAfter     time an EXPIRED or DELETED ad stays in {@code ads} before it is archived
+ * @param batchSize        rows per expiry/archive statement
+ * @param maxBatchesPerRun upper bound of batches per step and run, so one node cannot hog the job
+ */
+@ConfigurationProperties(prefix = "app.lifecycle")
+public record AdLifecycleProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("60d") Duration defaultTtl,
+        Map<PricePeriod, Duration> pricePeriodTtl,
+        Map<Long, Duration> categoryTtl,
+        @DefaultValue("30d") Duration archiveAfter,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("20") int maxBatchesPerRun
+) {
+
+    public AdLifecycleProperties {
+        pricePeriodTtl = pricePeriodTtl != null ? Map.copyOf(pricePeriodTtl) : Map.of();
+        categoryTtl = categoryTtl != null ? Map.copyOf(categoryTtl) : Map.of();
+    }
+}
@@ -0,0 +1,60 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.datasource.ConcurrencyLimitedDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * With {@code app.datasource.concurrency-limit.enabled}, the primary
+ * {@link DataSource} is wrapped in a {@link ConcurrencyLimitedDataSource}
+ * sized to its pool. Meant for virtual threads, where the number of
+ * request threads no longer bounds how many want a connection.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.concurrency-limit.enabled", havingValue = "true")
+public class DataSourceConcurrencyConfig {
+
+    /**
+     * Hikari only applies its default pool size when the pool starts.
+     */
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    public static BeanPostProcessor dataSourceConcurrencyLimiter(Environment environment,
+                                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource hikari) || !"dataSource".equals(beanName)) {
+                    return bean;
+                }
+                int permits = environment.getProperty("app.datasource.concurrency-limit.permits", Integer.class, 0);
+                if (permits <= 0) {
+                    permits = hikari.getMaximumPoolSize() > 0 ? hikari.getMaximumPoolSize() : HIKARI_DEFAULT_POOL_SIZE;
+                }
+                Duration acquireTimeout = environment.getProperty("app.datasource.concurrency-limit.acquire-timeout",
+                        Duration.class, Duration.ofMillis(hikari.getConnectionTimeout()));
+                ConcurrencyLimitedDataSource limited = new ConcurrencyLimitedDataSource(hikari, permits, acquireTimeout);
+                meterRegistry.ifAvailable(registry -> {
+                    Gauge.builder("db.concurrency.in-use", limited, ConcurrencyLimitedDataSource::getInUse)
+                            .description("Connections checked out through the concurrency limit")
+                            .register(registry);
+                    Gauge.builder("db.concurrency.waiting", limited, ConcurrencyLimitedDataSource::getWaiting)
+                            .description("Threads waiting for a database connection permit")
+                            .register(registry);
+                });
+                return limited;
+            }
+        };
+    }
+}
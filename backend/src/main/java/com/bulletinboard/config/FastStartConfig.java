@@ -0,0 +1,40 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.datasource.SchemaFingerprintMigrationStrategy;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Start-up shortcuts of the {@code fast-start} profile. Lazy initialization
+ * itself is switched on by {@code spring.main.lazy-initialization}; this
+ * keeps it from silently dropping the background jobs.
+ */
+@Configuration
+public class FastStartConfig {
+
+    /**
+     * {@code @Scheduled} methods are only registered when their bean is
+     * created, so beans that have them are created at start-up even when
+     * everything else is lazy.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && !MethodIntrospector.selectMethods(beanType,
+                        (MethodIntrospector.MetadataLookup<Boolean>) method ->
+                                AnnotatedElementUtils.hasAnnotation(method, Scheduled.class) ? Boolean.TRUE : null)
+                .isEmpty();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.flyway.skip-unchanged", havingValue = "true")
+    public FlywayMigrationStrategy schemaFingerprintMigrationStrategy() {
+        return new SchemaFingerprintMigrationStrategy();
+    }
+}
@@ -0,0 +1,91 @@
+package com.bulletinboard.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+public class ImageProcessingConfig {
+
+    @Value("${app.images.processing.threads:2}")
+    private int threads;
+
+    @Value("${app.images.processing.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.images.upload.threads:4}")
+    private int uploadThreads;
+
+    @Value("${app.images.upload.queue-capacity:32}")
+    private int uploadQueueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.images.resize.threads:2}")
+    private int resizeThreads;
+
+    @Value("${app.images.resize.queue-capacity:64}")
+    private int resizeQueueCapacity;
+
+    /**
+     * Bounded pool for variant generation. When the queue is full new work is
+     * rejected instead of blocking the upload request; rejected images stay in
+     * PROCESSING and are picked up again by the recovery sweep.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageProcessingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-proc-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Pool for hashing and storing the files of a multi-image upload in
+     * parallel. The request waits for its files anyway, so a full queue runs
+     * the work on the request thread rather than failing it. This work mostly
+     * waits on storage, so with virtual threads enabled its threads are
+     * virtual; the processing and resize pools stay on platform threads
+     * because their work is CPU-bound.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(uploadThreads);
+        executor.setMaxPoolSize(uploadThreads);
+        executor.setQueueCapacity(uploadQueueCapacity);
+        executor.setThreadNamePrefix("image-upload-");
+        if (virtualThreads) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("image-upload-").getVirtualThreadFactory());
+        }
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    /**
+     * Pool for on-demand resizes. Requests wait for their rendition, so when
+     * the queue is full they are turned away with 503 instead of piling up.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageResizeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(resizeThreads);
+        executor.setMaxPoolSize(resizeThreads);
+        executor.setQueueCapacity(resizeQueueCapacity);
+        executor.setThreadNamePrefix("image-resize-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
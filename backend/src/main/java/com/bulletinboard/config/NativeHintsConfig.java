@@ -0,0 +1,66 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.domain.AdEvent;
+import com.bulletinboard.dto.AdImportRow;
+import com.bulletinboard.dto.AdSearchRequest;
+import com.bulletinboard.dto.AdminBulkSelection;
+import com.bulletinboard.exception.GlobalExceptionHandler.ErrorResponse;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.util.ClassUtils;
+
+import java.sql.Connection;
+
+/**
+ * Reachability metadata for the {@code native} build that Spring AOT cannot
+ * infer from the bean definitions. Controller request and response bodies,
+ * Spring Security and the Flyway and jOOQ libraries themselves are covered
+ * by Spring and the GraalVM metadata repository; this adds what is only
+ * reached from application code.
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.ApplicationRuntimeHints.class)
+// Bound by an ObjectMapper outside controller signatures: SSE events, import rows,
+// the audit copy of bulk filters and the error body of GlobalExceptionHandler
+@RegisterReflectionForBinding({AdEvent.class, AdImportRow.class, AdminBulkSelection.class,
+        AdSearchRequest.class, ErrorResponse.class})
+public class NativeHintsConfig {
+
+    static final String GENERATED_PACKAGE = "com.bulletinboard.generated";
+
+    static class ApplicationRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            // jOOQ creates records and POJOs of the generated classes reflectively
+            for (BeanDefinition candidate : generatedClasses().findCandidateComponents(GENERATED_PACKAGE)) {
+                hints.reflection().registerType(ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader),
+                        MemberCategory.PUBLIC_FIELDS,
+                        MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+            // Flyway lists the migration scripts from the classpath at start-up
+            hints.resources().registerPattern("db/migration/*.sql");
+            // ConcurrencyLimitedDataSource hands out proxied connections
+            hints.proxies().registerJdkProxy(Connection.class);
+        }
+
+        private static ClassPathScanningCandidateComponentProvider generatedClasses() {
+            ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+                @Override
+                protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                    return beanDefinition.getMetadata().isIndependent();
+                }
+            };
+            scanner.addIncludeFilter((metadataReader, metadataReaderFactory) -> true);
+            return scanner;
+        }
+    }
+}
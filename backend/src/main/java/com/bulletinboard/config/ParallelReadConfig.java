@@ -0,0 +1,50 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.service.ParallelReads;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ParallelReadConfig {
+
+    @Value("${app.parallel-reads.threads:16}")
+    private int threads;
+
+    @Value("${app.parallel-reads.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * Pool for the independent queries a request fans out through
+     * {@code ParallelReads}. Every fork holds a connection, so the pool is
+     * kept well below the connection pool; when it is full the request runs
+     * the query itself, which is no slower than before.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor parallelReadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("parallel-read-");
+        if (virtualThreads) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("parallel-read-").getVirtualThreadFactory());
+        }
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+
+    @Bean
+    public ExecuteListenerProvider parallelReadStatementListener() {
+        return new DefaultExecuteListenerProvider(new ParallelReads.StatementListener());
+    }
+}
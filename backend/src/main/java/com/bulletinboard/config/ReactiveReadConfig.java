@@ -0,0 +1,27 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.datasource.ReactiveDatabase;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * The {@code reactive} profile: {@code GET /api/ads/search},
+ * {@code GET /api/ads/{id}} and {@code GET /api/categories} are also served
+ * by {@link ReactiveReadServer} on {@code app.reactive.port}, reading over
+ * R2DBC. Everything else stays on the servlet stack and JDBC.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveReadConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReactiveDatabase reactiveDatabase(
+            @Value("${app.reactive.r2dbc.url}") String url,
+            @Value("${app.reactive.r2dbc.username:${spring.datasource.username}}") String username,
+            @Value("${app.reactive.r2dbc.password:${spring.datasource.password}}") String password,
+            @Value("${app.reactive.r2dbc.pool-size:20}") int poolSize) {
+        return new ReactiveDatabase(url, username, password, poolSize);
+    }
+}
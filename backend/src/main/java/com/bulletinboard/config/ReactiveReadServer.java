@@ -0,0 +1,92 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.controller.ReactiveReadRoutes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Netty server for {@link ReactiveReadRoutes}, next to the Tomcat one. The
+ * application itself stays a servlet application, so the routes get their
+ * own server rather than WebFlux auto-configuration. JSON is written with
+ * the application's {@link ObjectMapper}, as on the servlet side.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveReadServer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveReadServer.class);
+
+    private final ReactiveReadRoutes routes;
+    private final ObjectMapper objectMapper;
+    private final int port;
+
+    private volatile DisposableServer server;
+
+    public ReactiveReadServer(ReactiveReadRoutes routes, ObjectMapper objectMapper,
+                              @Value("${app.reactive.port:8081}") int port) {
+        this.routes = routes;
+        this.objectMapper = objectMapper;
+        this.port = port;
+    }
+
+    @Override
+    public void start() {
+        UrlBasedCorsConfigurationSource cors = new UrlBasedCorsConfigurationSource();
+        cors.registerCorsConfiguration("/**", CorsConfig.corsConfiguration());
+
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .webFilter(new CorsWebFilter(cors))
+                .build();
+        HttpHandler handler = RouterFunctions.toHttpHandler(routes.routes(), strategies);
+
+        server = HttpServer.create()
+                .port(port)
+                .handle(new ReactorHttpHandlerAdapter(handler))
+                .bindNow();
+        log.info("Reactive read endpoints listening on port {}", server.port());
+    }
+
+    @Override
+    public void stop() {
+        DisposableServer running = server;
+        if (running != null) {
+            running.disposeNow();
+            server = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    /**
+     * The bound port, which differs from {@code app.reactive.port} when that is 0.
+     */
+    public int getPort() {
+        DisposableServer running = server;
+        if (running == null) {
+            throw new IllegalStateException("Reactive read server is not running");
+        }
+        return running.port();
+    }
+}
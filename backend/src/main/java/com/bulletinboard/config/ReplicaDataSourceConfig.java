@@ -0,0 +1,82 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.datasource.ReadYourWritesFilter;
+import com.bulletinboard.datasource.ReadYourWritesListener;
+import com.bulletinboard.datasource.ReplicaRouting;
+import com.bulletinboard.datasource.RoutingConnectionProvider;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteListenerProvider;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultDSLContext;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Optional read replica. With {@code app.datasource.replica.url} set,
+ * repositories send search, listing and category reads through the
+ * {@code readDslContext}, which uses the replica unless the request already
+ * wrote or the replica lags behind. Without it both contexts use the primary.
+ */
+@Configuration
+public class ReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRouting replicaRouting(
+            @Value("${app.datasource.replica.url:}") String url,
+            @Value("${app.datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${app.datasource.replica.password:${spring.datasource.password}}") String password,
+            @Value("${app.datasource.replica.pool-size:10}") int poolSize,
+            @Value("${app.datasource.replica.max-lag:5s}") Duration maxLag,
+            MeterRegistry meterRegistry) {
+        if (url.isBlank()) {
+            return new ReplicaRouting(null, maxLag, meterRegistry);
+        }
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("replica");
+        replica.setJdbcUrl(url);
+        replica.setUsername(username);
+        replica.setPassword(password);
+        replica.setMaximumPoolSize(poolSize);
+        replica.setReadOnly(true);
+        // A missing replica must not keep the application from starting
+        replica.setInitializationFailTimeout(-1);
+        return new ReplicaRouting(replica, maxLag, meterRegistry);
+    }
+
+    /**
+     * Declared here because a second DSLContext bean makes the auto-configured
+     * one back off.
+     */
+    @Bean
+    @Primary
+    public DSLContext dslContext(org.jooq.Configuration configuration) {
+        return new DefaultDSLContext(configuration);
+    }
+
+    @Bean
+    public DSLContext readDslContext(org.jooq.Configuration configuration, ReplicaRouting replicaRouting) {
+        return DSL.using(configuration.derive(
+                new RoutingConnectionProvider(configuration.connectionProvider(), replicaRouting)));
+    }
+
+    @Bean
+    public ExecuteListenerProvider readYourWritesListener() {
+        return new DefaultExecuteListenerProvider(new ReadYourWritesListener());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter() {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
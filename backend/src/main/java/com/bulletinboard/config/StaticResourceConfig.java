@@ -1,19 +1,23 @@
 package com.bulletinboard.config;
 
-import org.springframework.beans.factory.annotation.Value;
+import com.bulletinboard.controller.ImageResourceHandler;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
 
-@Configuration
-public class StaticResourceConfig implements WebMvcConfigurer {
+import java.util.Map;
 
-    @Value("${app.upload-dir}")
-    private String uploadDir;
+@Configuration
+public class StaticResourceConfig {
 
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadDir + "/");
+    /**
+     * Ordered ahead of Boot's default {@code /**} resource mapping so uploads
+     * never fall through to the classpath static locations.
+     */
+    @Bean
+    public SimpleUrlHandlerMapping uploadsHandlerMapping(ImageResourceHandler imageResourceHandler) {
+        SimpleUrlHandlerMapping mapping = new SimpleUrlHandlerMapping(Map.of("/uploads/**", imageResourceHandler));
+        mapping.setOrder(1);
+        return mapping;
     }
 }
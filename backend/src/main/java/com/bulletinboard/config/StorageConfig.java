@@ -0,0 +1,51 @@
+package com.bulletinboard.config;
+
+import com.bulletinboard.storage.ImageStorage;
+import com.bulletinboard.storage.LocalImageStorage;
+import com.bulletinboard.storage.S3ImageStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Selects the image storage backend with {@code app.storage.type}: {@code local}
+ * (default) keeps files under {@code app.upload-dir}, {@code s3} uses an
+ * S3-compatible bucket. The upload directory is still used for staging in
+ * both cases.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+    public ImageStorage localImageStorage(@Value("${app.upload-dir}") String uploadDir) {
+        return new LocalImageStorage(Paths.get(uploadDir));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+    public ImageStorage s3ImageStorage(
+            @Value("${app.storage.s3.endpoint:}") String endpoint,
+            @Value("${app.storage.s3.region:us-east-1}") String region,
+            @Value("${app.storage.s3.bucket}") String bucket,
+            @Value("${app.storage.s3.access-key:}") String accessKey,
+            @Value("${app.storage.s3.secret-key:}") String secretKey,
+            @Value("${app.storage.s3.path-style:false}") boolean pathStyle,
+            @Value("${app.storage.s3.public-base-url:}") String publicBaseUrl,
+            @Value("${app.storage.s3.presign-ttl:15m}") Duration presignTtl,
+            @Value("${app.storage.s3.part-size:8MB}") DataSize partSize,
+            @Value("${app.storage.s3.part-threads:4}") int partThreads,
+            @Value("${app.storage.s3.create-bucket:false}") boolean createBucket) {
+        S3ImageStorage storage = new S3ImageStorage(new S3ImageStorage.Settings(endpoint, region, bucket,
+                accessKey, secretKey, pathStyle, publicBaseUrl, presignTtl, partSize.toBytes(), partThreads));
+        if (createBucket) {
+            storage.ensureBucket();
+        }
+        return storage;
+    }
+}
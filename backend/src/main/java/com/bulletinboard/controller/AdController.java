@@ -6,14 +6,20 @@ import com.bulletinboard.domain.PricePeriod;
 import com.bulletinboard.dto.*;
 import com.bulletinboard.service.AdImageService;
 import com.bulletinboard.service.AdService;
+import com.bulletinboard.service.AdTrendingService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -22,10 +28,12 @@ public class AdController {
 
     private final AdService adService;
     private final AdImageService adImageService;
+    private final AdTrendingService adTrendingService;
 
-    public AdController(AdService adService, AdImageService adImageService) {
+    public AdController(AdService adService, AdImageService adImageService, AdTrendingService adTrendingService) {
         this.adService = adService;
         this.adImageService = adImageService;
+        this.adTrendingService = adTrendingService;
     }
 
     @GetMapping
@@ -54,6 +62,18 @@ public class AdController {
         return ResponseEntity.ok(adService.getActiveAds());
     }
 
+    /**
+     * Most viewed and contacted ACTIVE ads of the last hours, refreshed every
+     * {@code app.trending.refresh-interval-ms}.
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<AdResponse>> getTrendingAds(
+            @RequestParam(required = false) Area area,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(adTrendingService.getTrending(area, categoryId, Math.max(0, limit)));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<PageResponse<AdResponse>> searchAds(
             @RequestParam(required = false) Long categoryId,
@@ -88,7 +108,13 @@ public class AdController {
 
     @GetMapping("/{id}")
     public ResponseEntity<AdResponse> getAdById(@PathVariable Long id) {
-        return ResponseEntity.ok(adService.getAdById(id));
+        return withETag(adService.getAdById(id));
+    }
+
+    @PostMapping("/{id}/contact")
+    public ResponseEntity<Void> recordContact(@PathVariable Long id, HttpServletRequest httpRequest) {
+        adService.recordContact(id, getClientIp(httpRequest));
+        return ResponseEntity.noContent().build();
     }
 
     @PostMapping("/{id}/images")
@@ -101,6 +127,36 @@ public class AdController {
         return ResponseEntity.status(HttpStatus.CREATED).body(responses);
     }
 
+    @PostMapping(value = "/{id}/images/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<List<AdImageResponse>> uploadImagesStreaming(
+            @PathVariable long id,
+            @RequestHeader("X-Edit-Token") String editToken,
+            HttpServletRequest request
+    ) throws IOException {
+        List<AdImageResponse> responses = adImageService.uploadImagesStreaming(
+                id, request.getContentType(), request.getInputStream(), request.getContentLengthLong(), editToken);
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+
+    @PostMapping("/{id}/images/direct")
+    public ResponseEntity<DirectUploadResponse> prepareDirectUpload(
+            @PathVariable long id,
+            @Valid @RequestBody DirectUploadRequest request,
+            @RequestHeader("X-Edit-Token") String editToken
+    ) {
+        return ResponseEntity.ok(adImageService.prepareDirectUpload(id, request, editToken));
+    }
+
+    @PostMapping("/{id}/images/direct/complete")
+    public ResponseEntity<List<AdImageResponse>> completeDirectUploads(
+            @PathVariable long id,
+            @Valid @RequestBody DirectUploadCompleteRequest request,
+            @RequestHeader("X-Edit-Token") String editToken
+    ) {
+        List<AdImageResponse> responses = adImageService.completeDirectUploads(id, request, editToken);
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+
     @DeleteMapping("/{adId}/images/{imageId}")
     public ResponseEntity<Void> deleteImage(
             @PathVariable long adId,
@@ -131,8 +187,11 @@ public class AdController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<AdResponse> updateAd(@PathVariable Long id, @Valid @RequestBody AdUpdateRequest request) {
-        return ResponseEntity.ok(adService.updateAd(id, request));
+    public ResponseEntity<AdResponse> updateAd(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody AdUpdateRequest request) {
+        return withETag(adService.updateAd(id, request, expectedVersions(ifMatch)));
     }
 
     @DeleteMapping("/{id}")
@@ -143,14 +202,15 @@ public class AdController {
 
     @GetMapping("/edit/{token}")
     public ResponseEntity<AdResponse> getAdByEditToken(@PathVariable String token) {
-        return ResponseEntity.ok(adService.getAdByEditToken(token));
+        return withETag(adService.getAdByEditToken(token));
     }
 
     @PutMapping("/edit/{token}")
     public ResponseEntity<AdResponse> updateAdByEditToken(
             @PathVariable String token,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody AdUpdateRequest request) {
-        return ResponseEntity.ok(adService.updateAdByEditToken(token, request));
+        return withETag(adService.updateAdByEditToken(token, request, expectedVersions(ifMatch)));
     }
 
     @DeleteMapping("/edit/{token}")
@@ -158,4 +218,38 @@ public class AdController {
         adService.deleteAdByEditToken(token);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * The ad's version is its ETag; clients send it back in {@code If-Match}
+     * to update only the version they have seen. The version does not cover
+     * the images, so browsers must not revalidate a cached copy with it.
+     */
+    private static ResponseEntity<AdResponse> withETag(AdResponse ad) {
+        return ResponseEntity.ok()
+                .eTag("\"" + ad.getVersion() + "\"")
+                .cacheControl(CacheControl.noStore())
+                .body(ad);
+    }
+
+    /**
+     * Versions listed in {@code If-Match}, or {@code null} when the header is
+     * absent or {@code *}. Weak or foreign tags never match an ad.
+     */
+    private static List<Integer> expectedVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        List<Integer> versions = new ArrayList<>();
+        for (String tag : ifMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.length() > 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+                try {
+                    versions.add(Integer.parseInt(trimmed.substring(1, trimmed.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return versions;
+    }
 }
@@ -0,0 +1,34 @@
+package com.bulletinboard.controller;
+
+import com.bulletinboard.service.AdEventStream;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/admin/events")
+public class AdEventController {
+
+    private final AdEventStream adEventStream;
+
+    public AdEventController(AdEventStream adEventStream) {
+        this.adEventStream = adEventStream;
+    }
+
+    /**
+     * Change events of ads, ad images and categories. Resumes after
+     * {@code Last-Event-ID} (set by reconnecting browsers) or {@code after};
+     * without either, only new events are sent. {@code after=0} replays all
+     * retained events.
+     */
+    @GetMapping(value = "/ads", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAdEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(required = false) Long after) {
+        return adEventStream.subscribe(lastEventId != null ? lastEventId : after);
+    }
+}
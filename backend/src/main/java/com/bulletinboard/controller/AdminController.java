@@ -1,13 +1,21 @@
 package com.bulletinboard.controller;
 
 import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.dto.AdImportResponse;
 import com.bulletinboard.dto.AdResponse;
+import com.bulletinboard.dto.AdminBulkResponse;
+import com.bulletinboard.dto.AdminBulkSelection;
+import com.bulletinboard.dto.AdminBulkStatusRequest;
 import com.bulletinboard.dto.AdminStatusUpdateRequest;
+import com.bulletinboard.service.AdImportService;
 import com.bulletinboard.service.AdminService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.security.Principal;
 import java.util.List;
 
 @RestController
@@ -15,9 +23,11 @@ import java.util.List;
 public class AdminController {
 
     private final AdminService adminService;
+    private final AdImportService adImportService;
 
-    public AdminController(AdminService adminService) {
+    public AdminController(AdminService adminService, AdImportService adImportService) {
         this.adminService = adminService;
+        this.adImportService = adImportService;
     }
 
     @GetMapping("/ads")
@@ -39,6 +49,40 @@ public class AdminController {
         return ResponseEntity.ok(adminService.updateAdStatus(id, request.getStatus()));
     }
 
+    /**
+     * Sets the status of many ads, selected by id list or search filter.
+     */
+    @PostMapping("/ads/bulk/status")
+    public ResponseEntity<AdminBulkResponse> updateAdStatuses(
+            @Valid @RequestBody AdminBulkStatusRequest request,
+            Principal principal) {
+        return ResponseEntity.ok(adminService.updateStatuses(request, request.getStatus(), principal.getName()));
+    }
+
+    /**
+     * Soft-deletes many ads, selected by id list or search filter.
+     */
+    @PostMapping("/ads/bulk/delete")
+    public ResponseEntity<AdminBulkResponse> deleteAds(
+            @Valid @RequestBody AdminBulkSelection request,
+            Principal principal) {
+        return ResponseEntity.ok(adminService.updateStatuses(request, AdStatus.DELETED, principal.getName()));
+    }
+
+    /**
+     * Bulk import from an NDJSON or CSV body, read as a stream. Responds with
+     * the number of imported rows and the errors of the rejected ones; with
+     * 400 and the line to resume from when the body broke off.
+     */
+    @PostMapping(value = "/ads/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<AdImportResponse> importAds(HttpServletRequest request) throws IOException {
+        AdImportResponse response = adImportService.importAds(request.getContentType(), request.getInputStream());
+        if (response.interruption() != null) {
+            return ResponseEntity.badRequest().body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping("/ads/{id}")
     public ResponseEntity<Void> deleteAd(@PathVariable Long id) {
         adminService.deleteAd(id);
@@ -0,0 +1,346 @@
+package com.bulletinboard.controller;
+
+import com.bulletinboard.service.ResizedImageCache;
+import com.bulletinboard.storage.ImageStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.HttpRequestHandler;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Serves {@code /uploads/**}. When the image storage hands out its own URLs
+ * (S3) the client is redirected there; otherwise the file is sent from the
+ * upload directory.
+ * <ul>
+ *     <li>Content-addressed files never change, so they get a year-long
+ *     immutable Cache-Control and their hash as ETag.</li>
+ *     <li>JPEG/PNG requests are answered with an AVIF or WebP sibling when one
+ *     exists and the Accept header allows it ({@code Vary: Accept}).</li>
+ *     <li>Conditional requests and single byte ranges are honoured.</li>
+ *     <li>{@code ?w=<px>} serves a resized rendition from the
+ *     {@link ResizedImageCache}.</li>
+ *     <li>Bodies go out via Tomcat sendfile when the connector supports it,
+ *     otherwise via {@link FileChannel#transferTo}.</li>
+ * </ul>
+ */
+@Component
+public class ImageResourceHandler implements HttpRequestHandler {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final Pattern CONTENT_ADDRESSED =
+            Pattern.compile("^cas/[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}(_[a-z]+)?\\.[a-z0-9]+$");
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String SHORT_LIVED = "public, max-age=3600";
+    private static final String REDIRECT = "public, max-age=300";
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp",
+            "avif", "image/avif"
+    );
+
+    /**
+     * Preferred alternates, best compression first.
+     */
+    private static final List<String> ALTERNATES = List.of("avif", "webp");
+
+    private final Path root;
+    private final ImageStorage imageStorage;
+    private final ResizedImageCache resizedImageCache;
+
+    public ImageResourceHandler(@Value("${app.upload-dir}") String uploadDir, ImageStorage imageStorage,
+                                ResizedImageCache resizedImageCache) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.imageStorage = imageStorage;
+        this.resizedImageCache = resizedImageCache;
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String method = request.getMethod();
+        boolean head = "HEAD".equals(method);
+        if (!head && !"GET".equals(method)) {
+            response.setHeader(HttpHeaders.ALLOW, "GET, HEAD");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            return;
+        }
+
+        String relative = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        Path file = resolve(relative);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String widthParam = request.getParameter("w");
+        if (widthParam != null) {
+            serveResized(request, response, relative, widthParam, head);
+            return;
+        }
+
+        // Kept shorter than the signature lifetime of pre-signed URLs
+        Optional<URI> redirect = imageStorage.redirectUrl(relative);
+        if (redirect.isPresent()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, REDIRECT);
+            response.sendRedirect(redirect.get().toString());
+            return;
+        }
+
+        String extension = extensionOf(file);
+        boolean negotiable = extension.equals("jpg") || extension.equals("jpeg") || extension.equals("png");
+        if (negotiable) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            file = negotiate(file, request.getHeader(HttpHeaders.ACCEPT));
+        }
+
+        boolean immutable = CONTENT_ADDRESSED.matcher(relative).matches();
+        String etag = immutable ? "\"" + file.getFileName() + "\"" : null;
+        serveFile(request, response, file, etag, immutable ? IMMUTABLE : SHORT_LIVED, head);
+    }
+
+    /**
+     * Resized rendition for {@code ?w=}, created on first request. Widths are
+     * snapped to the cache's ladder, so the ETag reflects the served width.
+     */
+    private void serveResized(HttpServletRequest request, HttpServletResponse response, String relative,
+                              String widthParam, boolean head) throws IOException {
+        int requested;
+        try {
+            requested = Integer.parseInt(widthParam);
+        } catch (NumberFormatException e) {
+            requested = 0;
+        }
+        if (requested <= 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "w must be a positive integer");
+            return;
+        }
+
+        int width = resizedImageCache.snapWidth(requested);
+        Path rendition;
+        try {
+            rendition = resizedImageCache.get(relative, width);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        } catch (TaskRejectedException e) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        boolean immutable = CONTENT_ADDRESSED.matcher(relative).matches();
+        String etag = immutable ? "\"" + Paths.get(relative).getFileName() + "-w" + width + "\"" : null;
+        serveFile(request, response, rendition, etag, immutable ? IMMUTABLE : SHORT_LIVED, head);
+    }
+
+    /**
+     * Sends a local file with conditional and single-range support. Without
+     * an explicit ETag one is derived from size and modification time.
+     */
+    private void serveFile(HttpServletRequest request, HttpServletResponse response, Path file, String etag,
+                           String cacheControl, boolean head) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (etag == null) {
+            etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(CONTENT_TYPES.getOrDefault(extensionOf(file), "application/octet-stream"));
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && length > 0 && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // Multi-range responses are optional; those requests get the whole file
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                long rangeStart = range.getRangeStart(length);
+                long rangeEnd = range.getRangeEnd(length);
+                if (rangeStart >= length || rangeStart > rangeEnd) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                start = rangeStart;
+                end = rangeEnd;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (head || count <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Maps the request path onto the upload directory, refusing anything that
+     * escapes it or points at a hidden (staging/temp) file.
+     */
+    private Path resolve(String relative) {
+        if (relative == null || relative.isEmpty() || relative.contains("\\")) {
+            return null;
+        }
+        for (String segment : relative.split("/")) {
+            if (segment.isEmpty() || segment.startsWith(".")) {
+                return null;
+            }
+        }
+        Path file = root.resolve(relative).normalize();
+        return file.startsWith(root) ? file : null;
+    }
+
+    /**
+     * Picks the alternate with the highest quality in the Accept header. An
+     * alternate has to be listed by name, since a wildcard says nothing about
+     * what the client can decode, and is not served when the client rates the
+     * original higher. Ties go to the better compression.
+     */
+    private Path negotiate(Path file, String accept) {
+        if (accept == null) {
+            return file;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return file;
+        }
+        double originalQuality = quality(accepted, MediaType.parseMediaType(CONTENT_TYPES.get(extensionOf(file))));
+        String name = file.getFileName().toString();
+        String base = name.substring(0, name.lastIndexOf('.'));
+        Path best = file;
+        double bestQuality = 0;
+        for (String alternate : ALTERNATES) {
+            MediaType type = MediaType.parseMediaType(CONTENT_TYPES.get(alternate));
+            if (accepted.stream().noneMatch(type::equalsTypeAndSubtype)) {
+                continue;
+            }
+            double quality = quality(accepted, type);
+            if (quality > bestQuality && quality >= originalQuality) {
+                Path candidate = file.resolveSibling(base + "." + alternate);
+                if (Files.isRegularFile(candidate)) {
+                    best = candidate;
+                    bestQuality = quality;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Quality of {@code type} from its most specific match in the Accept
+     * header, 0 if nothing matches.
+     */
+    private static double quality(List<MediaType> accepted, MediaType type) {
+        MediaType match = null;
+        for (MediaType candidate : accepted) {
+            if (candidate.includes(type) && (match == null || specificity(candidate) > specificity(match))) {
+                match = candidate;
+            }
+        }
+        return match == null ? 0 : match.getQualityValue();
+    }
+
+    private static int specificity(MediaType type) {
+        return type.isWildcardType() ? 0 : type.isWildcardSubtype() ? 1 : 2;
+    }
+
+    private boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+
+    private static String extensionOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,101 @@
+package com.bulletinboard.controller;
+
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.Area;
+import com.bulletinboard.domain.PricePeriod;
+import com.bulletinboard.dto.AdSearchRequest;
+import com.bulletinboard.dto.CategoryResponse;
+import com.bulletinboard.exception.GlobalExceptionHandler.ErrorResponse;
+import com.bulletinboard.exception.ResourceNotFoundException;
+import com.bulletinboard.service.ReactiveReadService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * WebFlux functional endpoints for {@code GET /api/ads/search},
+ * {@code GET /api/ads/{id}} and {@code GET /api/categories}, answering like
+ * {@link AdController} and {@link CategoryController} do. Served by
+ * {@code ReactiveReadServer} in the {@code reactive} profile.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveReadRoutes {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveReadRoutes.class);
+
+    private final ReactiveReadService reactiveReadService;
+
+    public ReactiveReadRoutes(ReactiveReadService reactiveReadService) {
+        this.reactiveReadService = reactiveReadService;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/api/ads/search", this::searchAds)
+                .GET("/api/ads/{id}", this::getAdById)
+                .GET("/api/categories", request -> ServerResponse.ok()
+                        .body(reactiveReadService.getAllCategories(), CategoryResponse.class))
+                .onError(ResourceNotFoundException.class, (e, request) -> error(HttpStatus.NOT_FOUND, e.getMessage()))
+                .onError(IllegalArgumentException.class, (e, request) -> error(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .onError(e -> true, (e, request) -> {
+                    log.error("Unexpected error on {}", request.path(), e);
+                    return error(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred");
+                })
+                .build();
+    }
+
+    private Mono<ServerResponse> searchAds(ServerRequest request) {
+        // Parsed within the Mono so malformed parameters reach the error handlers
+        return Mono.fromCallable(() -> toSearchRequest(request))
+                .flatMap(reactiveReadService::searchAds)
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    private Mono<ServerResponse> getAdById(ServerRequest request) {
+        return Mono.fromCallable(() -> Long.valueOf(request.pathVariable("id")))
+                .flatMap(reactiveReadService::getAdById)
+                .flatMap(ad -> ServerResponse.ok()
+                        .eTag("\"" + ad.getVersion() + "\"")
+                        .cacheControl(CacheControl.noStore())
+                        .bodyValue(ad));
+    }
+
+    private static AdSearchRequest toSearchRequest(ServerRequest request) {
+        AdSearchRequest search = new AdSearchRequest();
+        search.setCategoryId(param(request, "categoryId", Long::valueOf));
+        search.setUserId(param(request, "userId", Long::valueOf));
+        search.setStatus(param(request, "status", AdStatus::valueOf));
+        search.setMinPrice(param(request, "minPrice", BigDecimal::new));
+        search.setMaxPrice(param(request, "maxPrice", BigDecimal::new));
+        search.setSearch(request.queryParam("q").orElse(null));
+        search.setArea(param(request, "area", Area::valueOf));
+        search.setPricePeriod(param(request, "pricePeriod", PricePeriod::valueOf));
+        search.setPage(request.queryParam("page").map(Integer::valueOf).orElse(0));
+        search.setSize(request.queryParam("size").map(Integer::valueOf).orElse(20));
+        search.setSortBy(request.queryParam("sortBy").orElse("createdAt"));
+        search.setSortDirection(request.queryParam("sortDirection").orElse("desc"));
+        return search;
+    }
+
+    private static <T> T param(ServerRequest request, String name, Function<String, T> parse) {
+        return request.queryParam(name).filter(value -> !value.isBlank()).map(parse).orElse(null);
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status)
+                .bodyValue(new ErrorResponse(status.value(), message, LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,46 @@
+package com.bulletinboard.datasource;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+/**
+ * R2DBC connection pool with a jOOQ context on top, for the read endpoints
+ * of the {@code reactive} profile. Deliberately not a
+ * {@code ConnectionFactory} bean: Spring Boot would drop the JDBC
+ * {@code DataSource} the rest of the application runs on.
+ */
+public class ReactiveDatabase implements AutoCloseable {
+
+    private final ConnectionPool pool;
+    private final DSLContext dsl;
+
+    public ReactiveDatabase(String url, String username, String password, int poolSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive")
+                .initialSize(1)
+                .maxSize(poolSize)
+                .build());
+        this.dsl = DSL.using(pool, SQLDialect.POSTGRES);
+    }
+
+    /**
+     * Queries of this context run when their {@code Publisher} is subscribed to.
+     */
+    public DSLContext dsl() {
+        return dsl;
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+}
@@ -0,0 +1,19 @@
+package com.bulletinboard.datasource;
+
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.jooq.ExecuteType;
+
+/**
+ * Pins the current thread to the primary once it executed anything other
+ * than a plain read, so later reads in the same request see the change.
+ */
+public class ReadYourWritesListener implements ExecuteListener {
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        if (ctx.type() != ExecuteType.READ) {
+            ReplicaRouting.pinToPrimary();
+        }
+    }
+}
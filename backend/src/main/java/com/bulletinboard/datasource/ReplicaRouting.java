@@ -0,0 +1,119 @@
+package com.bulletinboard.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Decides whether a read may go to the replica. It may when a replica is
+ * configured and caught up, no transaction is active, and the current
+ * request has not written anything yet (read-your-writes): after a write,
+ * or for the whole of a non-GET request, the thread is pinned to the
+ * primary until {@link #clearPin()} is called at the end of the request.
+ * <p>
+ * Replication lag is polled from the replica; while it exceeds
+ * {@code maxLag}, or the replica cannot be reached, every read goes to the
+ * primary.
+ */
+public class ReplicaRouting implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouting.class);
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    /**
+     * Zero when the replica has replayed everything it received, otherwise
+     * the age of the last replayed transaction.
+     */
+    private static final String LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+            END""";
+
+    private final DataSource replica;
+    private final Duration maxLag;
+    private volatile boolean healthy;
+    private volatile double lagSeconds = -1;
+
+    /**
+     * @param replica the replica pool, or {@code null} to route everything to the primary
+     */
+    public ReplicaRouting(DataSource replica, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.maxLag = maxLag;
+        if (replica != null) {
+            Gauge.builder("db.replica.lag", this, routing -> routing.lagSeconds)
+                    .description("Replication lag of the read replica, -1 when unreachable")
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+            checkLag();
+        }
+    }
+
+    public static void pinToPrimary() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void clearPin() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinned() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    public boolean useReplica() {
+        return replica != null && healthy && !isPinned()
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    DataSource replica() {
+        return replica;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        if (replica == null) {
+            return;
+        }
+        boolean wasHealthy = healthy;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+            rs.next();
+            lagSeconds = rs.getDouble(1);
+            healthy = lagSeconds * 1000 <= maxLag.toMillis();
+        } catch (SQLException e) {
+            lagSeconds = -1;
+            healthy = false;
+            if (wasHealthy) {
+                log.warn("Read replica is unreachable, routing reads to the primary", e);
+            }
+            return;
+        }
+        if (wasHealthy && !healthy) {
+            log.warn("Read replica lags {}s behind (limit {}), routing reads to the primary", lagSeconds, maxLag);
+        } else if (!wasHealthy && healthy) {
+            log.info("Read replica caught up, routing reads to it");
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (replica instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
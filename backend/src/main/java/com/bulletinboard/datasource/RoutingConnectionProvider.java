@@ -0,0 +1,56 @@
+package com.bulletinboard.datasource;
+
+import org.jooq.ConnectionProvider;
+import org.jooq.exception.DataAccessException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Hands out replica connections when {@link ReplicaRouting} allows it and
+ * falls back to the primary provider otherwise, which keeps Spring's
+ * transaction binding for primary connections intact.
+ */
+public class RoutingConnectionProvider implements ConnectionProvider {
+
+    private final ConnectionProvider primary;
+    private final ReplicaRouting routing;
+    private final Set<Connection> replicaConnections = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    public RoutingConnectionProvider(ConnectionProvider primary, ReplicaRouting routing) {
+        this.primary = primary;
+        this.routing = routing;
+    }
+
+    @Override
+    public Connection acquire() throws DataAccessException {
+        if (!routing.useReplica()) {
+            return primary.acquire();
+        }
+        try {
+            Connection connection = routing.replica().getConnection();
+            replicaConnections.add(connection);
+            return connection;
+        } catch (SQLException e) {
+            // Lag checks notice an outage only every few seconds
+            return primary.acquire();
+        }
+    }
+
+    @Override
+    public void release(Connection connection) throws DataAccessException {
+        if (!replicaConnections.remove(connection)) {
+            primary.release(connection);
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not return replica connection", e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.bulletinboard.datasource;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Runs Flyway only when the migration scripts differ from the ones last
+ * applied, as recorded in {@code schema_fingerprint}. A node starting with
+ * the scripts the database already has skips Flyway's scan, migrate and
+ * checksum validation; any change to a script, or a missing fingerprint,
+ * runs Flyway as usual. Changes made to the schema by hand are not noticed.
+ * <p>
+ * A CDS training run ({@code -Dspring.context.exit}) only loads classes and
+ * leaves the database alone.
+ */
+public class SchemaFingerprintMigrationStrategy implements FlywayMigrationStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaFingerprintMigrationStrategy.class);
+
+    private final ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+    @Override
+    public void migrate(Flyway flyway) {
+        if (System.getProperty("spring.context.exit") != null) {
+            log.info("Training run, skipping Flyway");
+            return;
+        }
+        String fingerprint = fingerprint(flyway.getConfiguration().getLocations());
+        if (fingerprint.equals(storedFingerprint(flyway))) {
+            log.info("Migration scripts unchanged ({}), skipping Flyway", fingerprint.substring(0, 12));
+            return;
+        }
+        flyway.migrate();
+        storeFingerprint(flyway, fingerprint);
+    }
+
+    String fingerprint(Location[] locations) {
+        try {
+            List<Resource> scripts = new ArrayList<>();
+            for (Location location : locations) {
+                if (location.isClassPath()) {
+                    for (Resource resource : resolver.getResources("classpath*:" + location.getPath() + "/**/*.sql")) {
+                        if (resource.isReadable()) {
+                            scripts.add(resource);
+                        }
+                    }
+                }
+            }
+            scripts.sort(Comparator.comparing(Resource::getFilename));
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Resource script : scripts) {
+                digest.update(script.getFilename().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                try (InputStream in = script.getInputStream()) {
+                    digest.update(in.readAllBytes());
+                }
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read migration scripts", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String storedFingerprint(Flyway flyway) {
+        try (Connection connection = flyway.getConfiguration().getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT fingerprint FROM schema_fingerprint WHERE id = 1");
+             ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        } catch (SQLException e) {
+            // Before V16, or a fresh database
+            return null;
+        }
+    }
+
+    private void storeFingerprint(Flyway flyway, String fingerprint) {
+        try (Connection connection = flyway.getConfiguration().getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement("""
+                     INSERT INTO schema_fingerprint (id, fingerprint, updated_at)
+                     VALUES (1, ?, CURRENT_TIMESTAMP)
+                     ON CONFLICT (id) DO UPDATE
+                         SET fingerprint = EXCLUDED.fingerprint, updated_at = EXCLUDED.updated_at""")) {
+            statement.setString(1, fingerprint);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            // Only costs the next start a full Flyway run
+            log.warn("Could not store the schema fingerprint", e);
+        }
+    }
+}
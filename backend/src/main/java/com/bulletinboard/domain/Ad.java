@@ -2,9 +2,26 @@ package com.bulletinboard.domain;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
 
 public class Ad {
 
+    /**
+     * Properties that an update writes back; see {@link #getChanged()}.
+     */
+    public enum Property {
+        TITLE,
+        DESCRIPTION,
+        PRICE,
+        CATEGORY_ID,
+        STATUS,
+        AREA,
+        PRICE_PERIOD
+    }
+
     private Long id;
     private String title;
     private String description;
@@ -18,6 +35,10 @@ public class Ad {
     private Area area;
     private PricePeriod pricePeriod;
     private String editToken;
+    private int version;
+    private long viewCount;
+
+    private final Set<Property> changed = EnumSet.noneOf(Property.class);
 
     public Ad() {
     }
@@ -44,6 +65,7 @@ public class Ad {
     }
 
     public void setTitle(String title) {
+        track(Property.TITLE, Objects.equals(this.title, title));
         this.title = title;
     }
 
@@ -52,6 +74,7 @@ public class Ad {
     }
 
     public void setDescription(String description) {
+        track(Property.DESCRIPTION, Objects.equals(this.description, description));
         this.description = description;
     }
 
@@ -60,6 +83,8 @@ public class Ad {
     }
 
     public void setPrice(BigDecimal price) {
+        // 10.0 and 10.00 are the same price
+        track(Property.PRICE, this.price == null ? price == null : price != null && this.price.compareTo(price) == 0);
         this.price = price;
     }
 
@@ -68,6 +93,7 @@ public class Ad {
     }
 
     public void setCategoryId(Long categoryId) {
+        track(Property.CATEGORY_ID, Objects.equals(this.categoryId, categoryId));
         this.categoryId = categoryId;
     }
 
@@ -84,6 +110,7 @@ public class Ad {
     }
 
     public void setStatus(AdStatus status) {
+        track(Property.STATUS, Objects.equals(this.status, status));
         this.status = status;
     }
 
@@ -116,6 +143,7 @@ public class Ad {
     }
 
     public void setArea(Area area) {
+        track(Property.AREA, Objects.equals(this.area, area));
         this.area = area;
     }
 
@@ -124,6 +152,7 @@ public class Ad {
     }
 
     public void setPricePeriod(PricePeriod pricePeriod) {
+        track(Property.PRICE_PERIOD, Objects.equals(this.pricePeriod, pricePeriod));
         this.pricePeriod = pricePeriod;
     }
 
@@ -134,4 +163,44 @@ public class Ad {
     public void setEditToken(String editToken) {
         this.editToken = editToken;
     }
+
+    /**
+     * Incremented by every update; lets clients detect concurrent edits.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Views as of the last flush of {@code AdViewCounter}; not written by updates.
+     */
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public void setViewCount(long viewCount) {
+        this.viewCount = viewCount;
+    }
+
+    /**
+     * Properties set to a different value since the ad was loaded or last
+     * saved. The repository updates only these columns.
+     */
+    public Set<Property> getChanged() {
+        return Collections.unmodifiableSet(changed);
+    }
+
+    public void markUnchanged() {
+        changed.clear();
+    }
+
+    private void track(Property property, boolean same) {
+        if (!same) {
+            changed.add(property);
+        }
+    }
 }
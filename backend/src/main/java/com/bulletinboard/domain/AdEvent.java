@@ -0,0 +1,26 @@
+package com.bulletinboard.domain;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+/**
+ * A committed change of an ad, ad image or category, read from the
+ * {@code ad_events} outbox.
+ *
+ * @param position  gap-free, commit-ordered number; consumers resume after it
+ * @param entity    {@code AD}, {@code AD_IMAGE} or {@code CATEGORY}
+ * @param adId      the ad an {@code AD} or {@code AD_IMAGE} event belongs to
+ * @param operation {@code INSERT}, {@code UPDATE} or {@code DELETE}
+ * @param payload   the row after the change as JSON with column names as keys;
+ *                  {@code null} for deletes
+ */
+public record AdEvent(
+        long position,
+        String entity,
+        long entityId,
+        Long adId,
+        String operation,
+        @JsonRawValue String payload,
+        LocalDateTime createdAt) {
+}
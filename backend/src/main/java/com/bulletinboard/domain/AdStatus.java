@@ -5,5 +5,6 @@ public enum AdStatus {
     INACTIVE,
     SOLD,
     DELETED,
-    BLOCKED
+    BLOCKED,
+    EXPIRED
 }
@@ -0,0 +1,71 @@
+package com.bulletinboard.domain;
+
+import java.time.LocalDateTime;
+
+public class ImageBlob {
+
+    private String sha256;
+    private String url;
+    private Long sizeBytes;
+    private String contentType;
+    private Integer refCount;
+    private LocalDateTime createdAt;
+
+    public ImageBlob() {
+    }
+
+    public ImageBlob(String sha256, String url, Long sizeBytes, String contentType) {
+        this.sha256 = sha256;
+        this.url = url;
+        this.sizeBytes = sizeBytes;
+        this.contentType = contentType;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,7 @@
+package com.bulletinboard.domain;
+
+public enum ImageStatus {
+    PROCESSING,
+    READY,
+    FAILED
+}
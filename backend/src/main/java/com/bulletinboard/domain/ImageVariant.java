@@ -0,0 +1,27 @@
+package com.bulletinboard.domain;
+
+/**
+ * Resized copies generated for every uploaded image, largest first so each
+ * variant can be scaled down from the previous one.
+ */
+public enum ImageVariant {
+    FULL("full", 1600),
+    CARD("card", 480),
+    THUMBNAIL("thumb", 160);
+
+    private final String suffix;
+    private final int maxDimension;
+
+    ImageVariant(String suffix, int maxDimension) {
+        this.suffix = suffix;
+        this.maxDimension = maxDimension;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+}
@@ -1,8 +1,29 @@
 package com.bulletinboard.dto;
 
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.ImageStatus;
+
 public record AdImageResponse(
         Long id,
         String url,
-        Integer position
+        Integer position,
+        ImageStatus status,
+        String thumbnailUrl,
+        String cardUrl,
+        String fullUrl,
+        String placeholder
 ) {
+
+    public static AdImageResponse fromAdImage(AdImage image) {
+        return new AdImageResponse(
+                image.getId(),
+                image.getUrl(),
+                image.getPosition(),
+                image.getStatus(),
+                image.getThumbnailUrl(),
+                image.getCardUrl(),
+                image.getFullUrl(),
+                image.getPlaceholder()
+        );
+    }
 }
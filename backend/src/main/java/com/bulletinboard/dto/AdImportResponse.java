@@ -0,0 +1,31 @@
+package com.bulletinboard.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first errors are listed;
+ * {@code errorsTruncated} tells whether there were more. {@code interruption}
+ * is set when the body could not be read to the end; the counts cover the
+ * lines before it.
+ */
+public record AdImportResponse(
+        long imported,
+        long rejected,
+        List<RowError> errors,
+        boolean errorsTruncated,
+        Interruption interruption
+) {
+
+    /**
+     * @param line first line that was not imported; resending the input from
+     *             this line on (after the CSV header) completes the import
+     */
+    public record Interruption(long line, String message) {
+    }
+
+    /**
+     * @param line line of the input the row starts on (1-based, the CSV header is line 1)
+     */
+    public record RowError(long line, String message) {
+    }
+}
@@ -25,6 +25,8 @@ public class AdResponse {
     private Area area;
     private PricePeriod pricePeriod;
     private String editToken;
+    private int version;
+    private long viewCount;
     private List<AdImageResponse> images;
 
     public AdResponse() {
@@ -43,6 +45,8 @@ public class AdResponse {
         response.setUpdatedAt(ad.getUpdatedAt());
         response.setArea(ad.getArea());
         response.setPricePeriod(ad.getPricePeriod());
+        response.setVersion(ad.getVersion());
+        response.setViewCount(ad.getViewCount());
         return response;
     }
 
@@ -171,6 +175,22 @@ public class AdResponse {
         this.editToken = editToken;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public void setViewCount(long viewCount) {
+        this.viewCount = viewCount;
+    }
+
     public List<AdImageResponse> getImages() {
         return images;
     }
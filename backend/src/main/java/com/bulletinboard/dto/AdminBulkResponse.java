@@ -0,0 +1,16 @@
+package com.bulletinboard.dto;
+
+import com.bulletinboard.domain.AdStatus;
+
+/**
+ * @param matched ads selected by the request
+ * @param updated ads whose status actually changed
+ * @param auditId moderation audit entry covering the whole batch
+ */
+public record AdminBulkResponse(
+        AdStatus status,
+        int matched,
+        int updated,
+        Long auditId
+) {
+}
@@ -0,0 +1,41 @@
+package com.bulletinboard.dto;
+
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Ads targeted by a bulk moderation request: either an explicit id list or
+ * a search filter, not both.
+ */
+public class AdminBulkSelection {
+
+    @Size(max = 10000, message = "At most 10000 ids per request")
+    private List<Long> ids;
+
+    private AdSearchRequest filter;
+
+    public AdminBulkSelection() {
+    }
+
+    public AdminBulkSelection(List<Long> ids, AdSearchRequest filter) {
+        this.ids = ids;
+        this.filter = filter;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public AdSearchRequest getFilter() {
+        return filter;
+    }
+
+    public void setFilter(AdSearchRequest filter) {
+        this.filter = filter;
+    }
+}
@@ -0,0 +1,28 @@
+package com.bulletinboard.dto;
+
+import com.bulletinboard.domain.AdStatus;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+public class AdminBulkStatusRequest extends AdminBulkSelection {
+
+    @NotNull(message = "Status is required")
+    private AdStatus status;
+
+    public AdminBulkStatusRequest() {
+    }
+
+    public AdminBulkStatusRequest(AdStatus status, List<Long> ids, AdSearchRequest filter) {
+        super(ids, filter);
+        this.status = status;
+    }
+
+    public AdStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AdStatus status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,27 @@
+package com.bulletinboard.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class DirectUploadCompleteRequest {
+
+    @NotEmpty(message = "At least one file is required")
+    private List<@Valid DirectUploadRequest> files;
+
+    public DirectUploadCompleteRequest() {
+    }
+
+    public DirectUploadCompleteRequest(List<DirectUploadRequest> files) {
+        this.files = files;
+    }
+
+    public List<DirectUploadRequest> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<DirectUploadRequest> files) {
+        this.files = files;
+    }
+}
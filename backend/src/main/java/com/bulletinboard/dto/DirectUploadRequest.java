@@ -0,0 +1,53 @@
+package com.bulletinboard.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+public class DirectUploadRequest {
+
+    @NotBlank(message = "SHA-256 is required")
+    @Pattern(regexp = "[0-9a-f]{64}", message = "SHA-256 must be 64 lowercase hex characters")
+    private String sha256;
+
+    @NotBlank(message = "Content type is required")
+    private String contentType;
+
+    @NotNull(message = "Size is required")
+    @Positive(message = "Size must be positive")
+    private Long size;
+
+    public DirectUploadRequest() {
+    }
+
+    public DirectUploadRequest(String sha256, String contentType, Long size) {
+        this.sha256 = sha256;
+        this.contentType = contentType;
+        this.size = size;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,29 @@
+package com.bulletinboard.dto;
+
+import com.bulletinboard.storage.PresignedUpload;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Either tells the client the content is already stored ({@code exists}), or
+ * carries the signed request to upload it with.
+ */
+public record DirectUploadResponse(
+        String sha256,
+        boolean exists,
+        String uploadUrl,
+        String method,
+        Map<String, String> headers,
+        Instant expiresAt
+) {
+
+    public static DirectUploadResponse existing(String sha256) {
+        return new DirectUploadResponse(sha256, true, null, null, Map.of(), null);
+    }
+
+    public static DirectUploadResponse presigned(String sha256, PresignedUpload upload) {
+        return new DirectUploadResponse(sha256, false, upload.url().toString(), upload.method(),
+                upload.headers(), upload.expiresAt());
+    }
+}
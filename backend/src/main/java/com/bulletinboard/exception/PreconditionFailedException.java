@@ -0,0 +1,11 @@
+package com.bulletinboard.exception;
+
+/**
+ * The resource was changed since the version named in {@code If-Match}.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
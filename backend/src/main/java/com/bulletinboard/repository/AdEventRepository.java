@@ -0,0 +1,79 @@
+package com.bulletinboard.repository;
+
+import com.bulletinboard.domain.AdEvent;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.bulletinboard.generated.Tables.AD_EVENTS;
+import static com.bulletinboard.generated.Tables.AD_EVENTS_SEQUENCER;
+
+/**
+ * The {@code ad_events} outbox of the V13 migration. Events are written by
+ * triggers; this reads them and numbers them for delivery.
+ */
+@Repository
+public class AdEventRepository {
+
+    private final DSLContext dsl;
+
+    public AdEventRepository(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /**
+     * Gives the next {@code limit} committed events their position.
+     *
+     * @return events numbered, -1 if another node is sequencing
+     */
+    public int assignPositions(int limit) {
+        return dsl.select(DSL.function("ad_events_assign_positions", SQLDataType.INTEGER, DSL.val(limit)))
+                .fetchOne(0, Integer.class);
+    }
+
+    /**
+     * Highest position handed out so far.
+     */
+    public long lastPosition() {
+        return dsl.select(AD_EVENTS_SEQUENCER.LAST_POSITION)
+                .from(AD_EVENTS_SEQUENCER)
+                .fetchOne(AD_EVENTS_SEQUENCER.LAST_POSITION);
+    }
+
+    /**
+     * Numbered events after {@code position}, in position order.
+     */
+    public List<AdEvent> findAfter(long position, int limit) {
+        return dsl.selectFrom(AD_EVENTS)
+                .where(AD_EVENTS.POSITION.gt(position))
+                .orderBy(AD_EVENTS.POSITION)
+                .limit(limit)
+                .fetch(r -> new AdEvent(
+                        r.getPosition(),
+                        r.getEntity(),
+                        r.getEntityId(),
+                        r.getAdId(),
+                        r.getOperation(),
+                        r.getPayload() != null ? r.getPayload().data() : null,
+                        r.getCreatedAt()));
+    }
+
+    /**
+     * Deletes up to {@code limit} numbered events created before {@code cutoff}.
+     */
+    public int deleteDeliveredBefore(LocalDateTime cutoff, int limit) {
+        return dsl.deleteFrom(AD_EVENTS)
+                .where(AD_EVENTS.ID.in(
+                        DSL.select(AD_EVENTS.ID)
+                                .from(AD_EVENTS)
+                                .where(AD_EVENTS.POSITION.isNotNull())
+                                .and(AD_EVENTS.CREATED_AT.lt(cutoff))
+                                .orderBy(AD_EVENTS.ID)
+                                .limit(limit)))
+                .execute();
+    }
+}
@@ -1,13 +1,23 @@
 package com.bulletinboard.repository;
 
 import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.ImageStatus;
 import com.bulletinboard.generated.tables.records.AdImagesRecord;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStep6;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static com.bulletinboard.generated.Tables.ADS;
 import static com.bulletinboard.generated.Tables.AD_IMAGES;
 
 @Repository
@@ -15,16 +25,25 @@ public class AdImageRepository {
 
     private final DSLContext dsl;
 
-    public AdImageRepository(DSLContext dsl) {
+    /**
+     * Image lookups for ad listings; served by the read replica when one is configured.
+     */
+    private final DSLContext readDsl;
+
+    public AdImageRepository(DSLContext dsl, @Qualifier("readDslContext") DSLContext readDsl) {
         this.dsl = dsl;
+        this.readDsl = readDsl;
     }
 
     public AdImage save(AdImage image) {
         if (image.getId() == null) {
             AdImagesRecord record = dsl.insertInto(AD_IMAGES)
                     .set(AD_IMAGES.AD_ID, image.getAdId())
+                    .set(AD_IMAGES.AD_CREATED_AT, adCreatedAt(image.getAdId()))
                     .set(AD_IMAGES.URL, image.getUrl())
                     .set(AD_IMAGES.POSITION, image.getPosition())
+                    .set(AD_IMAGES.STATUS, image.getStatus().name())
+                    .set(AD_IMAGES.SHA256, image.getSha256())
                     .returning()
                     .fetchOne();
             return map(record);
@@ -38,19 +57,159 @@ public class AdImageRepository {
         }
     }
 
+    /**
+     * Inserts all images with a single multi-row INSERT ... RETURNING.
+     */
+    public List<AdImage> saveAll(List<AdImage> images) {
+        if (images.isEmpty()) {
+            return List.of();
+        }
+
+        InsertValuesStep6<AdImagesRecord, Long, LocalDateTime, String, Integer, String, String> insert = dsl.insertInto(
+                AD_IMAGES, AD_IMAGES.AD_ID, AD_IMAGES.AD_CREATED_AT, AD_IMAGES.URL, AD_IMAGES.POSITION,
+                AD_IMAGES.STATUS, AD_IMAGES.SHA256);
+        for (AdImage image : images) {
+            insert = insert.values(DSL.val(image.getAdId()), adCreatedAt(image.getAdId()), DSL.val(image.getUrl()),
+                    DSL.val(image.getPosition()), DSL.val(image.getStatus().name()), DSL.val(image.getSha256()));
+        }
+
+        List<AdImage> saved = new ArrayList<>(insert.returning().fetch(AdImageRepository::map));
+        saved.sort(Comparator.comparing(AdImage::getPosition));
+        return saved;
+    }
+
+    public int findMaxPosition(Long adId) {
+        return dsl.select(DSL.coalesce(DSL.max(AD_IMAGES.POSITION), -1))
+                .from(AD_IMAGES)
+                .where(AD_IMAGES.AD_ID.eq(adId))
+                .fetchOne(0, Integer.class);
+    }
+
+    public void markReady(Long id, String thumbnailUrl, String cardUrl, String fullUrl, String placeholder) {
+        dsl.update(AD_IMAGES)
+                .set(AD_IMAGES.STATUS, ImageStatus.READY.name())
+                .set(AD_IMAGES.THUMBNAIL_URL, thumbnailUrl)
+                .set(AD_IMAGES.CARD_URL, cardUrl)
+                .set(AD_IMAGES.FULL_URL, fullUrl)
+                .set(AD_IMAGES.PLACEHOLDER, placeholder)
+                .where(AD_IMAGES.ID.eq(id))
+                .execute();
+    }
+
+    /**
+     * Pages through processed images that have no placeholder yet.
+     */
+    public List<AdImage> findReadyWithoutPlaceholderAfter(Long afterId, int limit) {
+        return dsl.selectFrom(AD_IMAGES)
+                .where(AD_IMAGES.PLACEHOLDER.isNull())
+                .and(AD_IMAGES.STATUS.eq(ImageStatus.READY.name()))
+                .and(AD_IMAGES.ID.gt(afterId))
+                .orderBy(AD_IMAGES.ID.asc())
+                .limit(limit)
+                .fetch(AdImageRepository::map);
+    }
+
+    /**
+     * Stores placeholders for many images in one round trip.
+     */
+    public void updatePlaceholders(Map<Long, String> placeholders) {
+        if (placeholders.isEmpty()) {
+            return;
+        }
+        dsl.batch(placeholders.entrySet().stream()
+                        .map(entry -> dsl.update(AD_IMAGES)
+                                .set(AD_IMAGES.PLACEHOLDER, entry.getValue())
+                                .where(AD_IMAGES.ID.eq(entry.getKey())))
+                        .toList())
+                .execute();
+    }
+
+    public void markFailed(Long id) {
+        dsl.update(AD_IMAGES)
+                .set(AD_IMAGES.STATUS, ImageStatus.FAILED.name())
+                .where(AD_IMAGES.ID.eq(id))
+                .execute();
+    }
+
+    /**
+     * Records a failed processing attempt; the image stays PROCESSING and is
+     * picked up again by {@link #findProcessingDue} from {@code retryAt} on.
+     */
+    public void markRetry(Long id, int attempts, LocalDateTime retryAt) {
+        dsl.update(AD_IMAGES)
+                .set(AD_IMAGES.PROCESSING_ATTEMPTS, attempts)
+                .set(AD_IMAGES.PROCESSING_RETRY_AT, retryAt)
+                .where(AD_IMAGES.ID.eq(id))
+                .execute();
+    }
+
+    /**
+     * Images in PROCESSING that were never attempted since {@code before}, or
+     * whose retry is due at {@code now}.
+     */
+    public List<AdImage> findProcessingDue(LocalDateTime before, LocalDateTime now, int limit) {
+        return dsl.selectFrom(AD_IMAGES)
+                .where(AD_IMAGES.STATUS.eq(ImageStatus.PROCESSING.name()))
+                .and(AD_IMAGES.PROCESSING_RETRY_AT.isNull().and(AD_IMAGES.CREATED_AT.lt(before))
+                        .or(AD_IMAGES.PROCESSING_RETRY_AT.le(now)))
+                .orderBy(AD_IMAGES.CREATED_AT.asc())
+                .limit(limit)
+                .fetch(AdImageRepository::map);
+    }
+
+    /**
+     * Pages through images that still live in the per-ad directory layout.
+     */
+    public List<AdImage> findLegacyAfter(Long afterId, int limit) {
+        return dsl.selectFrom(AD_IMAGES)
+                .where(AD_IMAGES.SHA256.isNull())
+                .and(AD_IMAGES.ID.gt(afterId))
+                .orderBy(AD_IMAGES.ID.asc())
+                .limit(limit)
+                .fetch(AdImageRepository::map);
+    }
+
+    /**
+     * Points an image at a content-addressed blob. The variants are reset so
+     * they get regenerated from the new location.
+     */
+    /**
+     * @return whether the image still existed
+     */
+    public boolean relinkToBlob(Long id, String sha256, String url) {
+        return dsl.update(AD_IMAGES)
+                .set(AD_IMAGES.SHA256, sha256)
+                .set(AD_IMAGES.URL, url)
+                .set(AD_IMAGES.STATUS, ImageStatus.PROCESSING.name())
+                .set(AD_IMAGES.THUMBNAIL_URL, (String) null)
+                .set(AD_IMAGES.CARD_URL, (String) null)
+                .set(AD_IMAGES.FULL_URL, (String) null)
+                .set(AD_IMAGES.PROCESSING_ATTEMPTS, 0)
+                .set(AD_IMAGES.PROCESSING_RETRY_AT, (LocalDateTime) null)
+                .where(AD_IMAGES.ID.eq(id))
+                .execute() == 1;
+    }
+
+    public List<String> findUrlsByAdId(Long adId) {
+        return dsl.select(AD_IMAGES.URL)
+                .from(AD_IMAGES)
+                .where(AD_IMAGES.AD_ID.eq(adId))
+                .fetch(AD_IMAGES.URL);
+    }
+
     public List<AdImage> findByAdId(Long adId) {
         return dsl.selectFrom(AD_IMAGES)
                 .where(AD_IMAGES.AD_ID.eq(adId))
                 .orderBy(AD_IMAGES.POSITION.asc())
                 .fetch()
-                .map(this::map);
+                .map(AdImageRepository::map);
     }
 
     public Optional<AdImage> findById(Long id) {
         AdImagesRecord record = dsl.selectFrom(AD_IMAGES)
                 .where(AD_IMAGES.ID.eq(id))
                 .fetchOne();
-        return Optional.ofNullable(record).map(this::map);
+        return Optional.ofNullable(record).map(AdImageRepository::map);
     }
 
     public void deleteById(Long id) {
@@ -63,7 +222,7 @@ public class AdImageRepository {
         return dsl.selectFrom(AD_IMAGES)
                 .where(AD_IMAGES.AD_ID.eq(adId))
                 .orderBy(AD_IMAGES.POSITION.asc())
-                .fetch(this::map);
+                .fetch(AdImageRepository::map);
     }
 
     public List<AdImage> findByAdIdInOrderByPositionAsc(List<Long> adIds) {
@@ -71,20 +230,35 @@ public class AdImageRepository {
             return List.of();
         }
 
-        return dsl.selectFrom(AD_IMAGES)
+        return readDsl.selectFrom(AD_IMAGES)
                 .where(AD_IMAGES.AD_ID.in(adIds))
                 .orderBy(AD_IMAGES.AD_ID.asc(), AD_IMAGES.POSITION.asc())
-                .fetch(this::map);
+                .fetch(AdImageRepository::map);
     }
 
 
-    private AdImage map(AdImagesRecord r) {
+    static AdImage map(AdImagesRecord r) {
         AdImage img = new AdImage();
         img.setId(r.getId());
         img.setAdId(r.getAdId());
         img.setUrl(r.getUrl());
         img.setPosition(r.getPosition());
         img.setCreatedAt(r.getCreatedAt());
+        img.setStatus(ImageStatus.valueOf(r.getStatus()));
+        img.setThumbnailUrl(r.getThumbnailUrl());
+        img.setCardUrl(r.getCardUrl());
+        img.setFullUrl(r.getFullUrl());
+        img.setSha256(r.getSha256());
+        img.setPlaceholder(r.getPlaceholder());
+        img.setProcessingAttempts(r.getProcessingAttempts());
         return img;
     }
+
+    /**
+     * Images are partitioned by the creation time of their ad, which the
+     * insert looks up itself.
+     */
+    private static Field<LocalDateTime> adCreatedAt(Long adId) {
+        return DSL.field(DSL.select(ADS.CREATED_AT).from(ADS).where(ADS.ID.eq(adId)));
+    }
 }
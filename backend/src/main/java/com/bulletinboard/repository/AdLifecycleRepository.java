@@ -0,0 +1,147 @@
+package com.bulletinboard.repository;
+
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.PricePeriod;
+import org.jooq.CaseConditionStep;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.DatePart;
+import org.jooq.Field;
+import org.jooq.Record2;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static com.bulletinboard.generated.Tables.ADS;
+
+/**
+ * Expires ACTIVE ads and moves finished ones from {@code ads} into the monthly
+ * partitions of {@code ads_archive}. The archive is written with plain SQL: it
+ * is never read by the application.
+ * <p>
+ * Batches are picked with {@code FOR UPDATE SKIP LOCKED}, so several nodes can
+ * work on them at the same time without blocking each other.
+ */
+@Repository
+public class AdLifecycleRepository {
+
+    private static final String MOVE_TO_ARCHIVE = """
+            WITH moved AS (
+                DELETE FROM ads WHERE id = ANY(?) AND created_at BETWEEN ? AND ?
+                RETURNING id, title, description, price, category_id, status, created_at, updated_at,
+                          created_ip, area, price_period, edit_token, version, view_count
+            )
+            INSERT INTO ads_archive (id, title, description, price, category_id, status, created_at, updated_at,
+                                     created_ip, area, price_period, edit_token, version, view_count)
+            SELECT id, title, description, price, category_id, status, created_at, updated_at,
+                   created_ip, area, price_period, edit_token, version, view_count
+            FROM moved""";
+
+    private final DSLContext dsl;
+
+    public AdLifecycleRepository(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /**
+     * Sets up to {@code limit} ACTIVE ads older than their TTL to EXPIRED. The
+     * TTL of an ad is that of its category, else that of its price period,
+     * else {@code defaultTtl}.
+     *
+     * @return ids of the expired ads
+     */
+    public List<Long> expireBatch(Duration defaultTtl, Map<PricePeriod, Duration> pricePeriodTtl,
+                                  Map<Long, Duration> categoryTtl, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Field<Long> ttlSeconds = DSL.inline(defaultTtl.toSeconds());
+        Duration shortest = defaultTtl;
+        if (!categoryTtl.isEmpty() || !pricePeriodTtl.isEmpty()) {
+            CaseConditionStep<Long> ttl = null;
+            for (Map.Entry<Long, Duration> entry : categoryTtl.entrySet()) {
+                ttl = when(ttl, ADS.CATEGORY_ID.eq(DSL.inline(entry.getKey())), entry.getValue());
+                shortest = min(shortest, entry.getValue());
+            }
+            for (Map.Entry<PricePeriod, Duration> entry : pricePeriodTtl.entrySet()) {
+                ttl = when(ttl, ADS.PRICE_PERIOD.eq(DSL.inline(entry.getKey().name())), entry.getValue());
+                shortest = min(shortest, entry.getValue());
+            }
+            ttlSeconds = ttl.otherwise(ttlSeconds);
+        }
+
+        return dsl.update(ADS)
+                .set(ADS.STATUS, AdStatus.EXPIRED.name())
+                .set(ADS.UPDATED_AT, now)
+                .set(ADS.VERSION, ADS.VERSION.plus(1))
+                .where(ADS.ID.in(DSL.select(ADS.ID)
+                        .from(ADS)
+                        .where(ADS.STATUS.eq(AdStatus.ACTIVE.name()))
+                        // Sargable bound for the partial index, the exact TTL is checked per row
+                        .and(ADS.CREATED_AT.lt(now.minus(shortest)))
+                        .and(DSL.localDateTimeAdd(ADS.CREATED_AT, ttlSeconds, DatePart.SECOND).lt(now))
+                        .orderBy(ADS.CREATED_AT)
+                        .limit(limit)
+                        .forUpdate()
+                        .skipLocked()))
+                .returning(ADS.ID)
+                .fetch(ADS.ID);
+    }
+
+    /**
+     * Locks up to {@code limit} EXPIRED or DELETED ads not updated since
+     * {@code cutoff}. Rows locked by another node are skipped, so the caller
+     * must run in a transaction.
+     *
+     * @return id and created_at of the locked ads
+     */
+    public List<Record2<Long, LocalDateTime>> lockArchivable(LocalDateTime cutoff, int limit) {
+        return dsl.select(ADS.ID, ADS.CREATED_AT)
+                .from(ADS)
+                .where(ADS.STATUS.in(AdStatus.EXPIRED.name(), AdStatus.DELETED.name()))
+                .and(ADS.UPDATED_AT.lt(cutoff))
+                .limit(limit)
+                .forUpdate()
+                .skipLocked()
+                .fetch();
+    }
+
+    /**
+     * Creates the archive partition for {@code month} unless it exists.
+     */
+    public void createPartition(YearMonth month) {
+        String name = String.format("ads_archive_%04d_%02d", month.getYear(), month.getMonthValue());
+        dsl.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF ads_archive FOR VALUES FROM ('"
+                + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    /**
+     * Deletes the ads and inserts them into the archive in one statement.
+     * Their images go with the ON DELETE CASCADE of {@code ad_images}. The
+     * created_at range of the batch limits the delete to the partitions that
+     * hold it.
+     *
+     * @return number of ads moved
+     */
+    public int moveToArchive(List<Long> ids, LocalDateTime createdFrom, LocalDateTime createdTo) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return dsl.execute(MOVE_TO_ARCHIVE, DSL.val(ids.toArray(Long[]::new)), DSL.val(createdFrom),
+                DSL.val(createdTo));
+    }
+
+    private static CaseConditionStep<Long> when(CaseConditionStep<Long> ttl, Condition condition,
+                                                Duration value) {
+        Field<Long> seconds = DSL.inline(value.toSeconds());
+        return ttl == null ? DSL.when(condition, seconds) : ttl.when(condition, seconds);
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
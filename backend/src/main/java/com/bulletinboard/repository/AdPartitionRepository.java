@@ -0,0 +1,76 @@
+package com.bulletinboard.repository;
+
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Partition maintenance of {@code ads} and {@code ad_images}. The work is done
+ * by the SQL functions of the V10 migration; these are thin wrappers.
+ */
+@Repository
+public class AdPartitionRepository {
+
+    private final DSLContext dsl;
+
+    public AdPartitionRepository(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /**
+     * Creates the monthly partitions from {@code from} up to and including
+     * {@code to} that do not exist yet.
+     *
+     * @return number of months created
+     */
+    public int createPartitions(YearMonth from, YearMonth to) {
+        LocalDate start = from.atDay(1);
+        LocalDate end = to.plusMonths(1).atDay(1);
+        return dsl.select(DSL.function("create_ads_partitions", SQLDataType.INTEGER, DSL.val(start), DSL.val(end)))
+                .fetchOne(0, Integer.class);
+    }
+
+    /**
+     * Whether the live tables are still being copied into their partitioned
+     * replacements.
+     */
+    public boolean conversionPending() {
+        return dsl.select(DSL.field("to_regclass('ads_partitioned') IS NOT NULL", Boolean.class))
+                .fetchOne(0, Boolean.class);
+    }
+
+    /**
+     * Copies the next {@code limit} ads and their images.
+     *
+     * @return ads copied, 0 once all are copied, -1 if another node is copying
+     */
+    public int copyBatch(int limit) {
+        return dsl.select(DSL.function("ads_partitioning_copy_batch", SQLDataType.INTEGER, DSL.val(limit)))
+                .fetchOne(0, Integer.class);
+    }
+
+    /**
+     * Swaps the partitioned tables in.
+     *
+     * @return false if rows were added since the last copy and need another batch
+     */
+    public boolean finishConversion() {
+        return dsl.select(DSL.function("ads_partitioning_finish", SQLDataType.BOOLEAN))
+                .fetchOne(0, Boolean.class);
+    }
+
+    /**
+     * One step of validating the {@code ad_images} foreign key to {@code ads}
+     * after the swap, each in its own transaction.
+     *
+     * @return true once the foreign key is fully in place
+     */
+    public boolean validateForeignKeyStep() {
+        return dsl.select(DSL.function("ads_partitioning_validate_step", SQLDataType.BOOLEAN))
+                .fetchOne(0, Boolean.class);
+    }
+}
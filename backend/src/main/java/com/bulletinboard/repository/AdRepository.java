@@ -5,27 +5,50 @@ import com.bulletinboard.domain.AdStatus;
 import com.bulletinboard.domain.Area;
 import com.bulletinboard.domain.PricePeriod;
 import com.bulletinboard.dto.AdSearchRequest;
+import com.bulletinboard.dto.AdUpdateRequest;
+import com.bulletinboard.exception.ResourceNotFoundException;
 import com.bulletinboard.generated.tables.records.AdsRecord;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record2;
+import org.jooq.Row2;
 import org.jooq.SortField;
+import org.jooq.Table;
 import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+import java.io.StringReader;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.bulletinboard.generated.Tables.ADS;
+import static com.bulletinboard.generated.Tables.CATEGORIES;
 
 @Repository
 public class AdRepository {
 
+    private static final String COPY_ADS = "COPY ads (title, description, price, category_id, status, area, "
+            + "price_period, edit_token, created_ip) FROM STDIN (FORMAT csv)";
+
     private final DSLContext dsl;
 
-    public AdRepository(DSLContext dsl) {
+    /**
+     * Search and listing queries; served by the read replica when one is configured.
+     */
+    private final DSLContext readDsl;
+
+    public AdRepository(DSLContext dsl, @Qualifier("readDslContext") DSLContext readDsl) {
         this.dsl = dsl;
+        this.readDsl = readDsl;
     }
 
     public Ad save(Ad ad) {
@@ -46,61 +69,223 @@ public class AdRepository {
             AdsRecord record = insertStep.returning().fetchOne();
             return mapToAd(record);
         } else {
-            var updateStep = dsl.update(ADS)
-                    .set(ADS.TITLE, ad.getTitle())
-                    .set(ADS.DESCRIPTION, ad.getDescription())
-                    .set(ADS.PRICE, ad.getPrice())
-                    .set(ADS.CATEGORY_ID, ad.getCategoryId())
-                    .set(ADS.STATUS, ad.getStatus().name())
-                    .set(ADS.UPDATED_AT, now)
-                    .set(ADS.AREA, ad.getArea() != null ? ad.getArea().name() : null)
-                    .set(ADS.PRICE_PERIOD, ad.getPricePeriod() != null ? ad.getPricePeriod().name() : null);
-            updateStep.where(ADS.ID.eq(ad.getId())).execute();
+            Set<Ad.Property> changed = ad.getChanged();
+            if (changed.isEmpty()) {
+                return ad;
+            }
+
+            // Only the changed columns: no rewrite of untouched TOAST values and index
+            // entries, and a HOT update when no indexed column is among them
+            Map<Field<?>, Object> values = new LinkedHashMap<>();
+            for (Ad.Property property : changed) {
+                switch (property) {
+                    case TITLE -> values.put(ADS.TITLE, ad.getTitle());
+                    case DESCRIPTION -> values.put(ADS.DESCRIPTION, ad.getDescription());
+                    case PRICE -> values.put(ADS.PRICE, ad.getPrice());
+                    case CATEGORY_ID -> values.put(ADS.CATEGORY_ID, ad.getCategoryId());
+                    case STATUS -> values.put(ADS.STATUS, ad.getStatus().name());
+                    case AREA -> values.put(ADS.AREA, ad.getArea() != null ? ad.getArea().name() : null);
+                    case PRICE_PERIOD -> values.put(ADS.PRICE_PERIOD,
+                            ad.getPricePeriod() != null ? ad.getPricePeriod().name() : null);
+                }
+            }
+            values.put(ADS.UPDATED_AT, now);
+            values.put(ADS.VERSION, ADS.VERSION.plus(1));
+
+            Condition target = ADS.ID.eq(ad.getId());
+            if (ad.getCreatedAt() != null) {
+                // Lets the planner prune to the ad's partition
+                target = target.and(ADS.CREATED_AT.eq(ad.getCreatedAt()));
+            }
+            Integer version = dsl.update(ADS).set(values).where(target).returning(ADS.VERSION).fetchOne(ADS.VERSION);
+            if (version == null) {
+                // Deleted or archived since it was loaded
+                throw new ResourceNotFoundException("Ad", ad.getId());
+            }
+            ad.markUnchanged();
             ad.setUpdatedAt(now);
+            ad.setVersion(version);
             return ad;
         }
     }
 
+    /**
+     * Applies the non-null fields of {@code request} in a single statement.
+     * The join with {@code categories} checks the (new) category and returns
+     * its name, so no further query is needed for the response.
+     *
+     * @param id               the ad to update, or {@code null} to select it by token only
+     * @param editToken        only update if the ad has this token; {@code null} to skip the check
+     * @param expectedVersions only update if the ad has one of these versions; {@code null} to skip the check
+     * @return the updated ad, or empty if no row matched all conditions
+     */
+    public Optional<UpdatedAd> updatePartial(Long id, String editToken, List<Integer> expectedVersions,
+                                             AdUpdateRequest request) {
+        Map<Field<?>, Object> values = new LinkedHashMap<>();
+        if (request.getTitle() != null) {
+            values.put(ADS.TITLE, request.getTitle());
+        }
+        if (request.getDescription() != null) {
+            values.put(ADS.DESCRIPTION, request.getDescription());
+        }
+        if (request.getPrice() != null) {
+            values.put(ADS.PRICE, request.getPrice());
+        }
+        if (request.getCategoryId() != null) {
+            values.put(ADS.CATEGORY_ID, request.getCategoryId());
+        }
+        if (request.getStatus() != null) {
+            values.put(ADS.STATUS, request.getStatus().name());
+        }
+        if (request.getArea() != null) {
+            values.put(ADS.AREA, request.getArea().name());
+        }
+        if (request.getPricePeriod() != null) {
+            values.put(ADS.PRICE_PERIOD, request.getPricePeriod().name());
+        }
+        boolean unchanged = values.isEmpty();
+        values.put(ADS.UPDATED_AT, LocalDateTime.now());
+        values.put(ADS.VERSION, ADS.VERSION.plus(1));
+
+        Condition condition = adCondition(id, editToken)
+                .and(CATEGORIES.ID.eq(request.getCategoryId() != null
+                        ? DSL.val(request.getCategoryId())
+                        : ADS.CATEGORY_ID));
+        if (expectedVersions != null) {
+            condition = condition.and(ADS.VERSION.in(expectedVersions));
+        }
+
+        if (unchanged) {
+            // Nothing to write, but the same checks apply
+            return dsl.select(ADS.asterisk(), CATEGORIES.NAME)
+                    .from(ADS, CATEGORIES)
+                    .where(condition)
+                    .fetchOptional()
+                    .map(record -> new UpdatedAd(mapToAd(record.into(ADS)), record.get(CATEGORIES.NAME)));
+        }
+        return dsl.update(ADS)
+                .set(values)
+                .from(CATEGORIES)
+                .where(condition)
+                .returningResult(ADS.asterisk(), CATEGORIES.NAME)
+                .fetchOptional()
+                .map(record -> new UpdatedAd(mapToAd(record.into(ADS)), record.get(CATEGORIES.NAME)));
+    }
+
+    /**
+     * Current version of the ad, for telling apart why a conditional update
+     * matched nothing.
+     */
+    public Optional<Integer> findVersion(Long id, String editToken) {
+        return dsl.select(ADS.VERSION)
+                .from(ADS)
+                .where(adCondition(id, editToken))
+                .fetchOptional(ADS.VERSION);
+    }
+
+    private static Condition adCondition(Long id, String editToken) {
+        if (id == null && editToken == null) {
+            throw new IllegalArgumentException("Either id or edit token is required");
+        }
+        Condition condition = DSL.noCondition();
+        if (id != null) {
+            condition = condition.and(ADS.ID.eq(id));
+        }
+        if (editToken != null) {
+            condition = condition.and(ADS.EDIT_TOKEN.eq(editToken));
+        }
+        return condition;
+    }
+
+    /**
+     * Inserts the ads with one {@code COPY ... FROM STDIN}, which skips the
+     * per-statement overhead of INSERT for bulk loads. The COPY is a single
+     * statement, so either every row is inserted or none.
+     *
+     * @return number of rows inserted
+     */
+    public long copyIn(List<Ad> ads) {
+        if (ads.isEmpty()) {
+            return 0;
+        }
+        StringBuilder csv = new StringBuilder(ads.size() * 256);
+        for (Ad ad : ads) {
+            appendCsv(csv, ad.getTitle()).append(',');
+            appendCsv(csv, ad.getDescription()).append(',');
+            appendCsv(csv, ad.getPrice() != null ? ad.getPrice().toPlainString() : null).append(',');
+            appendCsv(csv, ad.getCategoryId() != null ? ad.getCategoryId().toString() : null).append(',');
+            appendCsv(csv, ad.getStatus().name()).append(',');
+            appendCsv(csv, ad.getArea() != null ? ad.getArea().name() : null).append(',');
+            appendCsv(csv, ad.getPricePeriod() != null ? ad.getPricePeriod().name() : null).append(',');
+            appendCsv(csv, ad.getEditToken()).append(',');
+            appendCsv(csv, ad.getCreatedIp()).append('\n');
+        }
+        return dsl.connectionResult(connection -> connection.unwrap(PGConnection.class)
+                .getCopyAPI()
+                .copyIn(COPY_ADS, new StringReader(csv.toString())));
+    }
+
+    /**
+     * COPY's CSV format: unquoted empty is NULL, so every value is quoted.
+     */
+    private static StringBuilder appendCsv(StringBuilder csv, String value) {
+        if (value != null) {
+            csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+        return csv;
+    }
+
     public Optional<Ad> findById(Long id) {
         AdsRecord record = dsl.selectFrom(ADS)
                 .where(ADS.ID.eq(id))
                 .fetchOne();
-        return Optional.ofNullable(record).map(this::mapToAd);
+        return Optional.ofNullable(record).map(AdRepository::mapToAd);
     }
 
     public List<Ad> findAll() {
-        return dsl.selectFrom(ADS)
+        return readDsl.selectFrom(ADS)
+                .fetch()
+                .map(AdRepository::mapToAd);
+    }
+
+    public List<Ad> findByIdsAndStatus(Collection<Long> ids, AdStatus status) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return readDsl.selectFrom(ADS)
+                .where(ADS.ID.eq(DSL.any(ids.toArray(Long[]::new))))
+                .and(ADS.STATUS.eq(status.name()))
                 .fetch()
-                .map(this::mapToAd);
+                .map(AdRepository::mapToAd);
     }
 
     public List<Ad> findByStatus(AdStatus status) {
-        return dsl.selectFrom(ADS)
+        return readDsl.selectFrom(ADS)
                 .where(ADS.STATUS.eq(status.name()))
                 .fetch()
-                .map(this::mapToAd);
+                .map(AdRepository::mapToAd);
     }
 
     public List<Ad> findByCategoryId(Long categoryId) {
-        return dsl.selectFrom(ADS)
+        return readDsl.selectFrom(ADS)
                 .where(ADS.CATEGORY_ID.eq(categoryId))
                 .fetch()
-                .map(this::mapToAd);
+                .map(AdRepository::mapToAd);
     }
 
 //    public List<Ad> findByUserId(Long userId) {
 //        return dsl.selectFrom(ADS)
 //                .where(ADS.USER_ID.eq(userId))
 //                .fetch()
-//                .map(this::mapToAd);
+//                .map(AdRepository::mapToAd);
 //    }
 
     public List<Ad> findByCategoryIdAndStatus(Long categoryId, AdStatus status) {
-        return dsl.selectFrom(ADS)
+        return readDsl.selectFrom(ADS)
                 .where(ADS.CATEGORY_ID.eq(categoryId))
                 .and(ADS.STATUS.eq(status.name()))
                 .fetch()
-                .map(this::mapToAd);
+                .map(AdRepository::mapToAd);
     }
 
 //    public List<Ad> findByUserIdAndStatus(Long userId, AdStatus status) {
@@ -108,7 +293,7 @@ public class AdRepository {
 //                .where(ADS.USER_ID.eq(userId))
 //                .and(ADS.STATUS.eq(status.name()))
 //                .fetch()
-//                .map(this::mapToAd);
+//                .map(AdRepository::mapToAd);
 //    }
 
     public boolean existsById(Long id) {
@@ -118,6 +303,21 @@ public class AdRepository {
         );
     }
 
+    /**
+     * Locks the ad row for the rest of the current transaction, serialising
+     * writers that derive values from the ad's children (e.g. image positions).
+     *
+     * @return whether the ad exists
+     */
+    public boolean lockById(Long id) {
+        return dsl.select(ADS.ID)
+                .from(ADS)
+                .where(ADS.ID.eq(id))
+                .forNoKeyUpdate()
+                .fetchOptional()
+                .isPresent();
+    }
+
     public void deleteById(Long id) {
         dsl.deleteFrom(ADS)
                 .where(ADS.ID.eq(id))
@@ -128,7 +328,7 @@ public class AdRepository {
         AdsRecord record = dsl.selectFrom(ADS)
                 .where(ADS.EDIT_TOKEN.eq(editToken))
                 .fetchOne();
-        return Optional.ofNullable(record).map(this::mapToAd);
+        return Optional.ofNullable(record).map(AdRepository::mapToAd);
     }
 
     public long countByIpSince(String ip, LocalDateTime since) {
@@ -143,25 +343,91 @@ public class AdRepository {
         List<Condition> conditions = buildSearchConditions(request);
         SortField<?> sortField = buildSortField(request.getSortBy(), request.getSortDirection());
 
-        return dsl.selectFrom(ADS)
+        return readDsl.selectFrom(ADS)
                 .where(conditions)
                 .orderBy(sortField)
                 .limit(request.getSize())
                 .offset(request.getPage() * request.getSize())
                 .fetch()
-                .map(this::mapToAd);
+                .map(AdRepository::mapToAd);
     }
 
     public long countAds(AdSearchRequest request) {
         List<Condition> conditions = buildSearchConditions(request);
 
-        return dsl.selectCount()
+        return readDsl.selectCount()
                 .from(ADS)
                 .where(conditions)
                 .fetchOne(0, Long.class);
     }
 
-    private List<Condition> buildSearchConditions(AdSearchRequest request) {
+    /**
+     * Ids of ads matching the search filter, in id order after {@code afterId}.
+     * Meant for walking a filter in chunks; a filter without any condition is
+     * refused so it cannot silently cover every ad.
+     */
+    public List<Long> findIdsMatching(AdSearchRequest request, long afterId, int limit) {
+        List<Condition> conditions = buildSearchConditions(request);
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("Filter must restrict at least one field");
+        }
+
+        return dsl.select(ADS.ID)
+                .from(ADS)
+                .where(conditions)
+                .and(ADS.ID.gt(afterId))
+                .orderBy(ADS.ID.asc())
+                .limit(limit)
+                .fetch(ADS.ID);
+    }
+
+    /**
+     * Sets the status of all given ads in one statement. Ads that already
+     * have the status are left alone.
+     *
+     * @return ids of the ads that changed
+     */
+    public List<Long> updateStatusByIds(List<Long> ids, AdStatus status) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return dsl.update(ADS)
+                .set(ADS.STATUS, status.name())
+                .set(ADS.UPDATED_AT, LocalDateTime.now())
+                .set(ADS.VERSION, ADS.VERSION.plus(1))
+                .where(ADS.ID.eq(DSL.any(ids.toArray(Long[]::new))))
+                .and(ADS.STATUS.ne(status.name()))
+                .returning(ADS.ID)
+                .fetch(ADS.ID);
+    }
+
+    /**
+     * Adds view counts in one statement. Neither {@code updated_at} nor
+     * {@code version} change: a view is not an edit.
+     *
+     * @param views views to add by ad id
+     * @return number of ads updated
+     */
+    @SuppressWarnings("unchecked")
+    public int addViews(Map<Long, Long> views) {
+        if (views.isEmpty()) {
+            return 0;
+        }
+        Row2<Long, Long>[] rows = views.entrySet().stream()
+                .map(e -> DSL.row(e.getKey(), e.getValue()))
+                .toArray(Row2[]::new);
+        Table<Record2<Long, Long>> deltas = DSL.values(rows).as("deltas", "id", "views");
+        Field<Long> deltaId = deltas.field("id", Long.class);
+        Field<Long> deltaViews = deltas.field("views", Long.class);
+
+        return dsl.update(ADS)
+                .set(ADS.VIEW_COUNT, ADS.VIEW_COUNT.plus(deltaViews))
+                .from(deltas)
+                .where(ADS.ID.eq(deltaId))
+                .execute();
+    }
+
+    static List<Condition> buildSearchConditions(AdSearchRequest request) {
         List<Condition> conditions = new ArrayList<>();
 
         if (request.getStatus() != null) {
@@ -200,25 +466,22 @@ public class AdRepository {
             conditions.add(ADS.PRICE_PERIOD.eq(request.getPricePeriod().name()));
         }
 
-        if (conditions.isEmpty()) {
-            conditions.add(DSL.trueCondition());
-        }
-
         return conditions;
     }
 
-    private SortField<?> buildSortField(String sortBy, String sortDirection) {
+    static SortField<?> buildSortField(String sortBy, String sortDirection) {
         boolean isAsc = "asc".equalsIgnoreCase(sortDirection);
 
         return switch (sortBy != null ? sortBy.toLowerCase() : "createdat") {
             case "price" -> isAsc ? ADS.PRICE.asc() : ADS.PRICE.desc();
             case "title" -> isAsc ? ADS.TITLE.asc() : ADS.TITLE.desc();
             case "updatedat" -> isAsc ? ADS.UPDATED_AT.asc() : ADS.UPDATED_AT.desc();
+            case "views" -> isAsc ? ADS.VIEW_COUNT.asc() : ADS.VIEW_COUNT.desc();
             default -> isAsc ? ADS.CREATED_AT.asc() : ADS.CREATED_AT.desc();
         };
     }
 
-    private Ad mapToAd(AdsRecord record) {
+    static Ad mapToAd(AdsRecord record) {
         Ad ad = new Ad();
         ad.setId(record.getId());
         ad.setTitle(record.getTitle());
@@ -237,6 +500,15 @@ public class AdRepository {
             ad.setPricePeriod(PricePeriod.valueOf(record.getPricePeriod()));
         }
         ad.setEditToken(record.getEditToken());
+        ad.setVersion(record.getVersion());
+        ad.setViewCount(record.getViewCount());
+        ad.markUnchanged();
         return ad;
     }
+
+    /**
+     * An ad as returned by {@link #updatePartial}, with the name of its category.
+     */
+    public record UpdatedAd(Ad ad, String categoryName) {
+    }
 }
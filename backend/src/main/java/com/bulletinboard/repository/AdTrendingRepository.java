@@ -0,0 +1,117 @@
+package com.bulletinboard.repository;
+
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.Area;
+import com.bulletinboard.generated.tables.records.AdTrendingScoresRecord;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStep3;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.bulletinboard.generated.Tables.ADS;
+import static com.bulletinboard.generated.Tables.AD_TRENDING_SCORES;
+
+/**
+ * Decayed popularity scores in {@code ad_trending_scores}. A score decays by
+ * {@code exp(-decayPerSecond * seconds)}; all methods take the rate so the
+ * half-life stays a setting of the application.
+ */
+@Repository
+public class AdTrendingRepository {
+
+    private final DSLContext dsl;
+
+    public AdTrendingRepository(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /**
+     * Adds points scored at {@code at} to the stored scores, decaying those
+     * to {@code at} first. Additive, so every node can add what it counted.
+     */
+    public void addScores(Map<Long, Long> points, LocalDateTime at, double decayPerSecond) {
+        if (points.isEmpty()) {
+            return;
+        }
+        InsertValuesStep3<AdTrendingScoresRecord, Long, Double, LocalDateTime> insert = dsl.insertInto(AD_TRENDING_SCORES,
+                AD_TRENDING_SCORES.AD_ID, AD_TRENDING_SCORES.SCORE, AD_TRENDING_SCORES.SCORED_AT);
+        points.forEach((adId, score) -> insert.values(adId, score.doubleValue(), at));
+
+        insert.onConflict(AD_TRENDING_SCORES.AD_ID)
+                .doUpdate()
+                .set(AD_TRENDING_SCORES.SCORE, DSL.field(
+                        "{0} * exp(-{1} * greatest(0, extract(epoch FROM {2} - {3}))) + {4}", Double.class,
+                        AD_TRENDING_SCORES.SCORE, DSL.val(decayPerSecond),
+                        DSL.excluded(AD_TRENDING_SCORES.SCORED_AT), AD_TRENDING_SCORES.SCORED_AT,
+                        DSL.excluded(AD_TRENDING_SCORES.SCORE)))
+                .set(AD_TRENDING_SCORES.SCORED_AT,
+                        DSL.greatest(AD_TRENDING_SCORES.SCORED_AT, DSL.excluded(AD_TRENDING_SCORES.SCORED_AT)))
+                .execute();
+    }
+
+    /**
+     * The highest scores of ACTIVE ads as of {@code at}, best first, down to
+     * {@code minScore}.
+     */
+    public List<Score> findTop(LocalDateTime at, double decayPerSecond, double minScore, int limit) {
+        return findTop(at, decayPerSecond, minScore, DSL.noCondition(), limit);
+    }
+
+    public List<Score> findTopInArea(LocalDateTime at, double decayPerSecond, double minScore, Area area, int limit) {
+        return findTop(at, decayPerSecond, minScore, ADS.AREA.eq(area.name()), limit);
+    }
+
+    public List<Score> findTopInCategory(LocalDateTime at, double decayPerSecond, double minScore, Long categoryId,
+                                         int limit) {
+        return findTop(at, decayPerSecond, minScore, ADS.CATEGORY_ID.eq(categoryId), limit);
+    }
+
+    /**
+     * Categories that have ACTIVE ads scoring at least {@code minScore} at {@code at}.
+     */
+    public List<Long> findScoredCategoryIds(LocalDateTime at, double decayPerSecond, double minScore) {
+        return dsl.selectDistinct(ADS.CATEGORY_ID)
+                .from(AD_TRENDING_SCORES)
+                .join(ADS).on(ADS.ID.eq(AD_TRENDING_SCORES.AD_ID))
+                .where(currentScore(at, decayPerSecond).ge(minScore))
+                .and(ADS.STATUS.eq(AdStatus.ACTIVE.name()))
+                .fetch(ADS.CATEGORY_ID);
+    }
+
+    private List<Score> findTop(LocalDateTime at, double decayPerSecond, double minScore, Condition filter,
+                                int limit) {
+        Field<Double> current = currentScore(at, decayPerSecond).as("current");
+        return dsl.select(AD_TRENDING_SCORES.AD_ID, current)
+                .from(AD_TRENDING_SCORES)
+                .join(ADS).on(ADS.ID.eq(AD_TRENDING_SCORES.AD_ID))
+                .where(currentScore(at, decayPerSecond).ge(minScore))
+                .and(ADS.STATUS.eq(AdStatus.ACTIVE.name()))
+                .and(filter)
+                .orderBy(current.desc())
+                .limit(limit)
+                .fetch(r -> new Score(r.value1(), r.value2()));
+    }
+
+    /**
+     * Deletes the scores that have decayed below {@code minScore} by {@code at}.
+     */
+    public int deleteBelow(LocalDateTime at, double decayPerSecond, double minScore) {
+        return dsl.deleteFrom(AD_TRENDING_SCORES)
+                .where(currentScore(at, decayPerSecond).lt(minScore))
+                .execute();
+    }
+
+    private static Field<Double> currentScore(LocalDateTime at, double decayPerSecond) {
+        return DSL.field("{0} * exp(-{1} * greatest(0, extract(epoch FROM {2} - {3})))", Double.class,
+                AD_TRENDING_SCORES.SCORE, DSL.val(decayPerSecond), DSL.val(at), AD_TRENDING_SCORES.SCORED_AT);
+    }
+
+    public record Score(long adId, double score) {
+    }
+}
@@ -3,6 +3,7 @@ package com.bulletinboard.repository;
 import com.bulletinboard.domain.Category;
 import com.bulletinboard.generated.tables.records.CategoriesRecord;
 import org.jooq.DSLContext;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,8 +16,15 @@ public class CategoryRepository {
 
     private final DSLContext dsl;
 
-    public CategoryRepository(DSLContext dsl) {
+    /**
+     * Categories change rarely, so all reads may come from the replica,
+     * except the loads of the category dictionary.
+     */
+    private final DSLContext readDsl;
+
+    public CategoryRepository(DSLContext dsl, @Qualifier("readDslContext") DSLContext readDsl) {
         this.dsl = dsl;
+        this.readDsl = readDsl;
     }
 
     public Category save(Category category) {
@@ -38,35 +46,53 @@ public class CategoryRepository {
     }
 
     public Optional<Category> findById(Long id) {
-        CategoriesRecord record = dsl.selectFrom(CATEGORIES)
+        CategoriesRecord record = readDsl.selectFrom(CATEGORIES)
                 .where(CATEGORIES.ID.eq(id))
                 .fetchOne();
-        return Optional.ofNullable(record).map(this::mapToCategory);
+        return Optional.ofNullable(record).map(CategoryRepository::mapToCategory);
     }
 
     public Optional<Category> findByName(String name) {
-        CategoriesRecord record = dsl.selectFrom(CATEGORIES)
+        CategoriesRecord record = readDsl.selectFrom(CATEGORIES)
                 .where(CATEGORIES.NAME.eq(name))
                 .fetchOne();
-        return Optional.ofNullable(record).map(this::mapToCategory);
+        return Optional.ofNullable(record).map(CategoryRepository::mapToCategory);
     }
 
     public List<Category> findAll() {
+        return readDsl.selectFrom(CATEGORIES)
+                .fetch()
+                .map(CategoryRepository::mapToCategory);
+    }
+
+    /**
+     * From the primary: the dictionary reloads right after a category change
+     * and keeps what it read until the next one, so it must not read a
+     * lagging replica.
+     */
+    public List<Category> findAllOnPrimary() {
         return dsl.selectFrom(CATEGORIES)
                 .fetch()
-                .map(this::mapToCategory);
+                .map(CategoryRepository::mapToCategory);
+    }
+
+    public Optional<Category> findByIdOnPrimary(Long id) {
+        CategoriesRecord record = dsl.selectFrom(CATEGORIES)
+                .where(CATEGORIES.ID.eq(id))
+                .fetchOne();
+        return Optional.ofNullable(record).map(CategoryRepository::mapToCategory);
     }
 
     public boolean existsByName(String name) {
-        return dsl.fetchExists(
-                dsl.selectFrom(CATEGORIES)
+        return readDsl.fetchExists(
+                readDsl.selectFrom(CATEGORIES)
                         .where(CATEGORIES.NAME.eq(name))
         );
     }
 
     public boolean existsById(Long id) {
-        return dsl.fetchExists(
-                dsl.selectFrom(CATEGORIES)
+        return readDsl.fetchExists(
+                readDsl.selectFrom(CATEGORIES)
                         .where(CATEGORIES.ID.eq(id))
         );
     }
@@ -77,7 +103,7 @@ public class CategoryRepository {
                 .execute();
     }
 
-    private Category mapToCategory(CategoriesRecord record) {
+    static Category mapToCategory(CategoriesRecord record) {
         Category category = new Category();
         category.setId(record.getId());
         category.setName(record.getName());
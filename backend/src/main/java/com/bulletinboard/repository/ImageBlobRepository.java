@@ -0,0 +1,99 @@
+package com.bulletinboard.repository;
+
+import com.bulletinboard.domain.ImageBlob;
+import com.bulletinboard.generated.tables.records.ImageBlobsRecord;
+import org.jooq.DSLContext;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static com.bulletinboard.generated.Tables.IMAGE_BLOBS;
+
+@Repository
+public class ImageBlobRepository {
+
+    private final DSLContext dsl;
+
+    public ImageBlobRepository(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    public Optional<ImageBlob> findBySha256(String sha256) {
+        ImageBlobsRecord record = dsl.selectFrom(IMAGE_BLOBS)
+                .where(IMAGE_BLOBS.SHA256.eq(sha256))
+                .fetchOne();
+        return Optional.ofNullable(record).map(this::map);
+    }
+
+    /**
+     * Blobs whose hash starts with the given hex prefix. Written as a range
+     * instead of LIKE so the primary key index is used regardless of collation.
+     */
+    public List<ImageBlob> findBySha256Prefix(String prefix) {
+        return dsl.selectFrom(IMAGE_BLOBS)
+                .where(IMAGE_BLOBS.SHA256.ge(prefix))
+                .and(IMAGE_BLOBS.SHA256.lt(prefix + "g"))
+                .fetch(this::map);
+    }
+
+    /**
+     * Registers a blob with no references. Concurrent uploads of the same
+     * content race harmlessly: the loser's insert is a no-op.
+     *
+     * @return whether this call created the row
+     */
+    public boolean insertIfAbsent(ImageBlob blob) {
+        return dsl.insertInto(IMAGE_BLOBS)
+                .set(IMAGE_BLOBS.SHA256, blob.getSha256())
+                .set(IMAGE_BLOBS.URL, blob.getUrl())
+                .set(IMAGE_BLOBS.SIZE_BYTES, blob.getSizeBytes())
+                .set(IMAGE_BLOBS.CONTENT_TYPE, blob.getContentType())
+                .onConflict(IMAGE_BLOBS.SHA256)
+                .doNothing()
+                .execute() == 1;
+    }
+
+    /**
+     * Locks the blob row until the end of the current transaction, keeping
+     * {@link #deleteIfUnreferenced} from removing it while ad images that
+     * reference it are inserted.
+     *
+     * @return the blob, or empty if it no longer exists
+     */
+    public Optional<ImageBlob> lockForReference(String sha256) {
+        return dsl.selectFrom(IMAGE_BLOBS)
+                .where(IMAGE_BLOBS.SHA256.eq(sha256))
+                .forNoKeyUpdate()
+                .fetchOptional()
+                .map(this::map);
+    }
+
+    /**
+     * Removes the blob row only if no ad image references it any more. The
+     * deleted row stays locked until the end of the current transaction, so
+     * its files can be deleted before a concurrent {@link #lockForReference}
+     * gets to see that the row is gone.
+     *
+     * @return the removed blob, so its files can be deleted
+     */
+    public Optional<ImageBlob> deleteIfUnreferenced(String sha256) {
+        return dsl.deleteFrom(IMAGE_BLOBS)
+                .where(IMAGE_BLOBS.SHA256.eq(sha256))
+                .and(IMAGE_BLOBS.REF_COUNT.le(0))
+                .returning()
+                .fetchOptional()
+                .map(this::map);
+    }
+
+    private ImageBlob map(ImageBlobsRecord r) {
+        ImageBlob blob = new ImageBlob();
+        blob.setSha256(r.getSha256());
+        blob.setUrl(r.getUrl());
+        blob.setSizeBytes(r.getSizeBytes());
+        blob.setContentType(r.getContentType());
+        blob.setRefCount(r.getRefCount());
+        blob.setCreatedAt(r.getCreatedAt());
+        return blob;
+    }
+}
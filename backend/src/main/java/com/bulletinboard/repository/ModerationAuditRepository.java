@@ -0,0 +1,36 @@
+package com.bulletinboard.repository;
+
+import com.bulletinboard.domain.AdStatus;
+import org.jooq.DSLContext;
+import org.jooq.JSONB;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+import static com.bulletinboard.generated.Tables.MODERATION_AUDIT;
+
+@Repository
+public class ModerationAuditRepository {
+
+    private final DSLContext dsl;
+
+    public ModerationAuditRepository(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /**
+     * @param filter the search filter as JSON, or {@code null} for an explicit id list
+     * @return id of the audit entry
+     */
+    public Long record(String actor, AdStatus action, List<Long> adIds, String filter, int requested) {
+        return dsl.insertInto(MODERATION_AUDIT)
+                .set(MODERATION_AUDIT.ACTOR, actor)
+                .set(MODERATION_AUDIT.ACTION, action.name())
+                .set(MODERATION_AUDIT.AD_IDS, adIds.toArray(Long[]::new))
+                .set(MODERATION_AUDIT.FILTER, filter != null ? JSONB.valueOf(filter) : null)
+                .set(MODERATION_AUDIT.REQUESTED, requested)
+                .set(MODERATION_AUDIT.AFFECTED, adIds.size())
+                .returning(MODERATION_AUDIT.ID)
+                .fetchOne(MODERATION_AUDIT.ID);
+    }
+}
@@ -0,0 +1,72 @@
+package com.bulletinboard.repository;
+
+import com.bulletinboard.datasource.ReactiveDatabase;
+import com.bulletinboard.domain.Ad;
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.Category;
+import com.bulletinboard.dto.AdSearchRequest;
+import org.jooq.DSLContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+import static com.bulletinboard.generated.Tables.ADS;
+import static com.bulletinboard.generated.Tables.AD_IMAGES;
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+
+/**
+ * The reads of {@link AdRepository}, {@link AdImageRepository} and
+ * {@link CategoryRepository} that the {@code reactive} profile serves, over
+ * R2DBC. Filters, sorting and mapping are shared with those repositories.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveReadRepository {
+
+    private final DSLContext dsl;
+
+    public ReactiveReadRepository(ReactiveDatabase reactiveDatabase) {
+        this.dsl = reactiveDatabase.dsl();
+    }
+
+    public Mono<Ad> findAdById(Long id) {
+        return Mono.from(dsl.selectFrom(ADS).where(ADS.ID.eq(id)))
+                .map(AdRepository::mapToAd);
+    }
+
+    public Flux<Ad> searchAds(AdSearchRequest request) {
+        return Flux.from(dsl.selectFrom(ADS)
+                        .where(AdRepository.buildSearchConditions(request))
+                        .orderBy(AdRepository.buildSortField(request.getSortBy(), request.getSortDirection()))
+                        .limit(request.getSize())
+                        .offset(request.getPage() * request.getSize()))
+                .map(AdRepository::mapToAd);
+    }
+
+    public Mono<Long> countAds(AdSearchRequest request) {
+        return Mono.from(dsl.selectCount()
+                        .from(ADS)
+                        .where(AdRepository.buildSearchConditions(request)))
+                .map(r -> r.value1().longValue());
+    }
+
+    public Flux<AdImage> findImagesByAdIds(Collection<Long> adIds) {
+        return Flux.from(dsl.selectFrom(AD_IMAGES)
+                        .where(AD_IMAGES.AD_ID.in(adIds))
+                        .orderBy(AD_IMAGES.AD_ID.asc(), AD_IMAGES.POSITION.asc()))
+                .map(AdImageRepository::map);
+    }
+
+    public Flux<Category> findCategoriesByIds(Collection<Long> ids) {
+        return Flux.from(dsl.selectFrom(CATEGORIES).where(CATEGORIES.ID.in(ids)))
+                .map(CategoryRepository::mapToCategory);
+    }
+
+    public Flux<Category> findAllCategories() {
+        return Flux.from(dsl.selectFrom(CATEGORIES))
+                .map(CategoryRepository::mapToCategory);
+    }
+}
@@ -0,0 +1,22 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdEvent;
+
+import java.util.List;
+
+/**
+ * Consecutive outbox events, published by {@link AdEventRelay} as an
+ * application event. Subscribe with {@code @EventListener}; batches arrive in
+ * position order on the relay thread, so listeners should be quick or hand
+ * the work off.
+ */
+public record AdEventBatch(List<AdEvent> events) {
+
+    public long firstPosition() {
+        return events.get(0).position();
+    }
+
+    public long lastPosition() {
+        return events.get(events.size() - 1).position();
+    }
+}
@@ -0,0 +1,118 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdEvent;
+import com.bulletinboard.repository.AdEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Delivers the {@code ad_events} outbox to in-process subscribers as
+ * {@link AdEventBatch} application events.
+ * <ul>
+ *     <li>Every node tries to number newly committed events; the database
+ *     lets one of them at a time do it.</li>
+ *     <li>Every node then publishes the numbered events after the last
+ *     position it published, in order and in batches of {@code batch-size}.
+ *     A node starts at the position current when it boots; consumers that
+ *     need older events read them through {@link AdEventRepository}.</li>
+ *     <li>Events older than {@code retention} are deleted.</li>
+ * </ul>
+ * A listener that throws does not stop the relay: the batch counts as
+ * delivered and the error is logged.
+ */
+@Service
+public class AdEventRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(AdEventRelay.class);
+
+    @Value("${app.events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.events.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.events.retention:7d}")
+    private Duration retention;
+
+    private final AdEventRepository adEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Last position published by this node, -1 until the relay first runs.
+     */
+    private volatile long published = -1;
+
+    public AdEventRelay(AdEventRepository adEventRepository, ApplicationEventPublisher eventPublisher) {
+        this.adEventRepository = adEventRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public long lastPublishedPosition() {
+        return published;
+    }
+
+    @Scheduled(fixedDelayString = "${app.events.interval-ms:500}",
+            initialDelayString = "${app.events.initial-delay-ms:1000}")
+    public synchronized void relay() {
+        try {
+            if (published < 0) {
+                published = adEventRepository.lastPosition();
+            }
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                if (adEventRepository.assignPositions(batchSize) < batchSize) {
+                    break;
+                }
+            }
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                List<AdEvent> events = adEventRepository.findAfter(published, batchSize);
+                if (events.isEmpty()) {
+                    return;
+                }
+                publish(new AdEventBatch(events));
+                if (events.size() < batchSize) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ad event relay failed, will retry", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.events.purge-interval-ms:3600000}",
+            initialDelayString = "${app.events.purge-initial-delay-ms:300000}")
+    public void purge() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        try {
+            int deleted = 0;
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int count = adEventRepository.deleteDeliveredBefore(cutoff, batchSize);
+                deleted += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+            if (deleted > 0) {
+                log.info("Deleted {} ad events older than {}", deleted, cutoff);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ad event purge failed, will retry", e);
+        }
+    }
+
+    private void publish(AdEventBatch batch) {
+        try {
+            eventPublisher.publishEvent(batch);
+        } catch (RuntimeException e) {
+            log.warn("Ad event listener failed on positions {}-{}", batch.firstPosition(), batch.lastPosition(), e);
+        }
+        published = batch.lastPosition();
+    }
+}
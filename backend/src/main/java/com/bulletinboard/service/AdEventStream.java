@@ -0,0 +1,262 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdEvent;
+import com.bulletinboard.repository.AdEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-sent event streams of the ad outbox. Each event carries its position
+ * as SSE id, so a client that reconnects with {@code Last-Event-ID} continues
+ * exactly where it stopped, as long as the events are still retained.
+ * <p>
+ * A new stream first reads the events after its start position from the
+ * database, {@code batch-size} per page, then follows the batches of
+ * {@link AdEventRelay}. A batch that starts past the stream's position (the
+ * stream is behind) is preceded by the missing events, read from the
+ * database.
+ * <p>
+ * Nothing is sent before the emitter has been handed to Spring MVC, since
+ * earlier sends are buffered in memory. From then on the catch-up pages and
+ * batches are written by a small pool, one page or batch per task, never on
+ * the request or relay thread. Batches arriving during the catch-up are
+ * dropped when they pile up; the catch-up reads them from the database. A
+ * stream that has {@code max-pending-batches} batches queued after that is
+ * too slow to keep up and is completed; the client reconnects with
+ * {@code Last-Event-ID} and catches up from the database.
+ */
+@Service
+public class AdEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(AdEventStream.class);
+
+    static final String EVENT_NAME = "ad-change";
+
+    @Value("${app.events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.events.sse.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${app.events.sse.max-pending-batches:16}")
+    private int maxPendingBatches;
+
+    private final AdEventRepository adEventRepository;
+    private final AdEventRelay adEventRelay;
+    private final ThreadPoolTaskExecutor executor;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public AdEventStream(AdEventRepository adEventRepository, AdEventRelay adEventRelay,
+                         @Qualifier("adEventStreamExecutor") ThreadPoolTaskExecutor executor) {
+        this.adEventRepository = adEventRepository;
+        this.adEventRelay = adEventRelay;
+        this.executor = executor;
+    }
+
+    /**
+     * @param after position the client has seen; {@code null} streams new events only
+     */
+    public SseEmitter subscribe(Long after) {
+        long start = after != null ? after : currentPosition();
+        Subscriber subscriber = new Subscriber(start);
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // Registered before the catch-up so no batch is missed; the catch-up
+        // itself starts once Spring MVC writes the response
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    @EventListener
+    public void onBatch(AdEventBatch batch) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(batch);
+        }
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private long currentPosition() {
+        long published = adEventRelay.lastPublishedPosition();
+        return published >= 0 ? published : adEventRepository.lastPosition();
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter = new StartingEmitter(timeout.toMillis(), this::start);
+        private final BlockingQueue<AdEventBatch> pending = new ArrayBlockingQueue<>(maxPendingBatches);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean missed = new AtomicBoolean();
+        private volatile boolean started;
+        private volatile boolean caughtUp;
+        private volatile boolean lagging;
+        private volatile boolean closed;
+        private long position;
+
+        Subscriber(long position) {
+            this.position = position;
+        }
+
+        private void start() {
+            started = true;
+            schedule();
+        }
+
+        /**
+         * Called on the relay thread; never blocks on the client.
+         */
+        void enqueue(AdEventBatch batch) {
+            if (!pending.offer(batch)) {
+                pending.clear();
+                if (caughtUp) {
+                    lagging = true;
+                } else {
+                    missed.set(true);
+                }
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!started || closed || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (TaskRejectedException e) {
+                scheduled.set(false);
+                close(null);
+            }
+        }
+
+        private void drain() {
+            boolean more;
+            synchronized (this) {
+                try {
+                    more = step();
+                } finally {
+                    scheduled.set(false);
+                }
+            }
+            // Also picks up batches queued while this task still counted as scheduled
+            if (more || !pending.isEmpty() || lagging || missed.get()) {
+                schedule();
+            }
+        }
+
+        /**
+         * Sends one catch-up page or one batch.
+         *
+         * @return whether the catch-up has more pages
+         */
+        private boolean step() {
+            if (closed) {
+                return false;
+            }
+            if (lagging) {
+                log.debug("Ad event stream fell behind at position {}, closing it", position);
+                close(null);
+                return false;
+            }
+            if (missed.getAndSet(false)) {
+                caughtUp = false;
+            }
+            if (!caughtUp) {
+                List<AdEvent> events = adEventRepository.findAfter(position, batchSize);
+                send(events);
+                caughtUp = events.size() < batchSize;
+                return !caughtUp;
+            }
+            AdEventBatch batch = pending.poll();
+            if (batch != null) {
+                catchUp(batch.firstPosition() - 1);
+                send(batch.events());
+            }
+            return false;
+        }
+
+        private void close(Throwable error) {
+            closed = true;
+            subscribers.remove(this);
+            if (error != null) {
+                emitter.completeWithError(error);
+            } else {
+                emitter.complete();
+            }
+        }
+
+        void catchUp(long until) {
+            while (!closed && position < until) {
+                List<AdEvent> events = adEventRepository.findAfter(position, batchSize);
+                send(events.stream().filter(e -> e.position() <= until).toList());
+                if (events.size() < batchSize) {
+                    return;
+                }
+            }
+        }
+
+        void send(List<AdEvent> events) {
+            for (AdEvent event : events) {
+                if (closed) {
+                    return;
+                }
+                if (event.position() <= position) {
+                    continue;
+                }
+                try {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(event.position()))
+                            .name(EVENT_NAME)
+                            .data(event, MediaType.APPLICATION_JSON));
+                    position = event.position();
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Ad event stream closed at position {}", position, e);
+                    close(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports when Spring MVC starts writing the response, after the handler
+     * returned the emitter.
+     */
+    private static final class StartingEmitter extends SseEmitter {
+
+        private final Runnable onStart;
+
+        StartingEmitter(long timeout, Runnable onStart) {
+            super(timeout);
+            this.onStart = onStart;
+        }
+
+        @Override
+        protected void extendResponse(ServerHttpResponse outputMessage) {
+            super.extendResponse(outputMessage);
+            onStart.run();
+        }
+    }
+}
@@ -2,31 +2,63 @@ package com.bulletinboard.service;
 
 import com.bulletinboard.domain.Ad;
 import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.ImageBlob;
+import com.bulletinboard.domain.ImageStatus;
 import com.bulletinboard.dto.AdImageResponse;
+import com.bulletinboard.dto.DirectUploadCompleteRequest;
+import com.bulletinboard.dto.DirectUploadRequest;
+import com.bulletinboard.dto.DirectUploadResponse;
+import com.bulletinboard.exception.PayloadTooLargeException;
 import com.bulletinboard.exception.ResourceNotFoundException;
+import com.bulletinboard.exception.UnsupportedMediaTypeException;
 import com.bulletinboard.repository.AdImageRepository;
 import com.bulletinboard.repository.AdRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.*;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 @Service
 public class AdImageService {
 
-    @Value("${app.upload-dir}")
-    private String uploadDir;
+    @Value("${spring.servlet.multipart.max-request-size:50MB}")
+    private DataSize maxRequestSize;
+
+    @Value("${spring.servlet.multipart.max-file-size:20MB}")
+    private DataSize maxFileSize;
+
     private final AdRepository adRepository;
     private final AdImageRepository adImageRepository;
+    private final ImageProcessingService imageProcessingService;
+    private final ContentAddressedStore contentStore;
+    private final ThreadPoolTaskExecutor uploadExecutor;
+    private final TransactionTemplate transactionTemplate;
 
-    public AdImageService(AdRepository adRepository, AdImageRepository adImageRepository) {
+    public AdImageService(AdRepository adRepository, AdImageRepository adImageRepository,
+                          ImageProcessingService imageProcessingService, ContentAddressedStore contentStore,
+                          @Qualifier("imageUploadExecutor") ThreadPoolTaskExecutor uploadExecutor,
+                          TransactionTemplate transactionTemplate) {
         this.adRepository = adRepository;
         this.adImageRepository = adImageRepository;
+        this.imageProcessingService = imageProcessingService;
+        this.contentStore = contentStore;
+        this.uploadExecutor = uploadExecutor;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public List<AdImageResponse> uploadImages(Long adId, List<MultipartFile> files, String editToken) {
@@ -37,42 +69,219 @@ public class AdImageService {
             throw new RuntimeException("Invalid edit token");
         }
 
-        List<AdImageResponse> responses = new ArrayList<>();
+        List<Callable<StoredBlob>> tasks = files.stream()
+                .<Callable<StoredBlob>>map(file -> () -> contentStore.store(contentStore.stage(file)))
+                .toList();
+        return persistImages(adId, storeInParallel(tasks));
+    }
 
-        int position = 0;
-        for (MultipartFile file : files) {
-            String extension = getExtension(file.getOriginalFilename());
-            String filename = UUID.randomUUID() + "." + extension;
-            saveFile(adId, file, filename);
-            AdImage savedImage = persistAdImage(adId, filename, position++);
-            responses.add(new AdImageResponse(savedImage.getId(), savedImage.getUrl(), savedImage.getPosition()));
+    /**
+     * Upload path that reads the multipart body straight from the request
+     * instead of letting the container spool it to a temp file first. Every
+     * file part is hashed, size-checked and type-sniffed while it is written
+     * to a staging file; nothing is persisted until all parts were accepted.
+     */
+    public List<AdImageResponse> uploadImagesStreaming(Long adId, String contentType, InputStream body,
+                                                       long contentLength, String editToken) {
+        Ad ad = adRepository.findById(adId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ad", adId));
+
+        if (!ad.getEditToken().equals(editToken)) {
+            throw new RuntimeException("Invalid edit token");
         }
 
-        return responses;
+        if (contentLength > maxRequestSize.toBytes()) {
+            throw new PayloadTooLargeException("Request exceeds the maximum size of " + maxRequestSize.toBytes() + " bytes");
+        }
+
+        MultipartStreamReader reader = MultipartStreamReader.forContentType(body, contentType, maxRequestSize.toBytes());
+        List<StagedUpload> staged = new ArrayList<>();
+        try {
+            MultipartStreamReader.Part part;
+            while ((part = reader.nextPart()) != null) {
+                if (part.isFile() && "files".equals(part.name())) {
+                    staged.add(contentStore.stage(part.body()));
+                }
+            }
+            if (staged.isEmpty()) {
+                throw new IllegalArgumentException("No files in upload");
+            }
+            List<Callable<StoredBlob>> tasks = staged.stream()
+                    .<Callable<StoredBlob>>map(upload -> () -> contentStore.store(upload))
+                    .toList();
+            return persistImages(adId, storeInParallel(tasks));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            staged.forEach(StagedUpload::discard);
+        }
     }
 
-    private AdImage persistAdImage(Long adId, String filename, int position) {
-        AdImage image = new AdImage();
-        image.setAdId(adId);
-        image.setUrl("/uploads/" + adId + "/" + filename);
-        image.setPosition(position);
+    /**
+     * First step of a direct upload: the client announces the hash, type and
+     * size of a file and gets a signed request to PUT it straight to the
+     * storage, or learns that the content is already there.
+     */
+    public DirectUploadResponse prepareDirectUpload(Long adId, DirectUploadRequest request, String editToken) {
+        Ad ad = adRepository.findById(adId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ad", adId));
+
+        if (!ad.getEditToken().equals(editToken)) {
+            throw new RuntimeException("Invalid edit token");
+        }
+
+        InspectingInputStream.ImageType type = directUploadType(request);
+        try {
+            if (contentStore.contains(request.getSha256())) {
+                return DirectUploadResponse.existing(request.getSha256());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return contentStore.presignUpload(request.getSha256(), type, request.getSize())
+                .map(upload -> DirectUploadResponse.presigned(request.getSha256(), upload))
+                .orElseThrow(() -> new IllegalArgumentException("Direct uploads are not supported by the configured storage"));
+    }
+
+    /**
+     * Second step of a direct upload: attaches the uploaded files to the ad.
+     */
+    public List<AdImageResponse> completeDirectUploads(Long adId, DirectUploadCompleteRequest request, String editToken) {
+        Ad ad = adRepository.findById(adId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ad", adId));
+
+        if (!ad.getEditToken().equals(editToken)) {
+            throw new RuntimeException("Invalid edit token");
+        }
 
-        return adImageRepository.save(image);
+        List<Callable<StoredBlob>> tasks = request.getFiles().stream()
+                .<Callable<StoredBlob>>map(file -> {
+                    InspectingInputStream.ImageType type = directUploadType(file);
+                    return () -> contentStore.adopt(file.getSha256(), type, file.getSize());
+                })
+                .toList();
+        return persistImages(adId, storeInParallel(tasks));
     }
 
-    private void saveFile(Long adId, MultipartFile file, String filename) {
+    private InspectingInputStream.ImageType directUploadType(DirectUploadRequest request) {
+        InspectingInputStream.ImageType type = InspectingInputStream.ImageType.fromContentType(request.getContentType());
+        if (type == null) {
+            throw new UnsupportedMediaTypeException("Unsupported image type: " + request.getContentType());
+        }
+        if (request.getSize() > maxFileSize.toBytes()) {
+            throw new PayloadTooLargeException("File exceeds the maximum size of " + maxFileSize.toBytes() + " bytes");
+        }
+        return type;
+    }
+
+    /**
+     * Runs the store tasks on the bounded upload pool. Every task is awaited
+     * even after a failure, so blobs that were written by the others can be
+     * released again before the error is rethrown.
+     */
+    private List<StoredBlob> storeInParallel(List<Callable<StoredBlob>> tasks) {
+        List<Future<StoredBlob>> futures = tasks.stream().map(uploadExecutor::submit).toList();
+
+        List<StoredBlob> stored = new ArrayList<>();
+        RuntimeException failure = null;
+        for (Future<StoredBlob> future : futures) {
+            try {
+                stored.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = unwrap(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new IllegalStateException("Interrupted while storing images", e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            releaseCreated(stored);
+            throw failure;
+        }
+        return stored;
+    }
+
+    /**
+     * Inserts all rows of the batch in one transaction. Positions continue
+     * after the ad's current images; the ad row lock keeps concurrent uploads
+     * from claiming the same positions. The blobs are locked first, in hash
+     * order so concurrent batches cannot deadlock, which keeps a concurrent
+     * release from deleting them before the rows that reference them exist.
+     */
+    private List<AdImageResponse> persistImages(Long adId, List<StoredBlob> stored) {
+        List<AdImage> saved;
         try {
-            Path rootDir = Paths.get(uploadDir);
-            Path adFolder = rootDir.resolve(adId.toString());
-            Files.createDirectories(adFolder);
+            saved = transactionTemplate.execute(status -> {
+                if (!adRepository.lockById(adId)) {
+                    throw new ResourceNotFoundException("Ad", adId);
+                }
+                Map<String, ImageBlob> referenced = new HashMap<>();
+                stored.stream()
+                        .sorted(Comparator.comparing(blob -> blob.blob().getSha256()))
+                        .forEach(blob -> referenced.computeIfAbsent(blob.blob().getSha256(), sha256 -> reference(blob)));
+
+                int position = adImageRepository.findMaxPosition(adId) + 1;
+                List<AdImage> images = new ArrayList<>();
+                for (StoredBlob blob : stored) {
+                    images.add(newAdImage(adId, referenced.get(blob.blob().getSha256()), position++));
+                }
+                return adImageRepository.saveAll(images);
+            });
+        } catch (RuntimeException e) {
+            releaseCreated(stored);
+            throw e;
+        }
+
+        saved.forEach(imageProcessingService::submit);
+        return saved.stream()
+                .map(AdImageResponse::fromAdImage)
+                .toList();
+    }
 
-            Path destination = adFolder.resolve(filename);
-            Files.copy(file.getInputStream(), destination, StandardCopyOption.REPLACE_EXISTING);
+    private ImageBlob reference(StoredBlob blob) {
+        try {
+            return contentStore.reference(blob);
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Drops blobs this request registered, unless a concurrent upload of the
+     * same content already references them. Blobs another upload registered
+     * are left to that upload.
+     */
+    private void releaseCreated(List<StoredBlob> stored) {
+        stored.stream()
+                .filter(StoredBlob::created)
+                .forEach(blob -> contentStore.release(blob.blob().getSha256()));
+    }
+
+    private AdImage newAdImage(Long adId, ImageBlob blob, int position) {
+        AdImage image = new AdImage();
+        image.setAdId(adId);
+        image.setUrl(blob.getUrl());
+        image.setSha256(blob.getSha256());
+        image.setPosition(position);
+        image.setStatus(ImageStatus.PROCESSING);
+        return image;
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof IOException io) {
+            return new UncheckedIOException(io);
+        }
+        return new IllegalStateException(cause);
+    }
+
     public void deleteImage(Long adId, Long imageId, String editToken) {
         Ad ad = adRepository.findById(adId)
                 .orElseThrow(() -> new ResourceNotFoundException("Ad", adId));
@@ -88,22 +297,15 @@ public class AdImageService {
             throw new RuntimeException("Image does not belong to this ad");
         }
 
-        // Delete file from disk
-        try {
-            Path filePath = Paths.get(uploadDir).resolve(image.getUrl().replace("/uploads/", ""));
-            Files.deleteIfExists(filePath);
-        } catch (IOException e) {
-            // Log but don't fail - file might already be deleted
-        }
-
-        // Delete from database
+        // Delete from database; this drops the blob's reference count
         adImageRepository.deleteById(imageId);
-    }
 
-    private String getExtension(String filename) {
-        if (filename == null) return "";
-        int dot = filename.lastIndexOf('.');
-        if (dot == -1 || dot == filename.length() - 1) return "";
-        return filename.substring(dot + 1).toLowerCase();
+        if (image.getSha256() != null) {
+            contentStore.release(image.getSha256());
+            return;
+        }
+
+        // Images that predate content addressing own their file
+        contentStore.releaseLegacy(image.getUrl());
     }
 }
@@ -0,0 +1,300 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.Ad;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.Area;
+import com.bulletinboard.domain.Category;
+import com.bulletinboard.domain.PricePeriod;
+import com.bulletinboard.dto.AdImportResponse;
+import com.bulletinboard.dto.AdImportRow;
+import com.bulletinboard.exception.UnsupportedMediaTypeException;
+import com.bulletinboard.repository.AdRepository;
+import com.bulletinboard.repository.CategoryRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of ads from NDJSON (one JSON object per line) or CSV (header
+ * row with the field names). The body is parsed and validated row by row
+ * while it streams in; accepted rows are loaded with {@code COPY} in chunks.
+ * A bad row is reported with its line number and does not stop the import.
+ * A body that breaks off or cannot be parsed any further ends it: the chunks
+ * loaded so far stay, and the response names the first line not imported,
+ * so the client can send the rest again.
+ * <p>
+ * Categories are resolved from one lookup at the start instead of a query per
+ * row. Imported ads skip the anti-spam checks of {@code POST /api/ads}; the
+ * endpoint is admin-only.
+ */
+@Service
+public class AdImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(AdImportService.class);
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    @Value("${app.import.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    private final AdRepository adRepository;
+    private final CategoryRepository categoryRepository;
+    private final Validator validator;
+    private final ObjectReader rowReader;
+
+    public AdImportService(AdRepository adRepository, CategoryRepository categoryRepository, Validator validator,
+                           ObjectMapper objectMapper) {
+        this.adRepository = adRepository;
+        this.categoryRepository = categoryRepository;
+        this.validator = validator;
+        this.rowReader = objectMapper.readerFor(AdImportRow.class);
+    }
+
+    public AdImportResponse importAds(String contentType, InputStream body) {
+        MediaType type;
+        try {
+            type = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            type = null;
+        }
+        boolean csv = type != null && type.isCompatibleWith(new MediaType("text", "csv"));
+        if (type == null || (!csv && !type.isCompatibleWith(NDJSON))) {
+            throw new UnsupportedMediaTypeException("Import expects application/x-ndjson or text/csv, got " + contentType);
+        }
+
+        ImportBatch batch = new ImportBatch(categoryRepository.findAll());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body,
+                type.getCharset() != null ? type.getCharset() : StandardCharsets.UTF_8), 64 * 1024);
+        AdImportResponse.Interruption interruption = null;
+        try {
+            if (csv) {
+                readCsv(new CsvRecordReader(reader), batch);
+            } else {
+                readNdjson(reader, batch);
+            }
+        } catch (IOException e) {
+            interruption = new AdImportResponse.Interruption(batch.nextLine, e.getMessage());
+        }
+        batch.flush();
+
+        if (interruption != null) {
+            log.info("Import interrupted at line {} after {} ads, rejected {}: {}",
+                    interruption.line(), batch.imported, batch.rejected, interruption.message());
+        } else {
+            log.info("Imported {} ads, rejected {}", batch.imported, batch.rejected);
+        }
+        return new AdImportResponse(batch.imported, batch.rejected, batch.errors,
+                batch.rejected > batch.errors.size(), interruption);
+    }
+
+    private void readNdjson(BufferedReader reader, ImportBatch batch) throws IOException {
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (!text.isBlank()) {
+                try {
+                    batch.add(line, rowReader.readValue(text));
+                } catch (JsonProcessingException e) {
+                    batch.reject(line, e.getOriginalMessage());
+                }
+            }
+            batch.nextLine = line + 1;
+        }
+    }
+
+    private void readCsv(CsvRecordReader reader, ImportBatch batch) throws IOException {
+        List<String> header = reader.next();
+        if (header == null) {
+            return;
+        }
+        batch.nextLine = reader.nextLine();
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(normalizeColumn(header.get(i)), i);
+        }
+        if (!columns.containsKey("title") || !columns.containsKey("price")) {
+            throw new IllegalArgumentException("CSV header must contain at least title and price");
+        }
+
+        List<String> fields;
+        while ((fields = reader.next()) != null) {
+            long line = reader.recordLine();
+            try {
+                batch.add(line, new AdImportRow(
+                        column(fields, columns, "title"),
+                        column(fields, columns, "description"),
+                        parse(column(fields, columns, "price"), "price", BigDecimal::new),
+                        parse(column(fields, columns, "categoryid"), "categoryId", Long::valueOf),
+                        column(fields, columns, "categoryname"),
+                        parse(column(fields, columns, "area"), "area",
+                                value -> Area.valueOf(value.toUpperCase(Locale.ROOT))),
+                        parse(column(fields, columns, "priceperiod"), "pricePeriod",
+                                value -> PricePeriod.valueOf(value.toUpperCase(Locale.ROOT)))));
+            } catch (IllegalArgumentException e) {
+                batch.reject(line, e.getMessage());
+            }
+            batch.nextLine = reader.nextLine();
+        }
+    }
+
+    /**
+     * {@code categoryId}, {@code category_id} and {@code Category ID} all name the same column.
+     */
+    private static String normalizeColumn(String name) {
+        return name.replaceAll("[\\s_-]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static String column(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    private static <T> T parse(String value, String field, Function<String, T> parser) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for " + field + ": " + value);
+        }
+    }
+
+    /**
+     * Validates rows, collects the accepted ones and loads them a chunk at a time.
+     */
+    private final class ImportBatch {
+
+        private final Set<Long> categoryIds = new HashSet<>();
+        private final Map<String, Long> categoryIdsByName;
+        private final List<Ad> pending = new ArrayList<>();
+        private final List<Long> pendingLines = new ArrayList<>();
+        private final List<AdImportResponse.RowError> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+        private long nextLine = 1;
+
+        ImportBatch(List<Category> categories) {
+            categoryIdsByName = new HashMap<>();
+            for (Category category : categories) {
+                categoryIds.add(category.getId());
+                categoryIdsByName.put(category.getName().toLowerCase(Locale.ROOT), category.getId());
+            }
+        }
+
+        void add(long line, AdImportRow row) {
+            if (row == null) {
+                reject(line, "Row must be a JSON object");
+                return;
+            }
+            Set<ConstraintViolation<AdImportRow>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                reject(line, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            Long categoryId = row.getCategoryId();
+            if (categoryId == null && row.getCategoryName() != null) {
+                categoryId = categoryIdsByName.get(row.getCategoryName().toLowerCase(Locale.ROOT));
+                if (categoryId == null) {
+                    reject(line, "Unknown category: " + row.getCategoryName());
+                    return;
+                }
+            }
+            if (categoryId == null) {
+                reject(line, "Category ID or name is required");
+                return;
+            }
+            if (!categoryIds.contains(categoryId)) {
+                reject(line, "Unknown category ID: " + categoryId);
+                return;
+            }
+
+            Ad ad = new Ad();
+            ad.setTitle(row.getTitle());
+            ad.setDescription(row.getDescription());
+            ad.setPrice(row.getPrice());
+            ad.setCategoryId(categoryId);
+            ad.setStatus(AdStatus.ACTIVE);
+            ad.setArea(row.getArea());
+            ad.setPricePeriod(row.getPricePeriod());
+            ad.setEditToken(AdService.generateEditToken());
+            pending.add(ad);
+            pendingLines.add(line);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(long line, String message) {
+            rejected++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new AdImportResponse.RowError(line, message));
+            }
+        }
+
+        /**
+         * A failed chunk is retried row by row to find the offending rows;
+         * validation should make this rare.
+         */
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                imported += adRepository.copyIn(pending);
+            } catch (RuntimeException e) {
+                log.warn("Import chunk of {} rows failed, retrying row by row: {}", pending.size(), rootMessage(e));
+                for (int i = 0; i < pending.size(); i++) {
+                    try {
+                        imported += adRepository.copyIn(List.of(pending.get(i)));
+                    } catch (RuntimeException rowFailure) {
+                        reject(pendingLines.get(i), rootMessage(rowFailure));
+                    }
+                }
+            }
+            pending.clear();
+            pendingLines.clear();
+        }
+
+        private String rootMessage(RuntimeException e) {
+            Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+            return cause.getMessage();
+        }
+    }
+}
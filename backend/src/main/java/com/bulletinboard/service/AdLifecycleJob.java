@@ -0,0 +1,137 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.config.AdLifecycleProperties;
+import com.bulletinboard.repository.AdLifecycleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jooq.Record2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Expires ACTIVE ads past their TTL and moves EXPIRED and DELETED ads that
+ * have not changed for {@code archive-after} into {@code ads_archive}.
+ * <p>
+ * Work is done in batches of {@code batch-size} rows, each in its own short
+ * transaction, and at most {@code max-batches-per-run} batches per step, so a
+ * large backlog is worked off over several runs. Rows are claimed with
+ * {@code SKIP LOCKED}, which makes it safe to run the job on every node.
+ */
+@Service
+@EnableConfigurationProperties(AdLifecycleProperties.class)
+public class AdLifecycleJob {
+
+    private static final Logger log = LoggerFactory.getLogger(AdLifecycleJob.class);
+
+    private final AdLifecycleProperties properties;
+    private final AdLifecycleRepository adLifecycleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter expired;
+    private final Counter archived;
+
+    /**
+     * Archive partitions known to exist; creating them is idempotent, this
+     * only saves the DDL round trip.
+     */
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+
+    public AdLifecycleJob(AdLifecycleProperties properties, AdLifecycleRepository adLifecycleRepository,
+                          TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.adLifecycleRepository = adLifecycleRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.expired = Counter.builder("ads.lifecycle.expired")
+                .description("ACTIVE ads set to EXPIRED after their TTL")
+                .register(meterRegistry);
+        this.archived = Counter.builder("ads.lifecycle.archived")
+                .description("Ads moved into ads_archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.lifecycle.interval-ms:300000}",
+            initialDelayString = "${app.lifecycle.initial-delay-ms:180000}")
+    public void run() {
+        if (!properties.enabled()) {
+            return;
+        }
+        try {
+            int expiredCount = expire();
+            int archivedCount = archive();
+            if (expiredCount > 0 || archivedCount > 0) {
+                log.info("Ad lifecycle run: {} expired, {} archived", expiredCount, archivedCount);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ad lifecycle run failed, will retry", e);
+        }
+    }
+
+    int expire() {
+        int total = 0;
+        for (int batch = 0; batch < properties.maxBatchesPerRun(); batch++) {
+            List<Long> ids = adLifecycleRepository.expireBatch(properties.defaultTtl(),
+                    properties.pricePeriodTtl(), properties.categoryTtl(), properties.batchSize());
+            total += ids.size();
+            expired.increment(ids.size());
+            if (ids.size() < properties.batchSize()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    int archive() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.archiveAfter());
+        int total = 0;
+        for (int batch = 0; batch < properties.maxBatchesPerRun(); batch++) {
+            Set<YearMonth> created = new TreeSet<>();
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff, created));
+            // Only after the commit: a rolled back CREATE TABLE leaves no partition
+            partitions.addAll(created);
+            int count = moved != null ? moved : 0;
+            total += count;
+            archived.increment(count);
+            if (count < properties.batchSize()) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int archiveBatch(LocalDateTime cutoff, Set<YearMonth> created) {
+        List<Record2<Long, LocalDateTime>> locked = adLifecycleRepository.lockArchivable(cutoff, properties.batchSize());
+        if (locked.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(locked.size());
+        Set<YearMonth> months = new TreeSet<>();
+        LocalDateTime createdFrom = null;
+        LocalDateTime createdTo = null;
+        for (Record2<Long, LocalDateTime> row : locked) {
+            ids.add(row.value1());
+            months.add(YearMonth.from(row.value2()));
+            createdFrom = createdFrom == null || row.value2().isBefore(createdFrom) ? row.value2() : createdFrom;
+            createdTo = createdTo == null || row.value2().isAfter(createdTo) ? row.value2() : createdTo;
+        }
+        for (YearMonth month : months) {
+            if (!partitions.contains(month)) {
+                adLifecycleRepository.createPartition(month);
+                created.add(month);
+            }
+        }
+
+        return adLifecycleRepository.moveToArchive(ids, createdFrom, createdTo);
+    }
+}
@@ -0,0 +1,115 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.repository.AdPartitionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+
+/**
+ * Keeps {@code ads} and {@code ad_images} partitioned by month.
+ * <ul>
+ *     <li>Partitions are created {@code months-ahead} months in advance, so
+ *     new ads never land in the default partition.</li>
+ *     <li>On databases that were too large to convert during the migration,
+ *     existing rows are copied into the partitioned tables in small batches,
+ *     each in its own transaction, and the tables are swapped once the copy
+ *     has caught up. Only one node copies at a time.</li>
+ *     <li>The swap adds the {@code ad_images} foreign key without checking
+ *     existing rows; they are validated afterwards, one partition per step,
+ *     without blocking writes.</li>
+ * </ul>
+ */
+@Service
+public class AdPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(AdPartitionMaintenance.class);
+
+    @Value("${app.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.partitioning.copy.batch-size:1000}")
+    private int copyBatchSize;
+
+    @Value("${app.partitioning.copy.batches-per-run:20}")
+    private int copyBatchesPerRun;
+
+    private final AdPartitionRepository adPartitionRepository;
+
+    private volatile boolean converted;
+    private volatile boolean validated;
+    private long copied;
+
+    public AdPartitionMaintenance(AdPartitionRepository adPartitionRepository) {
+        this.adPartitionRepository = adPartitionRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${app.partitioning.interval-ms:3600000}",
+            initialDelayString = "${app.partitioning.initial-delay-ms:30000}")
+    public void createPartitions() {
+        YearMonth now = YearMonth.now();
+        try {
+            int created = adPartitionRepository.createPartitions(now, now.plusMonths(monthsAhead));
+            if (created > 0) {
+                log.info("Created {} monthly ad partitions up to {}", created, now.plusMonths(monthsAhead));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not create ad partitions, will retry", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.partitioning.copy.interval-ms:5000}",
+            initialDelayString = "${app.partitioning.initial-delay-ms:30000}")
+    public synchronized void convert() {
+        if (converted) {
+            validateForeignKey();
+            return;
+        }
+        try {
+            if (!adPartitionRepository.conversionPending()) {
+                converted = true;
+                return;
+            }
+            for (int batch = 0; batch < copyBatchesPerRun; batch++) {
+                int count = adPartitionRepository.copyBatch(copyBatchSize);
+                if (count < 0) {
+                    // Another node is copying
+                    return;
+                }
+                if (count == 0) {
+                    if (adPartitionRepository.finishConversion()) {
+                        converted = true;
+                        log.info("Ads are now partitioned by month, {} ads copied online", copied);
+                    }
+                    return;
+                }
+                copied += count;
+            }
+            log.debug("Ad partitioning copy at {} ads", copied);
+        } catch (RuntimeException e) {
+            log.warn("Ad partitioning copy failed, will retry", e);
+        }
+    }
+
+    private void validateForeignKey() {
+        if (validated) {
+            return;
+        }
+        try {
+            for (int step = 0; step < copyBatchesPerRun; step++) {
+                if (adPartitionRepository.validateForeignKeyStep()) {
+                    validated = true;
+                    if (step > 0) {
+                        log.info("Foreign key of ad images to ads validated");
+                    }
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Validating the ad images foreign key failed, will retry", e);
+        }
+    }
+}
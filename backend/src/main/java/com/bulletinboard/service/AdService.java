@@ -2,15 +2,14 @@ package com.bulletinboard.service;
 
 import com.bulletinboard.domain.Ad;
 import com.bulletinboard.domain.AdStatus;
-import com.bulletinboard.domain.Category;
 import com.bulletinboard.domain.User;
 import com.bulletinboard.domain.AdImage;
 import com.bulletinboard.dto.*;
+import com.bulletinboard.exception.PreconditionFailedException;
 import com.bulletinboard.exception.RateLimitExceededException;
 import com.bulletinboard.exception.ResourceNotFoundException;
 import com.bulletinboard.repository.AdImageRepository;
 import com.bulletinboard.repository.AdRepository;
-import com.bulletinboard.repository.CategoryRepository;
 import com.bulletinboard.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -24,8 +23,12 @@ public class AdService {
 
     private final AdRepository adRepository;
     private final AdImageRepository adImageRepository;
-    private final CategoryRepository categoryRepository;
+    private final CategoryDictionary categoryDictionary;
     private final UserRepository userRepository;
+    private final AdViewCounter adViewCounter;
+    private final AdTrendingService adTrendingService;
+    private final RecentContacts recentContacts;
+    private final ParallelReads parallelReads;
 
     @Value("${antispam.rate-limit.max-ads-per-hour:5}")
     private int maxAdsPerHour;
@@ -36,11 +39,15 @@ public class AdService {
     @Value("${antispam.min-description-length:10}")
     private int minDescriptionLength;
 
-    public AdService(AdRepository adRepository, AdImageRepository adImageRepository, CategoryRepository categoryRepository, UserRepository userRepository) {
+    public AdService(AdRepository adRepository, AdImageRepository adImageRepository, CategoryDictionary categoryDictionary, UserRepository userRepository, AdViewCounter adViewCounter, AdTrendingService adTrendingService, RecentContacts recentContacts, ParallelReads parallelReads) {
         this.adRepository = adRepository;
         this.adImageRepository = adImageRepository;
-        this.categoryRepository = categoryRepository;
+        this.categoryDictionary = categoryDictionary;
         this.userRepository = userRepository;
+        this.adViewCounter = adViewCounter;
+        this.adTrendingService = adTrendingService;
+        this.recentContacts = recentContacts;
+        this.parallelReads = parallelReads;
     }
 
     public List<AdResponse> getAllAds() {
@@ -62,7 +69,7 @@ public class AdService {
     }
 
     public List<AdResponse> getAdsByCategoryId(Long categoryId) {
-        if (!categoryRepository.existsById(categoryId)) {
+        if (!categoryDictionary.existsById(categoryId)) {
             throw new ResourceNotFoundException("Category", categoryId);
         }
 
@@ -89,30 +96,66 @@ public class AdService {
     }
 
     public PageResponse<AdResponse> searchAds(AdSearchRequest request) {
-        List<Ad> ads = adRepository.searchAds(request);
-        long totalElements = adRepository.countAds(request);
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            ParallelReads.Fork<Long> totalElements = scope.fork(() -> adRepository.countAds(request));
 
-        Map<Long, List<AdImageResponse>> imagesByAdId = loadImagesByAds(ads);
+            List<Ad> ads = adRepository.searchAds(request);
+            Map<Long, List<AdImageResponse>> imagesByAdId = loadImagesByAds(ads);
 
-        List<AdResponse> content = ads.stream()
-                .map(ad -> toAdResponseWithImages(ad, imagesByAdId.getOrDefault(ad.getId(), List.of())))
-                .toList();
+            List<AdResponse> content = ads.stream()
+                    .map(ad -> toAdResponseWithImages(ad, imagesByAdId.getOrDefault(ad.getId(), List.of())))
+                    .toList();
 
-        return new PageResponse<>(content, request.getPage(), request.getSize(), totalElements);
+            scope.join();
+            return new PageResponse<>(content, request.getPage(), request.getSize(), totalElements.get());
+        }
     }
 
     public AdResponse getAdById(Long id) {
-        Ad ad = adRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Ad", id));
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            // Images only need the id, so they load while the ad does
+            ParallelReads.Fork<List<AdImageResponse>> images = scope.fork(() -> loadImagesForAd(id));
 
-        List<AdImageResponse> images = loadImagesForAd(ad.getId());
-        return toAdResponseWithImages(ad, images);
+            Ad ad = adRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Ad", id));
+            adViewCounter.increment(ad.getId());
+            adTrendingService.recordView(ad.getId());
+
+            String userName = findUserName(ad);
+
+            scope.join();
+            AdResponse response = AdResponse.fromAd(ad, findCategoryName(ad), userName);
+            response.setImages(images.get());
+            return response;
+        }
+    }
+
+    /**
+     * Records that someone contacted the seller, which ranks the ad higher in
+     * trending. Repeated contacts from the same IP count once per window.
+     */
+    public void recordContact(Long id, String clientIp) {
+        if (!adRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Ad", id);
+        }
+        if (clientIp != null && !clientIp.isBlank()) {
+            RecentContacts.Result result = recentContacts.register(clientIp, id);
+            if (result == RecentContacts.Result.REPEATED) {
+                return;
+            }
+            if (result == RecentContacts.Result.LIMITED) {
+                throw new RateLimitExceededException(
+                        "Rate limit exceeded. Maximum " + recentContacts.maxContactsPerWindow() +
+                        " contacted ads allowed from the same IP address.");
+            }
+        }
+        adTrendingService.recordContact(id);
     }
 
     public AdResponse createAd(AdCreateRequest request, String clientIp) {
         validateAntiSpam(request, clientIp);
 
-        if (!categoryRepository.existsById(request.getCategoryId())) {
+        if (!categoryDictionary.existsById(request.getCategoryId())) {
             throw new ResourceNotFoundException("Category", request.getCategoryId());
         }
 
@@ -140,22 +183,19 @@ public class AdService {
         Ad ad = adRepository.findByEditToken(editToken)
                 .orElseThrow(() -> new ResourceNotFoundException("Ad not found with token: " + editToken));
 
-        List<AdImageResponse> images = loadImagesForAd(ad.getId());
-        AdResponse response = toAdResponseWithToken(ad);
-        response.setImages(images);
-        return response;
-    }
-
-    public AdResponse updateAdByEditToken(String editToken, AdUpdateRequest request) {
-        Ad ad = adRepository.findByEditToken(editToken)
-                .orElseThrow(() -> new ResourceNotFoundException("Ad not found with token: " + editToken));
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            ParallelReads.Fork<List<AdImageResponse>> images = scope.fork(() -> loadImagesForAd(ad.getId()));
+            String userName = findUserName(ad);
 
-        Ad updated = updateAdInternal(ad, request);
-        List<AdImageResponse> images = loadImagesForAd(updated.getId());
+            scope.join();
+            AdResponse response = AdResponse.fromAdWithToken(ad, findCategoryName(ad), userName);
+            response.setImages(images.get());
+            return response;
+        }
+    }
 
-        AdResponse response = toAdResponse(updated);
-        response.setImages(images);
-        return response;
+    public AdResponse updateAdByEditToken(String editToken, AdUpdateRequest request, List<Integer> expectedVersions) {
+        return updatePartial(null, editToken, expectedVersions, request);
     }
 
     public void deleteAdByEditToken(String editToken) {
@@ -164,16 +204,11 @@ public class AdService {
         adRepository.deleteById(ad.getId());
     }
 
-    public AdResponse updateAd(Long id, AdUpdateRequest request) {
-        Ad ad = adRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Ad", id));
-
-        Ad updated = updateAdInternal(ad, request);
-        List<AdImageResponse> images = loadImagesForAd(updated.getId());
-
-        AdResponse response = toAdResponse(updated);
-        response.setImages(images);
-        return response;
+    /**
+     * @param expectedVersions versions from {@code If-Match}; {@code null} updates any version
+     */
+    public AdResponse updateAd(Long id, AdUpdateRequest request, List<Integer> expectedVersions) {
+        return updatePartial(id, null, expectedVersions, request);
     }
 
     public void deleteAd(Long id) {
@@ -185,7 +220,7 @@ public class AdService {
 
     // ----------------- Internal helpers -----------------
 
-    private String generateEditToken() {
+    static String generateEditToken() {
         // 64 hex-like chars, enough for your use-case
         return UUID.randomUUID().toString().replace("-", "") +
                UUID.randomUUID().toString().replace("-", "");
@@ -211,71 +246,54 @@ public class AdService {
         }
     }
 
-    private Ad updateAdInternal(Ad ad, AdUpdateRequest request) {
-        if (request.getTitle() != null) {
-            ad.setTitle(request.getTitle());
-        }
-        if (request.getDescription() != null) {
-            ad.setDescription(request.getDescription());
-        }
-        if (request.getPrice() != null) {
-            ad.setPrice(request.getPrice());
-        }
-        if (request.getCategoryId() != null) {
-            if (!categoryRepository.existsById(request.getCategoryId())) {
-                throw new ResourceNotFoundException("Category", request.getCategoryId());
-            }
-            ad.setCategoryId(request.getCategoryId());
-        }
-        if (request.getStatus() != null) {
-            ad.setStatus(request.getStatus());
-        }
-        if (request.getArea() != null) {
-            ad.setArea(request.getArea());
-        }
-        if (request.getPricePeriod() != null) {
-            ad.setPricePeriod(request.getPricePeriod());
-        }
-
-        return adRepository.save(ad);
+    /**
+     * One conditional UPDATE plus the image lookup. Only when nothing matched
+     * is the ad read again, to tell a missing ad from a stale version or an
+     * unknown category.
+     */
+    private AdResponse updatePartial(Long id, String editToken, List<Integer> expectedVersions,
+                                     AdUpdateRequest request) {
+        AdRepository.UpdatedAd updated = adRepository.updatePartial(id, editToken, expectedVersions, request)
+                .orElseThrow(() -> updateFailure(id, editToken, expectedVersions, request));
+
+        AdResponse response = AdResponse.fromAd(updated.ad(), updated.categoryName(), null);
+        response.setImages(loadImagesForAd(updated.ad().getId()));
+        return response;
     }
 
-    private AdResponse toAdResponse(Ad ad) {
-        String categoryName = null;
-        String userName = null;
-
-        if (ad.getCategoryId() != null) {
-            categoryName = categoryRepository.findById(ad.getCategoryId())
-                    .map(Category::getName)
-                    .orElse(null);
+    private RuntimeException updateFailure(Long id, String editToken, List<Integer> expectedVersions,
+                                           AdUpdateRequest request) {
+        Optional<Integer> version = adRepository.findVersion(id, editToken);
+        if (version.isEmpty()) {
+            return id != null
+                    ? new ResourceNotFoundException("Ad", id)
+                    : new ResourceNotFoundException("Ad not found with token: " + editToken);
         }
-
-        if (ad.getUserId() != null) {
-            userName = userRepository.findById(ad.getUserId())
-                    .map(User::getName)
-                    .orElse(null);
+        if (expectedVersions != null && !expectedVersions.contains(version.get())) {
+            return new PreconditionFailedException("Ad has been modified, current version is " + version.get());
         }
+        return new ResourceNotFoundException("Category", request.getCategoryId());
+    }
 
-        return AdResponse.fromAd(ad, categoryName, userName);
+    private AdResponse toAdResponse(Ad ad) {
+        return AdResponse.fromAd(ad, findCategoryName(ad), findUserName(ad));
     }
 
     private AdResponse toAdResponseWithToken(Ad ad) {
-        String categoryName = null;
-        String userName = null;
+        return AdResponse.fromAdWithToken(ad, findCategoryName(ad), findUserName(ad));
+    }
 
-        if (ad.getCategoryId() != null) {
-            categoryName = categoryRepository.findById(ad.getCategoryId())
-                    .map(Category::getName)
-                    .orElse(null);
-        }
+    private String findCategoryName(Ad ad) {
+        return categoryDictionary.findName(ad.getCategoryId());
+    }
 
-        if (ad.getUserId() != null) {
-            userName = userRepository.findById(ad.getUserId())
-                    .map(User::getName)
-                    .orElse(null);
+    private String findUserName(Ad ad) {
+        if (ad.getUserId() == null) {
+            return null;
         }
-
-        return AdResponse.fromAdWithToken(ad, categoryName, userName);
+        return userRepository.findById(ad.getUserId())
+                .map(User::getName)
+                .orElse(null);
     }
 
     private AdResponse toAdResponseWithImages(Ad ad, List<AdImageResponse> images) {
@@ -286,7 +304,7 @@ public class AdService {
 
     private List<AdImageResponse> loadImagesForAd(Long adId) {
         return adImageRepository.findByAdIdOrderByPositionAsc(adId).stream()
-                .map(img -> new AdImageResponse(img.getId(), img.getUrl(), img.getPosition()))
+                .map(AdImageResponse::fromAdImage)
                 .toList();
     }
 
@@ -310,7 +328,7 @@ public class AdService {
                 .collect(Collectors.groupingBy(
                         AdImage::getAdId,
                         Collectors.mapping(
-                                img -> new AdImageResponse(img.getId(), img.getUrl(), img.getPosition()),
+                                AdImageResponse::fromAdImage,
                                 Collectors.toList()
                         )
                 ));
@@ -0,0 +1,192 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.Ad;
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.Area;
+import com.bulletinboard.dto.AdImageResponse;
+import com.bulletinboard.dto.AdResponse;
+import com.bulletinboard.repository.AdImageRepository;
+import com.bulletinboard.repository.AdRepository;
+import com.bulletinboard.repository.AdTrendingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * "Hot right now" ads: ACTIVE ads ranked by views and contacts, each worth
+ * half as much after {@code half-life}.
+ * <ul>
+ *     <li>Views and contacts are counted in memory, allocation-free for ads
+ *     seen before. Every {@code refresh-interval-ms} the counts are added to
+ *     {@code ad_trending_scores}, which decays and merges the counts of all
+ *     nodes. Events within one interval count as happening at its end; with
+ *     an interval of seconds and a half-life of hours the error is
+ *     negligible.</li>
+ *     <li>The same refresh reads the top {@code top-k} ACTIVE ads overall,
+ *     per area and per category, each with its own query so small areas and
+ *     categories are not crowded out by the overall leaders, and keeps them
+ *     as ready responses, so {@link #getTrending} is a map lookup.</li>
+ * </ul>
+ * Scores survive restarts in the table; counts not yet added are lost when
+ * a node dies.
+ */
+@Service
+public class AdTrendingService {
+
+    private static final Logger log = LoggerFactory.getLogger(AdTrendingService.class);
+
+    @Value("${app.trending.half-life:6h}")
+    private Duration halfLife;
+
+    @Value("${app.trending.view-weight:1}")
+    private int viewWeight;
+
+    @Value("${app.trending.contact-weight:5}")
+    private int contactWeight;
+
+    @Value("${app.trending.top-k:20}")
+    private int topK;
+
+    @Value("${app.trending.min-score:0.05}")
+    private double minScore;
+
+    private final AdTrendingRepository adTrendingRepository;
+    private final AdRepository adRepository;
+    private final AdImageRepository adImageRepository;
+    private final CategoryDictionary categoryDictionary;
+
+    private final PendingCounts pending = new PendingCounts();
+    private volatile Ranking ranking = Ranking.EMPTY;
+
+    public AdTrendingService(AdTrendingRepository adTrendingRepository, AdRepository adRepository,
+                             AdImageRepository adImageRepository, CategoryDictionary categoryDictionary) {
+        this.adTrendingRepository = adTrendingRepository;
+        this.adRepository = adRepository;
+        this.adImageRepository = adImageRepository;
+        this.categoryDictionary = categoryDictionary;
+    }
+
+    public void recordView(Long adId) {
+        pending.add(adId, viewWeight);
+    }
+
+    public void recordContact(Long adId) {
+        pending.add(adId, contactWeight);
+    }
+
+    /**
+     * Trending ads as of the last refresh, best first. With both an area and
+     * a category, the area's ranking is filtered by category.
+     */
+    public List<AdResponse> getTrending(Area area, Long categoryId, int limit) {
+        Ranking current = ranking;
+        List<AdResponse> ads;
+        if (area != null) {
+            ads = current.byArea().getOrDefault(area, List.of());
+            if (categoryId != null) {
+                ads = ads.stream().filter(ad -> categoryId.equals(ad.getCategoryId())).toList();
+            }
+        } else if (categoryId != null) {
+            ads = current.byCategory().getOrDefault(categoryId, List.of());
+        } else {
+            ads = current.all();
+        }
+        return ads.size() > limit ? ads.subList(0, limit) : ads;
+    }
+
+    @Scheduled(fixedDelayString = "${app.trending.refresh-interval-ms:30000}",
+            initialDelayString = "${app.trending.initial-delay-ms:5000}")
+    public synchronized void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        double decayPerSecond = Math.log(2) / halfLife.toSeconds();
+        try {
+            Map<Long, Long> points = pending.drain();
+            try {
+                adTrendingRepository.addScores(points, now, decayPerSecond);
+            } catch (RuntimeException e) {
+                points.forEach(pending::add);
+                throw e;
+            }
+            adTrendingRepository.deleteBelow(now, decayPerSecond, minScore);
+            ranking = rank(now, decayPerSecond);
+        } catch (RuntimeException e) {
+            log.warn("Trending ads refresh failed, will retry", e);
+        }
+    }
+
+    private Ranking rank(LocalDateTime now, double decayPerSecond) {
+        List<Long> all = ids(adTrendingRepository.findTop(now, decayPerSecond, minScore, topK));
+        Map<Area, List<Long>> byArea = new EnumMap<>(Area.class);
+        for (Area area : Area.values()) {
+            List<Long> ids = ids(adTrendingRepository.findTopInArea(now, decayPerSecond, minScore, area, topK));
+            if (!ids.isEmpty()) {
+                byArea.put(area, ids);
+            }
+        }
+        Map<Long, List<Long>> byCategory = new HashMap<>();
+        for (Long categoryId : adTrendingRepository.findScoredCategoryIds(now, decayPerSecond, minScore)) {
+            List<Long> ids = ids(adTrendingRepository.findTopInCategory(now, decayPerSecond, minScore, categoryId,
+                    topK));
+            if (!ids.isEmpty()) {
+                byCategory.put(categoryId, ids);
+            }
+        }
+
+        Set<Long> shown = new LinkedHashSet<>(all);
+        byArea.values().forEach(shown::addAll);
+        byCategory.values().forEach(shown::addAll);
+        // An ad that stopped being ACTIVE between the queries is left out
+        Map<Long, AdResponse> responses = toResponses(adRepository.findByIdsAndStatus(shown, AdStatus.ACTIVE));
+
+        Map<Area, List<AdResponse>> areaResponses = new EnumMap<>(Area.class);
+        byArea.forEach((area, ids) -> areaResponses.put(area, toResponseList(ids, responses)));
+        Map<Long, List<AdResponse>> categoryResponses = new HashMap<>();
+        byCategory.forEach((categoryId, ids) -> categoryResponses.put(categoryId, toResponseList(ids, responses)));
+        return new Ranking(toResponseList(all, responses), areaResponses, categoryResponses);
+    }
+
+    private static List<Long> ids(List<AdTrendingRepository.Score> scores) {
+        return scores.stream().map(AdTrendingRepository.Score::adId).toList();
+    }
+
+    private Map<Long, AdResponse> toResponses(Iterable<Ad> ads) {
+        List<Long> ids = new ArrayList<>();
+        ads.forEach(ad -> ids.add(ad.getId()));
+        Map<Long, List<AdImageResponse>> images = adImageRepository.findByAdIdInOrderByPositionAsc(ids).stream()
+                .collect(Collectors.groupingBy(AdImage::getAdId,
+                        Collectors.mapping(AdImageResponse::fromAdImage, Collectors.toList())));
+
+        Map<Long, AdResponse> responses = new HashMap<>();
+        for (Ad ad : ads) {
+            AdResponse response = AdResponse.fromAd(ad, categoryDictionary.findName(ad.getCategoryId()), null);
+            response.setImages(images.getOrDefault(ad.getId(), List.of()));
+            responses.put(ad.getId(), response);
+        }
+        return responses;
+    }
+
+    private static List<AdResponse> toResponseList(List<Long> ids, Map<Long, AdResponse> responses) {
+        return ids.stream().map(responses::get).filter(Objects::nonNull).toList();
+    }
+
+    private record Ranking(List<AdResponse> all, Map<Area, List<AdResponse>> byArea,
+                           Map<Long, List<AdResponse>> byCategory) {
+
+        static final Ranking EMPTY = new Ranking(List.of(), Map.of(), Map.of());
+    }
+}
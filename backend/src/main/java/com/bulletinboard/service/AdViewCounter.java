@@ -0,0 +1,73 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.repository.AdRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts ad views in memory and adds them to {@code ads.view_count} every
+ * {@code flush-interval-ms}, {@code batch-size} ads per UPDATE, instead of
+ * writing on every view.
+ * <p>
+ * Views are collected in {@link PendingCounts}. Views not yet flushed are
+ * lost when the node dies; a failed flush is retried with the next one.
+ */
+@Service
+public class AdViewCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdViewCounter.class);
+
+    @Value("${app.views.batch-size:1000}")
+    private int batchSize;
+
+    private final AdRepository adRepository;
+    private final PendingCounts pending = new PendingCounts();
+
+    public AdViewCounter(AdRepository adRepository) {
+        this.adRepository = adRepository;
+    }
+
+    public void increment(Long adId) {
+        pending.add(adId, 1);
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush-interval-ms:5000}",
+            initialDelayString = "${app.views.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Map<Long, Long>> batches = new ArrayList<>();
+        Map<Long, Long> batch = new TreeMap<>();
+        for (Map.Entry<Long, Long> entry : pending.drain().entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() == batchSize) {
+                batches.add(batch);
+                batch = new TreeMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+
+        for (Map<Long, Long> views : batches) {
+            try {
+                adRepository.addViews(views);
+            } catch (RuntimeException e) {
+                log.warn("Could not write {} ad view counts, will retry", views.size(), e);
+                views.forEach(pending::add);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
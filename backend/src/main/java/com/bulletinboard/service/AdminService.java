@@ -2,28 +2,45 @@ package com.bulletinboard.service;
 
 import com.bulletinboard.domain.Ad;
 import com.bulletinboard.domain.AdStatus;
-import com.bulletinboard.domain.Category;
 import com.bulletinboard.domain.User;
 import com.bulletinboard.dto.AdResponse;
+import com.bulletinboard.dto.AdminBulkResponse;
+import com.bulletinboard.dto.AdminBulkSelection;
 import com.bulletinboard.exception.ResourceNotFoundException;
 import com.bulletinboard.repository.AdRepository;
-import com.bulletinboard.repository.CategoryRepository;
+import com.bulletinboard.repository.ModerationAuditRepository;
 import com.bulletinboard.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class AdminService {
 
+    private static final Logger log = LoggerFactory.getLogger(AdminService.class);
+
+    @Value("${app.admin.bulk-chunk-size:500}")
+    private int bulkChunkSize;
+
     private final AdRepository adRepository;
-    private final CategoryRepository categoryRepository;
+    private final CategoryDictionary categoryDictionary;
     private final UserRepository userRepository;
+    private final ModerationAuditRepository moderationAuditRepository;
+    private final ObjectMapper objectMapper;
 
-    public AdminService(AdRepository adRepository, CategoryRepository categoryRepository, UserRepository userRepository) {
+    public AdminService(AdRepository adRepository, CategoryDictionary categoryDictionary, UserRepository userRepository,
+                        ModerationAuditRepository moderationAuditRepository, ObjectMapper objectMapper) {
         this.adRepository = adRepository;
-        this.categoryRepository = categoryRepository;
+        this.categoryDictionary = categoryDictionary;
         this.userRepository = userRepository;
+        this.moderationAuditRepository = moderationAuditRepository;
+        this.objectMapper = objectMapper;
     }
 
     public List<AdResponse> getAllAds() {
@@ -55,14 +72,67 @@ public class AdminService {
         adRepository.save(ad);
     }
 
+    /**
+     * Sets the status of many ads with set-based UPDATEs of at most
+     * {@code bulkChunkSize} ids each. A filter is walked in id order, so ads
+     * leaving the filter because of the new status do not shift the chunks.
+     * The batch gets a single audit entry listing the ads that changed, also
+     * when it fails half-way.
+     */
+    public AdminBulkResponse updateStatuses(AdminBulkSelection selection, AdStatus status, String actor) {
+        boolean byIds = selection.getIds() != null && !selection.getIds().isEmpty();
+        if (byIds == (selection.getFilter() != null)) {
+            throw new IllegalArgumentException("Either ids or a filter is required, not both");
+        }
+
+        String filter = null;
+        if (!byIds) {
+            try {
+                filter = objectMapper.writeValueAsString(selection.getFilter());
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid filter", e);
+            }
+        }
+
+        List<Long> changed = new ArrayList<>();
+        int matched = 0;
+        try {
+            if (byIds) {
+                List<Long> ids = selection.getIds().stream().distinct().toList();
+                for (int from = 0; from < ids.size(); from += bulkChunkSize) {
+                    List<Long> chunk = ids.subList(from, Math.min(from + bulkChunkSize, ids.size()));
+                    matched += chunk.size();
+                    changed.addAll(adRepository.updateStatusByIds(chunk, status));
+                    log.info("Bulk {} by {}: {}/{} ads processed, {} changed", status, actor, matched, ids.size(), changed.size());
+                }
+            } else {
+                long afterId = 0;
+                List<Long> chunk;
+                while (!(chunk = adRepository.findIdsMatching(selection.getFilter(), afterId, bulkChunkSize)).isEmpty()) {
+                    matched += chunk.size();
+                    changed.addAll(adRepository.updateStatusByIds(chunk, status));
+                    afterId = chunk.get(chunk.size() - 1);
+                    log.info("Bulk {} by {}: {} ads processed, {} changed", status, actor, matched, changed.size());
+                }
+            }
+        } catch (RuntimeException e) {
+            // Committed chunks stay applied and must show up in the audit
+            if (!changed.isEmpty()) {
+                moderationAuditRepository.record(actor, status, changed, filter, matched);
+            }
+            throw e;
+        }
+
+        Long auditId = moderationAuditRepository.record(actor, status, changed, filter, matched);
+        return new AdminBulkResponse(status, matched, changed.size(), auditId);
+    }
+
     private AdResponse toAdResponse(Ad ad) {
         String categoryName = null;
         String userName = null;
 
         if (ad.getCategoryId() != null) {
-            categoryName = categoryRepository.findById(ad.getCategoryId())
-                    .map(Category::getName)
-                    .orElse(null);
+            categoryName = categoryDictionary.findName(ad.getCategoryId());
         }
 
         if (ad.getUserId() != null) {
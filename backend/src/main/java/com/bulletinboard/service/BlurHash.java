@@ -0,0 +1,118 @@
+package com.bulletinboard.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Encoder for <a href="https://blurha.sh">BlurHash</a>: a short string holding
+ * a few DCT components of the image, which clients decode into a blurred
+ * placeholder. Meant to be fed a small (e.g. 32px) copy of the image; the cost
+ * grows with the pixel count times the number of components.
+ */
+public final class BlurHash {
+
+    private static final String ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /**
+     * @param componentsX horizontal components, 1-9
+     * @param componentsY vertical components, 1-9
+     */
+    public static String encode(BufferedImage image, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > 9 || componentsY < 1 || componentsY > 9) {
+            throw new IllegalArgumentException("BlurHash components must be between 1 and 9");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = basis(pixels, width, height, i, j);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        append(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+
+        double maximum = 1;
+        if (factors.length > 1) {
+            double actualMaximum = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double value : factors[k]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(value));
+                }
+            }
+            int quantised = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximum = (quantised + 1) / 166.0;
+            append(hash, quantised, 1);
+        } else {
+            append(hash, 0, 1);
+        }
+
+        append(hash, encodeDc(factors[0]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            append(hash, encodeAc(factors[k], maximum), 2);
+        }
+        return hash.toString();
+    }
+
+    private static double[] basis(int[] pixels, int width, int height, int i, int j) {
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        for (int y = 0; y < height; y++) {
+            double cosY = Math.cos(Math.PI * j * y / height);
+            for (int x = 0; x < width; x++) {
+                double factor = Math.cos(Math.PI * i * x / width) * cosY;
+                int rgb = pixels[y * width + x];
+                r += factor * srgbToLinear((rgb >> 16) & 0xff);
+                g += factor * srgbToLinear((rgb >> 8) & 0xff);
+                b += factor * srgbToLinear(rgb & 0xff);
+            }
+        }
+        double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / (width * height);
+        return new double[]{r * scale, g * scale, b * scale};
+    }
+
+    private static int encodeDc(double[] value) {
+        return (linearToSrgb(value[0]) << 16) + (linearToSrgb(value[1]) << 8) + linearToSrgb(value[2]);
+    }
+
+    private static int encodeAc(double[] value, double maximum) {
+        int r = quantiseAc(value[0] / maximum);
+        int g = quantiseAc(value[1] / maximum);
+        int b = quantiseAc(value[2] / maximum);
+        return r * 19 * 19 + g * 19 + b;
+    }
+
+    private static int quantiseAc(double value) {
+        return (int) Math.max(0, Math.min(18, Math.floor(Math.copySign(Math.pow(Math.abs(value), 0.5), value) * 9 + 9.5)));
+    }
+
+    private static double srgbToLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) (v * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void append(StringBuilder hash, int value, int length) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            hash.append(ALPHABET.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+}
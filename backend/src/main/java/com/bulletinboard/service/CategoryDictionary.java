@@ -0,0 +1,149 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdEvent;
+import com.bulletinboard.domain.Category;
+import com.bulletinboard.repository.CategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * All categories in memory, for the lookups every ad request makes. The
+ * dictionary is an immutable snapshot that is replaced as a whole: readers
+ * never lock and always see one consistent version.
+ * <p>
+ * It is loaded when the application is ready and reloaded after
+ * {@link CategoryService} changes a category, and when the outbox relay
+ * reports a category change, which is how changes made on other nodes
+ * arrive. Until then an id missing from the snapshot is looked up in the
+ * database, and a hit triggers a reload. Both read the primary, since a
+ * lagging replica would leave an old snapshot in place.
+ */
+@Service
+public class CategoryDictionary {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryDictionary.class);
+
+    private final CategoryRepository categoryRepository;
+
+    private volatile Snapshot snapshot;
+
+    public CategoryDictionary(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    /**
+     * Ordered by id. The categories are copies, callers may change them.
+     */
+    public List<Category> findAll() {
+        return current().categories().stream().map(CategoryDictionary::copy).toList();
+    }
+
+    public Optional<Category> findById(Long id) {
+        return lookup(id).map(CategoryDictionary::copy);
+    }
+
+    public boolean existsById(Long id) {
+        return lookup(id).isPresent();
+    }
+
+    public String findName(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return lookup(id).map(Category::getName).orElse(null);
+    }
+
+    public Optional<Long> findIdByName(String name) {
+        return Optional.ofNullable(current().idsByName().get(name));
+    }
+
+    /**
+     * Number of loads so far; a reader that saw version {@code n} sees the
+     * changes committed before load {@code n} started.
+     */
+    public long version() {
+        return current().version();
+    }
+
+    /**
+     * Reloads all categories and swaps them in. Loads run one at a time, so
+     * a slower, older load cannot replace a newer one.
+     */
+    public synchronized void refresh() {
+        Snapshot previous = snapshot;
+        long version = previous != null ? previous.version() + 1 : 1;
+        List<Category> categories = categoryRepository.findAllOnPrimary().stream()
+                .sorted(Comparator.comparing(Category::getId))
+                .toList();
+        Map<Long, Category> byId = new HashMap<>();
+        Map<String, Long> idsByName = new HashMap<>();
+        for (Category category : categories) {
+            byId.put(category.getId(), category);
+            idsByName.put(category.getName(), category.getId());
+        }
+        snapshot = new Snapshot(version, categories, Map.copyOf(byId), Map.copyOf(idsByName));
+        log.debug("Loaded {} categories, version {}", categories.size(), version);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Could not load categories at startup, will load on first use", e);
+        }
+    }
+
+    @EventListener
+    public void onBatch(AdEventBatch batch) {
+        for (AdEvent event : batch.events()) {
+            if ("CATEGORY".equals(event.entity())) {
+                refresh();
+                return;
+            }
+        }
+    }
+
+    private Optional<Category> lookup(Long id) {
+        Category category = current().byId().get(id);
+        if (category != null) {
+            return Optional.of(category);
+        }
+        // Created on another node and not relayed yet, or does not exist
+        Optional<Category> stored = categoryRepository.findByIdOnPrimary(id);
+        if (stored.isPresent()) {
+            refresh();
+        }
+        return stored;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static Category copy(Category category) {
+        return new Category(category.getId(), category.getName(), category.getDescription());
+    }
+
+    private record Snapshot(long version, List<Category> categories, Map<Long, Category> byId,
+                            Map<String, Long> idsByName) {
+    }
+}
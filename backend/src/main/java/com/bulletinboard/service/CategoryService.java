@@ -14,26 +14,28 @@ import java.util.List;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final CategoryDictionary categoryDictionary;
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, CategoryDictionary categoryDictionary) {
         this.categoryRepository = categoryRepository;
+        this.categoryDictionary = categoryDictionary;
     }
 
     public List<CategoryResponse> getAllCategories() {
 
-        return categoryRepository.findAll().stream()
+        return categoryDictionary.findAll().stream()
                 .map(CategoryResponse::fromCategory)
                 .toList();
     }
 
     public CategoryResponse getCategoryById(Long id) {
-        Category category = categoryRepository.findById(id)
+        Category category = categoryDictionary.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", id));
         return CategoryResponse.fromCategory(category);
     }
 
     public CategoryResponse createCategory(CategoryRequest request) {
-        if (categoryRepository.existsByName(request.getName())) {
+        if (categoryDictionary.findIdByName(request.getName()).isPresent()) {
             throw new DuplicateResourceException("Category with name '" + request.getName() + "' already exists");
         }
 
@@ -42,14 +44,15 @@ public class CategoryService {
         category.setDescription(request.getDescription());
 
         Category saved = categoryRepository.save(category);
+        categoryDictionary.refresh();
         return CategoryResponse.fromCategory(saved);
     }
 
     public CategoryResponse updateCategory(Long id, CategoryRequest request) {
-        Category category = categoryRepository.findById(id)
+        Category category = categoryDictionary.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", id));
 
-        if (!category.getName().equals(request.getName()) && categoryRepository.existsByName(request.getName())) {
+        if (!category.getName().equals(request.getName()) && categoryDictionary.findIdByName(request.getName()).isPresent()) {
             throw new DuplicateResourceException("Category with name '" + request.getName() + "' already exists");
         }
 
@@ -57,18 +60,20 @@ public class CategoryService {
         category.setDescription(request.getDescription());
 
         Category updated = categoryRepository.save(category);
+        categoryDictionary.refresh();
         return CategoryResponse.fromCategory(updated);
     }
 
     public void deleteCategory(Long id) {
-        if (!categoryRepository.existsById(id)) {
+        if (!categoryDictionary.existsById(id)) {
             throw new ResourceNotFoundException("Category", id);
         }
         categoryRepository.deleteById(id);
+        categoryDictionary.refresh();
     }
 
     public Category getCategoryEntityById(Long id) {
-        return categoryRepository.findById(id)
+        return categoryDictionary.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", id));
     }
 }
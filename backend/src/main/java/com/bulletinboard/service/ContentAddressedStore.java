@@ -0,0 +1,263 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.ImageBlob;
+import com.bulletinboard.exception.PayloadTooLargeException;
+import com.bulletinboard.exception.UnsupportedMediaTypeException;
+import com.bulletinboard.repository.ImageBlobRepository;
+import com.bulletinboard.storage.ImageStorage;
+import com.bulletinboard.storage.PresignedUpload;
+import com.bulletinboard.storage.StoredObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Stores image originals under their SHA-256 in a two-level fan-out
+ * ({@code cas/ab/cd/abcd...}) of the {@link ImageStorage}, so identical
+ * uploads share one object. The {@code image_blobs} row tracks how many ad
+ * images reference the object; the count itself is maintained by a trigger
+ * on {@code ad_images}.
+ */
+@Service
+public class ContentAddressedStore {
+
+    static final String CAS_DIR = "cas";
+    static final String STAGING_DIR = ".staging";
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+
+    @Value("${app.upload-dir}")
+    private String uploadDir;
+
+    @Value("${spring.servlet.multipart.max-file-size:20MB}")
+    private DataSize maxFileSize;
+
+    @Value("${app.images.direct-upload-ttl:15m}")
+    private Duration directUploadTtl;
+
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageProcessingService imageProcessingService;
+    private final ImageStorage imageStorage;
+    private final ResizedImageCache resizedImageCache;
+    private final TransactionTemplate transactionTemplate;
+
+    public ContentAddressedStore(ImageBlobRepository imageBlobRepository, ImageProcessingService imageProcessingService,
+                                 ImageStorage imageStorage, ResizedImageCache resizedImageCache,
+                                 TransactionTemplate transactionTemplate) {
+        this.imageBlobRepository = imageBlobRepository;
+        this.imageProcessingService = imageProcessingService;
+        this.imageStorage = imageStorage;
+        this.resizedImageCache = resizedImageCache;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public static String urlFor(String sha256, String extension) {
+        return "/uploads/" + CAS_DIR + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/"
+                + sha256 + "." + extension;
+    }
+
+    /**
+     * Streams a request part into a staging file, hashing and sniffing it on
+     * the way.
+     */
+    StagedUpload stage(InputStream body) throws IOException {
+        Path temp = Files.createTempFile(stagingDir(), ".upload-", ".part");
+        InspectingInputStream in = new InspectingInputStream(body, maxFileSize.toBytes());
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+             ReadableByteChannel source = Channels.newChannel(in)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = channel.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new StagedUpload(in.getCount(), in.sha256Hex(), in.getType(), temp, null);
+    }
+
+    /**
+     * Hashes a file the container already spooled to disk. Nothing is written
+     * here; on a hash miss {@link #store} moves the spooled file into place.
+     */
+    StagedUpload stage(MultipartFile file) throws IOException {
+        InspectingInputStream in = new InspectingInputStream(file.getInputStream(), maxFileSize.toBytes());
+        try (in) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return new StagedUpload(in.getCount(), in.sha256Hex(), in.getType(), null, file);
+    }
+
+    /**
+     * Makes the staged content available under its hash. A hit on an existing
+     * blob skips the write entirely and leaves the upload staged.
+     */
+    StoredBlob store(StagedUpload upload) throws IOException {
+        Optional<ImageBlob> existing = imageBlobRepository.findBySha256(upload.sha256());
+        if (existing.isPresent() && imageStorage.exists(ImageStorage.keyOf(existing.get().getUrl()))) {
+            return new StoredBlob(existing.get(), false, upload);
+        }
+
+        // A parallel upload of the same content may register the blob first;
+        // only the upload that created the row may release it on failure
+        ImageBlob blob = write(upload);
+        boolean created = imageBlobRepository.insertIfAbsent(blob);
+        return new StoredBlob(imageBlobRepository.findBySha256(upload.sha256()).orElse(blob), created, null);
+    }
+
+    /**
+     * Makes sure a stored blob still exists and keeps it from being released
+     * until the current transaction ends. Must be called in the transaction
+     * that inserts the referencing ad images: {@link #store} and
+     * {@link #adopt} look blobs up without a lock, and an unreferenced blob
+     * can be released in between. A released blob is written again from the
+     * staged upload where there still is one.
+     */
+    ImageBlob reference(StoredBlob stored) throws IOException {
+        String sha256 = stored.blob().getSha256();
+        Optional<ImageBlob> locked = imageBlobRepository.lockForReference(sha256);
+        if (locked.isPresent()) {
+            return locked.get();
+        }
+        StagedUpload upload = stored.upload();
+        if (upload == null) {
+            throw new IllegalArgumentException("Image " + sha256 + " was removed while it was being attached, upload it again");
+        }
+        // A release that removed the row has deleted the files before letting go of the lock
+        imageBlobRepository.insertIfAbsent(write(upload));
+        return imageBlobRepository.lockForReference(sha256)
+                .orElseThrow(() -> new IllegalStateException("Blob " + sha256 + " vanished while being stored"));
+    }
+
+    /**
+     * Puts the staged content under its hash; the staged file is consumed.
+     */
+    private ImageBlob write(StagedUpload upload) throws IOException {
+        String url = urlFor(upload.sha256(), upload.type().extension());
+
+        // Land in the staging dir first so a local store can rename atomically
+        // even if the container spooled the upload on another filesystem
+        Path landing = stagingDir().resolve(".landing-" + upload.sha256() + "-" + Thread.currentThread().getId());
+        upload.moveTo(landing);
+        try {
+            imageStorage.put(ImageStorage.keyOf(url), landing, upload.type().contentType());
+        } finally {
+            Files.deleteIfExists(landing);
+        }
+        return new ImageBlob(upload.sha256(), url, upload.size(), upload.type().contentType());
+    }
+
+    boolean contains(String sha256) throws IOException {
+        Optional<ImageBlob> existing = imageBlobRepository.findBySha256(sha256);
+        return existing.isPresent() && imageStorage.exists(ImageStorage.keyOf(existing.get().getUrl()));
+    }
+
+    /**
+     * Lets the client upload the original straight to the storage. The hash
+     * is part of the signature, so the key cannot receive other content.
+     */
+    Optional<PresignedUpload> presignUpload(String sha256, InspectingInputStream.ImageType type, long size) {
+        String sha256Base64 = Base64.getEncoder().encodeToString(HexFormat.of().parseHex(sha256));
+        return imageStorage.presignUpload(ImageStorage.keyOf(urlFor(sha256, type.extension())),
+                type.contentType(), size, sha256Base64, directUploadTtl);
+    }
+
+    /**
+     * Registers an original the client uploaded directly. The storage already
+     * verified the checksum; size and magic bytes are checked here with a
+     * ranged read instead of downloading the object.
+     */
+    StoredBlob adopt(String sha256, InspectingInputStream.ImageType type, long size) throws IOException {
+        Optional<ImageBlob> existing = imageBlobRepository.findBySha256(sha256);
+        if (existing.isPresent() && imageStorage.exists(ImageStorage.keyOf(existing.get().getUrl()))) {
+            return new StoredBlob(existing.get(), false, null);
+        }
+
+        String url = urlFor(sha256, type.extension());
+        String key = ImageStorage.keyOf(url);
+        StoredObject object = imageStorage.stat(key)
+                .orElseThrow(() -> new IllegalArgumentException("Upload " + sha256 + " has not been received"));
+
+        byte[] head;
+        try (InputStream in = imageStorage.openRange(key, 0, InspectingInputStream.SNIFF_LENGTH)) {
+            head = in.readNBytes(InspectingInputStream.SNIFF_LENGTH);
+        }
+        if (object.size() > maxFileSize.toBytes()) {
+            imageStorage.delete(key);
+            throw new PayloadTooLargeException("File exceeds the maximum size of " + maxFileSize.toBytes() + " bytes");
+        }
+        if (object.size() != size || head.length < InspectingInputStream.SNIFF_LENGTH
+                || InspectingInputStream.ImageType.sniff(head) != type) {
+            imageStorage.delete(key);
+            throw new UnsupportedMediaTypeException("Uploaded file is not a supported image");
+        }
+
+        ImageBlob blob = new ImageBlob(sha256, url, object.size(), type.contentType());
+        boolean created = imageBlobRepository.insertIfAbsent(blob);
+        return new StoredBlob(imageBlobRepository.findBySha256(sha256).orElse(blob), created, null);
+    }
+
+    /**
+     * Deletes the blob and its files once the last referencing image is gone.
+     * The files go while the deleted row is still locked, so an upload that
+     * found the blob just before waits in {@link #reference} and writes it
+     * again instead of attaching to deleted files.
+     */
+    public void release(String sha256) {
+        transactionTemplate.executeWithoutResult(status ->
+                imageBlobRepository.deleteIfUnreferenced(sha256).ifPresent(this::deleteFiles));
+    }
+
+    private void deleteFiles(ImageBlob blob) {
+        try {
+            imageStorage.delete(ImageStorage.keyOf(blob.getUrl()));
+        } catch (IOException e) {
+            // The orphan sweep picks up files that could not be removed
+        }
+        imageProcessingService.deleteVariants(blob.getUrl());
+        resizedImageCache.invalidate(ImageStorage.keyOf(blob.getUrl()));
+    }
+
+    /**
+     * Deletes a file from the pre-content-addressing layout together with
+     * everything derived from it.
+     */
+    void releaseLegacy(String url) {
+        try {
+            Files.deleteIfExists(legacyPath(url));
+        } catch (IOException e) {
+            // The orphan sweep picks up files that could not be removed
+        }
+        imageProcessingService.deleteVariants(url);
+        resizedImageCache.invalidate(ImageStorage.keyOf(url));
+    }
+
+    /**
+     * Local path of a file in the pre-content-addressing layout, which only
+     * ever existed in the upload directory.
+     */
+    Path legacyPath(String url) {
+        return Paths.get(uploadDir).resolve(ImageStorage.keyOf(url));
+    }
+
+    private Path stagingDir() throws IOException {
+        return Files.createDirectories(Paths.get(uploadDir).resolve(STAGING_DIR));
+    }
+}
@@ -0,0 +1,236 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.ImageVariant;
+import com.bulletinboard.repository.AdImageRepository;
+import com.bulletinboard.storage.ImageStorage;
+import com.bulletinboard.storage.StorageFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Generates the resized variants of uploaded images in the background. Uploads
+ * are stored in PROCESSING state and become READY once every variant has been
+ * written next to the original in the image storage. A BlurHash placeholder
+ * is computed from the smallest variant along the way.
+ */
+@Service
+public class ImageProcessingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageProcessingService.class);
+
+    /**
+     * Longest side of the copy the placeholder is computed from; more pixels
+     * only cost time, the hash keeps a handful of components either way.
+     */
+    private static final int PLACEHOLDER_SIZE = 32;
+
+    @Value("${app.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.images.processing.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${app.images.processing.recovery-batch-size:50}")
+    private int recoveryBatchSize;
+
+    @Value("${app.images.processing.recovery-grace-minutes:5}")
+    private long recoveryGraceMinutes;
+
+    @Value("${app.images.processing.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.images.processing.retry-backoff:1m}")
+    private Duration retryBackoff;
+
+    private final AdImageRepository adImageRepository;
+    private final ImageStorage imageStorage;
+    private final ThreadPoolTaskExecutor executor;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageProcessingService(AdImageRepository adImageRepository, ImageStorage imageStorage,
+                                  @Qualifier("imageProcessingExecutor") ThreadPoolTaskExecutor executor) {
+        this.adImageRepository = adImageRepository;
+        this.imageStorage = imageStorage;
+        this.executor = executor;
+    }
+
+    public void submit(AdImage image) {
+        if (!inFlight.add(image.getId())) {
+            return;
+        }
+        try {
+            executor.execute(() -> process(image));
+        } catch (TaskRejectedException e) {
+            inFlight.remove(image.getId());
+            log.warn("Image processing queue is full, image {} will be retried by the recovery sweep", image.getId());
+        }
+    }
+
+    /**
+     * Re-submits images left in PROCESSING by a restart or a full queue, and
+     * images whose retry after a failed attempt is due.
+     */
+    @Scheduled(fixedDelayString = "${app.images.processing.recovery-interval-ms:60000}",
+            initialDelayString = "${app.images.processing.recovery-initial-delay-ms:30000}")
+    public void recoverStuckImages() {
+        LocalDateTime now = LocalDateTime.now();
+        List<AdImage> due = adImageRepository.findProcessingDue(now.minusMinutes(recoveryGraceMinutes), now,
+                recoveryBatchSize);
+        due.forEach(this::submit);
+    }
+
+    public static String variantUrl(String originalUrl, ImageVariant variant) {
+        int slash = originalUrl.lastIndexOf('/');
+        int dot = originalUrl.lastIndexOf('.');
+        String base = dot > slash ? originalUrl.substring(0, dot) : originalUrl;
+        return base + "_" + variant.getSuffix() + ".jpg";
+    }
+
+    void process(AdImage image) {
+        try {
+            Map<ImageVariant, String> urls = new EnumMap<>(ImageVariant.class);
+            for (ImageVariant variant : ImageVariant.values()) {
+                urls.put(variant, variantUrl(image.getUrl(), variant));
+            }
+
+            String placeholder;
+            // Content-addressed originals share their variants between duplicate uploads
+            if (allExist(urls.values())) {
+                placeholder = placeholderFor(image);
+            } else {
+                BufferedImage current;
+                try (StorageFile original = imageStorage.fetch(ImageStorage.keyOf(image.getUrl()))) {
+                    current = ImageTransforms.readOriented(original.path(), ImageVariant.FULL.getMaxDimension());
+                }
+                for (ImageVariant variant : ImageVariant.values()) {
+                    BufferedImage scaled = ImageTransforms.scaleToFit(current, variant.getMaxDimension());
+                    String key = ImageStorage.keyOf(urls.get(variant));
+                    write(key, "image/jpeg", path -> ImageTransforms.writeJpeg(scaled, path, jpegQuality));
+                    write(webpSibling(key), "image/webp", path -> ImageTransforms.writeWebpIfSupported(scaled, path));
+                    current = scaled;
+                }
+                placeholder = placeholderOf(current);
+            }
+
+            adImageRepository.markReady(image.getId(),
+                    urls.get(ImageVariant.THUMBNAIL),
+                    urls.get(ImageVariant.CARD),
+                    urls.get(ImageVariant.FULL),
+                    placeholder);
+        } catch (IOException | RuntimeException e) {
+            failed(image, e);
+        } finally {
+            inFlight.remove(image.getId());
+        }
+    }
+
+    /**
+     * Storage errors are often transient, so a failed image is retried with a
+     * doubling delay and only marked FAILED once its attempts are used up.
+     */
+    private void failed(AdImage image, Exception e) {
+        int attempts = image.getProcessingAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            log.warn("Failed to process image {} ({}), giving up after {} attempts",
+                    image.getId(), image.getUrl(), attempts, e);
+            adImageRepository.markFailed(image.getId());
+            return;
+        }
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 16));
+        log.warn("Failed to process image {} ({}), attempt {} of {}, retrying in {}",
+                image.getId(), image.getUrl(), attempts, maxAttempts, delay, e);
+        adImageRepository.markRetry(image.getId(), attempts, LocalDateTime.now().plus(delay));
+    }
+
+    /**
+     * BlurHash of an image whose variants exist, computed from the thumbnail.
+     * Returns {@code null} when it cannot be read; the image stays usable.
+     */
+    String placeholderFor(AdImage image) {
+        String key = ImageStorage.keyOf(variantUrl(image.getUrl(), ImageVariant.THUMBNAIL));
+        try (StorageFile thumbnail = imageStorage.fetch(key)) {
+            return placeholderOf(ImageTransforms.readOriented(thumbnail.path(), PLACEHOLDER_SIZE));
+        } catch (IOException | RuntimeException e) {
+            log.debug("No placeholder for image {} ({})", image.getId(), key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Components follow the aspect ratio so wide images keep their horizontal
+     * detail.
+     */
+    private static String placeholderOf(BufferedImage image) {
+        BufferedImage small = ImageTransforms.scaleToFit(image, PLACEHOLDER_SIZE);
+        int componentsX = small.getWidth() >= small.getHeight() ? 4 : 3;
+        int componentsY = small.getWidth() >= small.getHeight() ? 3 : 4;
+        return BlurHash.encode(small, componentsX, componentsY);
+    }
+
+    void deleteVariants(String originalUrl) {
+        for (ImageVariant variant : ImageVariant.values()) {
+            String key = ImageStorage.keyOf(variantUrl(originalUrl, variant));
+            try {
+                imageStorage.delete(key);
+                imageStorage.delete(webpSibling(key));
+            } catch (IOException e) {
+                // Leftovers are harmless, the file name is never reused
+            }
+        }
+    }
+
+    private boolean allExist(Iterable<String> urls) throws IOException {
+        for (String url : urls) {
+            if (!imageStorage.exists(ImageStorage.keyOf(url))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renders into a scratch file and hands it to the storage, whose put is
+     * atomic, so readers never see a partial variant.
+     */
+    private void write(String key, String contentType, ImageWriteAction action) throws IOException {
+        Path scratch = Files.createDirectories(Paths.get(uploadDir).resolve(ContentAddressedStore.STAGING_DIR));
+        Path temp = Files.createTempFile(scratch, ".variant-", ".tmp");
+        try {
+            action.write(temp);
+            if (Files.size(temp) > 0) {
+                imageStorage.put(key, temp, contentType);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ImageWriteAction {
+        void write(Path path) throws IOException;
+    }
+
+    private static String webpSibling(String jpegKey) {
+        return jpegKey.substring(0, jpegKey.lastIndexOf('.')) + ".webp";
+    }
+}
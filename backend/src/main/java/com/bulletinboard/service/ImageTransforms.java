@@ -0,0 +1,205 @@
+package com.bulletinboard.service;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.imaging.ImageProcessingException;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.MetadataException;
+import com.drew.metadata.exif.ExifIFD0Directory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Stateless helpers for decoding, orienting, scaling and encoding images with
+ * the JDK ImageIO stack.
+ */
+public final class ImageTransforms {
+
+    private ImageTransforms() {
+    }
+
+    /**
+     * Decodes the image, subsampling large sources so the decoded raster stays
+     * close to {@code minDimension} on its longest side, and applies the EXIF
+     * orientation so the result is upright.
+     */
+    public static BufferedImage readOriented(Path source, int minDimension) throws IOException {
+        BufferedImage image = readSubsampled(source, minDimension);
+        return applyOrientation(image, readOrientation(source));
+    }
+
+    /**
+     * Scales the image down so that neither side exceeds {@code maxDimension}.
+     * Images that already fit are returned as-is. Large reductions are done in
+     * halving steps, which keeps bilinear filtering from aliasing.
+     */
+    public static BufferedImage scaleToFit(BufferedImage image, int maxDimension) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width <= maxDimension && height <= maxDimension) {
+            return toRgb(image);
+        }
+
+        double scale = (double) maxDimension / Math.max(width, height);
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = toRgb(image);
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, new AffineTransform());
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            current = draw(current, targetWidth, targetHeight, new AffineTransform());
+        }
+        return current;
+    }
+
+    /**
+     * Encodes a baseline JPEG. No metadata is passed to the writer, so EXIF
+     * (GPS position, camera serial numbers, ...) from the original is dropped.
+     */
+    public static void writeJpeg(BufferedImage image, Path destination, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG writer available");
+        }
+        ImageWriter writer = writers.next();
+        try (OutputStream out = Files.newOutputStream(destination);
+             ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(toRgb(image), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * The JDK ships no WebP encoder; this only writes when an ImageIO plugin
+     * providing one is on the classpath.
+     *
+     * @return whether a WebP file was written
+     */
+    public static boolean writeWebpIfSupported(BufferedImage image, Path destination) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("webp");
+        if (!writers.hasNext()) {
+            return false;
+        }
+        ImageWriter writer = writers.next();
+        try (OutputStream out = Files.newOutputStream(destination);
+             ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), writer.getDefaultWriteParam());
+            return true;
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage readSubsampled(Path source, int minDimension) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            if (in == null) {
+                throw new IOException("Cannot open image " + source);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + source.getFileName());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, longestSide / minDimension);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static int readOrientation(Path source) {
+        try {
+            Metadata metadata = ImageMetadataReader.readMetadata(source.toFile());
+            ExifIFD0Directory directory = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+            if (directory != null && directory.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
+                return directory.getInt(ExifIFD0Directory.TAG_ORIENTATION);
+            }
+        } catch (ImageProcessingException | MetadataException | IOException e) {
+            // No readable EXIF block - treat the image as upright
+        }
+        return 1;
+    }
+
+    /**
+     * Maps the EXIF orientation tag (1-8) onto the transform that makes the
+     * image upright. Orientations 5-8 swap width and height.
+     */
+    private static BufferedImage applyOrientation(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        return switch (orientation) {
+            case 2 -> draw(image, w, h, new AffineTransform(-1, 0, 0, 1, w, 0));
+            case 3 -> draw(image, w, h, new AffineTransform(-1, 0, 0, -1, w, h));
+            case 4 -> draw(image, w, h, new AffineTransform(1, 0, 0, -1, 0, h));
+            case 5 -> draw(image, h, w, new AffineTransform(0, 1, 1, 0, 0, 0));
+            case 6 -> draw(image, h, w, new AffineTransform(0, 1, -1, 0, h, 0));
+            case 7 -> draw(image, h, w, new AffineTransform(0, -1, -1, 0, h, w));
+            case 8 -> draw(image, h, w, new AffineTransform(0, -1, 1, 0, 0, w));
+            default -> image;
+        };
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        return draw(image, image.getWidth(), image.getHeight(), new AffineTransform());
+    }
+
+    /**
+     * Renders {@code source} into a new opaque RGB canvas. When no transform is
+     * given the source is stretched to the canvas size.
+     */
+    private static BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            if (transform.isIdentity()) {
+                g.drawImage(source, 0, 0, width, height, null);
+            } else {
+                g.drawImage(source, transform, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+}
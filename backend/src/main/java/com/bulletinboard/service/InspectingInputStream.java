@@ -0,0 +1,158 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.exception.PayloadTooLargeException;
+import com.bulletinboard.exception.UnsupportedMediaTypeException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Passes an upload through while hashing it with SHA-256, enforcing a size
+ * limit and sniffing the image type from the leading magic bytes. Violations
+ * are raised as soon as they are visible in the stream, so an oversize or
+ * non-image payload is rejected without reading the rest of it.
+ */
+final class InspectingInputStream extends FilterInputStream {
+
+    static final int SNIFF_LENGTH = 12;
+
+    private final long maxBytes;
+    private final MessageDigest digest;
+    private final byte[] head = new byte[SNIFF_LENGTH];
+    private long count;
+    private ImageType type;
+
+    InspectingInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n < 0) {
+            if (type == null) {
+                throw new UnsupportedMediaTypeException("Uploaded file is not a supported image");
+            }
+            return n;
+        }
+        if (count < SNIFF_LENGTH) {
+            System.arraycopy(b, off, head, (int) count, (int) Math.min(n, SNIFF_LENGTH - count));
+        }
+        count += n;
+        if (count > maxBytes) {
+            throw new PayloadTooLargeException("File exceeds the maximum size of " + maxBytes + " bytes");
+        }
+        digest.update(b, off, n);
+        if (type == null && count >= SNIFF_LENGTH) {
+            type = ImageType.sniff(head);
+            if (type == null) {
+                throw new UnsupportedMediaTypeException("Uploaded file is not a supported image");
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Skipped bytes are read through a scratch buffer, so they are still
+     * counted, hashed and sniffed.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        byte[] scratch = new byte[(int) Math.min(n, 8192)];
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(scratch, 0, (int) Math.min(remaining, scratch.length));
+            if (read < 0) {
+                break;
+            }
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    ImageType getType() {
+        return type;
+    }
+
+    String sha256Hex() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    enum ImageType {
+        JPEG("image/jpeg", "jpg"),
+        PNG("image/png", "png"),
+        GIF("image/gif", "gif"),
+        WEBP("image/webp", "webp");
+
+        private final String contentType;
+        private final String extension;
+
+        ImageType(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        String contentType() {
+            return contentType;
+        }
+
+        String extension() {
+            return extension;
+        }
+
+        static ImageType fromContentType(String contentType) {
+            for (ImageType type : values()) {
+                if (type.contentType.equalsIgnoreCase(contentType)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        static ImageType sniff(byte[] h) {
+            if ((h[0] & 0xFF) == 0xFF && (h[1] & 0xFF) == 0xD8 && (h[2] & 0xFF) == 0xFF) {
+                return JPEG;
+            }
+            if ((h[0] & 0xFF) == 0x89 && h[1] == 'P' && h[2] == 'N' && h[3] == 'G') {
+                return PNG;
+            }
+            if (h[0] == 'G' && h[1] == 'I' && h[2] == 'F' && h[3] == '8') {
+                return GIF;
+            }
+            if (h[0] == 'R' && h[1] == 'I' && h[2] == 'F' && h[3] == 'F'
+                    && h[8] == 'W' && h[9] == 'E' && h[10] == 'B' && h[11] == 'P') {
+                return WEBP;
+            }
+            return null;
+        }
+    }
+}
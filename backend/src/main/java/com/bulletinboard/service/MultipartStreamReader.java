@@ -0,0 +1,300 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.exception.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Minimal forward-only multipart/form-data parser. Parts are exposed as
+ * streams over the request body, so nothing is buffered beyond a small
+ * window that is kept to detect the boundary.
+ */
+final class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+    private static final int MAX_HEADER_LINES = 32;
+
+    private final InputStream in;
+    private final long maxBytes;
+    private final byte[] boundary;
+    private final byte[] delimiter;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private long totalRead;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream current;
+
+    MultipartStreamReader(InputStream in, String boundary, long maxBytes) {
+        if (boundary == null || boundary.isEmpty() || boundary.length() > 70) {
+            throw new IllegalArgumentException("Invalid multipart boundary");
+        }
+        this.in = in;
+        this.maxBytes = maxBytes;
+        this.boundary = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    static MultipartStreamReader forContentType(InputStream in, String contentType, long maxBytes) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/form-data")) {
+            throw new IllegalArgumentException("Expected multipart/form-data");
+        }
+        String boundary = null;
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.regionMatches(true, 0, "boundary=", 0, 9)) {
+                boundary = trimmed.substring(9);
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+            }
+        }
+        return new MultipartStreamReader(in, boundary, maxBytes);
+    }
+
+    /**
+     * Advances to the next part, draining whatever is left of the previous
+     * one.
+     *
+     * @return the next part, or {@code null} after the closing boundary
+     */
+    Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (current == null) {
+            skipPreamble();
+        } else {
+            current.drain();
+        }
+        if (finished) {
+            return null;
+        }
+
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        for (int i = 0; ; i++) {
+            if (i == MAX_HEADER_LINES) {
+                throw new IllegalArgumentException("Too many multipart headers");
+            }
+            String line = readLine();
+            if (line.isEmpty()) {
+                break;
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String header = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (header.equals("content-disposition")) {
+                name = dispositionParameter(value, "name");
+                filename = dispositionParameter(value, "filename");
+            } else if (header.equals("content-type")) {
+                contentType = value;
+            }
+        }
+
+        current = new PartInputStream();
+        return new Part(name, filename, contentType, current);
+    }
+
+    private void skipPreamble() throws IOException {
+        while (true) {
+            ensure(boundary.length);
+            int index = indexOf(boundary, pos, limit);
+            if (index >= 0) {
+                pos = index + boundary.length;
+                afterDelimiter();
+                return;
+            }
+            if (eof) {
+                throw new IllegalArgumentException("Multipart boundary not found");
+            }
+            pos = Math.max(pos, limit - boundary.length + 1);
+            fill();
+        }
+    }
+
+    /**
+     * Reads what follows a boundary: either CRLF before the next part's
+     * headers, or {@code --} closing the body.
+     */
+    private void afterDelimiter() throws IOException {
+        ensure(2);
+        if (limit - pos < 2) {
+            throw new IllegalArgumentException("Truncated multipart body");
+        }
+        if (buffer[pos] == '-' && buffer[pos + 1] == '-') {
+            pos += 2;
+            finished = true;
+            return;
+        }
+        // Transport padding is allowed between the boundary and its CRLF
+        readLine();
+    }
+
+    private String readLine() throws IOException {
+        int start = pos;
+        while (true) {
+            for (int i = start; i < limit - 1; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    String line = new String(buffer, pos, i - pos, StandardCharsets.UTF_8);
+                    pos = i + 2;
+                    return line;
+                }
+            }
+            if (limit - pos > MAX_HEADER_LINE) {
+                throw new IllegalArgumentException("Multipart header line too long");
+            }
+            if (eof) {
+                throw new IllegalArgumentException("Truncated multipart body");
+            }
+            start = Math.max(pos, limit - 1);
+            int consumed = pos;
+            fill();
+            start -= consumed - pos;
+        }
+    }
+
+    /**
+     * Makes at least {@code needed} bytes available unless the stream ends
+     * first.
+     */
+    private void ensure(int needed) throws IOException {
+        while (limit - pos < needed && !eof) {
+            fill();
+        }
+    }
+
+    /**
+     * Compacts the unread window to the start of the buffer and reads more.
+     */
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            throw new IllegalStateException("Multipart buffer overflow");
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+            totalRead += read;
+            if (totalRead > maxBytes) {
+                throw new PayloadTooLargeException("Request exceeds the maximum size of " + maxBytes + " bytes");
+            }
+        }
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (buffer[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String dispositionParameter(String disposition, String parameter) {
+        for (String token : disposition.split(";")) {
+            String trimmed = token.trim();
+            int eq = trimmed.indexOf('=');
+            if (eq < 0 || !trimmed.substring(0, eq).trim().equalsIgnoreCase(parameter)) {
+                continue;
+            }
+            String value = trimmed.substring(eq + 1).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            return value;
+        }
+        return null;
+    }
+
+    record Part(String name, String filename, String contentType, InputStream body) {
+
+        boolean isFile() {
+            return filename != null;
+        }
+    }
+
+    /**
+     * Body of the current part: returns bytes up to, but not including, the
+     * next delimiter.
+     */
+    private final class PartInputStream extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                ensure(delimiter.length);
+                int index = indexOf(delimiter, pos, limit);
+                int available;
+                if (index >= 0) {
+                    available = index - pos;
+                    if (available == 0) {
+                        pos += delimiter.length;
+                        done = true;
+                        afterDelimiter();
+                        return -1;
+                    }
+                } else if (eof) {
+                    throw new IllegalArgumentException("Truncated multipart body");
+                } else {
+                    // Hold back a tail that could be the start of a delimiter
+                    available = limit - pos - (delimiter.length - 1);
+                    if (available <= 0) {
+                        fill();
+                        continue;
+                    }
+                }
+                int n = Math.min(len, available);
+                System.arraycopy(buffer, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+        }
+
+        void drain() throws IOException {
+            byte[] skip = new byte[8192];
+            while (read(skip, 0, skip.length) >= 0) {
+                // discard
+            }
+        }
+
+        @Override
+        public void close() {
+            // The underlying request stream is owned by the container
+        }
+    }
+}
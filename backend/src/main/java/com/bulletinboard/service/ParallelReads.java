@@ -0,0 +1,250 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.datasource.ReplicaRouting;
+import org.jooq.ExecuteContext;
+import org.jooq.ExecuteListener;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs independent repository calls of one service method at the same time:
+ * <pre>
+ * try (ParallelReads.Scope scope = parallelReads.open()) {
+ *     Fork&lt;Long&gt; total = scope.fork(() -&gt; adRepository.countAds(request));
+ *     List&lt;Ad&gt; ads = adRepository.searchAds(request);
+ *     scope.join();
+ *     ...
+ * }
+ * </pre>
+ * Forks run on the {@code parallelReadExecutor} with the caller's replica
+ * pin. {@link Scope#join()} waits for all of them, up to
+ * {@code app.parallel-reads.timeout} after the scope was opened; the first
+ * failure, the timeout or leaving the block early cancels the forks still
+ * running. Inside a transaction forks run one after another on the calling
+ * thread, since other threads would not see its connection.
+ * <p>
+ * The JDBC driver does not react to interrupts while it waits for the
+ * database, so {@link StatementListener} gives each fork's statements a
+ * query timeout of the remaining budget and cancels the running statement
+ * when the fork is cancelled.
+ */
+@Component
+public class ParallelReads {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final Duration timeout;
+
+    public ParallelReads(@Qualifier("parallelReadExecutor") ThreadPoolTaskExecutor executor,
+                         @Value("${app.parallel-reads.timeout:10s}") Duration timeout) {
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    private static final ThreadLocal<Fork<?>> CURRENT_FORK = new ThreadLocal<>();
+
+    public Scope open() {
+        return new Scope(TransactionSynchronizationManager.isActualTransactionActive(), ReplicaRouting.isPinned(),
+                System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Result of a fork, available once {@link Scope#join()} has returned.
+     */
+    public static final class Fork<T> {
+
+        private final long deadline;
+        private Future<T> future;
+        private boolean joined;
+        private Statement statement;
+        private boolean cancelled;
+
+        private Fork(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public T get() {
+            if (!joined) {
+                throw new IllegalStateException("Fork read before its scope was joined");
+            }
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void cancel() {
+            future.cancel(true);
+            Statement running;
+            synchronized (this) {
+                cancelled = true;
+                running = statement;
+            }
+            if (running != null) {
+                try {
+                    running.cancel();
+                } catch (SQLException e) {
+                    // The statement timeout still ends it
+                }
+            }
+        }
+
+        private synchronized void started(Statement started) throws SQLException {
+            long remaining = deadline - System.nanoTime();
+            if (cancelled || remaining <= 0) {
+                throw new QueryTimeoutException("Parallel read was cancelled before its query started");
+            }
+            int seconds = (int) Math.min(Integer.MAX_VALUE, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999)));
+            if (started.getQueryTimeout() == 0 || started.getQueryTimeout() > seconds) {
+                started.setQueryTimeout(seconds);
+            }
+            statement = started;
+        }
+
+        private synchronized void ended() {
+            statement = null;
+        }
+    }
+
+    /**
+     * Bounds and cancels the statements of forks; statements of other threads
+     * are left alone.
+     */
+    public static class StatementListener implements ExecuteListener {
+
+        @Override
+        public void executeStart(ExecuteContext ctx) {
+            Fork<?> fork = CURRENT_FORK.get();
+            if (fork != null && ctx.statement() != null) {
+                try {
+                    fork.started(ctx.statement());
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Could not set the parallel read timeout", e);
+                }
+            }
+        }
+
+        @Override
+        public void end(ExecuteContext ctx) {
+            Fork<?> fork = CURRENT_FORK.get();
+            if (fork != null) {
+                fork.ended();
+            }
+        }
+    }
+
+    public final class Scope implements AutoCloseable {
+
+        private final boolean inline;
+        private final boolean pinned;
+        private final long deadline;
+        private final List<Fork<?>> forks = new ArrayList<>();
+
+        private Scope(boolean inline, boolean pinned, long deadline) {
+            this.inline = inline;
+            this.pinned = pinned;
+            this.deadline = deadline;
+        }
+
+        public <T> Fork<T> fork(Callable<T> task) {
+            Fork<T> fork = new Fork<>(deadline);
+            if (inline) {
+                FutureTask<T> run = new FutureTask<>(task);
+                run.run();
+                fork.future = run;
+            } else {
+                fork.future = executor.submit(() -> callPinned(fork, task));
+            }
+            forks.add(fork);
+            return fork;
+        }
+
+        /**
+         * Waits for every fork and rethrows the first failure as it was thrown.
+         */
+        public void join() {
+            try {
+                for (Fork<?> fork : forks) {
+                    fork.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } catch (ExecutionException e) {
+                cancelAll();
+                throw rethrow(e.getCause());
+            } catch (TimeoutException e) {
+                cancelAll();
+                throw new QueryTimeoutException("Parallel reads did not finish within " + timeout);
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for parallel reads", e);
+            }
+            forks.forEach(fork -> fork.joined = true);
+        }
+
+        /**
+         * Cancels the forks still running, e.g. when the caller's own query
+         * failed before {@link #join()}.
+         */
+        @Override
+        public void close() {
+            cancelAll();
+        }
+
+        private void cancelAll() {
+            for (Fork<?> fork : forks) {
+                fork.cancel();
+            }
+        }
+
+        private <T> T callPinned(Fork<T> fork, Callable<T> task) throws Exception {
+            // With a full pool the task runs on the caller, whose pin must survive
+            boolean wasPinned = ReplicaRouting.isPinned();
+            Fork<?> outer = CURRENT_FORK.get();
+            if (pinned) {
+                ReplicaRouting.pinToPrimary();
+            }
+            CURRENT_FORK.set(fork);
+            try {
+                return task.call();
+            } finally {
+                if (outer != null) {
+                    CURRENT_FORK.set(outer);
+                } else {
+                    CURRENT_FORK.remove();
+                }
+                if (!wasPinned) {
+                    ReplicaRouting.clearPin();
+                }
+            }
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(failure);
+    }
+}
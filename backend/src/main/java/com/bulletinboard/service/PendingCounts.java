@@ -0,0 +1,64 @@
+package com.bulletinboard.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-ad counts collected in memory until they are written in bulk.
+ * Adding to an ad counted before is two map lookups plus a
+ * {@link LongAdder} add, which is contention-free and allocates nothing.
+ * <p>
+ * Ads that got nothing between two drains are dropped from the map. An add
+ * can still reach a dropped adder; both sides then move what the dropped
+ * adder holds back into the map with {@code sumThenReset}, so each unit is
+ * moved exactly once and nothing is lost:
+ * <ul>
+ *     <li>an add that finds its adder still mapped afterwards happened
+ *     before the removal, so the drain's reset after the removal takes
+ *     it;</li>
+ *     <li>an add that finds it unmapped takes it back itself.</li>
+ * </ul>
+ */
+final class PendingCounts {
+
+    private final ConcurrentHashMap<Long, LongAdder> counts = new ConcurrentHashMap<>();
+
+    void add(Long adId, long amount) {
+        LongAdder adder = counts.get(adId);
+        if (adder == null) {
+            adder = counts.computeIfAbsent(adId, id -> new LongAdder());
+        }
+        adder.add(amount);
+        if (counts.get(adId) != adder) {
+            moveBack(adId, adder);
+        }
+    }
+
+    /**
+     * Takes the counts, sorted by ad id so concurrent bulk updates of several
+     * nodes lock rows in the same order. Counts that could not be written are
+     * given back with {@link #add}.
+     */
+    Map<Long, Long> drain() {
+        Map<Long, Long> drained = new TreeMap<>();
+        for (Map.Entry<Long, LongAdder> entry : counts.entrySet()) {
+            LongAdder adder = entry.getValue();
+            long sum = adder.sumThenReset();
+            if (sum != 0) {
+                drained.put(entry.getKey(), sum);
+            } else if (counts.remove(entry.getKey(), adder)) {
+                moveBack(entry.getKey(), adder);
+            }
+        }
+        return drained;
+    }
+
+    private void moveBack(Long adId, LongAdder dropped) {
+        long late = dropped.sumThenReset();
+        if (late != 0) {
+            add(adId, late);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.repository.AdImageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes placeholders for images that were processed before placeholders
+ * existed. Each run handles one batch, walking the table by id; once it has
+ * reached the end it stays idle until the next start, since new uploads get
+ * their placeholder from {@link ImageProcessingService}. Images whose
+ * thumbnail cannot be read are skipped and retried after a restart.
+ */
+@Service
+public class PlaceholderBackfillJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaceholderBackfillJob.class);
+
+    @Value("${app.images.placeholder-backfill.batch-size:100}")
+    private int batchSize;
+
+    private final AdImageRepository adImageRepository;
+    private final ImageProcessingService imageProcessingService;
+
+    private long afterId;
+    private int filled;
+    private boolean finished;
+
+    public PlaceholderBackfillJob(AdImageRepository adImageRepository, ImageProcessingService imageProcessingService) {
+        this.adImageRepository = adImageRepository;
+        this.imageProcessingService = imageProcessingService;
+    }
+
+    @Scheduled(fixedDelayString = "${app.images.placeholder-backfill.interval-ms:10000}",
+            initialDelayString = "${app.images.placeholder-backfill.initial-delay-ms:60000}")
+    public synchronized void backfill() {
+        if (finished) {
+            return;
+        }
+
+        List<AdImage> batch = adImageRepository.findReadyWithoutPlaceholderAfter(afterId, batchSize);
+        if (batch.isEmpty()) {
+            finished = true;
+            if (filled > 0) {
+                log.info("Placeholder backfill finished: {} images", filled);
+            }
+            return;
+        }
+
+        Map<Long, String> placeholders = new HashMap<>();
+        for (AdImage image : batch) {
+            String placeholder = imageProcessingService.placeholderFor(image);
+            if (placeholder != null) {
+                placeholders.put(image.getId(), placeholder);
+            }
+        }
+        adImageRepository.updatePlaceholders(placeholders);
+
+        afterId = batch.get(batch.size() - 1).getId();
+        filled += placeholders.size();
+        log.debug("Placeholder backfill at id {}, {} images so far", afterId, filled);
+    }
+}
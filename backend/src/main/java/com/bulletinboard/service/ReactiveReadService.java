@@ -0,0 +1,88 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.Ad;
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.Category;
+import com.bulletinboard.dto.AdImageResponse;
+import com.bulletinboard.dto.AdResponse;
+import com.bulletinboard.dto.AdSearchRequest;
+import com.bulletinboard.dto.CategoryResponse;
+import com.bulletinboard.dto.PageResponse;
+import com.bulletinboard.exception.ResourceNotFoundException;
+import com.bulletinboard.repository.ReactiveReadRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking counterpart of the read methods of {@link AdService} and
+ * {@link CategoryService}, with the same responses. Category names and
+ * images of a page are loaded with one query each.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveReadService {
+
+    private final ReactiveReadRepository reactiveReadRepository;
+    private final AdViewCounter adViewCounter;
+    private final AdTrendingService adTrendingService;
+
+    public ReactiveReadService(ReactiveReadRepository reactiveReadRepository, AdViewCounter adViewCounter,
+                               AdTrendingService adTrendingService) {
+        this.reactiveReadRepository = reactiveReadRepository;
+        this.adViewCounter = adViewCounter;
+        this.adTrendingService = adTrendingService;
+    }
+
+    public Mono<PageResponse<AdResponse>> searchAds(AdSearchRequest request) {
+        return Mono.zip(
+                        reactiveReadRepository.searchAds(request).collectList().flatMap(this::toResponses),
+                        reactiveReadRepository.countAds(request))
+                .map(page -> new PageResponse<>(page.getT1(), request.getPage(), request.getSize(), page.getT2()));
+    }
+
+    public Mono<AdResponse> getAdById(Long id) {
+        return reactiveReadRepository.findAdById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Ad", id)))
+                .doOnNext(ad -> {
+                    adViewCounter.increment(ad.getId());
+                    adTrendingService.recordView(ad.getId());
+                })
+                .flatMap(ad -> toResponses(List.of(ad)))
+                .map(responses -> responses.get(0));
+    }
+
+    public Flux<CategoryResponse> getAllCategories() {
+        return reactiveReadRepository.findAllCategories()
+                .map(CategoryResponse::fromCategory);
+    }
+
+    private Mono<List<AdResponse>> toResponses(List<Ad> ads) {
+        if (ads.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        List<Long> adIds = ads.stream().map(Ad::getId).toList();
+        List<Long> categoryIds = ads.stream().map(Ad::getCategoryId).filter(Objects::nonNull).distinct().toList();
+
+        Mono<Map<Long, String>> categoryNames = reactiveReadRepository.findCategoriesByIds(categoryIds)
+                .collectMap(Category::getId, Category::getName);
+        Mono<Map<Long, List<AdImageResponse>>> images = reactiveReadRepository.findImagesByAdIds(adIds)
+                .collect(Collectors.groupingBy(AdImage::getAdId,
+                        Collectors.mapping(AdImageResponse::fromAdImage, Collectors.toList())));
+
+        return Mono.zip(categoryNames, images)
+                .map(loaded -> ads.stream()
+                        .map(ad -> {
+                            AdResponse response = AdResponse.fromAd(ad, loaded.getT1().get(ad.getCategoryId()), null);
+                            response.setImages(loaded.getT2().getOrDefault(ad.getId(), List.of()));
+                            return response;
+                        })
+                        .toList());
+    }
+}
@@ -0,0 +1,97 @@
+package com.bulletinboard.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which ads each client IP contacted within {@code contact-window},
+ * so a contact counts once per IP and ad, and one IP cannot contact more than
+ * {@code max-contacts-per-window} ads. The window is kept per node; with
+ * several nodes a client can count once on each.
+ * <p>
+ * At most {@code max-tracked-ips} IPs are remembered. Contacts from further
+ * IPs are not counted until expired entries are evicted.
+ */
+@Service
+public class RecentContacts {
+
+    public enum Result { COUNTED, REPEATED, LIMITED }
+
+    @Value("${antispam.rate-limit.contact-window:1h}")
+    private Duration window;
+
+    @Value("${antispam.rate-limit.max-contacts-per-window:30}")
+    private int maxContactsPerWindow;
+
+    @Value("${antispam.rate-limit.max-tracked-ips:100000}")
+    private int maxTrackedIps;
+
+    private final ConcurrentHashMap<String, Contacts> byIp = new ConcurrentHashMap<>();
+
+    int maxContactsPerWindow() {
+        return maxContactsPerWindow;
+    }
+
+    public Result register(String clientIp, Long adId) {
+        long now = System.nanoTime();
+        Result[] result = {Result.REPEATED};
+        byIp.compute(clientIp, (ip, contacts) -> {
+            if (contacts == null) {
+                if (byIp.size() >= maxTrackedIps) {
+                    return null;
+                }
+                contacts = new Contacts();
+            }
+            result[0] = contacts.register(adId, now);
+            return contacts;
+        });
+        return result[0];
+    }
+
+    @Scheduled(fixedDelayString = "${antispam.rate-limit.contact-eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        for (String ip : byIp.keySet()) {
+            byIp.computeIfPresent(ip, (key, contacts) -> contacts.evictExpired(now) ? null : contacts);
+        }
+    }
+
+    /**
+     * Ads one IP contacted, oldest first; only accessed inside the map's
+     * per-key compute, so no further locking is needed.
+     */
+    private final class Contacts {
+
+        private final LinkedHashMap<Long, Long> since = new LinkedHashMap<>();
+
+        Result register(Long adId, long now) {
+            evictExpired(now);
+            if (since.containsKey(adId)) {
+                return Result.REPEATED;
+            }
+            if (since.size() >= maxContactsPerWindow) {
+                return Result.LIMITED;
+            }
+            since.put(adId, now);
+            return Result.COUNTED;
+        }
+
+        /**
+         * @return whether nothing is left
+         */
+        boolean evictExpired(long now) {
+            Iterator<Map.Entry<Long, Long>> oldest = since.entrySet().iterator();
+            while (oldest.hasNext() && now - oldest.next().getValue() >= window.toNanos()) {
+                oldest.remove();
+            }
+            return since.isEmpty();
+        }
+    }
+}
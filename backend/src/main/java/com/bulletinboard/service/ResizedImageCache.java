@@ -0,0 +1,325 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.storage.ImageStorage;
+import com.bulletinboard.storage.StorageFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Resizes stored images to a requested width on first use and keeps the
+ * result in a size-capped LRU cache on the local disk ({@code .resized/} under
+ * the upload directory).
+ * <p>
+ * Requested widths are rounded up to a fixed ladder, so arbitrary {@code ?w=}
+ * values cannot fill the cache. Concurrent requests for the same rendition
+ * share one resize, which runs on a bounded pool.
+ */
+@Service
+public class ResizedImageCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResizedImageCache.class);
+
+    static final String CACHE_DIR = ".resized";
+
+    @Value("${app.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.images.resize.widths:160,320,480,640,960,1280,1600}")
+    private List<Integer> widths;
+
+    @Value("${app.images.resize.cache-size:1GB}")
+    private DataSize cacheSize;
+
+    @Value("${app.images.resize.timeout-ms:10000}")
+    private long timeoutMs;
+
+    /**
+     * How stale a rendition's file time may get before a hit refreshes it.
+     * The time only orders evictions after a restart, so it need not be exact.
+     */
+    @Value("${app.images.resize.touch-interval:1h}")
+    private Duration touchInterval;
+
+    @Value("${app.images.processing.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    private final ImageStorage imageStorage;
+    private final ThreadPoolTaskExecutor executor;
+    private final Map<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Cached files in access order, with their sizes. Guarded by {@code this}.
+     */
+    private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter evictedBytes;
+
+    public ResizedImageCache(ImageStorage imageStorage,
+                             @Qualifier("imageResizeExecutor") ThreadPoolTaskExecutor executor,
+                             MeterRegistry meterRegistry) {
+        this.imageStorage = imageStorage;
+        this.executor = executor;
+        this.hits = Counter.builder("images.resize.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("images.resize.cache").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("images.resize.evictions")
+                .description("Renditions removed to stay under the cache size")
+                .register(meterRegistry);
+        this.evictedBytes = Counter.builder("images.resize.evicted")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("images.resize.cache.size", this, ResizedImageCache::cachedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Picks up renditions from before a restart, oldest access first.
+     */
+    @PostConstruct
+    void loadExisting() throws IOException {
+        Path root = cacheRoot();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        List<Map.Entry<Path, BasicFileAttributes>> found = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                if (path.getFileName().toString().startsWith(".")) {
+                    Files.deleteIfExists(path);
+                } else {
+                    found.add(Map.entry(path, attributes));
+                }
+            }
+        }
+        found.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        synchronized (this) {
+            for (Map.Entry<Path, BasicFileAttributes> entry : found) {
+                entries.put(entry.getKey(), entry.getValue().size());
+                totalBytes += entry.getValue().size();
+            }
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Smallest width on the ladder that is at least {@code requested}.
+     */
+    public int snapWidth(int requested) {
+        List<Integer> ladder = widths.stream().sorted().toList();
+        for (int width : ladder) {
+            if (width >= requested) {
+                return width;
+            }
+        }
+        return ladder.get(ladder.size() - 1);
+    }
+
+    /**
+     * Returns the cached rendition of the stored image, creating it if needed.
+     * Blocks until it is available.
+     *
+     * @throws java.nio.file.NoSuchFileException if the original does not exist
+     * @throws org.springframework.core.task.TaskRejectedException if the resize pool is saturated
+     */
+    public Path get(String key, int width) throws IOException {
+        Path target = renditionPath(key, width);
+        boolean cached;
+        synchronized (this) {
+            cached = entries.get(target) != null;
+        }
+        BasicFileAttributes attributes = cached ? readAttributes(target) : null;
+        if (attributes != null) {
+            hits.increment();
+            touch(target, attributes.lastModifiedTime());
+            return target;
+        }
+
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> pending = inFlight.putIfAbsent(target, created);
+        if (pending == null) {
+            misses.increment();
+            pending = created;
+            try {
+                executor.execute(() -> {
+                    try {
+                        created.complete(render(key, width, target));
+                    } catch (Throwable e) {
+                        created.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(target, created);
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.remove(target, created);
+                throw e;
+            }
+        }
+
+        try {
+            return pending.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while resizing " + key, e);
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out resizing " + key, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Failed to resize " + key, cause);
+        }
+    }
+
+    private Path render(String key, int width, Path target) throws IOException {
+        BufferedImage image;
+        try (StorageFile original = imageStorage.fetch(key)) {
+            // Portrait sources need more than the width on their longest side
+            image = ImageTransforms.readOriented(original.path(), width * 2);
+        }
+        int longestSide = (int) Math.round((double) width * Math.max(image.getWidth(), image.getHeight()) / image.getWidth());
+        BufferedImage scaled = ImageTransforms.scaleToFit(image, longestSide);
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".resize-", ".tmp");
+        try {
+            ImageTransforms.writeJpeg(scaled, temp, jpegQuality);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        synchronized (this) {
+            Long previous = entries.put(target, Files.size(target));
+            totalBytes += entries.get(target) - (previous == null ? 0 : previous);
+        }
+        evictIfNeeded();
+        return target;
+    }
+
+    /**
+     * Drops all renditions of an image whose original was deleted.
+     */
+    public void invalidate(String key) {
+        for (int width : widths) {
+            Path rendition = renditionPath(key, width);
+            synchronized (this) {
+                Long size = entries.remove(rendition);
+                if (size != null) {
+                    totalBytes -= size;
+                }
+            }
+            try {
+                Files.deleteIfExists(rendition);
+            } catch (IOException e) {
+                // Evicted eventually
+            }
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path rendition) {
+        try {
+            return Files.readAttributes(rendition, BasicFileAttributes.class);
+        } catch (IOException e) {
+            // Evicted or deleted behind our back; rendered again
+            return null;
+        }
+    }
+
+    /**
+     * Marks a rendition as recently used; the file time carries the LRU order
+     * across restarts. Skipped while the time is younger than
+     * {@code touchInterval}, so hits do not each cost a metadata write.
+     */
+    private void touch(Path rendition, FileTime lastModified) {
+        long now = System.currentTimeMillis();
+        if (now - lastModified.toMillis() < touchInterval.toMillis()) {
+            return;
+        }
+        try {
+            Files.setLastModifiedTime(rendition, FileTime.fromMillis(now));
+        } catch (IOException e) {
+            // Only affects eviction order after a restart
+        }
+    }
+
+    private void evictIfNeeded() {
+        List<Map.Entry<Path, Long>> victims = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Map.Entry<Path, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > cacheSize.toBytes() && it.hasNext()) {
+                Map.Entry<Path, Long> eldest = it.next();
+                it.remove();
+                totalBytes -= eldest.getValue();
+                victims.add(eldest);
+            }
+        }
+        for (Map.Entry<Path, Long> victim : victims) {
+            try {
+                // A response may still be streaming it; POSIX keeps the inode alive
+                Files.deleteIfExists(victim.getKey());
+                evictions.increment();
+                evictedBytes.increment(victim.getValue());
+            } catch (IOException e) {
+                log.warn("Could not evict resized image {}", victim.getKey(), e);
+            }
+        }
+    }
+
+    private synchronized double cachedBytes() {
+        return totalBytes;
+    }
+
+    private Path renditionPath(String key, int width) {
+        int dot = key.lastIndexOf('.');
+        String base = dot > key.lastIndexOf('/') ? key.substring(0, dot) : key;
+        return cacheRoot().resolve(Integer.toString(width)).resolve(base + ".jpg");
+    }
+
+    private Path cacheRoot() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize().resolve(CACHE_DIR);
+    }
+}
@@ -0,0 +1,35 @@
+package com.bulletinboard.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An upload that passed inspection but is not stored yet. The bytes are
+ * either in a staging file written by the streaming path, or still in the
+ * container's spooled multipart file, which is only moved on a hash miss.
+ */
+record StagedUpload(long size, String sha256, InspectingInputStream.ImageType type,
+                    Path stagingFile, MultipartFile multipartFile) {
+
+    void moveTo(Path destination) throws IOException {
+        if (stagingFile != null) {
+            Files.move(stagingFile, destination);
+        } else {
+            multipartFile.transferTo(destination.toFile());
+        }
+    }
+
+    void discard() {
+        if (stagingFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(stagingFile);
+        } catch (IOException e) {
+            // Staging files are dot-prefixed and never served
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.ImageBlob;
+
+/**
+ * Result of storing an upload; {@code created} is true only if this upload
+ * registered the blob, not on a hash hit or when a parallel upload of the
+ * same content got there first. On a hit the staged {@code upload} is kept,
+ * so {@link ContentAddressedStore#reference} can write the content again
+ * should the blob be released before it is attached; it is {@code null} when
+ * the content was consumed or never staged.
+ */
+record StoredBlob(ImageBlob blob, boolean created, StagedUpload upload) {
+}
@@ -0,0 +1,356 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.ImageBlob;
+import com.bulletinboard.repository.AdImageRepository;
+import com.bulletinboard.repository.ImageBlobRepository;
+import com.bulletinboard.storage.ImageStorage;
+import com.bulletinboard.storage.StoredObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Removes stored images that no database row points at any more: originals
+ * and variants of deleted ads, blobs whose reference count dropped to zero,
+ * and leftovers of failed uploads.
+ * <p>
+ * Each run visits a bounded number of leaf directories ({@code cas/ab/cd} or a
+ * legacy {@code {adId}}) in sorted order and continues where the previous run
+ * stopped. A directory is checked with a single query and a sorted merge of
+ * its file names against the returned keys. Nothing younger than the grace
+ * period is touched, which covers uploads that are on disk but not committed.
+ * Unreferenced blobs are removed under the same row lock as
+ * {@link ContentAddressedStore#release}, so an upload that is attaching an old
+ * blob either keeps it or writes it again.
+ */
+@Service
+public class UploadGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadGarbageCollector.class);
+
+    @Value("${app.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.images.gc.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${app.images.gc.directories-per-run:256}")
+    private int directoriesPerRun;
+
+    @Value("${app.images.gc.max-deletes-per-run:500}")
+    private int maxDeletesPerRun;
+
+    private final AdImageRepository adImageRepository;
+    private final ImageBlobRepository imageBlobRepository;
+    private final ImageStorage imageStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter reclaimedBytes;
+    private final Counter deletedFiles;
+
+    /**
+     * Last leaf directory that was swept completely; {@code null} starts over.
+     */
+    private String cursor;
+
+    public UploadGarbageCollector(AdImageRepository adImageRepository, ImageBlobRepository imageBlobRepository,
+                                  ImageStorage imageStorage, TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry) {
+        this.adImageRepository = adImageRepository;
+        this.imageBlobRepository = imageBlobRepository;
+        this.imageStorage = imageStorage;
+        this.transactionTemplate = transactionTemplate;
+        this.reclaimedBytes = Counter.builder("images.gc.reclaimed")
+                .description("Bytes freed by deleting orphaned upload files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.deletedFiles = Counter.builder("images.gc.deleted")
+                .description("Orphaned upload files deleted")
+                .baseUnit("files")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.images.gc.interval-ms:60000}",
+            initialDelayString = "${app.images.gc.initial-delay-ms:120000}")
+    public synchronized void collect() {
+        Path root = Paths.get(uploadDir);
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(graceMinutes));
+        DeleteBudget budget = new DeleteBudget(maxDeletesPerRun);
+        long reclaimedBefore = (long) reclaimedBytes.count();
+
+        try {
+            sweepStaging(root, cutoff, budget);
+
+            List<String> directories = new ArrayList<>();
+            collectLeaves("", cursor, directories);
+            for (String directory : directories) {
+                sweepDirectory(directory, cutoff, budget);
+                if (budget.exhausted()) {
+                    // Resume with the same directory next time
+                    break;
+                }
+                cursor = directory;
+            }
+            if (directories.size() < directoriesPerRun && !budget.exhausted()) {
+                cursor = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Upload GC run failed, will retry from {}", cursor, e);
+        }
+
+        long reclaimed = (long) reclaimedBytes.count() - reclaimedBefore;
+        if (reclaimed > 0) {
+            log.info("Upload GC reclaimed {} bytes, resuming after {}", reclaimed, cursor);
+        }
+    }
+
+    /**
+     * Lists leaf directories after {@code after} in sorted order, skipping
+     * whole subtrees that lie before it.
+     */
+    private void collectLeaves(String relative, String after, List<String> out) throws IOException {
+        for (String name : imageStorage.listDirectories(relative)) {
+            if (out.size() >= directoriesPerRun) {
+                return;
+            }
+            String child = relative.isEmpty() ? name : relative + "/" + name;
+            if (isLeaf(child)) {
+                if (after == null || child.compareTo(after) > 0) {
+                    out.add(child);
+                }
+            } else if (isFanOut(child)
+                    && (after == null || after.startsWith(child + "/") || child.compareTo(after) > 0)) {
+                collectLeaves(child, after, out);
+            }
+        }
+    }
+
+    private static boolean isLeaf(String relative) {
+        String[] segments = relative.split("/");
+        if (segments.length == 1) {
+            return isNumeric(segments[0]);
+        }
+        return segments.length == 3 && segments[0].equals(ContentAddressedStore.CAS_DIR)
+                && isHexPair(segments[1]) && isHexPair(segments[2]);
+    }
+
+    private static boolean isFanOut(String relative) {
+        String[] segments = relative.split("/");
+        return segments[0].equals(ContentAddressedStore.CAS_DIR)
+                && (segments.length == 1 || (segments.length == 2 && isHexPair(segments[1])));
+    }
+
+    private void sweepDirectory(String relative, Instant cutoff, DeleteBudget budget) throws IOException {
+        List<FileEntry> files = new ArrayList<>();
+        for (StoredObject object : imageStorage.listObjects(relative)) {
+            files.add(new FileEntry(object.key(), stemOf(object.name()), object.size(), object.lastModified()));
+        }
+        List<String> live = new ArrayList<>();
+
+        if (relative.startsWith(ContentAddressedStore.CAS_DIR + "/")) {
+            String prefix = relative.substring(ContentAddressedStore.CAS_DIR.length() + 1).replace("/", "");
+            LocalDateTime rowCutoff = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+            for (ImageBlob blob : imageBlobRepository.findBySha256Prefix(prefix)) {
+                boolean unreferenced = blob.getRefCount() != null && blob.getRefCount() <= 0
+                        && blob.getCreatedAt() != null && blob.getCreatedAt().isBefore(rowCutoff);
+                if (unreferenced && budget.tryAcquire() && deleteBlob(blob.getSha256(), files)) {
+                    continue;
+                }
+                live.add(blob.getSha256());
+            }
+        } else {
+            String prefix = "/uploads/" + relative + "/";
+            for (String url : adImageRepository.findUrlsByAdId(Long.parseLong(relative))) {
+                if (url.startsWith(prefix)) {
+                    live.add(stemOf(url.substring(prefix.length())));
+                }
+            }
+        }
+
+        sweepFiles(files, live, cutoff, budget);
+
+        if (!relative.contains("/")) {
+            imageStorage.pruneDirectory(relative);
+        }
+    }
+
+    /**
+     * Deletes an unreferenced blob row and its files in one transaction. The
+     * files go while the deleted row is still locked: an upload attaching the
+     * blob waits in {@link ContentAddressedStore#reference} and then writes
+     * it again rather than having its fresh copy deleted by this sweep.
+     *
+     * @return whether the blob was deleted; its files are taken off the list
+     */
+    private boolean deleteBlob(String sha256, List<FileEntry> files) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (imageBlobRepository.deleteIfUnreferenced(sha256).isEmpty()) {
+                // Referenced again since it was listed
+                return false;
+            }
+            Iterator<FileEntry> it = files.iterator();
+            while (it.hasNext()) {
+                FileEntry file = it.next();
+                if (file.stem().equals(sha256)) {
+                    it.remove();
+                    delete(file);
+                }
+            }
+            return true;
+        }));
+    }
+
+    /**
+     * Sorted merge of the directory's files against the live keys. A file is
+     * kept when its stem (the part before the first '_' or '.') is live.
+     */
+    private void sweepFiles(List<FileEntry> files, List<String> live, Instant cutoff, DeleteBudget budget) {
+        files.sort(Comparator.comparing(FileEntry::stem));
+        live.sort(Comparator.naturalOrder());
+
+        int next = 0;
+        for (FileEntry file : files) {
+            while (next < live.size() && live.get(next).compareTo(file.stem()) < 0) {
+                next++;
+            }
+            boolean referenced = next < live.size() && live.get(next).equals(file.stem());
+            if (referenced || !file.modified().isBefore(cutoff)) {
+                continue;
+            }
+            if (!budget.tryAcquire()) {
+                return;
+            }
+            delete(file);
+        }
+    }
+
+    private void delete(FileEntry file) {
+        try {
+            imageStorage.delete(file.key());
+            reclaimed(file.size());
+        } catch (IOException e) {
+            log.warn("Could not delete orphaned upload {}", file.key(), e);
+        }
+    }
+
+    /**
+     * Staged uploads only live for the duration of a request. Staging is
+     * always on the local disk, whatever the storage backend.
+     */
+    private void sweepStaging(Path root, Instant cutoff, DeleteBudget budget) throws IOException {
+        Path staging = root.resolve(ContentAddressedStore.STAGING_DIR);
+        if (!Files.isDirectory(staging)) {
+            return;
+        }
+        List<Path> stale = new ArrayList<>();
+        try (Stream<Path> children = Files.list(staging)) {
+            for (Path path : (Iterable<Path>) children::iterator) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                    stale.add(path);
+                }
+            }
+        }
+        for (Path path : stale) {
+            if (!budget.tryAcquire()) {
+                return;
+            }
+            try {
+                long size = Files.size(path);
+                if (Files.deleteIfExists(path)) {
+                    reclaimed(size);
+                }
+            } catch (NoSuchFileException e) {
+                // Finished or cleaned up concurrently
+            } catch (IOException e) {
+                log.warn("Could not delete stale staging file {}", path, e);
+            }
+        }
+    }
+
+    private void reclaimed(long size) {
+        reclaimedBytes.increment(size);
+        deletedFiles.increment();
+    }
+
+    /**
+     * {@code <key>.jpg}, {@code <key>_thumb.webp} and so on all map to
+     * {@code <key>}; hidden temp files keep their full name and never match.
+     */
+    private static String stemOf(String fileName) {
+        if (fileName.startsWith(".")) {
+            return fileName;
+        }
+        int end = fileName.length();
+        int underscore = fileName.indexOf('_');
+        int dot = fileName.indexOf('.');
+        if (underscore >= 0) {
+            end = underscore;
+        }
+        if (dot >= 0 && dot < end) {
+            end = dot;
+        }
+        return fileName.substring(0, end);
+    }
+
+    private static boolean isNumeric(String name) {
+        return !name.isEmpty() && name.length() <= 18 && name.chars().allMatch(Character::isDigit);
+    }
+
+    private static boolean isHexPair(String name) {
+        return name.length() == 2 && name.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
+    }
+
+    private record FileEntry(String key, String stem, long size, Instant modified) {
+    }
+
+    /**
+     * Caps the deletions of one run so a large backlog is worked off
+     * gradually instead of saturating the disk and the database.
+     */
+    private static final class DeleteBudget {
+
+        private int remaining;
+
+        DeleteBudget(int remaining) {
+            this.remaining = remaining;
+        }
+
+        boolean tryAcquire() {
+            if (remaining <= 0) {
+                return false;
+            }
+            remaining--;
+            return true;
+        }
+
+        boolean exhausted() {
+            return remaining <= 0;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.ImageBlob;
+import com.bulletinboard.exception.PayloadTooLargeException;
+import com.bulletinboard.exception.UnsupportedMediaTypeException;
+import com.bulletinboard.repository.AdImageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * One-off migration of the per-ad upload layout ({@code /uploads/{adId}/uuid.ext})
+ * into the content-addressed store. Enable with
+ * {@code --app.images.rehash-on-startup=true}; it is safe to re-run since only
+ * images without a hash are visited. Migrated images go back to PROCESSING
+ * and get their variants regenerated by the recovery sweep.
+ */
+@Component
+@ConditionalOnProperty(name = "app.images.rehash-on-startup", havingValue = "true")
+public class UploadRehashRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadRehashRunner.class);
+
+    @Value("${app.upload-dir}")
+    private String uploadDir;
+
+    @Value("${app.images.rehash-batch-size:100}")
+    private int batchSize;
+
+    private final AdImageRepository adImageRepository;
+    private final ContentAddressedStore contentStore;
+    private final ImageProcessingService imageProcessingService;
+    private final TransactionTemplate transactionTemplate;
+
+    public UploadRehashRunner(AdImageRepository adImageRepository, ContentAddressedStore contentStore,
+                              ImageProcessingService imageProcessingService, TransactionTemplate transactionTemplate) {
+        this.adImageRepository = adImageRepository;
+        this.contentStore = contentStore;
+        this.imageProcessingService = imageProcessingService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        long afterId = 0;
+        int migrated = 0;
+        int missing = 0;
+        int rejected = 0;
+
+        List<AdImage> batch;
+        while (!(batch = adImageRepository.findLegacyAfter(afterId, batchSize)).isEmpty()) {
+            for (AdImage image : batch) {
+                afterId = image.getId();
+                Path legacy = contentStore.legacyPath(image.getUrl());
+                if (!Files.exists(legacy)) {
+                    missing++;
+                    continue;
+                }
+
+                StagedUpload staged;
+                try (InputStream in = Files.newInputStream(legacy)) {
+                    staged = contentStore.stage(in);
+                } catch (UnsupportedMediaTypeException | PayloadTooLargeException e) {
+                    log.warn("Skipping image {} ({}): {}", image.getId(), image.getUrl(), e.getMessage());
+                    rejected++;
+                    continue;
+                }
+
+                boolean relinked;
+                try {
+                    relinked = relink(image, staged);
+                } finally {
+                    staged.discard();
+                }
+                if (!relinked) {
+                    // Deleted meanwhile; its own delete handled the legacy file
+                    missing++;
+                    continue;
+                }
+
+                Files.deleteIfExists(legacy);
+                imageProcessingService.deleteVariants(image.getUrl());
+                migrated++;
+            }
+            log.info("Rehashed {} images so far (last id {})", migrated, afterId);
+        }
+
+        removeEmptyAdDirectories();
+        log.info("Upload rehash finished: {} migrated, {} missing on disk, {} rejected", migrated, missing, rejected);
+    }
+
+    /**
+     * Points the image at the stored blob. The blob is locked in the same
+     * transaction, as {@link AdImageService} does, so the garbage collector
+     * cannot delete it before the image references it; a blob this call
+     * registered is released again if the image ends up not referencing it.
+     */
+    private boolean relink(AdImage image, StagedUpload staged) throws IOException {
+        StoredBlob stored = contentStore.store(staged);
+        boolean relinked = false;
+        try {
+            relinked = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                ImageBlob blob = reference(stored);
+                return adImageRepository.relinkToBlob(image.getId(), blob.getSha256(), blob.getUrl());
+            }));
+        } finally {
+            if (!relinked && stored.created()) {
+                contentStore.release(stored.blob().getSha256());
+            }
+        }
+        return relinked;
+    }
+
+    private ImageBlob reference(StoredBlob stored) {
+        try {
+            return contentStore.reference(stored);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void removeEmptyAdDirectories() throws IOException {
+        Path root = Paths.get(uploadDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> children = Files.list(root)) {
+            children.filter(Files::isDirectory)
+                    .filter(dir -> dir.getFileName().toString().chars().allMatch(Character::isDigit))
+                    .forEach(dir -> {
+                        try {
+                            Files.deleteIfExists(dir);
+                        } catch (DirectoryNotEmptyException e) {
+                            // Still holds files that are not referenced by any image
+                        } catch (IOException e) {
+                            log.warn("Could not remove {}", dir, e);
+                        }
+                    });
+        }
+    }
+}
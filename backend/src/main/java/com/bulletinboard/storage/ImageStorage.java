@@ -0,0 +1,84 @@
+package com.bulletinboard.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where image originals and their variants live. Objects are addressed by
+ * keys relative to the upload root ({@code cas/ab/cd/<sha>.jpg}); the public
+ * URL of a key is always {@code /uploads/<key>}.
+ * <p>
+ * Implementations must make {@link #put} atomic from a reader's point of
+ * view: an object is either absent or complete.
+ */
+public interface ImageStorage {
+
+    String URL_PREFIX = "/uploads/";
+
+    static String keyOf(String url) {
+        return url.startsWith(URL_PREFIX) ? url.substring(URL_PREFIX.length()) : url;
+    }
+
+    Optional<StoredObject> stat(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    /**
+     * Stores a local file under the key, replacing any existing object. The
+     * source file is consumed: it is moved into place or deleted afterwards.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Makes the object available as a local file for code that needs random
+     * access, such as the image decoder. Close the handle when done.
+     */
+    StorageFile fetch(String key) throws IOException;
+
+    InputStream openRange(String key, long offset, long length) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Names of the immediate sub-directories (or common prefixes) under the
+     * prefix, sorted.
+     */
+    List<String> listDirectories(String prefix) throws IOException;
+
+    /**
+     * Objects directly under the prefix, not recursing into sub-directories.
+     */
+    List<StoredObject> listObjects(String prefix) throws IOException;
+
+    /**
+     * Removes an empty directory left behind by deletions. Stores without
+     * real directories have nothing to do.
+     */
+    default void pruneDirectory(String prefix) throws IOException {
+    }
+
+    /**
+     * Location clients should fetch the object from directly, bypassing the
+     * application. Empty when the application serves the bytes itself.
+     */
+    default Optional<URI> redirectUrl(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * Pre-signed request that lets a client upload the object straight to the
+     * store. The checksum is bound into the signature, so the store rejects a
+     * body that does not match the announced hash. Empty when unsupported.
+     */
+    default Optional<PresignedUpload> presignUpload(String key, String contentType, long size,
+                                                    String sha256Base64, Duration ttl) {
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,11 @@
+package com.bulletinboard.storage;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A signed request the client has to replay as-is, including every header.
+ */
+public record PresignedUpload(URI url, String method, Map<String, String> headers, Instant expiresAt) {
+}
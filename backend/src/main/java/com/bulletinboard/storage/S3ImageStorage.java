@@ -0,0 +1,495 @@
+package com.bulletinboard.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores objects in an S3-compatible bucket (AWS S3, MinIO, ...), so any
+ * number of backend replicas can share them. Reads are answered with a
+ * redirect to the bucket, and clients can upload straight to it with a
+ * pre-signed PUT; neither path streams image bytes through the JVM.
+ * <p>
+ * Objects above the part size are written with a multipart upload whose
+ * parts are sent in parallel.
+ */
+public class S3ImageStorage implements ImageStorage, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(S3ImageStorage.class);
+
+    /**
+     * S3 rejects parts smaller than this, except for the last one.
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final Settings settings;
+    private final S3Client client;
+    private final S3Presigner presigner;
+    private final ExecutorService partExecutor;
+
+    public S3ImageStorage(Settings settings) {
+        this.settings = settings;
+
+        AwsCredentialsProvider credentials = settings.accessKey() == null || settings.accessKey().isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(settings.accessKey(), settings.secretKey()));
+        Region region = Region.of(settings.region());
+
+        S3ClientBuilder clientBuilder = S3Client.builder()
+                .region(region)
+                .credentialsProvider(credentials)
+                .forcePathStyle(settings.pathStyle());
+        S3Presigner.Builder presignerBuilder = S3Presigner.builder()
+                .region(region)
+                .credentialsProvider(credentials)
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(settings.pathStyle()).build());
+        if (settings.endpoint() != null && !settings.endpoint().isBlank()) {
+            clientBuilder.endpointOverride(URI.create(settings.endpoint()));
+            presignerBuilder.endpointOverride(URI.create(settings.endpoint()));
+        }
+        this.client = clientBuilder.build();
+        this.presigner = presignerBuilder.build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.partExecutor = Executors.newFixedThreadPool(settings.partThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "s3-part-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the bucket if it does not exist yet; meant for local setups.
+     */
+    public void ensureBucket() {
+        try {
+            client.headBucket(HeadBucketRequest.builder().bucket(settings.bucket()).build());
+        } catch (NoSuchBucketException e) {
+            client.createBucket(CreateBucketRequest.builder().bucket(settings.bucket()).build());
+        } catch (S3Exception e) {
+            if (e.statusCode() != 404) {
+                throw e;
+            }
+            client.createBucket(CreateBucketRequest.builder().bucket(settings.bucket()).build());
+        }
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(HeadObjectRequest.builder()
+                    .bucket(settings.bucket())
+                    .key(key)
+                    .build());
+            return Optional.of(new StoredObject(key, head.contentLength(), head.lastModified()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("HEAD " + key + " failed", e);
+        }
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        try {
+            long size = Files.size(source);
+            if (size > settings.partSize()) {
+                putMultipart(key, source, size, contentType);
+            } else {
+                client.putObject(PutObjectRequest.builder()
+                                .bucket(settings.bucket())
+                                .key(key)
+                                .contentType(contentType)
+                                .build(),
+                        RequestBody.fromFile(source));
+            }
+        } catch (SdkException e) {
+            throw new IOException("PUT " + key + " failed", e);
+        } finally {
+            Files.deleteIfExists(source);
+        }
+    }
+
+    private void putMultipart(String key, Path source, long size, String contentType) throws IOException {
+        String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(settings.bucket())
+                        .key(key)
+                        .contentType(contentType)
+                        .build())
+                .uploadId();
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        boolean completed = false;
+        try {
+            long partSize = settings.partSize();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long length = Math.min(partSize, size - offset);
+                long partOffset = offset;
+                int number = partNumber;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    if (failed.get()) {
+                        throw new CancellationException("Multipart PUT " + key + " failed");
+                    }
+                    return uploadPart(key, uploadId, number, source, partOffset, length);
+                }, partExecutor).whenComplete((part, e) -> {
+                    if (e != null) {
+                        // Parts still queued need not be sent any more
+                        failed.set(true);
+                    }
+                }));
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>();
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+            client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(settings.bucket())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+            completed = true;
+        } catch (CompletionException e) {
+            Throwable cause = failureOf(parts, e);
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Multipart PUT " + key + " failed", cause);
+        } catch (SdkException e) {
+            throw new IOException("Multipart PUT " + key + " failed", e);
+        } finally {
+            if (!completed) {
+                abortMultipart(key, uploadId, parts, failed);
+            }
+        }
+    }
+
+    /**
+     * The part that made the others skip, which need not be the first one
+     * joined.
+     */
+    private static Throwable failureOf(List<CompletableFuture<CompletedPart>> parts, CompletionException joined) {
+        for (CompletableFuture<CompletedPart> part : parts) {
+            if (part.isCompletedExceptionally()) {
+                try {
+                    part.join();
+                } catch (CompletionException e) {
+                    if (!(e.getCause() instanceof CancellationException)) {
+                        return e.getCause();
+                    }
+                }
+            }
+        }
+        return joined.getCause();
+    }
+
+    /**
+     * Parts still queued are skipped and parts in flight are waited for, so
+     * none of them lands after the abort and stays stored (and billed) as
+     * part of an upload that no longer exists.
+     */
+    private void abortMultipart(String key, String uploadId, List<CompletableFuture<CompletedPart>> parts,
+                                AtomicBoolean failed) {
+        failed.set(true);
+        CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .join();
+        try {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(settings.bucket())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (SdkException e) {
+            log.warn("Could not abort multipart upload {} of {}", uploadId, key, e);
+        }
+    }
+
+    /**
+     * Streams one part straight from the file; retries of the request open
+     * the slice again.
+     */
+    private CompletedPart uploadPart(String key, String uploadId, int partNumber, Path source, long offset, long length) {
+        UploadPartResponse response = client.uploadPart(UploadPartRequest.builder()
+                        .bucket(settings.bucket())
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength(length)
+                        .build(),
+                RequestBody.fromContentProvider(() -> openSlice(source, offset, length), length,
+                        "application/octet-stream"));
+        return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+    }
+
+    private static InputStream openSlice(Path source, long offset, long length) {
+        try {
+            return new FileSliceInputStream(FileChannel.open(source, StandardOpenOption.READ), offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public StorageFile fetch(String key) throws IOException {
+        Path temp = Files.createTempFile("s3-image-", ".tmp");
+        try (InputStream in = open(key, null)) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new StorageFile() {
+            @Override
+            public Path path() {
+                return temp;
+            }
+
+            @Override
+            public void close() {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Lives in the system temp dir
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream openRange(String key, long offset, long length) throws IOException {
+        return open(key, "bytes=" + offset + "-" + (offset + length - 1));
+    }
+
+    private ResponseInputStream<GetObjectResponse> open(String key, String range) throws IOException {
+        try {
+            return client.getObject(GetObjectRequest.builder()
+                    .bucket(settings.bucket())
+                    .key(key)
+                    .range(range)
+                    .build());
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        } catch (S3Exception e) {
+            throw new IOException("GET " + key + " failed", e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(settings.bucket())
+                    .key(key)
+                    .build());
+        } catch (S3Exception e) {
+            throw new IOException("DELETE " + key + " failed", e);
+        }
+    }
+
+    @Override
+    public List<String> listDirectories(String prefix) throws IOException {
+        String normalized = directoryPrefix(prefix);
+        List<String> names = new ArrayList<>();
+        try {
+            for (ListObjectsV2Response page : client.listObjectsV2Paginator(listRequest(normalized))) {
+                for (CommonPrefix common : page.commonPrefixes()) {
+                    String name = common.prefix().substring(normalized.length());
+                    name = name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+                    if (!name.isEmpty() && !name.startsWith(".")) {
+                        names.add(name);
+                    }
+                }
+            }
+        } catch (S3Exception e) {
+            throw new IOException("LIST " + normalized + " failed", e);
+        }
+        names.sort(null);
+        return names;
+    }
+
+    @Override
+    public List<StoredObject> listObjects(String prefix) throws IOException {
+        String normalized = directoryPrefix(prefix);
+        List<StoredObject> objects = new ArrayList<>();
+        try {
+            for (ListObjectsV2Response page : client.listObjectsV2Paginator(listRequest(normalized))) {
+                for (S3Object object : page.contents()) {
+                    objects.add(new StoredObject(object.key(), object.size(), object.lastModified()));
+                }
+            }
+        } catch (S3Exception e) {
+            throw new IOException("LIST " + normalized + " failed", e);
+        }
+        return objects;
+    }
+
+    @Override
+    public Optional<URI> redirectUrl(String key) {
+        if (settings.publicBaseUrl() != null && !settings.publicBaseUrl().isBlank()) {
+            String base = settings.publicBaseUrl();
+            return Optional.of(URI.create(base.endsWith("/") ? base + key : base + "/" + key));
+        }
+        GetObjectPresignRequest request = GetObjectPresignRequest.builder()
+                .signatureDuration(settings.presignTtl())
+                .getObjectRequest(GetObjectRequest.builder().bucket(settings.bucket()).key(key).build())
+                .build();
+        return Optional.of(toUri(presigner.presignGetObject(request).url()));
+    }
+
+    @Override
+    public Optional<PresignedUpload> presignUpload(String key, String contentType, long size,
+                                                   String sha256Base64, Duration ttl) {
+        PutObjectPresignRequest request = PutObjectPresignRequest.builder()
+                .signatureDuration(ttl)
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(settings.bucket())
+                        .key(key)
+                        .contentType(contentType)
+                        .contentLength(size)
+                        .checksumSHA256(sha256Base64)
+                        .build())
+                .build();
+        PresignedPutObjectRequest presigned = presigner.presignPutObject(request);
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        presigned.signedHeaders().forEach((name, values) -> {
+            // Browsers set these themselves
+            if (!name.equalsIgnoreCase("host") && !name.equalsIgnoreCase("content-length")) {
+                headers.put(name, String.join(",", values));
+            }
+        });
+        return Optional.of(new PresignedUpload(toUri(presigned.url()), presigned.httpRequest().method().name(),
+                headers, presigned.expiration()));
+    }
+
+    @Override
+    public void close() {
+        partExecutor.shutdown();
+        presigner.close();
+        client.close();
+    }
+
+    private ListObjectsV2Request listRequest(String prefix) {
+        return ListObjectsV2Request.builder()
+                .bucket(settings.bucket())
+                .prefix(prefix)
+                .delimiter("/")
+                .build();
+    }
+
+    private static String directoryPrefix(String prefix) {
+        return prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    private static URI toUri(URL url) {
+        try {
+            return url.toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads {@code length} bytes of a file from {@code offset} with positional
+     * reads, so parts of one file can be read concurrently.
+     */
+    private static final class FileSliceInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        FileSliceInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of file at " + position);
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    public record Settings(String endpoint, String region, String bucket, String accessKey, String secretKey,
+                           boolean pathStyle, String publicBaseUrl, Duration presignTtl, long partSize,
+                           int partThreads) {
+
+        public Settings {
+            if (partSize < MIN_PART_SIZE) {
+                throw new IllegalArgumentException("S3 part size must be at least " + MIN_PART_SIZE + " bytes");
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.bulletinboard.storage;
+
+import java.nio.file.Path;
+
+/**
+ * Local view of a stored object. For remote stores this is a temporary
+ * download that is removed on close.
+ */
+public interface StorageFile extends AutoCloseable {
+
+    Path path();
+
+    @Override
+    void close();
+}
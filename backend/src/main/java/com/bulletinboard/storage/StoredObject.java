@@ -0,0 +1,10 @@
+package com.bulletinboard.storage;
+
+import java.time.Instant;
+
+public record StoredObject(String key, long size, Instant lastModified) {
+
+    public String name() {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,239 @@
+-- Range partitioning of ads by created_at, one partition per month. ad_images
+-- carries the created_at of its ad (ad_created_at) and is partitioned the same
+-- way, so an ad and its images always live in partitions of the same month.
+--
+-- The conversion is online: the partitioned tables are built next to the live
+-- ones, kept in sync by triggers and filled in batches by
+-- ads_partitioning_copy_batch(). ads_partitioning_finish() then swaps them in
+-- under a short exclusive lock. Small databases are converted right here;
+-- larger ones are copied by the application (AdPartitionMaintenance).
+
+-- Written by the application from now on; filled in for older rows by the copy
+ALTER TABLE ad_images ADD COLUMN ad_created_at TIMESTAMP;
+
+CREATE TABLE ads_partitioned
+(
+    LIKE ads INCLUDING DEFAULTS,
+    PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_ads_category_partitioned FOREIGN KEY (category_id) REFERENCES categories (id)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE ads_default PARTITION OF ads_partitioned DEFAULT;
+
+-- Unique indexes must contain created_at, so edit_token is no longer UNIQUE;
+-- tokens are 256-bit random values.
+CREATE INDEX idx_ads_part_created_at ON ads_partitioned (created_at);
+CREATE INDEX idx_ads_part_status_created_at ON ads_partitioned (status, created_at);
+CREATE INDEX idx_ads_part_category_created_at ON ads_partitioned (category_id, created_at);
+CREATE INDEX idx_ads_part_ip_created_at ON ads_partitioned (created_ip, created_at);
+CREATE INDEX idx_ads_part_area ON ads_partitioned (area);
+CREATE INDEX idx_ads_part_price_period ON ads_partitioned (price_period);
+CREATE INDEX idx_ads_part_edit_token ON ads_partitioned (edit_token);
+CREATE INDEX idx_ads_part_archivable ON ads_partitioned (updated_at) WHERE status IN ('EXPIRED', 'DELETED');
+
+CREATE TABLE ad_images_partitioned
+(
+    LIKE ad_images INCLUDING DEFAULTS,
+    PRIMARY KEY (id, ad_created_at),
+    CONSTRAINT fk_ad_images_blob_partitioned FOREIGN KEY (sha256) REFERENCES image_blobs (sha256)
+) PARTITION BY RANGE (ad_created_at);
+
+ALTER TABLE ad_images_partitioned ALTER COLUMN ad_id SET NOT NULL;
+ALTER TABLE ad_images_partitioned ALTER COLUMN ad_created_at SET NOT NULL;
+
+CREATE TABLE ad_images_default PARTITION OF ad_images_partitioned DEFAULT;
+
+CREATE INDEX idx_ad_images_part_ad_id ON ad_images_partitioned (ad_id, position);
+CREATE INDEX idx_ad_images_part_sha256 ON ad_images_partitioned (sha256);
+CREATE INDEX idx_ad_images_part_processing ON ad_images_partitioned (created_at) WHERE status = 'PROCESSING';
+CREATE INDEX idx_ad_images_part_placeholder_missing ON ad_images_partitioned (id)
+    WHERE placeholder IS NULL AND status = 'READY';
+
+-- Creates the monthly partitions ads_YYYY_MM and ad_images_YYYY_MM for every
+-- month from p_from up to (excluding) p_to. A month whose rows already sit in
+-- the default partition is skipped with a warning.
+CREATE FUNCTION create_ads_partitions(p_from DATE, p_to DATE) RETURNS INT AS
+$$
+DECLARE
+    ads_table    TEXT := CASE WHEN to_regclass('ads_partitioned') IS NULL THEN 'ads' ELSE 'ads_partitioned' END;
+    images_table TEXT := CASE WHEN to_regclass('ad_images_partitioned') IS NULL THEN 'ad_images' ELSE 'ad_images_partitioned' END;
+    m            DATE := date_trunc('month', p_from)::date;
+    suffix       TEXT;
+    created      INT  := 0;
+BEGIN
+    WHILE m < p_to
+        LOOP
+            suffix := to_char(m, 'YYYY_MM');
+            IF to_regclass('ads_' || suffix) IS NULL THEN
+                BEGIN
+                    EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                                   'ads_' || suffix, ads_table, m, (m + INTERVAL '1 month')::date);
+                    EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                                   'ad_images_' || suffix, images_table, m, (m + INTERVAL '1 month')::date);
+                    created := created + 1;
+                EXCEPTION
+                    WHEN check_violation THEN
+                        RAISE WARNING 'Default partition holds rows of %, partition not created', suffix;
+                END;
+            END IF;
+            m := (m + INTERVAL '1 month')::date;
+        END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_ads_partitions(COALESCE((SELECT min(created_at) FROM ads), now())::date,
+                             (date_trunc('month', now()) + INTERVAL '4 months')::date);
+
+-- Writes to the live tables are repeated on the partitioned ones. Updates are
+-- a delete plus insert, which is fine as long as nothing references the
+-- partitioned tables.
+CREATE FUNCTION ads_partitioning_mirror() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM ads_partitioned WHERE id = OLD.id AND created_at = OLD.created_at;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO ads_partitioned VALUES (NEW.*) ON CONFLICT DO NOTHING;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_ads_partitioning_mirror
+    AFTER INSERT OR UPDATE OR DELETE ON ads
+    FOR EACH ROW
+EXECUTE FUNCTION ads_partitioning_mirror();
+
+CREATE FUNCTION ad_images_partitioning_mirror() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        DELETE FROM ad_images_partitioned WHERE id = OLD.id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        -- Local copy only; the row in ad_images is not changed
+        NEW.ad_created_at := COALESCE(NEW.ad_created_at, (SELECT created_at FROM ads WHERE id = NEW.ad_id));
+        INSERT INTO ad_images_partitioned VALUES (NEW.*) ON CONFLICT DO NOTHING;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_ad_images_partitioning_mirror
+    AFTER INSERT OR UPDATE OR DELETE ON ad_images
+    FOR EACH ROW
+EXECUTE FUNCTION ad_images_partitioning_mirror();
+
+CREATE TABLE ads_partitioning_progress
+(
+    last_id BIGINT NOT NULL
+);
+
+INSERT INTO ads_partitioning_progress VALUES (0);
+
+-- Copies the next p_limit ads (by id) and their images. The source rows are
+-- locked FOR SHARE, so a concurrent update or delete either waits for the copy
+-- or is seen by it. Returns the number of ads copied, 0 when everything is
+-- copied and -1 when another session is copying.
+CREATE FUNCTION ads_partitioning_copy_batch(p_limit INT) RETURNS INT AS
+$$
+DECLARE
+    after_id BIGINT;
+    ids      BIGINT[];
+BEGIN
+    IF to_regclass('ads_partitioned') IS NULL THEN
+        RETURN 0;
+    END IF;
+    IF NOT pg_try_advisory_xact_lock(hashtext('ads_partitioning')) THEN
+        RETURN -1;
+    END IF;
+
+    SELECT last_id INTO after_id FROM ads_partitioning_progress;
+    SELECT array_agg(id ORDER BY id)
+    INTO ids
+    FROM (SELECT id FROM ads WHERE id > after_id ORDER BY id LIMIT p_limit FOR SHARE) batch;
+    IF ids IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    INSERT INTO ads_partitioned
+    SELECT * FROM ads WHERE id = ANY (ids)
+    ON CONFLICT DO NOTHING;
+
+    INSERT INTO ad_images_partitioned (id, ad_id, url, position, created_at, status, thumbnail_url, card_url,
+                                       full_url, sha256, placeholder, ad_created_at)
+    SELECT i.id, i.ad_id, i.url, i.position, i.created_at, i.status, i.thumbnail_url, i.card_url,
+           i.full_url, i.sha256, i.placeholder, a.created_at
+    FROM ad_images i
+             JOIN ads a ON a.id = i.ad_id
+    WHERE i.ad_id = ANY (ids)
+    FOR SHARE OF i
+    ON CONFLICT DO NOTHING;
+
+    UPDATE ads_partitioning_progress SET last_id = ids[array_length(ids, 1)];
+    RETURN array_length(ids, 1);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Replaces ads and ad_images by their partitioned copies once the copy has
+-- caught up. Runs under an exclusive lock; the only scan it does is the
+-- validation of the new ad_images foreign key. Returns false while rows are
+-- left to copy.
+CREATE FUNCTION ads_partitioning_finish() RETURNS BOOLEAN AS
+$$
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('ads_partitioning'));
+    IF to_regclass('ads_partitioned') IS NULL THEN
+        RETURN TRUE;
+    END IF;
+
+    LOCK TABLE ads, ad_images IN ACCESS EXCLUSIVE MODE;
+    IF EXISTS (SELECT 1 FROM ads WHERE id > (SELECT last_id FROM ads_partitioning_progress)) THEN
+        RETURN FALSE;
+    END IF;
+
+    DROP TRIGGER trg_ads_partitioning_mirror ON ads;
+    DROP TRIGGER trg_ad_images_partitioning_mirror ON ad_images;
+    -- Dropping the old table must not release the blobs it references
+    DROP TRIGGER trg_ad_images_blob_refs ON ad_images;
+
+    ALTER SEQUENCE ads_id_seq OWNED BY ads_partitioned.id;
+    ALTER SEQUENCE ad_images_id_seq OWNED BY ad_images_partitioned.id;
+    DROP TABLE ad_images;
+    DROP TABLE ads;
+    DROP TABLE ads_partitioning_progress;
+    DROP FUNCTION ads_partitioning_mirror();
+    DROP FUNCTION ad_images_partitioning_mirror();
+
+    ALTER TABLE ads_partitioned RENAME TO ads;
+    ALTER TABLE ads RENAME CONSTRAINT ads_partitioned_pkey TO ads_pkey;
+    ALTER TABLE ads RENAME CONSTRAINT fk_ads_category_partitioned TO fk_ads_category;
+    ALTER TABLE ad_images_partitioned RENAME TO ad_images;
+    ALTER TABLE ad_images RENAME CONSTRAINT ad_images_partitioned_pkey TO ad_images_pkey;
+    ALTER TABLE ad_images RENAME CONSTRAINT fk_ad_images_blob_partitioned TO fk_ad_images_blob;
+
+    ALTER TABLE ad_images
+        ADD CONSTRAINT fk_ad_images_ad FOREIGN KEY (ad_id, ad_created_at) REFERENCES ads (id, created_at)
+            ON DELETE CASCADE;
+
+    CREATE TRIGGER trg_ad_images_blob_refs
+        AFTER INSERT OR DELETE OR UPDATE OF sha256 ON ad_images
+        FOR EACH ROW
+    EXECUTE FUNCTION image_blobs_track_refs();
+
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Fresh installs and small databases are converted within this migration
+DO
+$$
+    BEGIN
+        IF (SELECT reltuples FROM pg_class WHERE oid = 'ads'::regclass) < 100000 THEN
+            PERFORM ads_partitioning_copy_batch(2147483647);
+            PERFORM ads_partitioning_finish();
+        END IF;
+    END
+$$;
@@ -0,0 +1,54 @@
+-- Every update of an ad sets updated_at. As long as an index covers that
+-- column no update can be HOT, so the archivable index goes; the archiving
+-- job finds its rows through the status index instead.
+DROP INDEX IF EXISTS idx_ads_part_archivable;
+DROP INDEX IF EXISTS idx_ads_archivable;
+
+-- Leave room on each page for the new versions of updated rows. Partitioned
+-- tables take no storage parameters, so this is set per partition.
+DO
+$$
+    DECLARE
+        part REGCLASS;
+    BEGIN
+        FOR part IN
+            SELECT inhrelid::regclass FROM pg_inherits WHERE inhparent = 'ads'::regclass
+            UNION ALL
+            SELECT 'ads'::regclass FROM pg_class WHERE oid = 'ads'::regclass AND relkind = 'r'
+            UNION ALL
+            SELECT inhrelid::regclass FROM pg_inherits WHERE inhparent = to_regclass('ads_partitioned')
+            LOOP
+                EXECUTE format('ALTER TABLE %s SET (fillfactor = 90)', part);
+            END LOOP;
+    END
+$$;
+
+CREATE OR REPLACE FUNCTION create_ads_partitions(p_from DATE, p_to DATE) RETURNS INT AS
+$$
+DECLARE
+    ads_table    TEXT := CASE WHEN to_regclass('ads_partitioned') IS NULL THEN 'ads' ELSE 'ads_partitioned' END;
+    images_table TEXT := CASE WHEN to_regclass('ad_images_partitioned') IS NULL THEN 'ad_images' ELSE 'ad_images_partitioned' END;
+    m            DATE := date_trunc('month', p_from)::date;
+    suffix       TEXT;
+    created      INT  := 0;
+BEGIN
+    WHILE m < p_to
+        LOOP
+            suffix := to_char(m, 'YYYY_MM');
+            IF to_regclass('ads_' || suffix) IS NULL THEN
+                BEGIN
+                    EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L) WITH (fillfactor = 90)',
+                                   'ads_' || suffix, ads_table, m, (m + INTERVAL '1 month')::date);
+                    EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                                   'ad_images_' || suffix, images_table, m, (m + INTERVAL '1 month')::date);
+                    created := created + 1;
+                EXCEPTION
+                    WHEN check_violation THEN
+                        RAISE WARNING 'Default partition holds rows of %, partition not created', suffix;
+                END;
+            END IF;
+            m := (m + INTERVAL '1 month')::date;
+        END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
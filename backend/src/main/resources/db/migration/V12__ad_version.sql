@@ -0,0 +1,12 @@
+-- Optimistic locking: bumped by every update, exposed as the ETag of an ad
+ALTER TABLE ads ADD COLUMN version INT NOT NULL DEFAULT 0;
+
+-- Still being converted online: the partitioned copy needs the same columns in the same order
+DO
+$$
+    BEGIN
+        IF to_regclass('ads_partitioned') IS NOT NULL THEN
+            ALTER TABLE ads_partitioned ADD COLUMN version INT NOT NULL DEFAULT 0;
+        END IF;
+    END
+$$;
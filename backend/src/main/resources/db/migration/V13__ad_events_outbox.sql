@@ -0,0 +1,127 @@
+-- Transactional outbox of ad, image and category changes. Rows are written by
+-- triggers, so every change lands in the same transaction as the write itself,
+-- whichever path made it (repositories, COPY imports, bulk updates, cascades,
+-- the lifecycle job).
+--
+-- id follows insert order, not commit order, so a reader that resumes from the
+-- last id it saw could skip a row committed late. The sequencer
+-- (ad_events_assign_positions) therefore numbers committed rows in the order
+-- it sees them; consumers read and resume by position, which has no gaps.
+CREATE TABLE ad_events
+(
+    id         BIGSERIAL PRIMARY KEY,
+    -- AD, AD_IMAGE or CATEGORY
+    entity     VARCHAR(20) NOT NULL,
+    entity_id  BIGINT      NOT NULL,
+    -- The ad an AD or AD_IMAGE event belongs to
+    ad_id      BIGINT,
+    -- INSERT, UPDATE or DELETE
+    operation  VARCHAR(10) NOT NULL,
+    -- The row after the change without secrets; NULL for deletes
+    payload    JSONB,
+    position   BIGINT,
+    created_at TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE UNIQUE INDEX idx_ad_events_position ON ad_events (position);
+CREATE INDEX idx_ad_events_unsequenced ON ad_events (id) WHERE position IS NULL;
+
+CREATE TABLE ad_events_sequencer
+(
+    last_position BIGINT NOT NULL
+);
+
+INSERT INTO ad_events_sequencer VALUES (0);
+
+-- Arguments: entity name, and 'shadow' on the partitioned copies of V10 which
+-- must stay quiet until they replace the live tables.
+CREATE FUNCTION ad_events_record() RETURNS trigger AS
+$$
+DECLARE
+    row_data JSONB;
+BEGIN
+    IF TG_ARGV[1] = 'shadow' AND to_regclass('ads_partitioned') IS NOT NULL THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'UPDATE' AND OLD IS NOT DISTINCT FROM NEW THEN
+        RETURN NULL;
+    END IF;
+
+    row_data := to_jsonb(CASE WHEN TG_OP = 'DELETE' THEN OLD ELSE NEW END);
+    INSERT INTO ad_events (entity, entity_id, ad_id, operation, payload)
+    VALUES (TG_ARGV[0],
+            (row_data ->> 'id')::BIGINT,
+            CASE TG_ARGV[0]
+                WHEN 'AD' THEN (row_data ->> 'id')::BIGINT
+                WHEN 'AD_IMAGE' THEN (row_data ->> 'ad_id')::BIGINT
+                END,
+            TG_OP,
+            CASE WHEN TG_OP <> 'DELETE' THEN row_data - 'edit_token' - 'created_ip' END);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_ads_events
+    AFTER INSERT OR UPDATE OR DELETE ON ads
+    FOR EACH ROW
+EXECUTE FUNCTION ad_events_record('AD', 'live');
+
+CREATE TRIGGER trg_ad_images_events
+    AFTER INSERT OR UPDATE OR DELETE ON ad_images
+    FOR EACH ROW
+EXECUTE FUNCTION ad_events_record('AD_IMAGE', 'live');
+
+CREATE TRIGGER trg_categories_events
+    AFTER INSERT OR UPDATE OR DELETE ON categories
+    FOR EACH ROW
+EXECUTE FUNCTION ad_events_record('CATEGORY', 'live');
+
+-- Still being converted online: the partitioned copies take over the triggers
+-- when ads_partitioning_finish() drops the live tables
+DO
+$$
+    BEGIN
+        IF to_regclass('ads_partitioned') IS NOT NULL THEN
+            CREATE TRIGGER trg_ads_events
+                AFTER INSERT OR UPDATE OR DELETE ON ads_partitioned
+                FOR EACH ROW
+            EXECUTE FUNCTION ad_events_record('AD', 'shadow');
+            CREATE TRIGGER trg_ad_images_events
+                AFTER INSERT OR UPDATE OR DELETE ON ad_images_partitioned
+                FOR EACH ROW
+            EXECUTE FUNCTION ad_events_record('AD_IMAGE', 'shadow');
+        END IF;
+    END
+$$;
+
+-- Numbers up to p_limit committed, unnumbered events in id order. Only one
+-- session sequences at a time; returns the number of events numbered, or -1
+-- when another session holds the lock.
+CREATE FUNCTION ad_events_assign_positions(p_limit INT) RETURNS INT AS
+$$
+DECLARE
+    ids  BIGINT[];
+    base BIGINT;
+BEGIN
+    IF NOT pg_try_advisory_xact_lock(hashtext('ad_events_sequencer')) THEN
+        RETURN -1;
+    END IF;
+
+    SELECT array_agg(id ORDER BY id)
+    INTO ids
+    FROM (SELECT id FROM ad_events WHERE position IS NULL ORDER BY id LIMIT p_limit) pending;
+    IF ids IS NULL THEN
+        RETURN 0;
+    END IF;
+
+    UPDATE ad_events_sequencer
+    SET last_position = last_position + array_length(ids, 1)
+    RETURNING last_position - array_length(ids, 1) INTO base;
+
+    UPDATE ad_events e
+    SET position = base + n.ord
+    FROM unnest(ids) WITH ORDINALITY AS n(id, ord)
+    WHERE e.id = n.id;
+    RETURN array_length(ids, 1);
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,40 @@
+-- Views of GET /api/ads/{id}, counted in memory and added in batches by
+-- AdViewCounter. Not indexed, so the periodic increments stay HOT updates.
+ALTER TABLE ads ADD COLUMN view_count BIGINT NOT NULL DEFAULT 0;
+
+DO
+$$
+    BEGIN
+        IF to_regclass('ads_partitioned') IS NOT NULL THEN
+            ALTER TABLE ads_partitioned ADD COLUMN view_count BIGINT NOT NULL DEFAULT 0;
+        END IF;
+    END
+$$;
+
+-- A view count increment is not a change of the ad and is kept out of the outbox
+CREATE OR REPLACE FUNCTION ad_events_record() RETURNS trigger AS
+$$
+DECLARE
+    row_data JSONB;
+BEGIN
+    IF TG_ARGV[1] = 'shadow' AND to_regclass('ads_partitioned') IS NOT NULL THEN
+        RETURN NULL;
+    END IF;
+
+    row_data := to_jsonb(CASE WHEN TG_OP = 'DELETE' THEN OLD ELSE NEW END);
+    IF TG_OP = 'UPDATE' AND to_jsonb(OLD) - 'view_count' = row_data - 'view_count' THEN
+        RETURN NULL;
+    END IF;
+
+    INSERT INTO ad_events (entity, entity_id, ad_id, operation, payload)
+    VALUES (TG_ARGV[0],
+            (row_data ->> 'id')::BIGINT,
+            CASE TG_ARGV[0]
+                WHEN 'AD' THEN (row_data ->> 'id')::BIGINT
+                WHEN 'AD_IMAGE' THEN (row_data ->> 'ad_id')::BIGINT
+                END,
+            TG_OP,
+            CASE WHEN TG_OP <> 'DELETE' THEN row_data - 'edit_token' - 'created_ip' END);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
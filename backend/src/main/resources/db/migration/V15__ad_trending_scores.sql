@@ -0,0 +1,11 @@
+-- Exponentially decayed popularity of ads, shared by all nodes. score is the
+-- value at scored_at; AdTrendingService adds what it counted since its last
+-- refresh, decaying the stored value to the new scored_at first. Rows that
+-- have decayed to nothing are deleted, which keeps the table small enough to
+-- rank with a scan.
+CREATE TABLE ad_trending_scores
+(
+    ad_id     BIGINT PRIMARY KEY,
+    score     DOUBLE PRECISION NOT NULL,
+    scored_at TIMESTAMP        NOT NULL
+);
@@ -0,0 +1,9 @@
+-- Fingerprint of the migration scripts last applied successfully. With
+-- app.flyway.skip-unchanged, nodes whose scripts have the same fingerprint
+-- start without running Flyway's migrate/validate.
+CREATE TABLE schema_fingerprint
+(
+    id          SMALLINT PRIMARY KEY CHECK (id = 1),
+    fingerprint VARCHAR(64) NOT NULL,
+    updated_at  TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
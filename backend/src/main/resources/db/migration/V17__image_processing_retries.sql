@@ -0,0 +1,15 @@
+-- Failed processing attempts of an image and when the recovery sweep of
+-- ImageProcessingService may try again. The image stays PROCESSING between
+-- attempts and becomes FAILED once app.images.processing.max-attempts is used up.
+ALTER TABLE ad_images ADD COLUMN processing_attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE ad_images ADD COLUMN processing_retry_at TIMESTAMP;
+
+DO
+$$
+    BEGIN
+        IF to_regclass('ad_images_partitioned') IS NOT NULL THEN
+            ALTER TABLE ad_images_partitioned ADD COLUMN processing_attempts INT NOT NULL DEFAULT 0;
+            ALTER TABLE ad_images_partitioned ADD COLUMN processing_retry_at TIMESTAMP;
+        END IF;
+    END
+$$;
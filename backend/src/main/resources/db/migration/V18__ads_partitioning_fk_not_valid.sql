@@ -0,0 +1,113 @@
+-- ads_partitioning_finish() used to add fk_ad_images_ad with a full
+-- validation scan of ad_images while holding ACCESS EXCLUSIVE on ads and
+-- ad_images. V10 has been applied already, so the functions are replaced here.
+--
+-- PostgreSQL rejects NOT VALID foreign keys on a partitioned table, so the swap
+-- now adds the constraint NOT VALID to each ad_images partition. Afterwards
+-- ads_partitioning_validate_step() validates one partition per call, which
+-- only takes SHARE UPDATE EXCLUSIVE and lets writes through, and finally adds
+-- the constraint to ad_images itself. That adopts the validated partition
+-- constraints without another scan.
+
+CREATE OR REPLACE FUNCTION ads_partitioning_finish() RETURNS BOOLEAN AS
+$$
+DECLARE
+    part REGCLASS;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('ads_partitioning'));
+    IF to_regclass('ads_partitioned') IS NULL THEN
+        RETURN TRUE;
+    END IF;
+
+    LOCK TABLE ads, ad_images IN ACCESS EXCLUSIVE MODE;
+    IF EXISTS (SELECT 1 FROM ads WHERE id > (SELECT last_id FROM ads_partitioning_progress)) THEN
+        RETURN FALSE;
+    END IF;
+
+    DROP TRIGGER trg_ads_partitioning_mirror ON ads;
+    DROP TRIGGER trg_ad_images_partitioning_mirror ON ad_images;
+    -- Dropping the old table must not release the blobs it references
+    DROP TRIGGER trg_ad_images_blob_refs ON ad_images;
+
+    ALTER SEQUENCE ads_id_seq OWNED BY ads_partitioned.id;
+    ALTER SEQUENCE ad_images_id_seq OWNED BY ad_images_partitioned.id;
+    DROP TABLE ad_images;
+    DROP TABLE ads;
+    DROP TABLE ads_partitioning_progress;
+    DROP FUNCTION ads_partitioning_mirror();
+    DROP FUNCTION ad_images_partitioning_mirror();
+
+    ALTER TABLE ads_partitioned RENAME TO ads;
+    ALTER TABLE ads RENAME CONSTRAINT ads_partitioned_pkey TO ads_pkey;
+    ALTER TABLE ads RENAME CONSTRAINT fk_ads_category_partitioned TO fk_ads_category;
+    ALTER TABLE ad_images_partitioned RENAME TO ad_images;
+    ALTER TABLE ad_images RENAME CONSTRAINT ad_images_partitioned_pkey TO ad_images_pkey;
+    ALTER TABLE ad_images RENAME CONSTRAINT fk_ad_images_blob_partitioned TO fk_ad_images_blob;
+
+    -- Checked for new rows right away, existing rows are validated later
+    FOR part IN SELECT inhrelid::regclass FROM pg_inherits WHERE inhparent = 'ad_images'::regclass
+        LOOP
+            EXECUTE format('ALTER TABLE %s ADD CONSTRAINT fk_ad_images_ad FOREIGN KEY (ad_id, ad_created_at) '
+                               'REFERENCES ads (id, created_at) ON DELETE CASCADE NOT VALID', part);
+        END LOOP;
+
+    CREATE TRIGGER trg_ad_images_blob_refs
+        AFTER INSERT OR DELETE OR UPDATE OF sha256 ON ad_images
+        FOR EACH ROW
+    EXECUTE FUNCTION image_blobs_track_refs();
+
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- One step towards a validated fk_ad_images_ad after the swap: constrains a
+-- partition created since then, or validates one partition, or, once all
+-- partitions are valid, adds the constraint to ad_images. Returns true when
+-- ad_images has the constraint, false while steps are left or another session
+-- is working on it.
+CREATE FUNCTION ads_partitioning_validate_step() RETURNS BOOLEAN AS
+$$
+DECLARE
+    part REGCLASS;
+BEGIN
+    IF to_regclass('ads_partitioned') IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    IF EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'ad_images'::regclass AND conname = 'fk_ad_images_ad') THEN
+        RETURN TRUE;
+    END IF;
+    IF NOT pg_try_advisory_xact_lock(hashtext('ads_partitioning')) THEN
+        RETURN FALSE;
+    END IF;
+
+    SELECT i.inhrelid::regclass
+    INTO part
+    FROM pg_inherits i
+    WHERE i.inhparent = 'ad_images'::regclass
+      AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conrelid = i.inhrelid AND c.conname = 'fk_ad_images_ad')
+    LIMIT 1;
+    IF part IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE %s ADD CONSTRAINT fk_ad_images_ad FOREIGN KEY (ad_id, ad_created_at) '
+                           'REFERENCES ads (id, created_at) ON DELETE CASCADE NOT VALID', part);
+        RETURN FALSE;
+    END IF;
+
+    SELECT c.conrelid::regclass
+    INTO part
+    FROM pg_constraint c
+             JOIN pg_inherits i ON i.inhrelid = c.conrelid
+    WHERE i.inhparent = 'ad_images'::regclass
+      AND c.conname = 'fk_ad_images_ad'
+      AND NOT c.convalidated
+    LIMIT 1;
+    IF part IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE %s VALIDATE CONSTRAINT fk_ad_images_ad', part);
+        RETURN FALSE;
+    END IF;
+
+    ALTER TABLE ad_images
+        ADD CONSTRAINT fk_ad_images_ad FOREIGN KEY (ad_id, ad_created_at) REFERENCES ads (id, created_at)
+            ON DELETE CASCADE;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
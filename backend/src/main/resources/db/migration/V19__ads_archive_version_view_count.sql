@@ -0,0 +1,4 @@
+-- Columns ads gained after the archive was created (V12, V14), so archived
+-- ads keep their version and view count
+ALTER TABLE ads_archive ADD COLUMN version INT NOT NULL DEFAULT 0;
+ALTER TABLE ads_archive ADD COLUMN view_count BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+ALTER TABLE ad_images ADD COLUMN status VARCHAR(20) NOT NULL DEFAULT 'PROCESSING';
+ALTER TABLE ad_images ADD COLUMN thumbnail_url TEXT;
+ALTER TABLE ad_images ADD COLUMN card_url TEXT;
+ALTER TABLE ad_images ADD COLUMN full_url TEXT;
+
+-- Existing images are picked up by the recovery sweep and get their variants generated
+CREATE INDEX idx_ad_images_processing ON ad_images(created_at) WHERE status = 'PROCESSING';
@@ -0,0 +1,33 @@
+CREATE TABLE image_blobs
+(
+    sha256       VARCHAR(64) PRIMARY KEY,
+    url          TEXT        NOT NULL,
+    size_bytes   BIGINT      NOT NULL,
+    content_type VARCHAR(50) NOT NULL,
+    ref_count    INT         NOT NULL DEFAULT 0,
+    created_at   TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER TABLE ad_images ADD COLUMN sha256 VARCHAR(64) REFERENCES image_blobs (sha256);
+
+CREATE INDEX idx_ad_images_sha256 ON ad_images(sha256);
+CREATE INDEX idx_image_blobs_unreferenced ON image_blobs(created_at) WHERE ref_count = 0;
+
+-- Reference counts follow ad_images rows, including rows removed by ON DELETE CASCADE
+CREATE FUNCTION image_blobs_track_refs() RETURNS trigger AS
+$$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.sha256 IS NOT NULL THEN
+        UPDATE image_blobs SET ref_count = ref_count - 1 WHERE sha256 = OLD.sha256;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.sha256 IS NOT NULL THEN
+        UPDATE image_blobs SET ref_count = ref_count + 1 WHERE sha256 = NEW.sha256;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_ad_images_blob_refs
+    AFTER INSERT OR DELETE OR UPDATE OF sha256 ON ad_images
+    FOR EACH ROW
+EXECUTE FUNCTION image_blobs_track_refs();
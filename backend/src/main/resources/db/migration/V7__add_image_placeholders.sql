@@ -0,0 +1,5 @@
+-- BlurHash of the image, rendered by clients while the real image loads
+ALTER TABLE ad_images ADD COLUMN placeholder VARCHAR(64);
+
+-- Backfill of images that were processed before placeholders existed
+CREATE INDEX idx_ad_images_placeholder_missing ON ad_images(id) WHERE placeholder IS NULL AND status = 'READY';
@@ -0,0 +1,15 @@
+-- One row per admin moderation batch, not per ad
+CREATE TABLE moderation_audit
+(
+    id         BIGSERIAL PRIMARY KEY,
+    actor      VARCHAR(255) NOT NULL,
+    action     VARCHAR(20)  NOT NULL,
+    ad_ids     BIGINT[]     NOT NULL,
+    filter     JSONB,
+    requested  INT          NOT NULL,
+    affected   INT          NOT NULL,
+    created_at TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_moderation_audit_created_at ON moderation_audit (created_at);
+CREATE INDEX idx_moderation_audit_ad_ids ON moderation_audit USING GIN (ad_ids);
@@ -0,0 +1,23 @@
+-- Expired and deleted ads are moved here by the lifecycle job. Partitions are
+-- per month of created_at and are created by the job as it needs them.
+CREATE TABLE ads_archive
+(
+    id           BIGINT       NOT NULL,
+    title        VARCHAR(255) NOT NULL,
+    description  TEXT,
+    price        DECIMAL(10, 2),
+    category_id  BIGINT       NOT NULL,
+    status       VARCHAR(20)  NOT NULL,
+    created_at   TIMESTAMP    NOT NULL,
+    updated_at   TIMESTAMP,
+    created_ip   VARCHAR(45),
+    area         VARCHAR(50),
+    price_period VARCHAR(20),
+    edit_token   VARCHAR(64),
+    archived_at  TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Candidates for expiry and archival, kept small by the partial predicates
+CREATE INDEX idx_ads_active_created_at ON ads (created_at) WHERE status = 'ACTIVE';
+CREATE INDEX idx_ads_archivable ON ads (updated_at) WHERE status IN ('EXPIRED', 'DELETED');
@@ -4,6 +4,7 @@ import com.bulletinboard.domain.AdStatus;
 import com.bulletinboard.dto.AdCreateRequest;
 import com.bulletinboard.dto.CategoryRequest;
 import com.bulletinboard.dto.UserRequest;
+import com.bulletinboard.service.AdViewCounter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -53,6 +54,9 @@ class AdSearchIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AdViewCounter adViewCounter;
+
     private Long categoryId;
     private Long userId;
 
@@ -311,11 +315,32 @@ class AdSearchIntegrationTest {
                 .andExpect(jsonPath("$.content[1].title").value("First Ad"));
     }
 
-    private void createTestAd(String title, String description, BigDecimal price) throws Exception {
-        createTestAdWithCategory(title, description, price, categoryId);
+    @Test
+    void searchAds_shouldSortByViews() throws Exception {
+        Long rarelyViewed = createTestAd("Rarely viewed", "One view", new BigDecimal("100.00"));
+        Long oftenViewed = createTestAd("Often viewed", "Two views", new BigDecimal("200.00"));
+
+        mockMvc.perform(get("/api/ads/" + rarelyViewed)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/ads/" + oftenViewed)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/ads/" + oftenViewed)).andExpect(status().isOk());
+        adViewCounter.flush();
+
+        mockMvc.perform(get("/api/ads/search")
+                        .param("status", "ACTIVE")
+                        .param("sortBy", "views")
+                        .param("categoryId", categoryId.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").value("Often viewed"))
+                .andExpect(jsonPath("$.content[0].viewCount").value(2))
+                .andExpect(jsonPath("$.content[1].title").value("Rarely viewed"))
+                .andExpect(jsonPath("$.content[1].viewCount").value(1));
+    }
+
+    private Long createTestAd(String title, String description, BigDecimal price) throws Exception {
+        return createTestAdWithCategory(title, description, price, categoryId);
     }
 
-    private void createTestAdWithCategory(String title, String description, BigDecimal price, Long catId) throws Exception {
+    private Long createTestAdWithCategory(String title, String description, BigDecimal price, Long catId) throws Exception {
         AdCreateRequest request = new AdCreateRequest();
         request.setTitle(title);
         request.setDescription(description);
@@ -323,9 +348,11 @@ class AdSearchIntegrationTest {
         request.setCategoryId(catId);
         request.setUserId(userId);
 
-        mockMvc.perform(post("/api/ads")
+        MvcResult result = mockMvc.perform(post("/api/ads")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isCreated());
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
     }
 }
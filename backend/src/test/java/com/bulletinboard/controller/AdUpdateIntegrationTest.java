@@ -0,0 +1,159 @@
+package com.bulletinboard.controller;
+
+import com.bulletinboard.dto.AdCreateRequest;
+import com.bulletinboard.dto.AdUpdateRequest;
+import com.bulletinboard.dto.CategoryRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+class AdUpdateIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("antispam.rate-limit.max-ads-per-hour", () -> "1000");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long categoryId;
+    private String editToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        CategoryRequest categoryRequest = new CategoryRequest();
+        categoryRequest.setName("Update Test Category " + System.nanoTime());
+
+        MvcResult categoryResult = mockMvc.perform(post("/api/categories")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(categoryRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        categoryId = objectMapper.readTree(categoryResult.getResponse().getContentAsString()).get("id").asLong();
+
+        AdCreateRequest request = new AdCreateRequest();
+        request.setTitle("Scooter for rent");
+        request.setDescription("Honda Click, helmet included");
+        request.setPrice(new BigDecimal("250.00"));
+        request.setCategoryId(categoryId);
+        request.setUserId(1L);
+
+        MvcResult adResult = mockMvc.perform(post("/api/ads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        editToken = objectMapper.readTree(adResult.getResponse().getContentAsString()).get("editToken").asText();
+    }
+
+    @Test
+    void updateByToken_shouldOnlyChangeGivenFieldsAndBumpVersion() throws Exception {
+        AdUpdateRequest request = new AdUpdateRequest();
+        request.setPrice(new BigDecimal("200.00"));
+
+        mockMvc.perform(put("/api/ads/edit/" + editToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.version").value(1))
+                .andExpect(jsonPath("$.price").value(200.00))
+                .andExpect(jsonPath("$.title").value("Scooter for rent"))
+                .andExpect(jsonPath("$.categoryName").exists())
+                .andExpect(jsonPath("$.images").isArray());
+    }
+
+    @Test
+    void updateByToken_shouldRejectStaleIfMatch() throws Exception {
+        MvcResult loaded = mockMvc.perform(get("/api/ads/edit/" + editToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn();
+        String etag = loaded.getResponse().getHeader(HttpHeaders.ETAG);
+
+        AdUpdateRequest first = new AdUpdateRequest();
+        first.setTitle("Scooter for rent, cheap");
+        mockMvc.perform(put("/api/ads/edit/" + editToken)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(first)))
+                .andExpect(status().isOk());
+
+        AdUpdateRequest second = new AdUpdateRequest();
+        second.setTitle("Scooter for sale");
+        mockMvc.perform(put("/api/ads/edit/" + editToken)
+                        .header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(second)))
+                .andExpect(status().isPreconditionFailed());
+
+        MvcResult current = mockMvc.perform(get("/api/ads/edit/" + editToken))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode ad = objectMapper.readTree(current.getResponse().getContentAsString());
+        assertEquals("Scooter for rent, cheap", ad.get("title").asText());
+    }
+
+    @Test
+    void updateByToken_shouldReturn404ForUnknownCategoryWithoutChangingAd() throws Exception {
+        AdUpdateRequest request = new AdUpdateRequest();
+        request.setTitle("Moved to nowhere");
+        request.setCategoryId(999999L);
+
+        mockMvc.perform(put("/api/ads/edit/" + editToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/api/ads/edit/" + editToken))
+                .andExpect(jsonPath("$.title").value("Scooter for rent"))
+                .andExpect(jsonPath("$.version").value(0));
+    }
+
+    @Test
+    void updateByToken_shouldReturn404ForUnknownToken() throws Exception {
+        AdUpdateRequest request = new AdUpdateRequest();
+        request.setTitle("Nobody owns this");
+
+        mockMvc.perform(put("/api/ads/edit/no-such-token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNotFound());
+    }
+}
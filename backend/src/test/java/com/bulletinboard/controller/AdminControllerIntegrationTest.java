@@ -1,11 +1,19 @@
 package com.bulletinboard.controller;
 
+import com.bulletinboard.domain.Ad;
 import com.bulletinboard.domain.AdStatus;
 import com.bulletinboard.dto.AdCreateRequest;
+import com.bulletinboard.dto.AdSearchRequest;
+import com.bulletinboard.dto.AdminBulkSelection;
+import com.bulletinboard.dto.AdminBulkStatusRequest;
 import com.bulletinboard.dto.AdminStatusUpdateRequest;
 import com.bulletinboard.dto.CategoryRequest;
 import com.bulletinboard.dto.UserRequest;
+import com.bulletinboard.exception.ResourceNotFoundException;
+import com.bulletinboard.repository.AdRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jooq.DSLContext;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,8 +30,12 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.math.BigDecimal;
+import java.util.List;
 
+import static com.bulletinboard.generated.Tables.ADS;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -47,6 +59,7 @@ class AdminControllerIntegrationTest {
         registry.add("spring.flyway.enabled", () -> "true");
         registry.add("admin.username", () -> "admin");
         registry.add("admin.password", () -> "admin123");
+        registry.add("antispam.rate-limit.max-ads-per-hour", () -> "1000");
     }
 
     @Autowired
@@ -55,6 +68,12 @@ class AdminControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private DSLContext dsl;
+
     private Long categoryId;
     private Long userId;
 
@@ -163,6 +182,24 @@ class AdminControllerIntegrationTest {
                 .andExpect(jsonPath("$.status").value("ACTIVE"));
     }
 
+    @Test
+    void updateAdStatus_shouldNotTouchAdWhenStatusIsUnchanged() throws Exception {
+        Long adId = createTestAd("Ad left alone", "Status update to the same value", new BigDecimal("100.00"));
+
+        AdminStatusUpdateRequest request = new AdminStatusUpdateRequest(AdStatus.ACTIVE);
+
+        MvcResult result = mockMvc.perform(put("/api/admin/ads/" + adId + "/status")
+                        .with(httpBasic("admin", "admin123"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("ACTIVE"))
+                .andReturn();
+
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertThat(body.get("updatedAt"), equalTo(body.get("createdAt")));
+    }
+
     @Test
     void deleteAd_shouldSoftDeleteAd() throws Exception {
         Long adId = createTestAd("Ad to Delete", "This ad will be deleted", new BigDecimal("100.00"));
@@ -189,6 +226,135 @@ class AdminControllerIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void saveAd_shouldFailWhenTheAdWasDeletedSinceItWasLoaded() throws Exception {
+        Long adId = createTestAd("Ad deleted meanwhile", "Row goes away before the save", new BigDecimal("100.00"));
+        Ad ad = adRepository.findById(adId).orElseThrow();
+
+        dsl.deleteFrom(ADS).where(ADS.ID.eq(adId)).execute();
+        ad.setStatus(AdStatus.BLOCKED);
+
+        assertThrows(ResourceNotFoundException.class, () -> adRepository.save(ad));
+    }
+
+    @Test
+    void bulkStatus_shouldUpdateAdsByIdsOnce() throws Exception {
+        Long first = createTestAd("Spam wave one", "Cheap watches for sale", new BigDecimal("1.00"));
+        Long second = createTestAd("Spam wave two", "Cheap watches for sale", new BigDecimal("1.00"));
+
+        AdminBulkStatusRequest request = new AdminBulkStatusRequest(AdStatus.BLOCKED, List.of(first, second, first), null);
+        mockMvc.perform(post("/api/admin/ads/bulk/status")
+                        .with(httpBasic("admin", "admin123"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched").value(2))
+                .andExpect(jsonPath("$.updated").value(2))
+                .andExpect(jsonPath("$.auditId").isNumber());
+
+        // Already blocked: matched again, nothing changes
+        mockMvc.perform(post("/api/admin/ads/bulk/status")
+                        .with(httpBasic("admin", "admin123"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(jsonPath("$.updated").value(0));
+    }
+
+    @Test
+    void bulkDelete_shouldSoftDeleteAdsMatchingFilter() throws Exception {
+        Long adId = createTestAd("Filtered spam", "Bulk delete by filter", new BigDecimal("2.00"));
+
+        AdSearchRequest filter = new AdSearchRequest();
+        filter.setCategoryId(categoryId);
+        filter.setSearch("bulk delete by filter");
+        mockMvc.perform(post("/api/admin/ads/bulk/delete")
+                        .with(httpBasic("admin", "admin123"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AdminBulkSelection(null, filter))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DELETED"))
+                .andExpect(jsonPath("$.updated").value(1));
+
+        mockMvc.perform(get("/api/admin/ads")
+                        .param("status", "DELETED")
+                        .with(httpBasic("admin", "admin123")))
+                .andExpect(jsonPath("$[?(@.id == " + adId + ")].status").value("DELETED"));
+    }
+
+    @Test
+    void bulkDelete_shouldRejectUnrestrictedFilter() throws Exception {
+        mockMvc.perform(post("/api/admin/ads/bulk/delete")
+                        .with(httpBasic("admin", "admin123"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"filter\":{}}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importAds_shouldLoadNdjsonAndReportBadRows() throws Exception {
+        String body = String.join("\n",
+                "{\"title\":\"Imported scooter\",\"description\":\"From the feed\",\"price\":3500,\"categoryId\":" + categoryId + "}",
+                "{\"title\":\"No price\",\"categoryId\":" + categoryId + "}",
+                "",
+                "{not json",
+                "{\"title\":\"Unknown category\",\"price\":10,\"categoryId\":999999}");
+
+        mockMvc.perform(post("/api/admin/ads/import")
+                        .with(httpBasic("admin", "admin123"))
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(3))
+                .andExpect(jsonPath("$.errors[*].line", contains(2, 4, 5)));
+    }
+
+    @Test
+    void importAds_shouldLoadCsvWithQuotedFieldsAndCategoryNames() throws Exception {
+        String categoryName = objectMapper.readTree(mockMvc.perform(get("/api/categories/" + categoryId))
+                .andReturn().getResponse().getContentAsString()).get("name").asText();
+        String body = "title,description,price,category_name,area\n"
+                + "Bungalow,\"Sea view,\nnear \"\"the\"\" beach\",15000," + categoryName + ",SRITHANU\n"
+                + "Bad area,,100," + categoryName + ",ATLANTIS\n";
+
+        mockMvc.perform(post("/api/admin/ads/import")
+                        .with(httpBasic("admin", "admin123"))
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(4))
+                .andExpect(jsonPath("$.errors[0].message", containsString("area")));
+
+        mockMvc.perform(get("/api/admin/ads").with(httpBasic("admin", "admin123")))
+                .andExpect(jsonPath("$[?(@.title == 'Bungalow')].description", hasItem("Sea view,\nnear \"the\" beach")));
+    }
+
+    @Test
+    void importAds_shouldReportWhereABrokenBodyStopped() throws Exception {
+        String body = "title,description,price,category_id\n"
+                + "Kept row,,100," + categoryId + "\n"
+                + "Also kept,,200," + categoryId + "\n"
+                + "\"Never closed,,300," + categoryId + "\n";
+
+        mockMvc.perform(post("/api/admin/ads/import")
+                        .with(httpBasic("admin", "admin123"))
+                        .contentType("text/csv")
+                        .content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.interruption.line").value(4))
+                .andExpect(jsonPath("$.interruption.message", containsString("Unterminated")));
+    }
+
+    @Test
+    void importAds_shouldRequireAdmin() throws Exception {
+        mockMvc.perform(post("/api/admin/ads/import")
+                        .contentType("text/csv")
+                        .content("title,price\n"))
+                .andExpect(status().isUnauthorized());
+    }
+
     private Long createTestAd(String title, String description, BigDecimal price) throws Exception {
         AdCreateRequest request = new AdCreateRequest();
         request.setTitle(title);
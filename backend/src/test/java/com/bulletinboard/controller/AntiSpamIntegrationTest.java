@@ -14,6 +14,7 @@ import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -43,6 +44,7 @@ class AntiSpamIntegrationTest {
         registry.add("antispam.rate-limit.max-ads-per-hour", () -> "3");
         registry.add("antispam.min-title-length", () -> "5");
         registry.add("antispam.min-description-length", () -> "10");
+        registry.add("antispam.rate-limit.max-contacts-per-window", () -> "2");
     }
 
     @Autowired
@@ -176,7 +178,30 @@ class AntiSpamIntegrationTest {
                 .andExpect(status().isCreated());
     }
 
-    private void createTestAdWithIp(String title, String description, BigDecimal price, String ip) throws Exception {
+    @Test
+    void recordContact_shouldCountRepeatsOnceAndLimitAdsPerIP() throws Exception {
+        String adIp = "172.16.0." + System.currentTimeMillis() % 255;
+        long first = createTestAdWithIp("Contact Test 1", "This is a test description for contacts", new BigDecimal("100.00"), adIp);
+        long second = createTestAdWithIp("Contact Test 2", "This is a test description for contacts", new BigDecimal("100.00"), adIp);
+        long third = createTestAdWithIp("Contact Test 3", "This is a test description for contacts", new BigDecimal("100.00"), adIp);
+        String testIp = "172.16.1." + System.currentTimeMillis() % 255;
+
+        // A repeated contact is accepted but does not use up the limit
+        contact(first, testIp).andExpect(status().isNoContent());
+        contact(first, testIp).andExpect(status().isNoContent());
+        contact(second, testIp).andExpect(status().isNoContent());
+        contact(second, testIp).andExpect(status().isNoContent());
+        contact(third, testIp).andExpect(status().isTooManyRequests());
+
+        contact(third, "172.16.2." + System.currentTimeMillis() % 255).andExpect(status().isNoContent());
+    }
+
+    private ResultActions contact(long adId, String ip) throws Exception {
+        return mockMvc.perform(post("/api/ads/" + adId + "/contact")
+                .header("X-Forwarded-For", ip));
+    }
+
+    private long createTestAdWithIp(String title, String description, BigDecimal price, String ip) throws Exception {
         AdCreateRequest request = new AdCreateRequest();
         request.setTitle(title);
         request.setDescription(description);
@@ -184,10 +209,12 @@ class AntiSpamIntegrationTest {
         request.setCategoryId(categoryId);
         request.setUserId(userId);
 
-        mockMvc.perform(post("/api/ads")
+        MvcResult result = mockMvc.perform(post("/api/ads")
                         .header("X-Forwarded-For", ip)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
-                .andExpect(status().isCreated());
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asLong();
     }
 }
@@ -0,0 +1,171 @@
+package com.bulletinboard.controller;
+
+import com.bulletinboard.service.ContentAddressedStore;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+class ImageResourceIntegrationTest {
+
+    private static final String SHA = "ab".repeat(32);
+    private static final String URL = ContentAddressedStore.urlFor(SHA, "jpg");
+    private static final String PHOTO_SHA = "cd".repeat(32);
+    private static final String PHOTO_URL = ContentAddressedStore.urlFor(PHOTO_SHA, "jpg");
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    static Path uploadDir;
+
+    static {
+        try {
+            uploadDir = Files.createTempDirectory("uploads-test");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.upload-dir", () -> uploadDir.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeAll
+    static void writeFiles() throws IOException {
+        Path jpeg = uploadDir.resolve(URL.replace("/uploads/", ""));
+        Files.createDirectories(jpeg.getParent());
+        Files.writeString(jpeg, "0123456789", StandardCharsets.US_ASCII);
+        Files.writeString(jpeg.resolveSibling(SHA + ".webp"), "webp", StandardCharsets.US_ASCII);
+
+        Path photo = uploadDir.resolve(PHOTO_URL.replace("/uploads/", ""));
+        Files.createDirectories(photo.getParent());
+        ImageIO.write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB), "jpg", photo.toFile());
+
+        Path staging = Files.createDirectories(uploadDir.resolve(".staging"));
+        Files.writeString(staging.resolve("secret.jpg"), "hidden", StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void servesContentAddressedFileAsImmutable() throws Exception {
+        mockMvc.perform(get(URL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().string("0123456789"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + SHA + ".jpg\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"));
+    }
+
+    @Test
+    void answersConditionalRequestWithNotModified() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.IF_NONE_MATCH, "\"" + SHA + ".jpg\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void servesSingleRange() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+
+        mockMvc.perform(get(URL).header(HttpHeaders.RANGE, "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void servesWebpWhenAccepted() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.ACCEPT, "image/webp,image/*,*/*;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/webp"))
+                .andExpect(content().string("webp"));
+
+        mockMvc.perform(head(URL).header(HttpHeaders.ACCEPT, "image/avif,image/webp"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/webp"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4));
+    }
+
+    @Test
+    void servesOriginalWhenWebpIsRefusedOrRatedLower() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.ACCEPT, "image/webp;q=0,image/*,*/*;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        mockMvc.perform(get(URL).header(HttpHeaders.ACCEPT, "image/webp;q=0.5,image/jpeg"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"));
+
+        mockMvc.perform(get(URL).header(HttpHeaders.ACCEPT, "image/avif;q=0,image/webp;q=0.9,*/*;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/webp"));
+    }
+
+    @Test
+    void servesResizedRenditionSnappedToLadder() throws Exception {
+        byte[] body = mockMvc.perform(get(PHOTO_URL).param("w", "300"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + PHOTO_SHA + ".jpg-w320\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        BufferedImage resized = ImageIO.read(new ByteArrayInputStream(body));
+        assertEquals(320, resized.getWidth());
+        assertEquals(240, resized.getHeight());
+
+        mockMvc.perform(get(PHOTO_URL).param("w", "abc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/uploads/cas/00/00/missing.jpg").param("w", "320"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void hidesStagingAndMissingFiles() throws Exception {
+        mockMvc.perform(get("/uploads/.staging/secret.jpg"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/uploads/cas/00/00/missing.jpg"))
+                .andExpect(status().isNotFound());
+    }
+}
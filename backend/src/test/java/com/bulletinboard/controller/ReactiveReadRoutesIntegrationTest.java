@@ -0,0 +1,142 @@
+package com.bulletinboard.controller;
+
+import com.bulletinboard.config.ReactiveReadServer;
+import com.bulletinboard.domain.Ad;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.Area;
+import com.bulletinboard.repository.AdRepository;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+
+@SpringBootTest
+@ActiveProfiles("reactive")
+@Testcontainers
+class ReactiveReadRoutesIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.reactive.port", () -> "0");
+        registry.add("app.reactive.r2dbc.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+        registry.add("app.reactive.r2dbc.username", postgres::getUsername);
+        registry.add("app.reactive.r2dbc.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private ReactiveReadServer reactiveReadServer;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private DSLContext dsl;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + reactiveReadServer.getPort())
+                .build();
+    }
+
+    @Test
+    void getAdById_shouldReturnAdWithCategoryAndETag() {
+        Long categoryId = createCategory("Reactive bikes");
+        Ad ad = createAd("Honda Click", categoryId);
+
+        client.get().uri("/api/ads/{id}", ad.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"" + ad.getVersion() + "\"")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(ad.getId())
+                .jsonPath("$.title").isEqualTo("Honda Click")
+                .jsonPath("$.categoryName").isEqualTo("Reactive bikes")
+                .jsonPath("$.images").isEmpty();
+    }
+
+    @Test
+    void getAdById_shouldReturn404ForUnknownAd() {
+        client.get().uri("/api/ads/{id}", 999_999_999L)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404);
+    }
+
+    @Test
+    void searchAds_shouldFilterByCategoryAndReportTotal() {
+        Long categoryId = createCategory("Reactive rentals");
+        createAd("Villa", categoryId);
+        createAd("Bungalow", categoryId);
+        createAd("Elsewhere", createCategory("Reactive other"));
+
+        client.get().uri("/api/ads/search?categoryId={id}&sortBy=title&sortDirection=asc", categoryId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.totalElements").isEqualTo(2)
+                .jsonPath("$.content[0].title").isEqualTo("Bungalow")
+                .jsonPath("$.content[1].title").isEqualTo("Villa");
+    }
+
+    @Test
+    void searchAds_shouldReturn400ForMalformedParameter() {
+        client.get().uri("/api/ads/search?minPrice=cheap")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void getAllCategories_shouldListCategories() {
+        createCategory("Reactive listed");
+
+        client.get().uri("/api/categories")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[?(@.name == 'Reactive listed')]").exists();
+    }
+
+    private Long createCategory(String name) {
+        return dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, name)
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+    }
+
+    private Ad createAd(String title, Long categoryId) {
+        Ad ad = new Ad();
+        ad.setTitle(title);
+        ad.setCategoryId(categoryId);
+        ad.setPrice(new BigDecimal("1000"));
+        ad.setArea(Area.HAAD_RIN);
+        ad.setStatus(AdStatus.ACTIVE);
+        return adRepository.save(ad);
+    }
+}
@@ -0,0 +1,122 @@
+package com.bulletinboard.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class ConcurrencyLimitedDataSourceIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        // Well below the pool size of 10, so the limit is what is measured
+        registry.add("app.datasource.concurrency-limit.enabled", () -> "true");
+        registry.add("app.datasource.concurrency-limit.permits", () -> "3");
+        registry.add("app.datasource.concurrency-limit.acquire-timeout", () -> "500ms");
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void queriesNeverHoldMoreConnectionsThanPermits() throws Exception {
+        assertInstanceOf(ConcurrencyLimitedDataSource.class, dataSource);
+        ConcurrencyLimitedDataSource limited = (ConcurrencyLimitedDataSource) dataSource;
+
+        AtomicInteger maxInUse = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                futures.add(executor.submit(() -> {
+                    dsl.transaction(tx -> {
+                        maxInUse.accumulateAndGet(limited.getInUse(), Math::max);
+                        tx.dsl().select(DSL.field("pg_sleep(0.05)")).execute();
+                    });
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(maxInUse.get() <= 3, "in use peaked at " + maxInUse.get());
+        assertEquals(0, limited.getInUse());
+    }
+
+    @Test
+    void failsAfterTimeoutAndRecoversWhenAConnectionIsClosed() throws Exception {
+        List<Connection> held = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                held.add(dataSource.getConnection());
+            }
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+            // Closing twice must not hand out a second permit
+            held.get(0).close();
+            held.get(0).close();
+            held.set(0, dataSource.getConnection());
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        } finally {
+            for (Connection connection : held) {
+                connection.close();
+            }
+        }
+    }
+
+    @Test
+    void closingClosesTheWrappedPool() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(postgres.getJdbcUrl());
+        pool.setUsername(postgres.getUsername());
+        pool.setPassword(postgres.getPassword());
+        ConcurrencyLimitedDataSource limited = new ConcurrencyLimitedDataSource(pool, 1, Duration.ofSeconds(1));
+        limited.getConnection().close();
+
+        // What the context does for the inferred destroy method of the replaced bean
+        limited.close();
+
+        assertTrue(pool.isClosed());
+    }
+}
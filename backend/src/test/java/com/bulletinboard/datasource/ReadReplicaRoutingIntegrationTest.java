@@ -0,0 +1,165 @@
+package com.bulletinboard.datasource;
+
+import com.bulletinboard.service.CategoryDictionary;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against a real streaming replica: the replica container clones the
+ * primary with pg_basebackup and follows it.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+class ReadReplicaRoutingIntegrationTest {
+
+    private static final String PGDATA = "/var/lib/postgresql/data/pgdata";
+
+    static Network network = Network.newNetwork();
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test")
+            .withNetwork(network)
+            .withNetworkAliases("primary")
+            .withCopyToContainer(Transferable.of(
+                    "echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"\n", 0755),
+                    "/docker-entrypoint-initdb.d/replication.sh");
+
+    @Container
+    static GenericContainer<?> replica = new GenericContainer<>("postgres:15")
+            .dependsOn(primary)
+            .withNetwork(network)
+            .withExposedPorts(5432)
+            .withEnv("PGPASSWORD", "test")
+            .withCreateContainerCmdModifier(cmd -> cmd.withEntrypoint("bash", "-c",
+                    "mkdir -p " + PGDATA + " && chown postgres " + PGDATA + " && chmod 700 " + PGDATA
+                            + " && until gosu postgres pg_basebackup -h primary -U test -D " + PGDATA
+                            + " -R -X stream; do sleep 1; done"
+                            + " && exec gosu postgres postgres -D " + PGDATA))
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", primary::getJdbcUrl);
+        registry.add("spring.datasource.username", primary::getUsername);
+        registry.add("spring.datasource.password", primary::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.datasource.replica.url",
+                () -> "jdbc:postgresql://" + replica.getHost() + ":" + replica.getMappedPort(5432) + "/testdb");
+        registry.add("app.datasource.replica.max-lag", () -> "30s");
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    @Qualifier("readDslContext")
+    private DSLContext readDsl;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @AfterEach
+    void clearPin() {
+        ReplicaRouting.clearPin();
+    }
+
+    @Test
+    void readsGoToReplicaUntilSomethingIsWritten() {
+        assertEquals(true, inRecovery(readDsl));
+        assertEquals(false, inRecovery(dsl));
+
+        dsl.execute("UPDATE categories SET description = description WHERE id = 1");
+
+        assertEquals(false, inRecovery(readDsl));
+    }
+
+    @Test
+    void transactionsStayOnPrimary() {
+        Boolean inRecovery = transactionTemplate.execute(status -> inRecovery(readDsl));
+        assertEquals(false, inRecovery);
+    }
+
+    @Test
+    void createdCategoryIsVisibleInTheWritingRequestAndOnTheReplica() throws Exception {
+        mockMvc.perform(post("/api/categories")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Replicated\",\"description\":\"via streaming replication\"}"))
+                .andExpect(status().isCreated());
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (readDsl.fetchCount(readDsl.selectFrom("categories").where("name = 'Replicated'")) == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Category did not reach the replica");
+            }
+            Thread.sleep(100);
+        }
+
+        mockMvc.perform(get("/api/categories"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", hasItem("Replicated")));
+    }
+
+    @Test
+    void categoryDictionaryLoadsFromThePrimaryWhileTheReplicaLags() {
+        readDsl.fetch("SELECT pg_wal_replay_pause()");
+        try {
+            Long id = dsl.insertInto(CATEGORIES)
+                    .set(CATEGORIES.NAME, "Lagging behind")
+                    .returning(CATEGORIES.ID)
+                    .fetchOne(CATEGORIES.ID);
+            // Like the relay thread, which never wrote anything
+            ReplicaRouting.clearPin();
+            assertEquals(0, readDsl.fetchCount(CATEGORIES, CATEGORIES.ID.eq(id)));
+
+            categoryDictionary.refresh();
+
+            assertEquals(id, categoryDictionary.findIdByName("Lagging behind").orElseThrow());
+        } finally {
+            ReplicaRouting.clearPin();
+            readDsl.fetch("SELECT pg_wal_replay_resume()");
+        }
+    }
+
+    private static Boolean inRecovery(DSLContext context) {
+        return context.fetchValue(DSL.field("pg_is_in_recovery()", Boolean.class));
+    }
+}
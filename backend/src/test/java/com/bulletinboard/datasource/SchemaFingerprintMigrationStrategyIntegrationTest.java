@@ -0,0 +1,80 @@
+package com.bulletinboard.datasource;
+
+import org.flywaydb.core.Flyway;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest
+@Testcontainers
+class SchemaFingerprintMigrationStrategyIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.flyway.skip-unchanged", () -> "true");
+    }
+
+    @Autowired
+    private FlywayMigrationStrategy migrationStrategy;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void storesFingerprintAndSkipsFlywayWhileScriptsAreUnchanged() {
+        SchemaFingerprintMigrationStrategy strategy =
+                assertInstanceOf(SchemaFingerprintMigrationStrategy.class, migrationStrategy);
+        String fingerprint = strategy.fingerprint(flyway.getConfiguration().getLocations());
+
+        // Start-up migrated the fresh database and recorded the scripts
+        Record2<String, LocalDateTime> stored = storedFingerprint();
+        assertEquals(fingerprint, stored.value1());
+        int migrations = appliedMigrations();
+
+        strategy.migrate(flyway);
+        assertEquals(stored, storedFingerprint());
+
+        // A different fingerprint means changed scripts: Flyway runs and records the new one
+        dsl.execute("UPDATE schema_fingerprint SET fingerprint = 'outdated'");
+        strategy.migrate(flyway);
+        assertEquals(fingerprint, storedFingerprint().value1());
+        assertEquals(migrations, appliedMigrations());
+    }
+
+    private Record2<String, LocalDateTime> storedFingerprint() {
+        return dsl.select(DSL.field("fingerprint", String.class), DSL.field("updated_at", LocalDateTime.class))
+                .from(DSL.table("schema_fingerprint"))
+                .fetchOne();
+    }
+
+    private int appliedMigrations() {
+        return dsl.fetchCount(DSL.table("flyway_schema_history"));
+    }
+}
@@ -0,0 +1,171 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.Ad;
+import com.bulletinboard.domain.AdEvent;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.repository.AdRepository;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+@RecordApplicationEvents
+class AdEventRelayIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("admin.username", () -> "admin");
+        registry.add("admin.password", () -> "admin123");
+        // The test drives the relay itself
+        registry.add("app.events.initial-delay-ms", () -> "3600000");
+        // Small pages, so catching up takes several of them
+        registry.add("app.events.batch-size", () -> "3");
+    }
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private AdEventRelay adEventRelay;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Test
+    void adChangesArePublishedInOrderWithoutSecrets() {
+        adEventRelay.relay();
+        long start = adEventRelay.lastPublishedPosition();
+
+        Ad saved = createAd("Outbox ad");
+        saved.setTitle("Outbox ad, renamed");
+        adRepository.save(saved);
+        adRepository.deleteById(saved.getId());
+
+        adEventRelay.relay();
+
+        List<AdEvent> events = applicationEvents.stream(AdEventBatch.class)
+                .flatMap(batch -> batch.events().stream())
+                .filter(e -> e.position() > start)
+                .filter(e -> e.entity().equals("AD") && e.entityId() == saved.getId())
+                .toList();
+        assertEquals(List.of("INSERT", "UPDATE", "DELETE"), events.stream().map(AdEvent::operation).toList());
+        assertThat(events.get(1).payload(), containsString("Outbox ad, renamed"));
+        assertThat(events.get(0).payload(), not(containsString("edit_token")));
+        assertNull(events.get(2).payload());
+        assertEquals(saved.getId(), events.get(2).adId());
+    }
+
+    @Test
+    void streamResumesAfterLastEventId() throws Exception {
+        createAd("Streamed ad one");
+        adEventRelay.relay();
+        long afterFirst = adEventRelay.lastPublishedPosition();
+        createAd("Streamed ad two");
+        adEventRelay.relay();
+
+        MvcResult result = mockMvc.perform(get("/api/admin/events/ads")
+                        .header("Last-Event-ID", afterFirst)
+                        .with(httpBasic("admin", "admin123")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = awaitBody(result, "Streamed ad two");
+        assertThat(body, containsString("event:" + AdEventStream.EVENT_NAME));
+        assertThat(body, containsString("Streamed ad two"));
+        assertThat(body, not(containsString("Streamed ad one")));
+    }
+
+    @Test
+    void catchUpIsSentInPagesAfterTheHandlerReturned() throws Exception {
+        adEventRelay.relay();
+        long start = adEventRelay.lastPublishedPosition();
+        for (int i = 1; i <= 4; i++) {
+            createAd("Replayed ad " + i);
+        }
+        adEventRelay.relay();
+
+        MvcResult result = mockMvc.perform(get("/api/admin/events/ads")
+                        .param("after", Long.toString(start))
+                        .with(httpBasic("admin", "admin123")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Eight events, each ad after its category, over three pages
+        String body = awaitBody(result, "Replayed ad 4");
+        for (int i = 1; i < 4; i++) {
+            assertTrue(body.indexOf("Replayed ad " + i) < body.indexOf("Replayed ad " + (i + 1)), body);
+        }
+    }
+
+    @Test
+    void streamRequiresAdmin() throws Exception {
+        mockMvc.perform(get("/api/admin/events/ads"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private static String awaitBody(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        String body = result.getResponse().getContentAsString();
+        while (!body.contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            body = result.getResponse().getContentAsString();
+        }
+        return body;
+    }
+
+    private Ad createAd(String title) {
+        Long categoryId = dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "Events " + System.nanoTime())
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+
+        Ad ad = new Ad();
+        ad.setTitle(title);
+        ad.setCategoryId(categoryId);
+        ad.setStatus(AdStatus.ACTIVE);
+        return adRepository.save(ad);
+    }
+}
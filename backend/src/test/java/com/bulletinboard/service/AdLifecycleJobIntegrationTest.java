@@ -0,0 +1,134 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdStatus;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+
+import static com.bulletinboard.generated.Tables.ADS;
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class AdLifecycleJobIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        // Driven by the test, not the scheduler
+        registry.add("app.lifecycle.enabled", () -> "false");
+        registry.add("app.lifecycle.default-ttl", () -> "10d");
+        registry.add("app.lifecycle.price-period-ttl.DAY", () -> "2d");
+        registry.add("app.lifecycle.archive-after", () -> "30d");
+        registry.add("app.lifecycle.batch-size", () -> "2");
+    }
+
+    @Autowired
+    private AdLifecycleJob adLifecycleJob;
+
+    @Autowired
+    private DSLContext dsl;
+
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        categoryId = dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "Lifecycle " + System.nanoTime())
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+    }
+
+    @Test
+    void expiresActiveAdsByPricePeriodAndDefaultTtl() {
+        LocalDateTime now = LocalDateTime.now();
+        Long dailyOld = insertAd(AdStatus.ACTIVE, "DAY", now.minusDays(3), now.minusDays(3));
+        Long monthlyOld = insertAd(AdStatus.ACTIVE, "MONTH", now.minusDays(3), now.minusDays(3));
+        Long stale = insertAd(AdStatus.ACTIVE, null, now.minusDays(11), now.minusDays(11));
+        Long fresh = insertAd(AdStatus.ACTIVE, "DAY", now.minusHours(1), now.minusHours(1));
+
+        adLifecycleJob.expire();
+
+        assertEquals(AdStatus.EXPIRED.name(), statusOf(dailyOld));
+        assertEquals(AdStatus.ACTIVE.name(), statusOf(monthlyOld));
+        assertEquals(AdStatus.EXPIRED.name(), statusOf(stale));
+        assertEquals(AdStatus.ACTIVE.name(), statusOf(fresh));
+    }
+
+    @Test
+    void movesOldFinishedAdsIntoMonthlyPartitions() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime may = LocalDateTime.of(2023, 5, 10, 12, 0);
+        LocalDateTime june = LocalDateTime.of(2023, 6, 20, 12, 0);
+        Long deleted = insertAd(AdStatus.DELETED, null, may, now.minusDays(40));
+        Long expired = insertAd(AdStatus.EXPIRED, null, june, now.minusDays(31));
+        Long expiredYesterday = insertAd(AdStatus.EXPIRED, null, june, now.minusDays(1));
+        Long blocked = insertAd(AdStatus.BLOCKED, null, may, now.minusDays(40));
+        dsl.update(ADS)
+                .set(ADS.VERSION, 7)
+                .set(ADS.VIEW_COUNT, 1234L)
+                .set(ADS.UPDATED_AT, now.minusDays(40))
+                .where(ADS.ID.eq(deleted))
+                .execute();
+
+        // Two ads in batches of two: the second batch finds nothing
+        assertTrue(adLifecycleJob.archive() >= 2);
+
+        assertFalse(exists(deleted));
+        assertFalse(exists(expired));
+        assertTrue(exists(expiredYesterday));
+        assertTrue(exists(blocked));
+        assertEquals(1, dsl.fetchCount(DSL.table("ads_archive_2023_05"), DSL.field("id").eq(deleted)));
+        assertEquals(1, dsl.fetchCount(DSL.table("ads_archive_2023_06"), DSL.field("id").eq(expired)));
+        // Nothing the ad had is lost on the way
+        Record2<Integer, Long> archived = dsl.select(DSL.field("version", Integer.class), DSL.field("view_count", Long.class))
+                .from(DSL.table("ads_archive"))
+                .where(DSL.field("id").eq(deleted))
+                .fetchOne();
+        assertEquals(7, archived.value1());
+        assertEquals(1234L, archived.value2());
+    }
+
+    private Long insertAd(AdStatus status, String pricePeriod, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        return dsl.insertInto(ADS)
+                .set(ADS.TITLE, "Lifecycle ad")
+                .set(ADS.CATEGORY_ID, categoryId)
+                .set(ADS.STATUS, status.name())
+                .set(ADS.PRICE_PERIOD, pricePeriod)
+                .set(ADS.CREATED_AT, createdAt)
+                .set(ADS.UPDATED_AT, updatedAt)
+                .returning(ADS.ID)
+                .fetchOne(ADS.ID);
+    }
+
+    private String statusOf(Long id) {
+        return dsl.select(ADS.STATUS).from(ADS).where(ADS.ID.eq(id)).fetchOne(ADS.STATUS);
+    }
+
+    private boolean exists(Long id) {
+        return dsl.fetchExists(ADS, ADS.ID.eq(id));
+    }
+}
@@ -0,0 +1,152 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.Ad;
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.ImageStatus;
+import com.bulletinboard.repository.AdImageRepository;
+import com.bulletinboard.repository.AdPartitionRepository;
+import com.bulletinboard.repository.AdRepository;
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class AdPartitionMaintenanceIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private AdImageRepository adImageRepository;
+
+    @Autowired
+    private AdPartitionRepository adPartitionRepository;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void smallDatabaseIsConvertedByTheMigration() {
+        assertEquals("p", relkind("ads"));
+        assertEquals("p", relkind("ad_images"));
+        assertFalse(adPartitionRepository.conversionPending());
+        // Partitions up to three months ahead exist already
+        YearMonth now = YearMonth.now();
+        assertEquals(0, adPartitionRepository.createPartitions(now, now.plusMonths(3)));
+    }
+
+    @Test
+    void adAndImagesLandInTheCurrentMonthPartition() {
+        Long categoryId = dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "Partitioning " + System.nanoTime())
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+
+        Ad ad = new Ad();
+        ad.setTitle("Partitioned ad");
+        ad.setCategoryId(categoryId);
+        ad.setStatus(AdStatus.ACTIVE);
+        Ad saved = adRepository.save(ad);
+
+        AdImage image = new AdImage();
+        image.setAdId(saved.getId());
+        image.setUrl("/uploads/" + saved.getId() + "/a.jpg");
+        image.setPosition(0);
+        image.setStatus(ImageStatus.PROCESSING);
+        AdImage savedImage = adImageRepository.save(image);
+
+        String suffix = YearMonth.from(saved.getCreatedAt()).format(DateTimeFormatter.ofPattern("yyyy_MM"));
+        assertEquals("ads_" + suffix, partitionOf("ads", saved.getId()));
+        assertEquals("ad_images_" + suffix, partitionOf("ad_images", savedImage.getId()));
+
+        // Images follow their ad through the composite foreign key
+        adRepository.deleteById(saved.getId());
+        assertFalse(adImageRepository.findById(savedImage.getId()).isPresent());
+    }
+
+    @Test
+    void foreignKeyAddedNotValidByTheSwapIsValidatedStepByStep() {
+        // What ads_partitioning_finish() leaves behind after an online conversion
+        dsl.execute("ALTER TABLE ad_images DROP CONSTRAINT fk_ad_images_ad");
+        List<String> partitions = partitionsOf("ad_images");
+        for (String partition : partitions) {
+            dsl.execute("ALTER TABLE " + partition + " ADD CONSTRAINT fk_ad_images_ad FOREIGN KEY (ad_id, ad_created_at)"
+                    + " REFERENCES ads (id, created_at) ON DELETE CASCADE NOT VALID");
+        }
+
+        int steps = 0;
+        while (!adPartitionRepository.validateForeignKeyStep()) {
+            assertTrue(++steps <= partitions.size() * 2, "validation does not finish");
+        }
+
+        assertEquals(List.of(true), foreignKeys("ad_images"));
+        for (String partition : partitions) {
+            // The partition constraints were adopted, not duplicated
+            assertEquals(List.of(true), foreignKeys(partition), partition);
+        }
+    }
+
+    private List<String> partitionsOf(String table) {
+        return dsl.select(DSL.field("inhrelid::regclass::text", String.class))
+                .from(DSL.table("pg_inherits"))
+                .where(DSL.field("inhparent").eq(DSL.field("{0}::regclass", Object.class, DSL.inline(table))))
+                .fetch(0, String.class);
+    }
+
+    /**
+     * Whether each foreign key of the table to ads is validated.
+     */
+    private List<Boolean> foreignKeys(String table) {
+        return dsl.select(DSL.field("convalidated", Boolean.class))
+                .from(DSL.table("pg_constraint"))
+                .where(DSL.field("conrelid").eq(DSL.field("{0}::regclass", Object.class, DSL.inline(table))))
+                .and(DSL.field("confrelid").eq(DSL.field("'ads'::regclass", Object.class)))
+                .fetch(0, Boolean.class);
+    }
+
+    private String relkind(String table) {
+        return dsl.select(DSL.field("relkind::text", String.class))
+                .from(DSL.table("pg_class"))
+                .where(DSL.field("oid").eq(DSL.field("{0}::regclass", Object.class, DSL.inline(table))))
+                .fetchOne(0, String.class);
+    }
+
+    private String partitionOf(String table, Long id) {
+        return dsl.select(DSL.field("tableoid::regclass::text", String.class))
+                .from(DSL.table(DSL.name(table)))
+                .where(DSL.field("id").eq(id))
+                .fetchOne(0, String.class);
+    }
+}
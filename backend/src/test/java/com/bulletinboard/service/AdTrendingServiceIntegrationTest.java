@@ -0,0 +1,128 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.Ad;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.Area;
+import com.bulletinboard.dto.AdResponse;
+import com.bulletinboard.repository.AdRepository;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static com.bulletinboard.generated.Tables.AD_TRENDING_SCORES;
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class AdTrendingServiceIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        // The test refreshes itself
+        registry.add("app.trending.initial-delay-ms", () -> "3600000");
+    }
+
+    @Autowired
+    private AdTrendingService adTrendingService;
+
+    @Autowired
+    private AdRepository adRepository;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void ranksActiveAdsByViewsAndContactsPerArea() {
+        Long categoryId = createCategory();
+        Ad viewed = createAd("Viewed twice", Area.HAAD_RIN, categoryId);
+        Ad contacted = createAd("Contacted once", Area.HAAD_RIN, categoryId);
+        Ad elsewhere = createAd("Viewed elsewhere", Area.SRITHANU, categoryId);
+
+        adTrendingService.recordView(viewed.getId());
+        adTrendingService.recordView(viewed.getId());
+        adTrendingService.recordContact(contacted.getId());
+        adTrendingService.recordView(elsewhere.getId());
+        adTrendingService.refresh();
+
+        assertEquals(List.of(contacted.getId(), viewed.getId()),
+                ids(adTrendingService.getTrending(Area.HAAD_RIN, null, 10)));
+        assertEquals(List.of(contacted.getId(), viewed.getId(), elsewhere.getId()),
+                ids(adTrendingService.getTrending(null, categoryId, 10)));
+        assertEquals(List.of(contacted.getId()), ids(adTrendingService.getTrending(Area.HAAD_RIN, null, 1)));
+
+        // Later counts add to the stored score; ads that are no longer ACTIVE drop out
+        for (int i = 0; i < 10; i++) {
+            adTrendingService.recordView(viewed.getId());
+        }
+        contacted.setStatus(AdStatus.SOLD);
+        adRepository.save(contacted);
+        adTrendingService.refresh();
+
+        assertEquals(List.of(viewed.getId()), ids(adTrendingService.getTrending(Area.HAAD_RIN, null, 10)));
+        double stored = dsl.select(AD_TRENDING_SCORES.SCORE)
+                .from(AD_TRENDING_SCORES)
+                .where(AD_TRENDING_SCORES.AD_ID.eq(viewed.getId()))
+                .fetchOne(AD_TRENDING_SCORES.SCORE);
+        assertTrue(stored > 11.9 && stored <= 12.0, "decayed score of 12 points was " + stored);
+    }
+
+    @Test
+    void smallAreaAndCategoryOutsideTheOverallTopStillHaveTheirRanking() {
+        Long busyCategory = createCategory();
+        for (int i = 0; i < 25; i++) {
+            Ad busy = createAd("Busy " + i, Area.THONG_SALA, busyCategory);
+            for (int view = 0; view < 100; view++) {
+                adTrendingService.recordView(busy.getId());
+            }
+        }
+        Long quietCategory = createCategory();
+        Ad quiet = createAd("Quiet", Area.WOK_TUM, quietCategory);
+        adTrendingService.recordView(quiet.getId());
+        adTrendingService.refresh();
+
+        assertFalse(ids(adTrendingService.getTrending(null, null, 100)).contains(quiet.getId()));
+        assertEquals(List.of(quiet.getId()), ids(adTrendingService.getTrending(Area.WOK_TUM, null, 10)));
+        assertEquals(List.of(quiet.getId()), ids(adTrendingService.getTrending(null, quietCategory, 10)));
+    }
+
+    private static List<Long> ids(List<AdResponse> ads) {
+        return ads.stream().map(AdResponse::getId).toList();
+    }
+
+    private Long createCategory() {
+        return dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "Trending " + System.nanoTime())
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+    }
+
+    private Ad createAd(String title, Area area, Long categoryId) {
+        Ad ad = new Ad();
+        ad.setTitle(title);
+        ad.setCategoryId(categoryId);
+        ad.setArea(area);
+        ad.setStatus(AdStatus.ACTIVE);
+        return adRepository.save(ad);
+    }
+}
@@ -0,0 +1,70 @@
+package com.bulletinboard.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Expected hashes come from a port of the reference C encoder
+ * (github.com/woltapp/blurhash, C/encode.c) run on the same pixels.
+ */
+class BlurHashTest {
+
+    @Test
+    void encodesGradientLikeTheReferenceEncoder() {
+        assertEquals("L$Het82swxX8l}WDjte;gJfjfQfj", BlurHash.encode(gradient(32, 32), 4, 3));
+    }
+
+    @Test
+    void uniformImageHasOnlyNeutralAcComponents() {
+        BufferedImage black = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+
+        assertEquals("L00000fQfQfQfQfQfQfQfQfQfQfQ", BlurHash.encode(black, 4, 3));
+    }
+
+    @Test
+    void singleComponentIsJustTheAverageColour() {
+        assertEquals("00Het8", BlurHash.encode(gradient(32, 32), 1, 1));
+    }
+
+    @Test
+    void encodesTheMaximumOfNineByNineComponents() {
+        String hash = BlurHash.encode(gradient(32, 32), 9, 9);
+
+        assertEquals(1 + 1 + 4 + 2 * (9 * 9 - 1), hash.length());
+        assertEquals("|$Het82swxX8a|ofWpofWpl}WDjte;fQe;fQe;fQgJfjfQfjfQfjfQfjfQnmWpjtfQfQfQfQfQfQf7fQfQfQfQfQfQfQfQ"
+                + "ofWpjtfQfQfQfQfQfQe;fQfQfQfQfQfQfQfQofWpjtfQfQfQfQfQfQe;fQfQfQfQfQfQfQfQ", hash);
+    }
+
+    @Test
+    void encodesSinglePixelImage() {
+        BufferedImage pixel = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        pixel.setRGB(0, 0, 200 << 16 | 100 << 8 | 50);
+
+        assertEquals("L~M|T9}=}=}=}=}=}=}=}=}=}=}=", BlurHash.encode(pixel, 4, 3));
+    }
+
+    @Test
+    void rejectsComponentCountsOutsideOneToNine() {
+        BufferedImage image = gradient(4, 4);
+
+        assertThrows(IllegalArgumentException.class, () -> BlurHash.encode(image, 0, 3));
+        assertThrows(IllegalArgumentException.class, () -> BlurHash.encode(image, 4, 10));
+    }
+
+    /**
+     * Red rises to the right, green downwards, blue is constant.
+     */
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / (width - 1)) << 16 | (y * 255 / (height - 1)) << 8 | 128);
+            }
+        }
+        return image;
+    }
+}
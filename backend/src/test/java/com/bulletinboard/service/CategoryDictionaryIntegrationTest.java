@@ -0,0 +1,92 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.dto.CategoryRequest;
+import com.bulletinboard.dto.CategoryResponse;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class CategoryDictionaryIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        // The test drives the relay itself
+        registry.add("app.events.initial-delay-ms", () -> "3600000");
+    }
+
+    @Autowired
+    private CategoryDictionary categoryDictionary;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private AdEventRelay adEventRelay;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void changesThroughCategoryServiceAreVisibleImmediately() {
+        long version = categoryDictionary.version();
+
+        CategoryResponse created = categoryService.createCategory(new CategoryRequest("Dictionary boats", null));
+
+        assertTrue(categoryDictionary.version() > version);
+        assertEquals("Dictionary boats", categoryDictionary.findName(created.getId()));
+        assertEquals(created.getId(), categoryDictionary.findIdByName("Dictionary boats").orElseThrow());
+        assertTrue(categoryService.getAllCategories().stream().anyMatch(c -> c.getId().equals(created.getId())));
+
+        categoryService.updateCategory(created.getId(), new CategoryRequest("Dictionary yachts", null));
+        assertEquals("Dictionary yachts", categoryDictionary.findName(created.getId()));
+        assertTrue(categoryDictionary.findIdByName("Dictionary boats").isEmpty());
+
+        categoryService.deleteCategory(created.getId());
+        assertFalse(categoryDictionary.existsById(created.getId()));
+    }
+
+    @Test
+    void changesFromOtherNodesArriveThroughTheOutbox() {
+        // Start the relay at the current position
+        adEventRelay.relay();
+        Long id = dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "Dictionary kayaks")
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+
+        // Not relayed yet: a miss falls back to the database
+        assertEquals("Dictionary kayaks", categoryDictionary.findName(id));
+
+        dsl.update(CATEGORIES)
+                .set(CATEGORIES.NAME, "Dictionary canoes")
+                .where(CATEGORIES.ID.eq(id))
+                .execute();
+        assertEquals("Dictionary kayaks", categoryDictionary.findName(id));
+
+        adEventRelay.relay();
+        assertEquals("Dictionary canoes", categoryDictionary.findName(id));
+    }
+}
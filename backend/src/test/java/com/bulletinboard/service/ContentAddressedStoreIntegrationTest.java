@@ -0,0 +1,211 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.ImageBlob;
+import com.bulletinboard.domain.ImageStatus;
+import com.bulletinboard.repository.AdImageRepository;
+import com.bulletinboard.repository.ImageBlobRepository;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.bulletinboard.generated.Tables.ADS;
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class ContentAddressedStoreIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    static Path uploadDir;
+
+    static {
+        try {
+            uploadDir = Files.createTempDirectory("uploads-test");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.upload-dir", () -> uploadDir.toString());
+    }
+
+    @Autowired
+    private ContentAddressedStore contentStore;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private AdImageRepository adImageRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void hashHitIsWrittenAgainWhenReleasedBeforeItIsAttached() throws Exception {
+        byte[] content = jpegBytes(1);
+        StoredBlob first = contentStore.store(contentStore.stage(new ByteArrayInputStream(content)));
+        StagedUpload second = contentStore.stage(new ByteArrayInputStream(content));
+        StoredBlob hit = contentStore.store(second);
+        assertFalse(hit.created());
+
+        // The first upload gives up and releases the still unreferenced blob
+        contentStore.release(first.blob().getSha256());
+        assertTrue(imageBlobRepository.findBySha256(hit.blob().getSha256()).isEmpty());
+        assertFalse(Files.exists(fileOf(hit.blob())));
+
+        attach(insertAd(), hit);
+
+        ImageBlob blob = imageBlobRepository.findBySha256(hit.blob().getSha256()).orElseThrow();
+        assertEquals(1, blob.getRefCount());
+        assertArrayEquals(content, Files.readAllBytes(fileOf(blob)));
+        second.discard();
+    }
+
+    @Test
+    void releaseWaitsForAnAttachThatFoundTheBlobFirst() throws Exception {
+        byte[] content = jpegBytes(2);
+        StoredBlob first = contentStore.store(contentStore.stage(new ByteArrayInputStream(content)));
+        StagedUpload second = contentStore.stage(new ByteArrayInputStream(content));
+        StoredBlob hit = contentStore.store(second);
+        Long adId = insertAd();
+
+        CompletableFuture<Void> release = transactionTemplate.execute(status -> {
+            ImageBlob locked = reference(hit);
+            CompletableFuture<Void> concurrent = CompletableFuture.runAsync(
+                    () -> contentStore.release(first.blob().getSha256()));
+            try {
+                concurrent.get(500, TimeUnit.MILLISECONDS);
+                throw new AssertionError("Release did not wait for the attaching transaction");
+            } catch (TimeoutException expected) {
+                // Blocked on the blob row
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            adImageRepository.saveAll(List.of(newImage(adId, locked)));
+            return concurrent;
+        });
+        release.get(10, TimeUnit.SECONDS);
+
+        ImageBlob blob = imageBlobRepository.findBySha256(hit.blob().getSha256()).orElseThrow();
+        assertEquals(1, blob.getRefCount());
+        assertArrayEquals(content, Files.readAllBytes(fileOf(blob)));
+        second.discard();
+    }
+
+    @Test
+    void onlyTheUploadThatRegistersTheBlobCreatedIt() throws Exception {
+        StoredBlob stored = contentStore.store(contentStore.stage(new ByteArrayInputStream(jpegBytes(5))));
+        assertTrue(stored.created());
+
+        // A parallel upload that lost the insert race must not own the blob
+        assertFalse(imageBlobRepository.insertIfAbsent(stored.blob()));
+        assertTrue(imageBlobRepository.findBySha256(stored.blob().getSha256()).isPresent());
+    }
+
+    @Test
+    void releaseDeletesUnreferencedBlobAndKeepsReferencedOne() throws Exception {
+        StoredBlob unreferenced = contentStore.store(contentStore.stage(new ByteArrayInputStream(jpegBytes(3))));
+        StoredBlob referenced = contentStore.store(contentStore.stage(new ByteArrayInputStream(jpegBytes(4))));
+        attach(insertAd(), referenced);
+
+        contentStore.release(unreferenced.blob().getSha256());
+        contentStore.release(referenced.blob().getSha256());
+
+        assertTrue(imageBlobRepository.findBySha256(unreferenced.blob().getSha256()).isEmpty());
+        assertFalse(Files.exists(fileOf(unreferenced.blob())));
+        assertTrue(imageBlobRepository.findBySha256(referenced.blob().getSha256()).isPresent());
+        assertTrue(Files.exists(fileOf(referenced.blob())));
+    }
+
+    private void attach(Long adId, StoredBlob stored) {
+        transactionTemplate.executeWithoutResult(status ->
+                adImageRepository.saveAll(List.of(newImage(adId, reference(stored)))));
+    }
+
+    private ImageBlob reference(StoredBlob stored) {
+        try {
+            return contentStore.reference(stored);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static AdImage newImage(Long adId, ImageBlob blob) {
+        AdImage image = new AdImage();
+        image.setAdId(adId);
+        image.setUrl(blob.getUrl());
+        image.setSha256(blob.getSha256());
+        image.setPosition(0);
+        image.setStatus(ImageStatus.PROCESSING);
+        return image;
+    }
+
+    private Long insertAd() {
+        Long categoryId = dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "Blobs " + System.nanoTime())
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+        return dsl.insertInto(ADS)
+                .set(ADS.TITLE, "Blob ad")
+                .set(ADS.CATEGORY_ID, categoryId)
+                .set(ADS.STATUS, AdStatus.ACTIVE.name())
+                .returning(ADS.ID)
+                .fetchOne(ADS.ID);
+    }
+
+    private static Path fileOf(ImageBlob blob) {
+        return uploadDir.resolve(blob.getUrl().replace("/uploads/", ""));
+    }
+
+    /**
+     * JPEG magic bytes followed by a distinct body; only the head is sniffed.
+     */
+    private static byte[] jpegBytes(int seed) {
+        byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * seed + seed);
+        }
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) 0xD8;
+        data[2] = (byte) 0xFF;
+        return data;
+    }
+}
@@ -0,0 +1,179 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.ImageStatus;
+import com.bulletinboard.domain.ImageVariant;
+import com.bulletinboard.dto.AdImageResponse;
+import com.bulletinboard.repository.AdImageRepository;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.bulletinboard.generated.Tables.ADS;
+import static com.bulletinboard.generated.Tables.AD_IMAGES;
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class ImageProcessingIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    static Path uploadDir;
+
+    static {
+        try {
+            uploadDir = Files.createTempDirectory("uploads-test");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.upload-dir", () -> uploadDir.toString());
+        // Retries are driven by the test, not the recovery sweep
+        registry.add("app.images.processing.recovery-initial-delay-ms", () -> "3600000");
+        registry.add("app.images.processing.max-attempts", () -> "2");
+    }
+
+    @Autowired
+    private AdImageService adImageService;
+
+    @Autowired
+    private ImageProcessingService imageProcessingService;
+
+    @Autowired
+    private AdImageRepository adImageRepository;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void uploadedImageGetsVariantsAndBecomesReady() throws Exception {
+        Long adId = insertAd();
+        MockMultipartFile file = new MockMultipartFile("files", "photo.jpg", "image/jpeg", jpeg(2000, 1000));
+
+        List<AdImageResponse> uploaded = adImageService.uploadImages(adId, List.of(file), editTokenOf(adId));
+        assertEquals(ImageStatus.PROCESSING, uploaded.get(0).status());
+
+        AdImage image = awaitProcessed(uploaded.get(0).id());
+        assertEquals(ImageStatus.READY, image.getStatus());
+        assertNotNull(image.getPlaceholder());
+        assertEquals(ImageProcessingService.variantUrl(image.getUrl(), ImageVariant.FULL), image.getFullUrl());
+        assertEquals(ImageProcessingService.variantUrl(image.getUrl(), ImageVariant.CARD), image.getCardUrl());
+        assertEquals(ImageProcessingService.variantUrl(image.getUrl(), ImageVariant.THUMBNAIL), image.getThumbnailUrl());
+
+        for (ImageVariant variant : ImageVariant.values()) {
+            Path path = uploadDir.resolve(ImageProcessingService.variantUrl(image.getUrl(), variant).replace("/uploads/", ""));
+            BufferedImage written = ImageIO.read(path.toFile());
+            assertNotNull(written, variant.name());
+            assertEquals(variant.getMaxDimension(), Math.max(written.getWidth(), written.getHeight()), variant.name());
+            assertEquals(2.0, (double) written.getWidth() / written.getHeight(), 0.02, variant.name());
+        }
+    }
+
+    @Test
+    void retriesFailedImageBeforeMarkingItFailed() {
+        AdImage image = new AdImage();
+        image.setAdId(insertAd());
+        image.setUrl("/uploads/missing/original.jpg");
+        image.setPosition(0);
+        image.setStatus(ImageStatus.PROCESSING);
+        Long imageId = adImageRepository.save(image).getId();
+
+        LocalDateTime beforeFirstAttempt = LocalDateTime.now();
+        imageProcessingService.process(adImageRepository.findById(imageId).orElseThrow());
+
+        AdImage retried = adImageRepository.findById(imageId).orElseThrow();
+        assertEquals(ImageStatus.PROCESSING, retried.getStatus());
+        assertEquals(1, retried.getProcessingAttempts());
+        LocalDateTime retryAt = dsl.select(AD_IMAGES.PROCESSING_RETRY_AT).from(AD_IMAGES)
+                .where(AD_IMAGES.ID.eq(imageId))
+                .fetchOne(AD_IMAGES.PROCESSING_RETRY_AT);
+        assertTrue(retryAt.isAfter(beforeFirstAttempt));
+        assertTrue(adImageRepository.findProcessingDue(LocalDateTime.now(), LocalDateTime.now(), 100).stream()
+                .noneMatch(due -> due.getId().equals(imageId)));
+        assertTrue(adImageRepository.findProcessingDue(LocalDateTime.now(), retryAt, 100).stream()
+                .anyMatch(due -> due.getId().equals(imageId)));
+
+        imageProcessingService.process(retried);
+
+        assertEquals(ImageStatus.FAILED, adImageRepository.findById(imageId).orElseThrow().getStatus());
+    }
+
+    private AdImage awaitProcessed(Long imageId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (true) {
+            AdImage image = adImageRepository.findById(imageId).orElseThrow();
+            if (image.getStatus() != ImageStatus.PROCESSING) {
+                return image;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Image " + imageId + " still processing");
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private Long insertAd() {
+        Long categoryId = dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "Processing " + System.nanoTime())
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+        return dsl.insertInto(ADS)
+                .set(ADS.TITLE, "Processing ad")
+                .set(ADS.CATEGORY_ID, categoryId)
+                .set(ADS.STATUS, AdStatus.ACTIVE.name())
+                .set(ADS.EDIT_TOKEN, "processing-" + System.nanoTime())
+                .returning(ADS.ID)
+                .fetchOne(ADS.ID);
+    }
+
+    private String editTokenOf(Long adId) {
+        return dsl.select(ADS.EDIT_TOKEN).from(ADS).where(ADS.ID.eq(adId)).fetchOne(ADS.EDIT_TOKEN);
+    }
+
+    private static byte[] jpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(width / 2, 0, width / 2, height);
+        graphics.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
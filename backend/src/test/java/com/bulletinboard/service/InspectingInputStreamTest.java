@@ -0,0 +1,100 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.exception.PayloadTooLargeException;
+import com.bulletinboard.exception.UnsupportedMediaTypeException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InspectingInputStreamTest {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    @Test
+    void hashesCountsAndSniffsWhatPassesThrough() throws Exception {
+        byte[] png = png(50_000);
+        InspectingInputStream in = new InspectingInputStream(new ByteArrayInputStream(png), 1_000_000);
+
+        in.transferTo(OutputStream.nullOutputStream());
+
+        assertEquals(InspectingInputStream.ImageType.PNG, in.getType());
+        assertEquals(png.length, in.getCount());
+        assertEquals(sha256(png), in.sha256Hex());
+    }
+
+    @Test
+    void skippedBytesAreStillHashedAndCounted() throws Exception {
+        byte[] png = png(50_000);
+        InspectingInputStream in = new InspectingInputStream(new ByteArrayInputStream(png), 1_000_000);
+
+        assertEquals(30_000, in.skip(30_000));
+        assertEquals(0, in.skip(0));
+        in.readAllBytes();
+        assertEquals(0, in.skip(10));
+
+        assertEquals(InspectingInputStream.ImageType.PNG, in.getType());
+        assertEquals(png.length, in.getCount());
+        assertEquals(sha256(png), in.sha256Hex());
+    }
+
+    @Test
+    void rejectsNonImageAsSoonAsTheHeadIsRead() {
+        byte[] text = "<html><body>not an image</body></html>".repeat(1000).getBytes(StandardCharsets.US_ASCII);
+        InspectingInputStream in = new InspectingInputStream(new ByteArrayInputStream(text), 1_000_000);
+
+        assertThrows(UnsupportedMediaTypeException.class, () -> in.read(new byte[64]));
+        assertEquals(64, in.getCount());
+    }
+
+    @Test
+    void rejectsPayloadShorterThanAnyImageHeader() {
+        InspectingInputStream in = new InspectingInputStream(new ByteArrayInputStream(new byte[]{(byte) 0xFF, (byte) 0xD8}), 100);
+
+        assertThrows(UnsupportedMediaTypeException.class, in::readAllBytes);
+    }
+
+    @Test
+    void rejectsPayloadOverTheSizeLimit() {
+        InspectingInputStream in = new InspectingInputStream(new ByteArrayInputStream(png(10_000)), 4_096);
+
+        assertThrows(PayloadTooLargeException.class, () -> in.transferTo(OutputStream.nullOutputStream()));
+    }
+
+    @Test
+    void sniffsEveryAcceptedType() throws IOException {
+        byte[][] heads = {
+                {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1},
+                png(12),
+                "GIF89a\0\0\0\0\0\0".getBytes(StandardCharsets.US_ASCII),
+                "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.US_ASCII)
+        };
+        InspectingInputStream.ImageType[] expected = InspectingInputStream.ImageType.values();
+        for (int i = 0; i < heads.length; i++) {
+            InspectingInputStream in = new InspectingInputStream(new ByteArrayInputStream(heads[i]), 100);
+            in.readAllBytes();
+            assertEquals(expected[i], in.getType());
+        }
+    }
+
+    private static byte[] png(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        System.arraycopy(PNG_SIGNATURE, 0, data, 0, PNG_SIGNATURE.length);
+        return data;
+    }
+
+    private static String sha256(byte[] data) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
@@ -0,0 +1,199 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.exception.PayloadTooLargeException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultipartStreamReaderTest {
+
+    private static final String BOUNDARY = "----boundary7MA4YWxk";
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=\"" + BOUNDARY + "\"";
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 7, 25, 64 * 1024})
+    void readsPartsWhateverTheReadSizes(int chunk) throws IOException {
+        byte[] file = new byte[100_000];
+        for (int i = 0; i < file.length; i++) {
+            file[i] = (byte) (i * 31);
+        }
+        byte[] body = concat(
+                ascii("preamble\r\n--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"title\"\r\n\r\n"
+                        + "Scooter\r\n--" + BOUNDARY + "\r\n"
+                        + "Content-Disposition: form-data; name=\"files\"; filename=\"a.jpg\"\r\n"
+                        + "Content-Type: image/jpeg\r\n\r\n"),
+                file,
+                ascii("\r\n--" + BOUNDARY + "--\r\n"));
+
+        MultipartStreamReader reader = reader(new ChunkedInputStream(body, chunk), Long.MAX_VALUE);
+
+        MultipartStreamReader.Part field = reader.nextPart();
+        assertEquals("title", field.name());
+        assertFalse(field.isFile());
+        assertEquals("Scooter", new String(field.body().readAllBytes(), StandardCharsets.UTF_8));
+
+        MultipartStreamReader.Part upload = reader.nextPart();
+        assertEquals("files", upload.name());
+        assertEquals("a.jpg", upload.filename());
+        assertEquals("image/jpeg", upload.contentType());
+        assertArrayEquals(file, upload.body().readAllBytes());
+
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    void keepsLineBreaksAndDashesInsidePartContent() throws IOException {
+        String content = "\r\n--\r\n-- not a boundary\r\n--" + BOUNDARY.substring(0, 10) + "\r\n\r\n";
+        byte[] body = ascii("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"b.png\"\r\n\r\n"
+                + content
+                + "\r\n--" + BOUNDARY + "--");
+
+        MultipartStreamReader reader = reader(new ChunkedInputStream(body, 5), Long.MAX_VALUE);
+
+        assertEquals(content, new String(reader.nextPart().body().readAllBytes(), StandardCharsets.US_ASCII));
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    void skipsUnreadRestOfPreviousPart() throws IOException {
+        byte[] body = ascii("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"first\"\r\n\r\n"
+                + "x".repeat(200_000) + "\r\n--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"second\"\r\n\r\n"
+                + "y\r\n--" + BOUNDARY + "--\r\n");
+
+        MultipartStreamReader reader = reader(new ByteArrayInputStream(body), Long.MAX_VALUE);
+
+        assertEquals("first", reader.nextPart().name());
+        MultipartStreamReader.Part second = reader.nextPart();
+        assertEquals("second", second.name());
+        assertEquals("y", new String(second.body().readAllBytes(), StandardCharsets.US_ASCII));
+        assertNull(reader.nextPart());
+    }
+
+    @Test
+    void rejectsBodyWithoutClosingBoundary() throws IOException {
+        byte[] truncated = ascii("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"c.jpg\"\r\n\r\n"
+                + "partial content");
+        MultipartStreamReader.Part part = reader(new ByteArrayInputStream(truncated), Long.MAX_VALUE).nextPart();
+        assertThrows(IllegalArgumentException.class, () -> part.body().readAllBytes());
+
+        byte[] unterminated = ascii("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"c.jpg\"\r\n\r\n"
+                + "content\r\n--" + BOUNDARY);
+        MultipartStreamReader.Part last = reader(new ByteArrayInputStream(unterminated), Long.MAX_VALUE).nextPart();
+        assertThrows(IllegalArgumentException.class, () -> last.body().readAllBytes());
+    }
+
+    @Test
+    void rejectsBodyWithoutAnyBoundary() {
+        MultipartStreamReader reader = reader(new ByteArrayInputStream(ascii("just some text\r\n")), Long.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, reader::nextPart);
+    }
+
+    @Test
+    void stopsReadingOnceTheSizeLimitIsExceeded() throws IOException {
+        byte[] body = ascii("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"d.jpg\"\r\n\r\n"
+                + "z".repeat(500_000) + "\r\n--" + BOUNDARY + "--\r\n");
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(body));
+
+        MultipartStreamReader.Part part = reader(in, 100_000).nextPart();
+
+        assertThrows(PayloadTooLargeException.class, () -> part.body().readAllBytes());
+        assertTrue(in.count < 200_000, "read " + in.count + " bytes");
+    }
+
+    @Test
+    void requiresMultipartContentTypeWithBoundary() {
+        InputStream empty = new ByteArrayInputStream(new byte[0]);
+        assertThrows(IllegalArgumentException.class,
+                () -> MultipartStreamReader.forContentType(empty, "application/json", 100));
+        assertThrows(IllegalArgumentException.class,
+                () -> MultipartStreamReader.forContentType(empty, "multipart/form-data", 100));
+    }
+
+    private static MultipartStreamReader reader(InputStream in, long maxBytes) {
+        return MultipartStreamReader.forContentType(in, CONTENT_TYPE, maxBytes);
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = 0;
+        for (byte[] array : arrays) {
+            length += array.length;
+        }
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] array : arrays) {
+            System.arraycopy(array, 0, result, offset, array.length);
+            offset += array.length;
+        }
+        return result;
+    }
+
+    /**
+     * Returns at most {@code chunk} bytes per read, like a slow client, so
+     * delimiters end up split across reads.
+     */
+    private static final class ChunkedInputStream extends ByteArrayInputStream {
+
+        private final int chunk;
+
+        ChunkedInputStream(byte[] data, int chunk) {
+            super(data);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, chunk));
+        }
+    }
+
+    private static final class CountingInputStream extends InputStream {
+
+        private final InputStream in;
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.bulletinboard.service;
+
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class ParallelReadsIntegrationTest {
+
+    private static final String SLEEP = "SELECT pg_sleep(30) AS parallel_read_sleep";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.parallel-reads.timeout", () -> "5s");
+    }
+
+    @Autowired
+    private ParallelReads parallelReads;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void closingTheScopeCancelsTheRunningQuery() throws Exception {
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            scope.fork(() -> dsl.fetchValue(SLEEP));
+            assertTrue(awaitSleeping(true, 5_000), "query did not start");
+        }
+        // Well before the statement timeout of the remaining budget
+        assertTrue(awaitSleeping(false, 1_000), "query still running after the fork was cancelled");
+    }
+
+    @Test
+    void joinTimeoutCancelsTheRunningQuery() throws Exception {
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            scope.fork(() -> dsl.fetchValue(SLEEP));
+
+            assertThrows(QueryTimeoutException.class, scope::join);
+            assertTrue(awaitSleeping(false, 1_000), "query still running after the join timed out");
+        }
+    }
+
+    @Test
+    void queryOfAForkNobodyWaitsForEndsWithTheBudget() throws Exception {
+        ParallelReads.Scope scope = parallelReads.open();
+        try {
+            scope.fork(() -> dsl.fetchValue(SLEEP));
+            assertTrue(awaitSleeping(true, 5_000), "query did not start");
+
+            // Neither joined nor closed: only the statement timeout ends it
+            assertTrue(awaitSleeping(false, 10_000), "query outlived the parallel reads timeout");
+        } finally {
+            scope.close();
+        }
+    }
+
+    private boolean awaitSleeping(boolean sleeping, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (System.currentTimeMillis() < deadline) {
+            if (isSleeping() == sleeping) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return isSleeping() == sleeping;
+    }
+
+    private boolean isSleeping() {
+        return dsl.fetchExists(DSL.selectOne()
+                .from(DSL.table("pg_stat_activity"))
+                .where(DSL.field("query", String.class).eq(SLEEP))
+                .and(DSL.field("state", String.class).eq("active")));
+    }
+}
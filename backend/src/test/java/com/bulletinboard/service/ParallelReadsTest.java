@@ -0,0 +1,105 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.datasource.ReplicaRouting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelReadsTest {
+
+    private ThreadPoolTaskExecutor executor;
+    private ParallelReads parallelReads;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.initialize();
+        parallelReads = new ParallelReads(executor, Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        ReplicaRouting.clearPin();
+    }
+
+    @Test
+    void forksRunAtTheSameTime() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            ParallelReads.Fork<String> first = scope.fork(() -> awaitOther(bothStarted, "first"));
+            ParallelReads.Fork<String> second = scope.fork(() -> awaitOther(bothStarted, "second"));
+            scope.join();
+
+            assertEquals("first", first.get());
+            assertEquals("second", second.get());
+        }
+    }
+
+    @Test
+    void failureIsRethrownAndInterruptsTheOtherForks() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        IllegalArgumentException failure = new IllegalArgumentException("bad");
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            scope.fork(() -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            });
+            scope.fork(() -> {
+                throw failure;
+            });
+
+            assertSame(failure, assertThrows(IllegalArgumentException.class, scope::join));
+        }
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void joinTimesOut() {
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            scope.fork(() -> {
+                Thread.sleep(10_000);
+                return null;
+            });
+
+            assertThrows(QueryTimeoutException.class, scope::join);
+        }
+    }
+
+    @Test
+    void forksInheritThePrimaryPin() {
+        ReplicaRouting.pinToPrimary();
+        try (ParallelReads.Scope scope = parallelReads.open()) {
+            ParallelReads.Fork<Boolean> pinned = scope.fork(ReplicaRouting::isPinned);
+            scope.join();
+
+            assertTrue(pinned.get());
+        }
+        assertTrue(ReplicaRouting.isPinned());
+    }
+
+    private static String awaitOther(CountDownLatch bothStarted, String result) throws InterruptedException {
+        bothStarted.countDown();
+        if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("forks ran one after another");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package com.bulletinboard.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PendingCountsTest {
+
+    @Test
+    void drainsAreSortedAndGivenBackCountsAreKept() {
+        PendingCounts counts = new PendingCounts();
+        counts.add(3L, 1);
+        counts.add(1L, 2);
+        counts.add(3L, 4);
+
+        Map<Long, Long> drained = counts.drain();
+        assertEquals(List.of(1L, 3L), List.copyOf(drained.keySet()));
+        assertEquals(5L, drained.get(3L));
+
+        drained.forEach(counts::add);
+        assertEquals(drained, counts.drain());
+        assertEquals(Map.of(), counts.drain());
+    }
+
+    @Test
+    void addsRacingWithTheRemovalOfIdleAdsAreNotLost() throws Exception {
+        PendingCounts counts = new PendingCounts();
+        int threads = 8;
+        int addsPerThread = 200_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long adId = t % 4;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < addsPerThread; i++) {
+                        counts.add(adId, 1);
+                        if (i % 1000 == 0) {
+                            // Leaves the ad idle now and then, so drains drop its adder
+                            Thread.yield();
+                        }
+                    }
+                }));
+            }
+
+            long total = 0;
+            while (!futures.stream().allMatch(Future::isDone)) {
+                total += sum(counts.drain());
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            total += sum(counts.drain());
+
+            assertEquals((long) threads * addsPerThread, total);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long sum(Map<Long, Long> drained) {
+        return drained.values().stream().mapToLong(Long::longValue).sum();
+    }
+}
@@ -0,0 +1,116 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.ImageStatus;
+import com.bulletinboard.domain.ImageVariant;
+import com.bulletinboard.repository.AdImageRepository;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.bulletinboard.generated.Tables.ADS;
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@Testcontainers
+class PlaceholderBackfillJobIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    static Path uploadDir;
+
+    static {
+        try {
+            uploadDir = Files.createTempDirectory("uploads-test");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.upload-dir", () -> uploadDir.toString());
+        // Driven by the test, not the scheduler
+        registry.add("app.images.placeholder-backfill.initial-delay-ms", () -> "3600000");
+        registry.add("app.images.placeholder-backfill.batch-size", () -> "1");
+    }
+
+    @Autowired
+    private PlaceholderBackfillJob placeholderBackfillJob;
+
+    @Autowired
+    private AdImageRepository adImageRepository;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Test
+    void fillsPlaceholdersOfReadyImagesFromTheirThumbnails() throws Exception {
+        Long adId = insertAd();
+        Long withThumbnail = insertReadyImage(adId, "/uploads/backfill/black.jpg");
+        writeThumbnail("/uploads/backfill/black.jpg");
+        Long withoutThumbnail = insertReadyImage(adId, "/uploads/backfill/missing.jpg");
+
+        // One image per batch, then one more run to notice the end
+        for (int run = 0; run < 3; run++) {
+            placeholderBackfillJob.backfill();
+        }
+
+        // A uniform image only has neutral AC components
+        assertEquals("L00000fQfQfQfQfQfQfQfQfQfQfQ", adImageRepository.findById(withThumbnail).orElseThrow().getPlaceholder());
+        assertNull(adImageRepository.findById(withoutThumbnail).orElseThrow().getPlaceholder());
+    }
+
+    private Long insertReadyImage(Long adId, String url) {
+        AdImage image = new AdImage();
+        image.setAdId(adId);
+        image.setUrl(url);
+        image.setPosition(0);
+        image.setStatus(ImageStatus.READY);
+        return adImageRepository.save(image).getId();
+    }
+
+    private static void writeThumbnail(String originalUrl) throws IOException {
+        String thumbnailUrl = ImageProcessingService.variantUrl(originalUrl, ImageVariant.THUMBNAIL);
+        Path path = uploadDir.resolve(thumbnailUrl.replace("/uploads/", ""));
+        Files.createDirectories(path.getParent());
+        BufferedImage black = new BufferedImage(160, 120, BufferedImage.TYPE_INT_RGB);
+        ImageIO.write(black, "jpg", path.toFile());
+    }
+
+    private Long insertAd() {
+        Long categoryId = dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "Backfill " + System.nanoTime())
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+        return dsl.insertInto(ADS)
+                .set(ADS.TITLE, "Backfill ad")
+                .set(ADS.CATEGORY_ID, categoryId)
+                .set(ADS.STATUS, AdStatus.ACTIVE.name())
+                .returning(ADS.ID)
+                .fetchOne(ADS.ID);
+    }
+}
@@ -0,0 +1,295 @@
+package com.bulletinboard.service;
+
+import com.bulletinboard.domain.AdImage;
+import com.bulletinboard.domain.AdStatus;
+import com.bulletinboard.domain.ImageBlob;
+import com.bulletinboard.domain.ImageStatus;
+import com.bulletinboard.repository.AdImageRepository;
+import com.bulletinboard.repository.ImageBlobRepository;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+import static com.bulletinboard.generated.Tables.ADS;
+import static com.bulletinboard.generated.Tables.AD_IMAGES;
+import static com.bulletinboard.generated.Tables.CATEGORIES;
+import static com.bulletinboard.generated.Tables.IMAGE_BLOBS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Testcontainers
+class UploadGarbageCollectorIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    static Path uploadDir;
+
+    static {
+        try {
+            uploadDir = Files.createTempDirectory("uploads-test");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("app.upload-dir", () -> uploadDir.toString());
+        // Runs are driven by the test, and nothing else may write variants
+        registry.add("app.images.gc.initial-delay-ms", () -> "3600000");
+        registry.add("app.images.processing.recovery-initial-delay-ms", () -> "3600000");
+        registry.add("app.images.placeholder-backfill.initial-delay-ms", () -> "3600000");
+        registry.add("app.images.gc.directories-per-run", () -> "2");
+        registry.add("app.images.gc.max-deletes-per-run", () -> "3");
+    }
+
+    @Autowired
+    private UploadGarbageCollector garbageCollector;
+
+    @Autowired
+    private ContentAddressedStore contentStore;
+
+    @Autowired
+    private ImageBlobRepository imageBlobRepository;
+
+    @Autowired
+    private AdImageRepository adImageRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dsl.deleteFrom(AD_IMAGES).execute();
+        dsl.deleteFrom(IMAGE_BLOBS).execute();
+        try (Stream<Path> paths = Files.walk(uploadDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                if (!path.equals(uploadDir)) {
+                    Files.delete(path);
+                }
+            }
+        }
+        // An empty pass resets the cursor a previous test may have left behind
+        garbageCollector.collect();
+    }
+
+    @Test
+    void deletesOrphansAndKeepsReferencedAndFreshFiles() throws Exception {
+        ImageBlob referenced = attach(insertAd(), contentStore.store(stage(1)));
+        ImageBlob unreferenced = contentStore.store(stage(2)).blob();
+        Path variant = Files.writeString(fileOf(unreferenced).resolveSibling(unreferenced.getSha256() + "_thumb.jpg"), "v");
+        Path orphan = casFile("ab", "cd", "orphan.jpg");
+        Path freshOrphan = casFile("ab", "cd", "fresh.jpg");
+        Path staleStaging = Files.writeString(uploadDir.resolve(ContentAddressedStore.STAGING_DIR).resolve(".upload-1.part"), "s");
+        Path freshStaging = Files.writeString(uploadDir.resolve(ContentAddressedStore.STAGING_DIR).resolve(".upload-2.part"), "s");
+        age(referenced.getSha256(), fileOf(referenced));
+        age(unreferenced.getSha256(), fileOf(unreferenced), variant);
+        age(null, orphan, staleStaging);
+
+        for (int run = 0; run < 5; run++) {
+            garbageCollector.collect();
+        }
+
+        assertTrue(imageBlobRepository.findBySha256(referenced.getSha256()).isPresent());
+        assertTrue(Files.exists(fileOf(referenced)));
+        assertTrue(imageBlobRepository.findBySha256(unreferenced.getSha256()).isEmpty());
+        assertFalse(Files.exists(fileOf(unreferenced)));
+        assertFalse(Files.exists(variant));
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(freshOrphan));
+        assertFalse(Files.exists(staleStaging));
+        assertTrue(Files.exists(freshStaging));
+    }
+
+    @Test
+    void unreferencedBlobYoungerThanTheGracePeriodIsKept() throws Exception {
+        ImageBlob blob = contentStore.store(stage(3)).blob();
+        // Only the file looks old; the row was registered just now
+        age(null, fileOf(blob));
+
+        garbageCollector.collect();
+
+        assertTrue(imageBlobRepository.findBySha256(blob.getSha256()).isPresent());
+        assertTrue(Files.exists(fileOf(blob)));
+    }
+
+    @Test
+    void oldBlobBeingAttachedIsNotDeleted() throws Exception {
+        StoredBlob first = contentStore.store(stage(4));
+        StoredBlob hit = contentStore.store(stage(4));
+        age(first.blob().getSha256(), fileOf(first.blob()));
+        Long adId = insertAd();
+
+        CompletableFuture<Void> sweep = transactionTemplate.execute(status -> {
+            ImageBlob locked = reference(hit);
+            CompletableFuture<Void> concurrent = CompletableFuture.runAsync(garbageCollector::collect);
+            try {
+                concurrent.get(500, TimeUnit.MILLISECONDS);
+                throw new AssertionError("GC did not wait for the attaching transaction");
+            } catch (TimeoutException expected) {
+                // Blocked on the blob row
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            adImageRepository.saveAll(List.of(newImage(adId, locked)));
+            return concurrent;
+        });
+        sweep.get(10, TimeUnit.SECONDS);
+
+        ImageBlob blob = imageBlobRepository.findBySha256(first.blob().getSha256()).orElseThrow();
+        assertEquals(1, blob.getRefCount());
+        assertTrue(Files.exists(fileOf(blob)));
+        hit.upload().discard();
+    }
+
+    @Test
+    void deletesAtMostTheBudgetPerRunAndResumesAfterTheCursor() throws Exception {
+        // Leaf directories are visited in order, two per run
+        Path a1 = casFile("a0", "00", "a1.jpg");
+        Path a2 = casFile("a0", "00", "a2.jpg");
+        Path b1 = casFile("b0", "00", "b1.jpg");
+        Path b2 = casFile("b0", "00", "b2.jpg");
+        Path c1 = casFile("c0", "00", "c1.jpg");
+        age(null, a1, a2, b1, b2, c1);
+
+        garbageCollector.collect();
+        // The budget ran out inside b0/00, so that directory is swept again
+        assertEquals(3, countMissing(a1, a2, b1, b2, c1));
+        assertFalse(Files.exists(a1));
+        assertFalse(Files.exists(a2));
+        assertTrue(Files.exists(c1));
+
+        garbageCollector.collect();
+        assertEquals(5, countMissing(a1, a2, b1, b2, c1));
+
+        // Nothing is left after c0/00, so the next run starts over
+        garbageCollector.collect();
+        Path a3 = casFile("a0", "00", "a3.jpg");
+        age(null, a3);
+        garbageCollector.collect();
+        assertFalse(Files.exists(a3));
+    }
+
+    private ImageBlob attach(Long adId, StoredBlob stored) {
+        return transactionTemplate.execute(status -> {
+            ImageBlob blob = reference(stored);
+            adImageRepository.saveAll(List.of(newImage(adId, blob)));
+            return blob;
+        });
+    }
+
+    private ImageBlob reference(StoredBlob stored) {
+        try {
+            return contentStore.reference(stored);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private StagedUpload stage(int seed) throws IOException {
+        return contentStore.stage(new ByteArrayInputStream(jpegBytes(seed)));
+    }
+
+    /**
+     * Moves files, and the blob row when given, past the grace period.
+     */
+    private void age(String sha256, Path... files) throws IOException {
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+        for (Path file : files) {
+            Files.setLastModifiedTime(file, old);
+        }
+        if (sha256 != null) {
+            dsl.update(IMAGE_BLOBS)
+                    .set(IMAGE_BLOBS.CREATED_AT, LocalDateTime.now().minusHours(2))
+                    .where(IMAGE_BLOBS.SHA256.eq(sha256))
+                    .execute();
+        }
+    }
+
+    private static Path casFile(String first, String second, String name) throws IOException {
+        Path directory = Files.createDirectories(uploadDir.resolve(ContentAddressedStore.CAS_DIR).resolve(first).resolve(second));
+        return Files.writeString(directory.resolve(name), "orphan");
+    }
+
+    private static long countMissing(Path... files) {
+        return Stream.of(files).filter(file -> !Files.exists(file)).count();
+    }
+
+    private static AdImage newImage(Long adId, ImageBlob blob) {
+        AdImage image = new AdImage();
+        image.setAdId(adId);
+        image.setUrl(blob.getUrl());
+        image.setSha256(blob.getSha256());
+        image.setPosition(0);
+        image.setStatus(ImageStatus.PROCESSING);
+        return image;
+    }
+
+    private Long insertAd() {
+        Long categoryId = dsl.insertInto(CATEGORIES)
+                .set(CATEGORIES.NAME, "GC " + System.nanoTime())
+                .returning(CATEGORIES.ID)
+                .fetchOne(CATEGORIES.ID);
+        return dsl.insertInto(ADS)
+                .set(ADS.TITLE, "GC ad")
+                .set(ADS.CATEGORY_ID, categoryId)
+                .set(ADS.STATUS, AdStatus.ACTIVE.name())
+                .returning(ADS.ID)
+                .fetchOne(ADS.ID);
+    }
+
+    private static Path fileOf(ImageBlob blob) {
+        return uploadDir.resolve(blob.getUrl().replace("/uploads/", ""));
+    }
+
+    /**
+     * JPEG magic bytes followed by a distinct body; only the head is sniffed.
+     */
+    private static byte[] jpegBytes(int seed) {
+        byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * seed + seed);
+        }
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) 0xD8;
+        data[2] = (byte) 0xFF;
+        return data;
+    }
+}
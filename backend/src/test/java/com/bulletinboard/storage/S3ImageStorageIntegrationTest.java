@@ -0,0 +1,130 @@
+package com.bulletinboard.storage;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class S3ImageStorageIntegrationTest {
+
+    private static final long PART_SIZE = 5L * 1024 * 1024;
+
+    @Container
+    static MinIOContainer minio = new MinIOContainer("minio/minio:RELEASE.2023-09-04T19-57-37Z");
+
+    static S3ImageStorage storage;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeAll
+    static void createStorage() {
+        storage = new S3ImageStorage(new S3ImageStorage.Settings(minio.getS3URL(), "us-east-1", "images",
+                minio.getUserName(), minio.getPassword(), true, null, Duration.ofMinutes(5), PART_SIZE, 3));
+        storage.ensureBucket();
+    }
+
+    @AfterAll
+    static void closeStorage() {
+        storage.close();
+    }
+
+    @Test
+    void putFetchAndDelete() throws Exception {
+        byte[] content = randomBytes(1024);
+        storage.put("cas/aa/bb/small.jpg", tempFile(content), "image/jpeg");
+
+        StoredObject stat = storage.stat("cas/aa/bb/small.jpg").orElseThrow();
+        assertEquals(content.length, stat.size());
+        try (StorageFile file = storage.fetch("cas/aa/bb/small.jpg")) {
+            assertArrayEquals(content, Files.readAllBytes(file.path()));
+        }
+        try (InputStream head = storage.openRange("cas/aa/bb/small.jpg", 0, 12)) {
+            assertArrayEquals(Arrays.copyOf(content, 12), head.readAllBytes());
+        }
+
+        storage.delete("cas/aa/bb/small.jpg");
+        assertFalse(storage.exists("cas/aa/bb/small.jpg"));
+    }
+
+    @Test
+    void largeObjectsAreUploadedInParts() throws Exception {
+        byte[] content = randomBytes((int) (PART_SIZE * 2 + 12345));
+        Path source = tempFile(content);
+        storage.put("cas/cc/dd/large.jpg", source, "image/jpeg");
+
+        assertFalse(Files.exists(source), "source is consumed");
+        try (StorageFile file = storage.fetch("cas/cc/dd/large.jpg")) {
+            assertArrayEquals(content, Files.readAllBytes(file.path()));
+        }
+    }
+
+    @Test
+    void listsDirectoriesAndObjects() throws Exception {
+        storage.put("cas/ee/01/one.jpg", tempFile(randomBytes(10)), "image/jpeg");
+        storage.put("cas/ee/02/two.jpg", tempFile(randomBytes(10)), "image/jpeg");
+        storage.put("cas/ee/02/two_thumb.jpg", tempFile(randomBytes(10)), "image/jpeg");
+
+        assertEquals(List.of("01", "02"), storage.listDirectories("cas/ee"));
+        List<String> keys = storage.listObjects("cas/ee/02").stream().map(StoredObject::key).sorted().toList();
+        assertEquals(List.of("cas/ee/02/two.jpg", "cas/ee/02/two_thumb.jpg"), keys);
+    }
+
+    @Test
+    void presignedUploadAcceptsOnlyTheAnnouncedContent() throws Exception {
+        byte[] content = randomBytes(2048);
+        String sha256 = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(content));
+        PresignedUpload upload = storage.presignUpload("cas/ff/00/direct.jpg", "image/jpeg", content.length,
+                sha256, Duration.ofMinutes(5)).orElseThrow();
+
+        byte[] tampered = content.clone();
+        tampered[0] ^= 1;
+        assertTrue(send(upload, tampered).statusCode() >= 400);
+        assertFalse(storage.exists("cas/ff/00/direct.jpg"));
+
+        assertEquals(200, send(upload, content).statusCode());
+        assertEquals(content.length, storage.stat("cas/ff/00/direct.jpg").orElseThrow().size());
+
+        HttpResponse<byte[]> redirected = http.send(
+                HttpRequest.newBuilder(storage.redirectUrl("cas/ff/00/direct.jpg").orElseThrow()).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, redirected.statusCode());
+        assertArrayEquals(content, redirected.body());
+    }
+
+    private HttpResponse<Void> send(PresignedUpload upload, byte[] body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(upload.url())
+                .method(upload.method(), HttpRequest.BodyPublishers.ofByteArray(body));
+        upload.headers().forEach(request::header);
+        return http.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static Path tempFile(byte[] content) throws Exception {
+        Path file = Files.createTempFile("s3-test-", ".bin");
+        Files.write(file, content);
+        return file;
+    }
+}
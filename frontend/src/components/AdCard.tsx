@@ -3,6 +3,7 @@ import { Link } from 'react-router-dom';
 import { Ad } from '@/types/api';
 import { Card, CardContent, CardFooter, CardHeader, CardTitle } from '@/components/ui/card';
 import { Badge } from '@/components/ui/badge';
+import { placeholderStyle } from '@/lib/blurhash';
 import { formatDistanceToNow, Locale } from 'date-fns';
 import { enUS, de, ru, fr, th } from 'date-fns/locale';
 
@@ -29,6 +30,7 @@ export function AdCard({ ad, onClick }: AdCardProps) {
     INACTIVE: 'bg-gray-100 text-gray-800',
     SOLD: 'bg-blue-100 text-blue-800',
     DELETED: 'bg-red-100 text-red-800',
+    EXPIRED: 'bg-yellow-100 text-yellow-800',
   };
 
 
@@ -54,8 +56,10 @@ export function AdCard({ ad, onClick }: AdCardProps) {
             onClick={() => onClick?.(ad)}>
         {mainImage && (
           <img
-            src={`${FILES_URL}${mainImage.url}`}
-            className="w-full h-48 object-cover rounded-t-lg"
+            src={`${FILES_URL}${mainImage.cardUrl ?? mainImage.url}`}
+            className="w-full h-48 object-cover rounded-t-lg bg-cover bg-center"
+            style={placeholderStyle(mainImage.placeholder)}
+            loading="lazy"
             alt={ad.title}
           />
         )}
@@ -1,7 +1,7 @@
 import { useState, useEffect } from 'react';
 import { useTranslation } from 'react-i18next';
 import { Ad } from '@/types/api';
-import { getAdById } from '@/lib/api';
+import { getAdById, recordContact } from '@/lib/api';
 import { Card, CardContent, CardFooter, CardHeader, CardTitle } from '@/components/ui/card';
 import { Badge } from '@/components/ui/badge';
 import { Button } from '@/components/ui/button';
@@ -44,6 +44,7 @@ export function AdDetail({ adId, onBack }: AdDetailProps) {
     INACTIVE: 'bg-gray-100 text-gray-800',
     SOLD: 'bg-blue-100 text-blue-800',
     DELETED: 'bg-red-100 text-red-800',
+    EXPIRED: 'bg-yellow-100 text-yellow-800',
   };
 
   const formatPrice = (price: number) => {
@@ -137,7 +138,7 @@ export function AdDetail({ adId, onBack }: AdDetailProps) {
 
         <CardFooter className="border-t pt-4">
           <div className="flex gap-2 w-full">
-            <Button className="flex-1">
+            <Button className="flex-1" onClick={() => recordContact(ad.id).catch(() => undefined)}>
               <DollarSign className="h-4 w-4 mr-2" />
               {t('adDetail.contact')}
             </Button>
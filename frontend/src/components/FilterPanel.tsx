@@ -174,6 +174,7 @@ export function FilterPanel({ filters, onFiltersChange, onApply }: FilterPanelPr
             <SelectItem value="price-desc">{t('filters.expensiveFirst')}</SelectItem>
             <SelectItem value="title-asc">{t('filters.titleAZ')}</SelectItem>
             <SelectItem value="title-desc">{t('filters.titleZA')}</SelectItem>
+            <SelectItem value="views-desc">{t('filters.mostViewed')}</SelectItem>
           </SelectContent>
         </Select>
       </div>
@@ -0,0 +1,35 @@
+import { useState, useEffect } from 'react';
+import { useTranslation } from 'react-i18next';
+import { Ad, Area } from '@/types/api';
+import { getTrendingAds } from '@/lib/api';
+import { AdCard } from './AdCard';
+
+interface TrendingAdsProps {
+  area?: Area;
+}
+
+export function TrendingAds({ area }: TrendingAdsProps) {
+  const { t } = useTranslation();
+  const [ads, setAds] = useState<Ad[]>([]);
+
+  useEffect(() => {
+    getTrendingAds(area, 3)
+      .then(setAds)
+      .catch(() => setAds([]));
+  }, [area]);
+
+  if (ads.length === 0) {
+    return null;
+  }
+
+  return (
+    <section className="mb-6">
+      <h2 className="text-lg font-semibold mb-3">{t('ads.trending')}</h2>
+      <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-6">
+        {ads.map((ad) => (
+          <AdCard key={ad.id} ad={ad} />
+        ))}
+      </div>
+    </section>
+  );
+}
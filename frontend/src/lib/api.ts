@@ -1,4 +1,4 @@
-import { Ad, Category, PageResponse, AdSearchParams, AdCreateRequest, AdUpdateRequest } from '@/types/api';
+import { Ad, Area, Category, PageResponse, AdSearchParams, AdCreateRequest, AdUpdateRequest, DirectUploadResponse } from '@/types/api';
 
 const API_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080/api';
 
@@ -71,6 +71,22 @@ export async function getAdById(id: number): Promise<Ad> {
   return fetchApi<Ad>(`/ads/${id}`);
 }
 
+export async function getTrendingAds(area?: Area, limit?: number): Promise<Ad[]> {
+  const searchParams = new URLSearchParams();
+  if (area !== undefined) searchParams.set('area', area);
+  if (limit !== undefined) searchParams.set('limit', String(limit));
+
+  const queryString = searchParams.toString();
+  return fetchApi<Ad[]>(`/ads/trending${queryString ? `?${queryString}` : ''}`);
+}
+
+/** Counts towards the ad's trending rank. */
+export async function recordContact(id: number): Promise<void> {
+  return fetchApi<void>(`/ads/${id}/contact`, {
+    method: 'POST',
+  });
+}
+
 export async function createAd(data: AdCreateRequest): Promise<Ad> {
   return fetchApi<Ad>('/ads', {
     method: 'POST',
@@ -82,9 +98,17 @@ export async function getAdByToken(token: string): Promise<Ad> {
   return fetchApi<Ad>(`/ads/edit/${token}`);
 }
 
-export async function updateAdByToken(token: string, data: AdUpdateRequest): Promise<Ad> {
+/**
+ * With `version`, the update is refused (412) if the ad was changed since
+ * that version was loaded.
+ */
+export async function updateAdByToken(token: string, data: AdUpdateRequest, version?: number): Promise<Ad> {
   return fetchApi<Ad>(`/ads/edit/${token}`, {
     method: 'PUT',
+    headers: {
+      'Content-Type': 'application/json',
+      ...(version !== undefined ? { 'If-Match': `"${version}"` } : {}),
+    },
     body: JSON.stringify(data),
   });
 }
@@ -95,6 +119,72 @@ export async function deleteAdByToken(token: string): Promise<void> {
   });
 }
 
+async function sha256Hex(file: File): Promise<string> {
+  const digest = await crypto.subtle.digest('SHA-256', await file.arrayBuffer());
+  return Array.from(new Uint8Array(digest))
+    .map((b) => b.toString(16).padStart(2, '0'))
+    .join('');
+}
+
+/**
+ * Uploads straight to the image storage with pre-signed requests, so the
+ * bytes never pass through the backend. Returns false when the backend's
+ * storage does not support it; nothing has been attached in that case.
+ */
+async function uploadAdImagesDirect(
+  adId: number,
+  editToken: string,
+  files: File[]
+): Promise<boolean> {
+  if (!globalThis.crypto?.subtle) return false;
+
+  const announced = await Promise.all(
+    files.map(async (file) => ({
+      sha256: await sha256Hex(file),
+      contentType: file.type,
+      size: file.size,
+    }))
+  );
+
+  const prepared: DirectUploadResponse[] = [];
+  for (const item of announced) {
+    const response = await fetch(`${API_URL}/ads/${adId}/images/direct`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+        'X-Edit-Token': editToken,
+      },
+      body: JSON.stringify(item),
+    });
+    if (!response.ok) return false;
+    prepared.push(await response.json());
+  }
+
+  await Promise.all(
+    prepared.map(async (upload, index) => {
+      if (upload.exists || !upload.uploadUrl) return;
+      const response = await fetch(upload.uploadUrl, {
+        method: upload.method ?? 'PUT',
+        headers: upload.headers,
+        body: files[index],
+      });
+      if (!response.ok) {
+        throw new ApiError(response.status, response.statusText, 'Failed to upload image to storage');
+      }
+    })
+  );
+
+  await fetchApi<unknown>(`/ads/${adId}/images/direct/complete`, {
+    method: 'POST',
+    headers: {
+      'Content-Type': 'application/json',
+      'X-Edit-Token': editToken,
+    },
+    body: JSON.stringify({ files: announced }),
+  });
+  return true;
+}
+
 export async function uploadAdImages(
   adId: number,
   editToken: string,
@@ -102,6 +192,8 @@ export async function uploadAdImages(
 ): Promise<void> {
   if (files.length === 0) return;
 
+  if (await uploadAdImagesDirect(adId, editToken, files)) return;
+
   const formData = new FormData();
   files.forEach((file) => formData.append('files', file));
 
@@ -0,0 +1,120 @@
+import type { CSSProperties } from 'react';
+
+const ALPHABET =
+  '0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~';
+
+const DIGITS = new Map([...ALPHABET].map((c, i) => [c, i]));
+
+// Decoded placeholders, shared by every card showing the same image
+const cache = new Map<string, string | undefined>();
+
+function decode83(value: string): number {
+  let result = 0;
+  for (const c of value) {
+    const digit = DIGITS.get(c);
+    if (digit === undefined) throw new Error(`Invalid BlurHash character: ${c}`);
+    result = result * 83 + digit;
+  }
+  return result;
+}
+
+function srgbToLinear(value: number): number {
+  const v = value / 255;
+  return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+}
+
+function linearToSrgb(value: number): number {
+  const v = Math.max(0, Math.min(1, value));
+  return v <= 0.0031308
+    ? Math.round(v * 12.92 * 255)
+    : Math.round((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255);
+}
+
+function signPow(value: number, exp: number): number {
+  return Math.sign(value) * Math.pow(Math.abs(value), exp);
+}
+
+/**
+ * Decodes a BlurHash into RGBA pixels of the given size.
+ */
+export function decodeBlurHash(hash: string, width: number, height: number): Uint8ClampedArray {
+  const sizeFlag = decode83(hash[0]);
+  const componentsY = Math.floor(sizeFlag / 9) + 1;
+  const componentsX = (sizeFlag % 9) + 1;
+  if (hash.length !== 4 + 2 * componentsX * componentsY) {
+    throw new Error('Invalid BlurHash length');
+  }
+
+  const maximum = (decode83(hash[1]) + 1) / 166;
+  const colors: number[][] = [];
+  const dc = decode83(hash.substring(2, 6));
+  colors.push([srgbToLinear(dc >> 16), srgbToLinear((dc >> 8) & 255), srgbToLinear(dc & 255)]);
+  for (let i = 1; i < componentsX * componentsY; i++) {
+    const ac = decode83(hash.substring(4 + i * 2, 6 + i * 2));
+    colors.push([
+      signPow((Math.floor(ac / (19 * 19)) - 9) / 9, 2) * maximum,
+      signPow(((Math.floor(ac / 19) % 19) - 9) / 9, 2) * maximum,
+      signPow(((ac % 19) - 9) / 9, 2) * maximum,
+    ]);
+  }
+
+  const pixels = new Uint8ClampedArray(width * height * 4);
+  for (let y = 0; y < height; y++) {
+    for (let x = 0; x < width; x++) {
+      let r = 0;
+      let g = 0;
+      let b = 0;
+      for (let j = 0; j < componentsY; j++) {
+        for (let i = 0; i < componentsX; i++) {
+          const basis = Math.cos((Math.PI * x * i) / width) * Math.cos((Math.PI * y * j) / height);
+          const color = colors[i + j * componentsX];
+          r += color[0] * basis;
+          g += color[1] * basis;
+          b += color[2] * basis;
+        }
+      }
+      const offset = 4 * (x + y * width);
+      pixels[offset] = linearToSrgb(r);
+      pixels[offset + 1] = linearToSrgb(g);
+      pixels[offset + 2] = linearToSrgb(b);
+      pixels[offset + 3] = 255;
+    }
+  }
+  return pixels;
+}
+
+/**
+ * Renders a BlurHash into a tiny data URL for use as a CSS background; the
+ * browser's scaling supplies the blur. Returns undefined when there is no
+ * hash or no canvas (e.g. in tests).
+ */
+export function blurHashToDataUrl(hash: string | null | undefined, size = 32): string | undefined {
+  if (!hash) return undefined;
+  if (cache.has(hash)) return cache.get(hash);
+
+  let url: string | undefined;
+  try {
+    const canvas = document.createElement('canvas');
+    canvas.width = size;
+    canvas.height = size;
+    const context = canvas.getContext('2d');
+    if (context) {
+      const image = context.createImageData(size, size);
+      image.data.set(decodeBlurHash(hash, size, size));
+      context.putImageData(image, 0, 0);
+      url = canvas.toDataURL();
+    }
+  } catch {
+    url = undefined;
+  }
+  cache.set(hash, url);
+  return url;
+}
+
+/**
+ * Inline style that shows the placeholder behind an image until it loads.
+ */
+export function placeholderStyle(hash: string | null | undefined): CSSProperties | undefined {
+  const url = blurHashToDataUrl(hash);
+  return url ? { backgroundImage: `url(${url})` } : undefined;
+}
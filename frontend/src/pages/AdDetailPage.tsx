@@ -27,6 +27,7 @@ const STATUS_COLORS: Record<string, string> = {
   INACTIVE: 'bg-gray-100 text-gray-800',
   SOLD: 'bg-blue-100 text-blue-800',
   DELETED: 'bg-red-100 text-red-800',
+  EXPIRED: 'bg-yellow-100 text-yellow-800',
   BLOCKED: 'bg-red-100 text-red-800',
 };
 
@@ -160,7 +161,7 @@ export function AdDetailPage() {
                         onClick={() => openLightbox(index)}
                       >
                         <img
-                          src={`${FILES_URL}${image.url}`}
+                          src={`${FILES_URL}${image.fullUrl ?? image.url}`}
                           alt={`${ad.title} - Image ${index + 1}`}
                           className="w-full h-full object-contain rounded-lg bg-gray-100 hover:opacity-90 transition-opacity"
                         />
@@ -234,6 +235,7 @@ export function AdDetailPage() {
           <div className="border-t pt-4 text-sm text-gray-500">
             <p>Posted {timeAgo}</p>
             {ad.userName && <p>By: {ad.userName}</p>}
+            <p>Views: {ad.viewCount}</p>
           </div>
         </CardContent>
       </Card>
@@ -289,7 +291,7 @@ export function AdDetailPage() {
                     <CarouselItem key={image.id}>
                       <div className="flex items-center justify-center h-screen px-16">
                         <img
-                          src={`${FILES_URL}${image.url}`}
+                          src={`${FILES_URL}${image.fullUrl ?? image.url}`}
                           alt={`${ad.title} - Image ${index + 1}`}
                           className="max-w-full max-h-[90vh] object-contain"
                         />
@@ -3,6 +3,7 @@ import { useParams, useNavigate, Link } from 'react-router-dom';
 import { Ad, AdUpdateRequest, Area, PricePeriod, Category, AdStatus } from '@/types/api';
 import { getAdByToken, updateAdByToken, deleteAdByToken, getCategories, uploadAdImages, deleteAdImage, ApiError } from '@/lib/api';
 import { AREAS, PRICE_PERIODS, USER_EDITABLE_STATUSES } from '@/lib/constants';
+import { placeholderStyle } from '@/lib/blurhash';
 import { Button } from '@/components/ui/button';
 import { Input } from '@/components/ui/input';
 import { Select, SelectContent, SelectItem, SelectTrigger, SelectValue } from '@/components/ui/select';
@@ -105,11 +106,13 @@ export function EditAdPage() {
     setSuccess(null);
 
     try {
-      const updatedAd = await updateAdByToken(token, formData);
+      const updatedAd = await updateAdByToken(token, formData, ad?.version);
       setAd(updatedAd);
       setSuccess('Ad updated successfully!');
     } catch (err) {
-      if (err instanceof ApiError) {
+      if (err instanceof ApiError && err.status === 412) {
+        setError('This ad was changed elsewhere. Reload the page to see the latest version.');
+      } else if (err instanceof ApiError) {
         setError(err.message);
       } else {
         setError('Failed to update ad');
@@ -425,9 +428,10 @@ export function EditAdPage() {
                 {ad.images.map((image, index) => (
                   <div key={image.id} className="relative group">
                     <img
-                      src={`${FILES_URL}${image.url}`}
+                      src={`${FILES_URL}${image.cardUrl ?? image.url}`}
                       alt={`Image ${index + 1}`}
-                      className="w-full h-32 object-cover rounded-lg cursor-pointer hover:opacity-90 transition-opacity"
+                      className="w-full h-32 object-cover rounded-lg cursor-pointer hover:opacity-90 transition-opacity bg-cover bg-center"
+                      style={placeholderStyle(image.placeholder)}
                       onClick={() => openLightbox(index)}
                     />
                     <button
@@ -3,6 +3,7 @@ import { Link } from 'react-router-dom';
 import { Ad, AdSearchParams, PageResponse } from '@/types/api';
 import { searchAds } from '@/lib/api';
 import { AdList } from '@/components/AdList';
+import { TrendingAds } from '@/components/TrendingAds';
 import { SearchBar } from '@/components/SearchBar';
 import { FilterPanel } from '@/components/FilterPanel';
 import { AdPagination } from '@/components/AdPagination';
@@ -101,6 +102,8 @@ export function HomePage() {
             )}
           </div>
           
+          <TrendingAds area={filters.area} />
+
           <AdList ads={ads} loading={loading} />
           
           <AdPagination
@@ -18,6 +18,8 @@ const mockAds: Ad[] = [
     pricePeriod: 'MONTH',
     createdAt: '2024-01-01T00:00:00Z',
     updatedAt: '2024-01-01T00:00:00Z',
+    version: 0,
+    viewCount: 0,
   },
   {
     id: 2,
@@ -33,6 +35,8 @@ const mockAds: Ad[] = [
     pricePeriod: 'DAY',
     createdAt: '2024-01-02T00:00:00Z',
     updatedAt: '2024-01-02T00:00:00Z',
+    version: 0,
+    viewCount: 0,
   },
 ];
 
@@ -1,4 +1,4 @@
-export type AdStatus = 'ACTIVE' | 'INACTIVE' | 'SOLD' | 'DELETED' | 'BLOCKED';
+export type AdStatus = 'ACTIVE' | 'INACTIVE' | 'SOLD' | 'DELETED' | 'BLOCKED' | 'EXPIRED';
 
 export type Area = 
   | 'THONG_SALA'
@@ -16,10 +16,27 @@ export type Area =
 export type PricePeriod = 'DAY' | 'WEEK' | 'MONTH' | 'SALE';
 
 
+export type ImageStatus = 'PROCESSING' | 'READY' | 'FAILED';
+
 export interface AdImage {
   id: number;
   url: string;
   position: number;
+  status: ImageStatus;
+  thumbnailUrl: string | null;
+  cardUrl: string | null;
+  fullUrl: string | null;
+  /** BlurHash, shown until the image has loaded */
+  placeholder: string | null;
+}
+
+export interface DirectUploadResponse {
+  sha256: string;
+  exists: boolean;
+  uploadUrl: string | null;
+  method: string | null;
+  headers: Record<string, string>;
+  expiresAt: string | null;
 }
 
 export interface Ad {
@@ -37,6 +54,10 @@ export interface Ad {
   editToken?: string;
   createdAt: string;
   updatedAt: string;
+  /** Incremented by every update; sent back as If-Match */
+  version: number;
+  /** Views counted so far; lags a few seconds behind */
+  viewCount: number;
   images?: AdImage[];
 }
 
@@ -66,7 +87,7 @@ export interface AdSearchParams {
   pricePeriod?: PricePeriod;
   page?: number;
   size?: number;
-  sortBy?: 'createdAt' | 'price' | 'title' | 'updatedAt';
+  sortBy?: 'createdAt' | 'price' | 'title' | 'updatedAt' | 'views';
   sortDirection?: 'asc' | 'desc';
 }
 